@@ -0,0 +1,120 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.search;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Search latency of the {@link BookSearchIndex} over a synthetic catalog of one million books.
+ * <p>
+ * The titles, subtitles and author names are made of generated words. Their frequencies are skewed like natural
+ * language, so some words appear in a large part of the catalog and most are rare. The queries are taken from the
+ * generated books, so every query has matches.
+ * </p>
+ *
+ * <p>Run with {@code gradle jmh -PjmhIncludes=BookSearchIndexBenchmark}.</p>
+ */
+@State(Scope.Benchmark)
+public class BookSearchIndexBenchmark {
+
+    private static final String[] SYLLABLES = {"ka", "lo", "mi", "ra", "te", "shu", "von", "del", "ar", "is", "en", "tor",
+            "bel", "qua", "sa", "rin", "do", "mer", "lin", "gar", "the", "ne", "ul", "ost"};
+
+    @Param("1000000")
+    private int catalogSize;
+
+    private BookSearchIndex index;
+    private String commonTerm;
+    private String twoTerms;
+    private String misspelledTerms;
+    private String author;
+
+    @Setup(Level.Trial)
+    public void buildCatalog() {
+        Random random = new Random(42);
+        List<String> words = generateWords(random, 50_000);
+        List<String> firstNames = generateWords(random, 500);
+        List<String> lastNames = generateWords(random, 5_000);
+
+        index = new BookSearchIndex();
+        String[] sampleTitle = null;
+        String sampleAuthor = null;
+        for (int i = 0; i < catalogSize; i++) {
+            String[] title = phrase(random, words, 2 + random.nextInt(5));
+            String subtitle = random.nextBoolean() ? String.join(" ", phrase(random, words, 3)) : null;
+            List<String> authors = new ArrayList<>();
+            for (int a = 0; a <= random.nextInt(3) / 2; a++) {
+                authors.add(pick(random, firstNames) + " " + pick(random, lastNames));
+            }
+            index.add(UUID.randomUUID(), String.join(" ", title), subtitle, authors);
+            if (i == catalogSize / 2) {
+                sampleTitle = title;
+                sampleAuthor = authors.getFirst();
+            }
+        }
+        commonTerm = words.getFirst();
+        twoTerms = sampleTitle[0] + " " + sampleTitle[1];
+        misspelledTerms = misspell(sampleTitle[0]) + " " + misspell(sampleTitle[1]);
+        author = sampleAuthor;
+    }
+
+    @Benchmark
+    public IndexSearchResult commonTerm() {
+        return index.search(commonTerm, 0, 20);
+    }
+
+    @Benchmark
+    public IndexSearchResult twoTerms() {
+        return index.search(twoTerms, 0, 20);
+    }
+
+    @Benchmark
+    public IndexSearchResult misspelledTerms() {
+        return index.search(misspelledTerms, 0, 20);
+    }
+
+    @Benchmark
+    public IndexSearchResult author() {
+        return index.search(author, 0, 20);
+    }
+
+    private static List<String> generateWords(Random random, int count) {
+        List<String> words = new ArrayList<>(count);
+        while (words.size() < count) {
+            StringBuilder word = new StringBuilder();
+            int syllables = 2 + random.nextInt(3);
+            for (int s = 0; s < syllables; s++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    /**
+     * Picks a word with a skewed distribution: the first words of the list are by far the most frequent.
+     */
+    private static String pick(Random random, List<String> words) {
+        double skewed = Math.pow(random.nextDouble(), 3);
+        return words.get((int) (skewed * words.size()));
+    }
+
+    private static String[] phrase(Random random, List<String> words, int length) {
+        String[] phrase = new String[length];
+        for (int i = 0; i < length; i++) {
+            phrase[i] = pick(random, words);
+        }
+        return phrase;
+    }
+
+    /**
+     * Swaps two letters in the middle of a word, a typical typo.
+     */
+    private static String misspell(String word) {
+        int middle = word.length() / 2;
+        return word.substring(0, middle - 1) + word.charAt(middle) + word.charAt(middle - 1) + word.substring(middle + 1);
+    }
+}
@@ -0,0 +1,74 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Configuration of the thread pools for asynchronous work.
+ * <p>
+ * The streamed responses (library export, book stream, streamed search) and the concurrent ISBN lookups get separate,
+ * bounded pools. A burst of slow export clients can therefore neither queue up the ISBN lookups nor grow an unbounded
+ * queue of waiting streams. When the pool of the streamed responses is busy and its queue is full, further streams are
+ * rejected with HTTP 503 (see {@code ControllerExceptionHandler}).
+ * </p>
+ *
+ * @see WebAsyncConfig
+ */
+@Configuration
+public class AsyncConfig {
+
+    /**
+     * Name of the executor of the streamed responses of Spring MVC.
+     */
+    public static final String MVC_ASYNC_EXECUTOR = "mvcAsyncExecutor";
+
+    /**
+     * Name of the executor of the {@code @Async} ISBN lookups.
+     */
+    public static final String ISBN_LOOKUP_EXECUTOR = "isbnLookupExecutor";
+
+    /**
+     * Creates the executor that writes the streamed responses of Spring MVC.
+     *
+     * @param poolSize number of streams written at the same time
+     * @param queueCapacity number of streams waiting for a thread
+     * @return the executor
+     */
+    @Bean(name = MVC_ASYNC_EXECUTOR)
+    public ThreadPoolTaskExecutor mvcAsyncExecutor(@Value("${web.async.poolSize:16}") int poolSize,
+                                                   @Value("${web.async.queueCapacity:64}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("mvc-async-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        return executor;
+    }
+
+    /**
+     * Creates the executor of the {@code @Async} ISBN lookups.
+     * <p>
+     * If all threads are busy and the queue is full, the lookup runs on the calling thread, so a bulk lookup is slowed
+     * down instead of failing.
+     * </p>
+     *
+     * @param poolSize number of lookups running at the same time
+     * @param queueCapacity number of lookups waiting for a thread
+     * @return the executor
+     */
+    @Bean(name = ISBN_LOOKUP_EXECUTOR)
+    public ThreadPoolTaskExecutor isbnLookupExecutor(@Value("${isbn.lookup.poolSize:8}") int poolSize,
+                                                     @Value("${isbn.lookup.queueCapacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("isbn-lookup-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return executor;
+    }
+}
@@ -0,0 +1,34 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configuration of the asynchronous request handling of Spring MVC.
+ * <p>
+ * The streamed responses run on the bounded executor {@link AsyncConfig#MVC_ASYNC_EXECUTOR}. Endpoints that stream for a
+ * long time (e.g. the library export) set their own timeout, all others use {@code web.async.defaultTimeoutMillis}.
+ * </p>
+ */
+@Configuration
+public class WebAsyncConfig implements WebMvcConfigurer {
+
+    private final AsyncTaskExecutor executor;
+    private final long defaultTimeoutMillis;
+
+    WebAsyncConfig(@Qualifier(AsyncConfig.MVC_ASYNC_EXECUTOR) AsyncTaskExecutor executor,
+                   @Value("${web.async.defaultTimeoutMillis:30000}") long defaultTimeoutMillis) {
+        this.executor = executor;
+        this.defaultTimeoutMillis = defaultTimeoutMillis;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(executor);
+        configurer.setDefaultTimeout(defaultTimeoutMillis);
+    }
+}
@@ -1,11 +1,16 @@
 package de.throsenheim.inf.sqs.christophpircher.mylibbackend.api;
 
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.api.dto.*;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.DeadlineExceededException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.UnexpectedStatusException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Author;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Book;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookList;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Deadline;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 import retrofit2.Call;
@@ -18,8 +23,13 @@ import retrofit2.http.Query;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 /**
  * Service that acts as a proxy for interacting with the OpenLibrary API using Retrofit.
@@ -81,7 +91,9 @@ public class OpenLibraryAPI {
     private OpenLibraryAPIInterface api = null;
     private final Environment environment;
 
-    private static final String UNEXPECTED_STATUS_MESSAGE = "OpenLibraryAPI: Unexpected status code: ";
+    static final String UNEXPECTED_STATUS_MESSAGE = "OpenLibraryAPI: Unexpected status code: ";
+
+    private static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 64;
 
     /**
      * Constructor used by Spring Boot to inject environment variables.
@@ -106,6 +118,26 @@ public class OpenLibraryAPI {
      * @throws IOException if a connection or parsing error occurs.
      */
     public BookList searchBooks(String searchString, int startingIndex, int numResultsToGet) throws UnexpectedStatusException, IOException {
+        return searchBooks(searchString, startingIndex, numResultsToGet, book -> { });
+    }
+
+    /**
+     * Searches for books like {@link #searchBooks(String, int, int)}, but hands every book to a consumer as soon as it is resolved.
+     * <p>
+     * Works with a cover edition are complete with the search response and are passed on first. Works without one need
+     * an extra request for their editions each; they follow in search order as these requests finish. The returned
+     * {@link BookList} keeps the search order.
+     * </p>
+     *
+     * @param searchString The keyword(s) to search for.
+     * @param startingIndex The result offset for pagination.
+     * @param numResultsToGet Number of results to return.
+     * @param onBookResolved Called with every book of the result as soon as it is resolved.
+     * @return A {@link BookList} containing found books.
+     * @throws UnexpectedStatusException if OpenLibrary returns a non-200 status code.
+     * @throws IOException if a connection or parsing error occurs.
+     */
+    public BookList searchBooks(String searchString, int startingIndex, int numResultsToGet, Consumer<Book> onBookResolved) throws UnexpectedStatusException, IOException {
         log.info("Searching OpenLibrary for keywords: '{}'", searchString);
         searchString = searchString.trim().replaceAll("\\s", "+");
 
@@ -115,48 +147,30 @@ public class OpenLibraryAPI {
             Response<OpenLibraryAPISearchResponse> apiSearchResponse = apiSearchCall.execute();
             if(apiSearchResponse.isSuccessful() && apiSearchResponse.body() != null) {
                 OpenLibraryAPISearchResponse response = apiSearchResponse.body();
-                BookList.BookListBuilder builder = BookList.builder();
-                builder.numResults(response.getNumFound());
-                builder.startIndex(response.getStart());
-
                 List<OpenLibraryAPISearchWork> searchWorks = response.getSearchResults();
-                List<Book> books = new ArrayList<>(searchWorks.size());
-
-                int skippedBooks = 0;
-
-                for (OpenLibraryAPISearchWork work : searchWorks) {
-                    String coverEditionKey = work.getCoverEditionKey();
-                    if (coverEditionKey == null) {
-                        OpenLibraryAPIEditions editions = getWorkEditionsByID(work.getWorkKeyWithoutURL());
-                        if (!editions.getEditions().isEmpty()) {
-                            coverEditionKey = editions.getEditions().getFirst().getBookKeyWithoutURL();
-                            log.debug("Fallback edition used for work ID '{}': {}", work.getWorkKeyWithoutURL(), coverEditionKey);
-                        } else {
-                            ++skippedBooks;
-                            log.warn("Skipping work ID '{}': no coverEditionKey or fallback edition found", work.getWorkKeyWithoutURL());
-                            continue;
-                        }
+                Book[] resolvedBooks = new Book[searchWorks.size()];
+
+                // Works with a cover edition need no further request
+                for (int i = 0; i < searchWorks.size(); i++) {
+                    OpenLibraryAPISearchWork work = searchWorks.get(i);
+                    if (work.getCoverEditionKey() != null) {
+                        resolvedBooks[i] = toBook(work, work.getCoverEditionKey());
+                        onBookResolved.accept(resolvedBooks[i]);
                     }
+                }
 
-                    Book.BookBuilder bookBuilder = Book.builder();
-                    bookBuilder.bookID(coverEditionKey);
-                    bookBuilder.title(work.getTitle());
-                    bookBuilder.subtitle(work.getSubtitle());
-                    bookBuilder.authors(work.getAuthors());
-                    bookBuilder.publishDate(Integer.toString(work.getFirstPublishYear()));
-
-                    String[] coverURLs = getCoverURLs(work.getCoverID());
-                    bookBuilder.coverURLSmall(coverURLs[0]);
-                    bookBuilder.coverURLMedium(coverURLs[1]);
-                    bookBuilder.coverURLLarge(coverURLs[2]);
-
-                    books.add(bookBuilder.build());
+                for (int i = 0; i < searchWorks.size(); i++) {
+                    OpenLibraryAPISearchWork work = searchWorks.get(i);
+                    if (resolvedBooks[i] != null) {
+                        continue;
+                    }
+                    resolvedBooks[i] = toFallbackBook(work, getWorkEditionsByID(work.getWorkKeyWithoutURL()));
+                    if (resolvedBooks[i] != null) {
+                        onBookResolved.accept(resolvedBooks[i]);
+                    }
                 }
 
-                builder.books(books);
-                builder.skippedBooks(skippedBooks);
-                log.debug("Search returned {} books ({} skipped)", books.size(), skippedBooks);
-                return builder.build();
+                return toBookList(response, Arrays.asList(resolvedBooks));
             } else {
                 log.error("Search failed: {} {}", apiSearchResponse.code(), apiSearchResponse.message());
                 throw new UnexpectedStatusException(UNEXPECTED_STATUS_MESSAGE + apiSearchResponse.code());
@@ -168,6 +182,103 @@ public class OpenLibraryAPI {
         }
     }
 
+    /**
+     * Converts a work of a search result into a {@link Book} for one of its editions.
+     *
+     * @param work the work of the search result
+     * @param editionKey the book ID of the edition
+     * @return the book
+     */
+    private Book toBook(OpenLibraryAPISearchWork work, String editionKey) {
+        Book.BookBuilder bookBuilder = Book.builder();
+        bookBuilder.bookID(editionKey);
+        bookBuilder.title(work.getTitle());
+        bookBuilder.subtitle(work.getSubtitle());
+        bookBuilder.authors(Author.fromNames(work.getAuthors()));
+        bookBuilder.publishDate(Integer.toString(work.getFirstPublishYear()));
+
+        String[] coverURLs = getCoverURLs(work.getCoverID());
+        bookBuilder.coverURLSmall(coverURLs[0]);
+        bookBuilder.coverURLMedium(coverURLs[1]);
+        bookBuilder.coverURLLarge(coverURLs[2]);
+        return bookBuilder.build();
+    }
+
+    /**
+     * Searches for books like {@link #searchBooks(String, int, int)}, but without blocking the calling thread.
+     * <p>
+     * The requests are enqueued on the HTTP client; the edition lookups of works without a cover edition run
+     * concurrently. Cancelling the returned future cancels the requests that are still running.
+     * </p>
+     *
+     * @param searchString The keyword(s) to search for.
+     * @param startingIndex The result offset for pagination.
+     * @param numResultsToGet Number of results to return.
+     * @return A future with the {@link BookList}, or failed with an {@link UnexpectedStatusException} or {@link IOException}.
+     */
+    public CompletableFuture<BookList> searchBooksAsync(String searchString, int startingIndex, int numResultsToGet) {
+        log.info("Searching OpenLibrary asynchronously for keywords: '{}'", searchString);
+        String query = searchString.trim().replaceAll("\\s", "+");
+        OpenLibraryCalls calls = new OpenLibraryCalls();
+
+        return calls.bind(calls.enqueue(api.search(query, startingIndex, numResultsToGet), "search results for '" + searchString + "'")
+                .thenCompose(response -> {
+                    List<CompletableFuture<Book>> books = new ArrayList<>(response.getSearchResults().size());
+                    for (OpenLibraryAPISearchWork work : response.getSearchResults()) {
+                        if (work.getCoverEditionKey() != null) {
+                            books.add(CompletableFuture.completedFuture(toBook(work, work.getCoverEditionKey())));
+                        } else {
+                            String workID = work.getWorkKeyWithoutURL();
+                            books.add(calls.enqueue(api.getEditionsByWorkId(workID), "editions of work " + workID)
+                                    .thenApply(editions -> toFallbackBook(work, editions)));
+                        }
+                    }
+                    return CompletableFuture.allOf(books.toArray(CompletableFuture[]::new))
+                            .thenApply(done -> toBookList(response, books.stream().map(CompletableFuture::join).toList()));
+                }));
+    }
+
+    /**
+     * Converts a work of a search result without a cover edition into a {@link Book} for its first edition.
+     *
+     * @param work the work of the search result
+     * @param editions the editions of the work
+     * @return the book, or {@code null} if the work has no editions and is skipped
+     */
+    private Book toFallbackBook(OpenLibraryAPISearchWork work, OpenLibraryAPIEditions editions) {
+        if (editions.getEditions().isEmpty()) {
+            log.warn("Skipping work ID '{}': no coverEditionKey or fallback edition found", work.getWorkKeyWithoutURL());
+            return null;
+        }
+        String editionKey = editions.getEditions().getFirst().getBookKeyWithoutURL();
+        log.debug("Fallback edition used for work ID '{}': {}", work.getWorkKeyWithoutURL(), editionKey);
+        return toBook(work, editionKey);
+    }
+
+    /**
+     * Builds the {@link BookList} of a search response.
+     *
+     * @param response the search response
+     * @param resolvedBooks the books of the search results in search order, {@code null} for skipped works
+     * @return the book list
+     */
+    private BookList toBookList(OpenLibraryAPISearchResponse response, List<Book> resolvedBooks) {
+        List<Book> books = new ArrayList<>(resolvedBooks.size());
+        for (Book book : resolvedBooks) {
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        int skippedBooks = resolvedBooks.size() - books.size();
+        log.debug("Search returned {} books ({} skipped)", books.size(), skippedBooks);
+        return BookList.builder()
+                .numResults(response.getNumFound())
+                .startIndex(response.getStart())
+                .books(books)
+                .skippedBooks(skippedBooks)
+                .build();
+    }
+
     /**
      * Retrieves a book using its OpenLibrary book ID.
      *
@@ -178,52 +289,196 @@ public class OpenLibraryAPI {
      */
     public Optional<Book> getBookByBookID(String bookID) throws IOException, UnexpectedStatusException {
         log.info("Fetching book by ID: {}", bookID);
-        Call<OpenLibraryAPIBook> call = api.getBookById(bookID);
+        return getBook(api.getBookById(bookID), bookID);
+    }
+
+    /**
+     * Retrieves the edition with the given ISBN.
+     * <p>
+     * OpenLibrary redirects ISBN lookups to the edition, so the result is the same as for {@link #getBookByBookID(String)}.
+     * </p>
+     *
+     * @param isbn ISBN-10 or ISBN-13 without separators.
+     * @return Optional {@link Book}, empty if no edition has this ISBN (404).
+     * @throws IOException if the request fails.
+     * @throws UnexpectedStatusException if the API response is invalid or unexpected.
+     */
+    public Optional<Book> getBookByIsbn(String isbn) throws IOException, UnexpectedStatusException {
+        log.info("Fetching book by ISBN: {}", isbn);
+        return getBook(api.getBookByIsbn(isbn), isbn);
+    }
+
+    /**
+     * Executes a request for an edition and converts the edition, together with its work and authors, into a {@link Book}.
+     *
+     * @param call the request for the edition
+     * @param identifier the book ID or ISBN of the request, for logging
+     * @return Optional {@link Book}, empty if not found (404).
+     * @throws IOException if the request fails.
+     * @throws UnexpectedStatusException if the API response is invalid or unexpected.
+     */
+    private Optional<Book> getBook(Call<OpenLibraryAPIBook> call, String identifier) throws IOException, UnexpectedStatusException {
         try {
             Response<OpenLibraryAPIBook> bookResponse = call.execute();
             if (bookResponse.isSuccessful() && bookResponse.body() != null) {
                 OpenLibraryAPIBook bookDTO = bookResponse.body();
-                Book.BookBuilder bookBuilder = Book.builder();
-                bookBuilder.title(bookDTO.getTitle());
-                bookBuilder.subtitle(bookDTO.getSubtitle());
-                bookBuilder.publishDate(bookDTO.getPublishDate());
-                bookBuilder.bookID(bookDTO.getBookIDWithoutURL());
-
-                if (!bookDTO.getCoverIDs().isEmpty()) {
-                    String[] coverURLs = getCoverURLs(bookDTO.getCoverIDs().getFirst());
-                    bookBuilder.coverURLSmall(coverURLs[0]);
-                    bookBuilder.coverURLMedium(coverURLs[1]);
-                    bookBuilder.coverURLLarge(coverURLs[2]);
-                }
-
                 OpenLibraryAPIWork work = getWorkByWorkID(bookDTO.getWorkKeys().getFirst().getKeyWithoutURL());
-                bookBuilder.description(work.getDescription().getValue());
 
-                List<String> authors = new ArrayList<>(work.getAuthors().size());
+                List<Author> authors = new ArrayList<>(work.getAuthors().size());
                 for (OpenLibraryAPIWork.Author author : work.getAuthors()) {
-                    authors.add(getAuthorByAuthorID(author.getAuthorKey().getKeyWithoutURL()).getName());
+                    authors.add(Author.of(getAuthorByAuthorID(author.getAuthorKey().getKeyWithoutURL()).getName()));
                 }
-                bookBuilder.authors(authors);
-
-                List<String> isbns = new ArrayList<>(bookDTO.getIsbn10s().size() + bookDTO.getIsbn13s().size());
-                isbns.addAll(bookDTO.getIsbn10s());
-                isbns.addAll(bookDTO.getIsbn13s());
-                bookBuilder.isbns(isbns);
 
-                return Optional.of(bookBuilder.build());
+                return Optional.of(toBook(bookDTO, work, authors));
             } else if (bookResponse.code() == 404) {
-                log.warn("Book not found for ID: {}", bookID);
+                log.warn("Book not found: {}", identifier);
                 return Optional.empty();
             } else {
-                log.error("Failed to fetch book {}: {} {}", bookID, bookResponse.code(), bookResponse.message());
+                log.error("Failed to fetch book {}: {} {}", identifier, bookResponse.code(), bookResponse.message());
                 throw new UnexpectedStatusException(UNEXPECTED_STATUS_MESSAGE + bookResponse.code());
             }
         } catch (IOException e) {
-            log.error("IOException while fetching book {}: {}", bookID, e.getMessage());
+            log.error("IOException while fetching book {}: {}", identifier, e.getMessage());
             throw alterIOException(e);
         }
     }
 
+    /**
+     * Retrieves a book using its OpenLibrary book ID like {@link #getBookByBookID(String)}, but without blocking the
+     * calling thread.
+     * <p>
+     * The work is requested after the edition, the authors of the work concurrently. Cancelling the returned future
+     * cancels the requests that are still running.
+     * </p>
+     *
+     * @param bookID Book ID (e.g., "OL12345M").
+     * @return A future with the optional {@link Book} (empty if not found), or failed with an
+     *         {@link UnexpectedStatusException} or {@link IOException}.
+     */
+    public CompletableFuture<Optional<Book>> getBookByBookIDAsync(String bookID) {
+        return getBookByBookIDAsync(bookID, null);
+    }
+
+    /**
+     * Retrieves a book using its OpenLibrary book ID like {@link #getBookByBookIDAsync(String)}, within the time left
+     * until the given deadline.
+     * <p>
+     * Only the edition is required. If the work or an author cannot be fetched before the deadline, the book is returned
+     * without the description or that author and flagged as {@link Book#isIncomplete() incomplete}. Other failures of
+     * these requests still fail the lookup.
+     * </p>
+     *
+     * @param bookID Book ID (e.g., "OL12345M").
+     * @param deadline the deadline of the lookup, {@code null} for none
+     * @return A future with the optional {@link Book} (empty if not found), or failed with a {@link DeadlineExceededException}
+     *         if the edition could not be fetched in time, an {@link UnexpectedStatusException} or {@link IOException}.
+     */
+    public CompletableFuture<Optional<Book>> getBookByBookIDAsync(String bookID, Deadline deadline) {
+        log.info("Fetching book by ID asynchronously: {}", bookID);
+        OpenLibraryCalls calls = new OpenLibraryCalls(deadline);
+        return calls.bind(calls.enqueueOptional(api.getBookById(bookID), "book " + bookID)
+                .thenCompose(bookDTO -> bookDTO.isEmpty()
+                        ? CompletableFuture.completedFuture(Optional.<Book>empty())
+                        : getBookDetailsAsync(bookDTO.get(), calls).thenApply(Optional::of)));
+    }
+
+    /**
+     * Requests the work and the authors of an edition and converts them into a {@link Book}.
+     * <p>
+     * The work and the authors are left out if their requests run out of time, see {@link #getBookByBookIDAsync(String, Deadline)}.
+     * </p>
+     *
+     * @param bookDTO the edition
+     * @param calls the requests of the lookup
+     * @return a future with the book
+     */
+    private CompletableFuture<Book> getBookDetailsAsync(OpenLibraryAPIBook bookDTO, OpenLibraryCalls calls) {
+        String workID = bookDTO.getWorkKeys().getFirst().getKeyWithoutURL();
+        return unlessDeadlineExceeded(calls.enqueue(api.getWorkById(workID), "work " + workID)).thenCompose(work -> {
+            if (work.isEmpty()) {
+                return CompletableFuture.completedFuture(toBook(bookDTO, null, new ArrayList<>(), true));
+            }
+            List<CompletableFuture<Optional<Author>>> authors = new ArrayList<>(work.get().getAuthors().size());
+            for (OpenLibraryAPIWork.Author author : work.get().getAuthors()) {
+                String authorID = author.getAuthorKey().getKeyWithoutURL();
+                authors.add(unlessDeadlineExceeded(calls.enqueue(api.getAuthorById(authorID), "author " + authorID)
+                        .thenApply(found -> Author.of(found.getName()))));
+            }
+            return CompletableFuture.allOf(authors.toArray(CompletableFuture[]::new)).thenApply(done -> {
+                List<Optional<Author>> resolved = authors.stream().map(CompletableFuture::join).toList();
+                return toBook(bookDTO, work.get(), new ArrayList<>(resolved.stream().flatMap(Optional::stream).toList()),
+                        resolved.stream().anyMatch(Optional::isEmpty));
+            });
+        });
+    }
+
+    /**
+     * Turns a request that ran out of time into an empty result, for data a book can be returned without.
+     *
+     * @param request the request
+     * @return a future with the result, empty if the request failed with a {@link DeadlineExceededException}
+     */
+    private static <T> CompletableFuture<Optional<T>> unlessDeadlineExceeded(CompletableFuture<T> request) {
+        return request.handle((result, e) -> {
+            if (e == null) {
+                return Optional.of(result);
+            }
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof DeadlineExceededException) {
+                return Optional.<T>empty();
+            }
+            throw e instanceof CompletionException completion ? completion : new CompletionException(e);
+        });
+    }
+
+    /**
+     * Converts an edition, together with its work and authors, into a {@link Book}.
+     *
+     * @param bookDTO the edition
+     * @param work the work of the edition
+     * @param authors the authors of the work
+     * @return the book
+     */
+    private Book toBook(OpenLibraryAPIBook bookDTO, OpenLibraryAPIWork work, List<Author> authors) {
+        return toBook(bookDTO, work, authors, false);
+    }
+
+    /**
+     * Converts an edition, together with its work and authors, into a {@link Book} that may lack some of them.
+     *
+     * @param bookDTO the edition
+     * @param work the work of the edition, {@code null} if it is missing
+     * @param authors the authors of the work that were fetched
+     * @param incomplete whether the work or some authors are missing
+     * @return the book
+     */
+    private Book toBook(OpenLibraryAPIBook bookDTO, OpenLibraryAPIWork work, List<Author> authors, boolean incomplete) {
+        Book.BookBuilder bookBuilder = Book.builder();
+        bookBuilder.title(Objects.requireNonNullElse(bookDTO.getTitle(), "")); // Books are stored, and the title column is not nullable
+        bookBuilder.subtitle(bookDTO.getSubtitle());
+        bookBuilder.publishDate(bookDTO.getPublishDate());
+        bookBuilder.bookID(bookDTO.getBookIDWithoutURL());
+
+        if (!bookDTO.getCoverIDs().isEmpty()) {
+            String[] coverURLs = getCoverURLs(bookDTO.getCoverIDs().getFirst());
+            bookBuilder.coverURLSmall(coverURLs[0]);
+            bookBuilder.coverURLMedium(coverURLs[1]);
+            bookBuilder.coverURLLarge(coverURLs[2]);
+        }
+
+        if (work != null) {
+            bookBuilder.description(work.getDescription().getValue());
+        }
+        bookBuilder.authors(authors);
+        bookBuilder.incomplete(incomplete);
+
+        List<String> isbns = new ArrayList<>(bookDTO.getIsbn10s().size() + bookDTO.getIsbn13s().size());
+        isbns.addAll(bookDTO.getIsbn10s());
+        isbns.addAll(bookDTO.getIsbn13s());
+        bookBuilder.isbns(isbns);
+        return bookBuilder.build();
+    }
+
     /**
      * Retrieves metadata for a work using its ID.
      *
@@ -305,14 +560,22 @@ public class OpenLibraryAPI {
      * Initializes the Retrofit client after dependency injection completes.
      * <p>
      * Loads the base URL from application properties, allowing dynamic switching for test environments.
+     * All requests go to the same host, so the limit of concurrent asynchronous requests per host is raised to
+     * {@code external.openLibraryMaxConcurrentRequests} (default 64). Further asynchronous requests wait in the queue of the
+     * dispatcher without holding a thread.
      * </p>
      */
     @PostConstruct
     void createNewApi() {
         String baseurl = environment.getProperty("external.openLibraryAPIBaseURL");
-        log.info("Creating OpenLibraryAPI object with base URL: {}", baseurl);
+        int maxConcurrentRequests = environment.getProperty("external.openLibraryMaxConcurrentRequests", Integer.class, DEFAULT_MAX_CONCURRENT_REQUESTS);
+        log.info("Creating OpenLibraryAPI object with base URL: {} (at most {} concurrent asynchronous requests)", baseurl, maxConcurrentRequests);
         assert baseurl != null;
-        Retrofit retrofit = new Retrofit.Builder().baseUrl(baseurl).addConverterFactory(JacksonConverterFactory.create()).build();
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxConcurrentRequests);
+        dispatcher.setMaxRequestsPerHost(maxConcurrentRequests);
+        OkHttpClient client = new OkHttpClient.Builder().dispatcher(dispatcher).build();
+        Retrofit retrofit = new Retrofit.Builder().baseUrl(baseurl).client(client).addConverterFactory(JacksonConverterFactory.create()).build();
         api = retrofit.create(OpenLibraryAPIInterface.class);
     }
 
@@ -323,7 +586,7 @@ public class OpenLibraryAPI {
      * @param original The original IOException.
      * @return Modified IOException with additional context.
      */
-    private IOException alterIOException(IOException original) {
+    static IOException alterIOException(IOException original) {
         IOException altered = new IOException("OpenLibraryAPI: " + original.getMessage());
         altered.setStackTrace(original.getStackTrace());
         return altered;
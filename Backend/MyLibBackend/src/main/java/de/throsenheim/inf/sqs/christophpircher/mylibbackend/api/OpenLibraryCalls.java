@@ -0,0 +1,159 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.api;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.DeadlineExceededException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.UnexpectedStatusException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Deadline;
+import lombok.extern.slf4j.Slf4j;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The asynchronous requests of one OpenLibrary lookup, which may need several requests (e.g. an edition, its work and
+ * its authors).
+ * <p>
+ * The requests are enqueued on the dispatcher of the HTTP client instead of being executed, so no thread of the caller
+ * waits for the network. Cancelling the future returned by {@link #bind(CompletableFuture)} cancels all requests of the
+ * lookup that are still queued or running, including those enqueued later by dependent stages.
+ * </p>
+ * <p>
+ * Failures are the same as for the synchronous requests of {@link OpenLibraryAPI}: an {@link UnexpectedStatusException}
+ * for unexpected status codes and an {@link IOException} with the {@code OpenLibraryAPI:} prefix for network or parsing errors.
+ * </p>
+ * <p>
+ * With a {@link Deadline}, every request may take at most the time left until the deadline. Requests with less than
+ * {@link #MIN_REQUEST_MILLIS} left are not sent at all. Both fail with a {@link DeadlineExceededException}.
+ * </p>
+ */
+@Slf4j
+final class OpenLibraryCalls {
+
+    /**
+     * Least time left for a request to be sent. With less, the answer would hardly arrive before the deadline.
+     */
+    static final long MIN_REQUEST_MILLIS = 50;
+
+    private final Set<Call<?>> calls = ConcurrentHashMap.newKeySet();
+    private final Deadline deadline;
+    private volatile boolean cancelled = false;
+
+    /**
+     * Creates the requests of a lookup without a deadline.
+     */
+    OpenLibraryCalls() {
+        this(null);
+    }
+
+    /**
+     * Creates the requests of a lookup that must finish by the given deadline.
+     *
+     * @param deadline the deadline of the lookup, {@code null} for none
+     */
+    OpenLibraryCalls(Deadline deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Enqueues a request whose response must have a body.
+     *
+     * @param call the request
+     * @param description what is requested, for logging (e.g. "work OL123W")
+     * @return a future with the body, or failed with an {@link UnexpectedStatusException} or {@link IOException}
+     */
+    <T> CompletableFuture<T> enqueue(Call<T> call, String description) {
+        return enqueue(call, description, false).thenApply(Optional::orElseThrow);
+    }
+
+    /**
+     * Enqueues a request like {@link #enqueue(Call, String)}, but a {@code 404 Not Found} yields an empty result.
+     *
+     * @param call the request
+     * @param description what is requested, for logging (e.g. "book OL123M")
+     * @return a future with the body (empty on 404), or failed with an {@link UnexpectedStatusException} or {@link IOException}
+     */
+    <T> CompletableFuture<Optional<T>> enqueueOptional(Call<T> call, String description) {
+        return enqueue(call, description, true);
+    }
+
+    private <T> CompletableFuture<Optional<T>> enqueue(Call<T> call, String description, boolean emptyIfNotFound) {
+        if (deadline != null) {
+            if (!deadline.hasRemaining(MIN_REQUEST_MILLIS)) {
+                log.warn("Skipping request for {}: deadline is {} ms away", description, deadline.remainingMillis());
+                return CompletableFuture.failedFuture(deadlineExceeded(description));
+            }
+            call.timeout().timeout(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        CompletableFuture<Optional<T>> future = new CompletableFuture<>();
+        calls.add(call);
+        if (cancelled) {
+            call.cancel(); // The lookup was cancelled while an earlier request finished; the callback fails the future
+        }
+        call.enqueue(new Callback<>() {
+            @Override
+            public void onResponse(Call<T> finished, Response<T> response) {
+                calls.remove(finished);
+                if (response.isSuccessful() && response.body() != null) {
+                    future.complete(Optional.of(response.body()));
+                } else if (emptyIfNotFound && response.code() == 404) {
+                    log.warn("Not found in OpenLibrary: {}", description);
+                    future.complete(Optional.empty());
+                } else {
+                    log.error("Failed to fetch {}: {} {}", description, response.code(), response.message());
+                    future.completeExceptionally(new UnexpectedStatusException(OpenLibraryAPI.UNEXPECTED_STATUS_MESSAGE + response.code()));
+                }
+            }
+
+            @Override
+            public void onFailure(Call<T> failed, Throwable t) {
+                calls.remove(failed);
+                if (!cancelled && deadline != null && !deadline.hasRemaining(MIN_REQUEST_MILLIS)) {
+                    // Checked first, because the call timeout of the HTTP client cancels the call as well
+                    log.warn("Request for {} ran out of time: {}", description, t.getMessage());
+                    future.completeExceptionally(deadlineExceeded(description));
+                    return;
+                } else if (failed.isCanceled()) {
+                    log.debug("Request for {} cancelled", description);
+                } else {
+                    log.error("IOException while fetching {}: {}", description, t.getMessage());
+                }
+                future.completeExceptionally(t instanceof IOException e ? OpenLibraryAPI.alterIOException(e) : t);
+            }
+        });
+        return future;
+    }
+
+    private static DeadlineExceededException deadlineExceeded(String description) {
+        return new DeadlineExceededException("OpenLibraryAPI: Deadline exceeded while fetching " + description);
+    }
+
+    /**
+     * Cancels the requests of this lookup when the given future is cancelled.
+     *
+     * @param result the future with the result of the lookup
+     * @return {@code result}
+     */
+    <T> CompletableFuture<T> bind(CompletableFuture<T> result) {
+        result.whenComplete((value, e) -> {
+            if (result.isCancelled()) {
+                cancel();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Cancels all queued and running requests of this lookup, and all requests enqueued later.
+     */
+    void cancel() {
+        cancelled = true;
+        calls.forEach(Call::cancel);
+    }
+}
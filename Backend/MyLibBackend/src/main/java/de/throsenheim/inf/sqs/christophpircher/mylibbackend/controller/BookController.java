@@ -1,21 +1,47 @@
 package de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto.*;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.BookNotFoundException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.BookNotInLibraryException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.BulkLimitExceededException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidCursorException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidImportFileException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidIsbnException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidPageSizeException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidRatingException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.TooManyExportsException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.UnexpectedStatusException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Book;
-import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookList;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookSummary;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookSummaryList;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BulkResult;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Deadline;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.ImportJob;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.ReadingStatus;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.User;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.BookService;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.LibrarySnapshotCache;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.UserPrincipal;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.exports.LibraryExportFormat;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.exports.LibraryExportService;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.imports.LibraryImportService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -25,9 +51,20 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Controller class that handles all HTTP endpoints related to books in the application.
@@ -44,101 +81,260 @@ import java.util.Optional;
 @RequestMapping("/api/v1/books/")
 public class BookController {
     private BookService bookService;
+    private LibraryImportService libraryImportService;
+    private LibraryExportService libraryExportService;
+    private PageSizeLimit pageSizeLimit;
+    private RequestDeadlines requestDeadlines;
+    private HttpCaching httpCaching;
+    private StreamingLimits streamingLimits;
+    private LibrarySnapshotCache librarySnapshotCache;
+    private ObjectMapper objectMapper;
 
     /**
      * Retrieves book details by its OpenLibrary ID or internal key.
      * Adds user-specific data (rating, status, library/wishlist membership) if the user is authenticated.
+     * The servlet thread is released while OpenLibrary is queried; if the client disconnects, the requests to
+     * OpenLibrary are cancelled.
+     * The lookup has a deadline ({@code books.byID.deadlineMillis}, shortened by the {@code X-Request-Timeout} header).
+     * If the description or some authors are not fetched by then, the book is returned without them and flagged as incomplete.
+     * Anonymous responses have an entity tag and may be cached, see {@link HttpCaching}; incomplete books are not cached.
      *
      * @param bookID the OpenLibrary book ID
-     * @return {@code 200 OK} with {@link BookDTO} if found, {@code 404 Not Found} otherwise
-     * @throws UnexpectedStatusException if the OpenLibrary API returned an unexpected HTTP status
-     * @throws IOException if there was a communication error with the OpenLibrary API
+     * @param timeoutMillis the value of the {@code X-Request-Timeout} header, if any
+     * @param ifNoneMatch the value of the {@code If-None-Match} header, if any
+     * @return {@code 200 OK} with {@link BookDTO} if found, {@code 304 Not Modified} if the book did not change since the
+     *         client fetched it with the given entity tag, {@code 404 Not Found} otherwise. Completed when OpenLibrary
+     *         answers; failures of OpenLibrary ({@link UnexpectedStatusException}, {@link IOException}) complete it with
+     *         {@code 502 Bad Gateway}, a book that could not be looked up before the deadline with {@code 504 Gateway Timeout}
      */
     @Operation(summary = "Get a book by its OpenLibrary API book id/key", responses = {
             @ApiResponse(responseCode = "200", description = "Details of the book", content = @Content(schema = @Schema(implementation = BookDTO.class))),
+            @ApiResponse(responseCode = "304", description = "The book did not change since it was fetched with the entity tag in If-None-Match"),
             @ApiResponse(responseCode = "404", description = "There is no book with that ID in the database or in the OpenLibrary API"),
-            @ApiResponse(responseCode = "502", description = "Something went wrong while accessing the OpenLibrary API (e.g. the server is not responding etc.", content = @Content(schema = @Schema(implementation = ApiError.class)))
+            @ApiResponse(responseCode = "502", description = "Something went wrong while accessing the OpenLibrary API (e.g. the server is not responding etc.", content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "504", description = "The book could not be looked up before the deadline of the request", content = @Content(schema = @Schema(implementation = ApiError.class)))
     })
     @GetMapping(value = "/get/byID/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<BookDTO> getBookById(@PathVariable("id") String bookID) throws UnexpectedStatusException, IOException {
+    public DeferredResult<ResponseEntity<?>> getBookById(@PathVariable("id") String bookID, @RequestHeader(value = RequestDeadlines.TIMEOUT_HEADER, required = false) Long timeoutMillis,
+                                                       @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.debug("Request received: GET /get/byID/{}", bookID);
-        Optional<Book> book = bookService.getBookById(bookID);
+        Deadline deadline = requestDeadlines.forGetBookById(timeoutMillis);
+        // The security context is bound to the servlet thread, the book is converted on the thread completing the lookup
+        User user = Util.getAuthenticatedUser(SecurityContextHolder.getContext().getAuthentication());
+
+        return Util.toDeferredResult(bookService.getBookByIdAsync(bookID, deadline), deadline, book -> {
+            if (book.isEmpty()) {
+                log.info("Book '{}' not found", bookID);
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).cacheControl(CacheControl.noStore()).build();
+            }
+            if (user != null) {
+                return httpCaching.respond(ifNoneMatch, null, true, () -> Util.convertBookToDTOWithUserSpecificInfo(book.get(), user, bookService));
+            }
+            return httpCaching.respond(ifNoneMatch, HttpCaching.eTag(book.get()), false, () -> anonymousBody(book.get()));
+        });
+    }
+
+    /**
+     * Creates the body of an anonymous response with a book. For a book from the cache of the OpenLibrary books this is
+     * the JSON kept next to its cache entry, so repeated requests skip the mapping and the serialization.
+     *
+     * @param book the book
+     * @return the JSON of the {@link BookDTO} if the book is cached, the {@link BookDTO} otherwise
+     */
+    private Object anonymousBody(Book book) {
+        if (book.getCacheVersion() > 0) {
+            return bookService.getSerializedBook(book, () -> Util.toJson(objectMapper, BookDTO.fromBook(book)));
+        }
+        return BookDTO.fromBook(book);
+    }
+
+    /**
+     * Retrieves book details by its ISBN, normalized to ISBN-13 first.
+     * Adds user-specific data (rating, status, library/wishlist membership) if the user is authenticated.
+     *
+     * @param isbn ISBN-10 or ISBN-13, hyphens are allowed
+     * @return {@code 200 OK} with {@link BookDTO} if found, {@code 404 Not Found} otherwise
+     * @throws InvalidIsbnException if the ISBN is malformed or its check digit is wrong
+     * @throws UnexpectedStatusException if the OpenLibrary API returned an unexpected HTTP status
+     * @throws IOException if there was a communication error with the OpenLibrary API
+     */
+    @Operation(summary = "Get a book by its ISBN-10 or ISBN-13", responses = {
+            @ApiResponse(responseCode = "200", description = "Details of the book", content = @Content(schema = @Schema(implementation = BookDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Malformed ISBN or wrong check digit", content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "404", description = "There is no book with that ISBN in the database or in the OpenLibrary API"),
+            @ApiResponse(responseCode = "502", description = "Something went wrong while accessing the OpenLibrary API (e.g. the server is not responding etc.", content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    @GetMapping(value = "/get/byISBN/{isbn}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BookDTO> getBookByIsbn(@PathVariable("isbn") String isbn) throws InvalidIsbnException, UnexpectedStatusException, IOException {
+        log.debug("Request received: GET /get/byISBN/{}", isbn);
+        Optional<Book> book = bookService.getBookByIsbn(isbn);
 
         if (book.isEmpty()) {
-            log.info("Book '{}' not found", bookID);
+            log.info("No book found for ISBN '{}'", isbn);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
 
-        BookDTO bookDTO = BookDTO.fromBook(book.get());
+        return ResponseEntity.ok(convertBookToDTOWithUserSpecificInfoIfAuthenticated(book.get()));
+    }
 
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
-            User user = ((UserPrincipal) auth.getPrincipal()).getUser();
-            log.debug("Authenticated user '{}' - enriching bookDTO with user-specific info", user.getUsername());
-            bookDTO.setIndividualRating(bookService.getIndividualRating(bookID, user));
-            bookDTO.setReadingStatus(bookService.getReadingStatus(bookID, user));
-            bookDTO.setBookIsInLibrary(bookService.isBookInLibrary(bookID, user));
-            bookDTO.setBookIsOnWishlist(bookService.isBookOnWishlist(bookID, user));
-        }
+    /**
+     * Looks up many books by their ISBNs at once, e.g. a shelf of scanned barcodes.
+     * Every ISBN gets its own result in the order of the request. The books contain no user-specific data.
+     *
+     * @param dto the ISBNs to look up
+     * @return {@code 200 OK} with one {@link IsbnLookupDTO} per ISBN
+     * @throws BulkLimitExceededException if more than {@link BookService#MAX_BULK_ISBNS} ISBNs are sent
+     */
+    @Operation(summary = "Look up books by up to 500 ISBN-10s or ISBN-13s at once", responses = {
+            @ApiResponse(responseCode = "200", description = "One result per ISBN, in the order of the request", content = @Content(array = @ArraySchema(schema = @Schema(implementation = IsbnLookupDTO.class)))),
+            @ApiResponse(responseCode = "400", description = "Too many ISBNs or no ISBN list", content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    @PostMapping(value = "/get/byISBN", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<IsbnLookupDTO>> getBooksByIsbns(@Valid @RequestBody IsbnLookupRequestDTO dto) throws BulkLimitExceededException {
+        log.debug("Request received: POST /get/byISBN with {} ISBNs", dto.getIsbns().size());
+        List<IsbnLookupDTO> results = bookService.getBooksByIsbns(dto.getIsbns()).stream().map(IsbnLookupDTO::fromIsbnLookup).toList();
+        return ResponseEntity.ok(results);
+    }
 
-        return ResponseEntity.ok(bookDTO);
+    /**
+     * Retrieves the rating distribution of a book from its rating aggregates.
+     *
+     * @param bookID the OpenLibrary book ID
+     * @return {@code 200 OK} with {@link RatingHistogramDTO} if the book is in the database, {@code 404 Not Found} otherwise
+     */
+    @Operation(summary = "Get the average rating and the number of ratings per star of a book", responses = {
+            @ApiResponse(responseCode = "200", description = "Rating distribution of the book", content = @Content(schema = @Schema(implementation = RatingHistogramDTO.class))),
+            @ApiResponse(responseCode = "404", description = "There is no book with that ID in the database, so it has not been rated yet")
+    })
+    @GetMapping(value = "/get/ratings/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<RatingHistogramDTO> getRatingHistogram(@PathVariable("id") String bookID) {
+        log.debug("Request received: GET /get/ratings/{}", bookID);
+        Optional<Book> book = bookService.getKnownBookById(bookID);
+        if (book.isEmpty()) {
+            log.info("Book '{}' not found in database", bookID);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        return ResponseEntity.ok(RatingHistogramDTO.fromBook(book.get()));
     }
 
     /**
-     * Retrieves a paginated list of all books in the database.
+     * Retrieves a paginated list of all books in the database, sorted by title.
+     * If a cursor is given, the page after the cursor is returned (keyset pagination) and {@code startIndex} is only echoed back.
+     * Anonymous responses have an entity tag and may be cached, see {@link HttpCaching}.
      *
      * @param startIndex zero-based start index for pagination
      * @param numResultsToGet number of books to retrieve starting from {@code startIndex}
-     * @return {@code 200 OK} with {@link BookListDTO} object
+     * @param cursor optional {@code nextCursor} of the previous page
+     * @param ifNoneMatch the value of the {@code If-None-Match} header, if any
+     * @return {@code 200 OK} with {@link BookListDTO} object, {@code 304 Not Modified} if the page did not change since the
+     *         client fetched it with the given entity tag
+     * @throws InvalidCursorException if the cursor is malformed
+     * @throws InvalidPageSizeException if {@code startIndex} is negative or {@code numResultsToGet} is out of range
      */
     @Operation(summary = "Get a list of all books. Paginated.", responses = {
             @ApiResponse(responseCode = "200", description = "List with all books in the database (paginated)", content = @Content(schema = @Schema(implementation = BookDTO.class))),
+            @ApiResponse(responseCode = "304", description = "The page did not change since it was fetched with the entity tag in If-None-Match"),
+            @ApiResponse(responseCode = "400", description = "Malformed cursor, or page size above the maximum", content = @Content(schema = @Schema(implementation = ApiError.class)))
     })
     @GetMapping(value = "/get/all", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<BookListDTO> getAllBooks(@RequestParam(defaultValue = "0") int startIndex,@RequestParam(defaultValue = "100") int numResultsToGet) {
-        log.debug("Request received: GET /get/all?startIndex={}&numResultsToGet={}", startIndex, numResultsToGet);
-        BookList bookList = bookService.getAllKnownBooks(startIndex, numResultsToGet);
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        return ResponseEntity.ok(Util.convertBookListToDTOWithUserSpecificInfoIfAuthenticated(bookList, bookService, auth));
+    public ResponseEntity<BookListDTO> getAllBooks(@RequestParam(defaultValue = "0") int startIndex,@RequestParam(defaultValue = "100") int numResultsToGet, @RequestParam(required = false) String cursor,
+                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) throws InvalidCursorException, InvalidPageSizeException {
+        log.debug("Request received: GET /get/all?startIndex={}&numResultsToGet={}&cursor={}", startIndex, numResultsToGet, cursor);
+        pageSizeLimit.check(startIndex, numResultsToGet);
+        User user = Util.getAuthenticatedUser(SecurityContextHolder.getContext().getAuthentication());
+        BookSummaryList bookList = cursor == null ? bookService.getAllKnownBooks(startIndex, numResultsToGet, user) : bookService.getAllKnownBooksAfter(cursor, startIndex, numResultsToGet, user);
+        return httpCaching.respond(ifNoneMatch, user != null ? null : HttpCaching.eTag(bookList), user != null,
+                () -> Util.convertBookSummaryListToDTO(bookList, user));
+    }
+
+    /**
+     * Streams all books in the database, sorted by title, as one JSON array.
+     * <p>
+     * For clients that need the whole catalog, e.g. for synchronization: the array is written while the books are loaded
+     * chunk by chunk, so it is neither paginated nor limited by the maximum page size. Adds user-specific data if the user
+     * is authenticated. The stream has its own timeout ({@code books.stream.timeoutMillis}), see {@link StreamingLimits}.
+     * </p>
+     *
+     * @param request the current request
+     * @return {@code 200 OK} with the streamed array of {@link BookDTO}s
+     */
+    @Operation(summary = "Get all books as one streamed JSON array. Not paginated.", responses = {
+            @ApiResponse(responseCode = "200", description = "All books in the database", content = @Content(array = @ArraySchema(schema = @Schema(implementation = BookDTO.class)))),
+            @ApiResponse(responseCode = "503", description = "The server is busy streaming other responses", content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    @GetMapping(value = "/get/all/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllBooks(HttpServletRequest request) {
+        log.debug("Request received: GET /get/all/stream");
+        streamingLimits.startBookStream(request);
+        User user = Util.getAuthenticatedUser(SecurityContextHolder.getContext().getAuthentication());
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> writeBookArray(out, user));
     }
 
     /**
-     * Retrieves a paginated list of books in the authenticated user's library.
+     * Retrieves a paginated list of books in the authenticated user's library, sorted by title.
      * Also includes user-specific metadata per book.
+     * If a cursor is given, the page after the cursor is returned (keyset pagination) and {@code startIndex} is only echoed back.
+     * The serialized page is cached until the library changes, see {@link LibrarySnapshotCache}.
      *
      * @param userPrincipal the authenticated user's principal
      * @param startIndex zero-based start index for pagination
      * @param numResultsToGet number of books to retrieve starting from {@code startIndex}
+     * @param cursor optional {@code nextCursor} of the previous page
      * @return {@code 200 OK} with list of {@link BookDTO}s
+     * @throws InvalidCursorException if the cursor is malformed
+     * @throws InvalidPageSizeException if {@code startIndex} is negative or {@code numResultsToGet} is out of range
      */
     @Operation(summary = "Get a list of all books in the library of a user. Paginated.", responses = {
             @ApiResponse(responseCode = "200", description = "List with all books in the library (paginated)", content = @Content(schema = @Schema(implementation = BookDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Malformed cursor, or page size above the maximum", content = @Content(schema = @Schema(implementation = ApiError.class))),
             @ApiResponse(responseCode = "403", description = "User is not authenticated")
     })
     @GetMapping(value ="/get/library", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<BookListDTO> getAllBooksInLibrary(@AuthenticationPrincipal UserPrincipal userPrincipal, @RequestParam(defaultValue = "0") int startIndex, @RequestParam(defaultValue = "100") int numResultsToGet) {
+    public ResponseEntity<byte[]> getAllBooksInLibrary(@AuthenticationPrincipal UserPrincipal userPrincipal, @RequestParam(defaultValue = "0") int startIndex, @RequestParam(defaultValue = "100") int numResultsToGet, @RequestParam(required = false) String cursor) throws InvalidCursorException, InvalidPageSizeException {
         log.debug("GET /get/library - User: {}", userPrincipal.getUsername());
-        BookList list = bookService.getAllBooksInLibrary(startIndex, numResultsToGet, userPrincipal.getUser());
-        return ResponseEntity.ok(Util.convertBookListToDTOWithUserSpecificInfo(list, userPrincipal.getUser(), bookService));
+        pageSizeLimit.check(startIndex, numResultsToGet);
+        User user = userPrincipal.getUser();
+        byte[] json = librarySnapshotCache.getPage(user, LibrarySnapshotCache.LIBRARY, startIndex, numResultsToGet, cursor, () -> {
+            BookSummaryList list = cursor == null
+                    ? bookService.getAllBooksInLibrary(startIndex, numResultsToGet, user)
+                    : bookService.getAllBooksInLibraryAfter(cursor, startIndex, numResultsToGet, user);
+            return Util.toJson(objectMapper, Util.convertBookSummaryListToDTO(list, user));
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
     }
 
     /**
-     * Retrieves a paginated list of books in the authenticated user's wishlist.
+     * Retrieves a paginated list of books in the authenticated user's wishlist, sorted by title.
+     * If a cursor is given, the page after the cursor is returned (keyset pagination) and {@code startIndex} is only echoed back.
+     * The serialized page is cached until the wishlist changes, see {@link LibrarySnapshotCache}.
      *
      * @param userPrincipal the authenticated user's principal
      * @param startIndex zero-based start index for pagination
      * @param numResultsToGet number of books to retrieve starting from {@code startIndex}
+     * @param cursor optional {@code nextCursor} of the previous page
      * @return {@code 200 OK} with list of {@link BookDTO}s
+     * @throws InvalidCursorException if the cursor is malformed
+     * @throws InvalidPageSizeException if {@code startIndex} is negative or {@code numResultsToGet} is out of range
      */
     @Operation(summary = "Get a list of all books on the wishlist of a user. Paginated.", responses = {
             @ApiResponse(responseCode = "200", description = "List with all books in the database (paginated)", content = @Content(schema = @Schema(implementation = BookDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Malformed cursor, or page size above the maximum", content = @Content(schema = @Schema(implementation = ApiError.class))),
             @ApiResponse(responseCode = "403", description = "User is not authenticated")
     })
     @GetMapping(value ="/get/wishlist", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<BookListDTO> getAllBooksOnWishlist(@AuthenticationPrincipal UserPrincipal userPrincipal, @RequestParam(defaultValue = "0") int startIndex, @RequestParam(defaultValue = "100") int numResultsToGet) {
+    public ResponseEntity<byte[]> getAllBooksOnWishlist(@AuthenticationPrincipal UserPrincipal userPrincipal, @RequestParam(defaultValue = "0") int startIndex, @RequestParam(defaultValue = "100") int numResultsToGet, @RequestParam(required = false) String cursor) throws InvalidCursorException, InvalidPageSizeException {
         log.debug("GET /get/wishlist - User: {}", userPrincipal.getUsername());
-        BookList list = bookService.getAllBooksOnWishlist(startIndex, numResultsToGet, userPrincipal.getUser());
-        return ResponseEntity.ok(Util.convertBookListToDTOWithUserSpecificInfo(list, userPrincipal.getUser(), bookService));
+        pageSizeLimit.check(startIndex, numResultsToGet);
+        User user = userPrincipal.getUser();
+        byte[] json = librarySnapshotCache.getPage(user, LibrarySnapshotCache.WISHLIST, startIndex, numResultsToGet, cursor, () -> {
+            BookSummaryList list = cursor == null
+                    ? bookService.getAllBooksOnWishlist(startIndex, numResultsToGet, user)
+                    : bookService.getAllBooksOnWishlistAfter(cursor, startIndex, numResultsToGet, user);
+            return Util.toJson(objectMapper, Util.convertBookSummaryListToDTO(list, user));
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
     }
 
     /**
@@ -195,15 +391,16 @@ public class BookController {
      * @return {@code 200 OK} if the rating was updated
      * @throws BookNotInLibraryException if the book is not in the user's library
      * @throws BookNotFoundException if the book does not exist
+     * @throws InvalidRatingException if the rating is outside 0..5
      */
     @Operation(summary = "Update the user rating of a book", responses = {
             @ApiResponse(responseCode = "200", description = "Book has been updated with the user rating"),
-            @ApiResponse(responseCode = "400", description = "Malformed request: Rating value incorrect"),
+            @ApiResponse(responseCode = "400", description = "Malformed request: Rating value incorrect", content = @Content(schema = @Schema(implementation = ApiError.class))),
             @ApiResponse(responseCode = "404", description = "Book could not be found in the database or in the Library of the user", content = @Content(schema = @Schema(implementation = ApiError.class))),
             @ApiResponse(responseCode = "403", description = "User is not authenticated"),
     })
     @PutMapping(value = "/update/rating")
-    public ResponseEntity<Void> updateBookRating(@AuthenticationPrincipal UserPrincipal userPrincipal, @RequestBody ChangeBookRatingDTO dto) throws BookNotFoundException, BookNotInLibraryException {
+    public ResponseEntity<Void> updateBookRating(@AuthenticationPrincipal UserPrincipal userPrincipal, @RequestBody ChangeBookRatingDTO dto) throws BookNotFoundException, BookNotInLibraryException, InvalidRatingException {
         log.debug("PUT /update/rating - User: {} updating book: {} with rating: {}", userPrincipal.getUsername(), dto.getBookID(), dto.getRating());
         bookService.rateBook(dto.getBookID(), userPrincipal.getUser(), dto.getRating());
         return ResponseEntity.ok().build();
@@ -268,5 +465,226 @@ public class BookController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * Adds many books to the authenticated user's library at once.
+     * Every book gets its own result, so unknown books do not prevent adding the others.
+     *
+     * @param userPrincipal the authenticated user's principal
+     * @param dto contains the book IDs to add
+     * @return {@code 200 OK} with one {@link BulkResultDTO} per distinct book ID
+     * @throws BulkLimitExceededException if more than {@link BookService#MAX_BULK_BOOKS} books are sent
+     */
+    @Operation(summary = "Add up to 500 books to the library of the user at once", responses = {
+            @ApiResponse(responseCode = "200", description = "One result per distinct book ID, in the order of the request", content = @Content(array = @ArraySchema(schema = @Schema(implementation = BulkResultDTO.class)))),
+            @ApiResponse(responseCode = "400", description = "Too many books", content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "403", description = "User is not authenticated")
+    })
+    @PostMapping(value = "/bulk/add/library", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BulkResultDTO>> addBooksToLibrary(@AuthenticationPrincipal UserPrincipal userPrincipal, @RequestBody BulkBookRequestDTO dto) throws BulkLimitExceededException {
+        log.info("POST /bulk/add/library - User: {} adding {} books", userPrincipal.getUsername(), dto.getBookIDs().size());
+        return ResponseEntity.ok(toBulkResultDTOs(bookService.addBooksToLibrary(dto.getBookIDs(), userPrincipal.getUser())));
+    }
+
+    /**
+     * Removes many books from the authenticated user's library at once.
+     *
+     * @param userPrincipal the authenticated user's principal
+     * @param dto contains the book IDs to remove
+     * @return {@code 200 OK} with one {@link BulkResultDTO} per distinct book ID
+     * @throws BulkLimitExceededException if more than {@link BookService#MAX_BULK_BOOKS} books are sent
+     */
+    @Operation(summary = "Remove up to 500 books from the library of the user at once", responses = {
+            @ApiResponse(responseCode = "200", description = "One result per distinct book ID, in the order of the request", content = @Content(array = @ArraySchema(schema = @Schema(implementation = BulkResultDTO.class)))),
+            @ApiResponse(responseCode = "400", description = "Too many books", content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "403", description = "User is not authenticated")
+    })
+    @PostMapping(value = "/bulk/delete/library", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BulkResultDTO>> deleteBooksFromLibrary(@AuthenticationPrincipal UserPrincipal userPrincipal, @RequestBody BulkBookRequestDTO dto) throws BulkLimitExceededException {
+        log.info("POST /bulk/delete/library - User: {} removing {} books", userPrincipal.getUsername(), dto.getBookIDs().size());
+        return ResponseEntity.ok(toBulkResultDTOs(bookService.removeBooksFromLibrary(dto.getBookIDs(), userPrincipal.getUser())));
+    }
+
+    /**
+     * Updates the user's ratings of many books in their library at once.
+     *
+     * @param userPrincipal the authenticated user's principal
+     * @param dto contains the book IDs and their new ratings
+     * @return {@code 200 OK} with one {@link BulkResultDTO} per distinct book ID
+     * @throws BulkLimitExceededException if more than {@link BookService#MAX_BULK_BOOKS} books are sent
+     */
+    @Operation(summary = "Update the user ratings of up to 500 books at once", responses = {
+            @ApiResponse(responseCode = "200", description = "One result per distinct book ID, in the order of the request", content = @Content(array = @ArraySchema(schema = @Schema(implementation = BulkResultDTO.class)))),
+            @ApiResponse(responseCode = "400", description = "Too many books", content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "403", description = "User is not authenticated")
+    })
+    @PutMapping(value = "/bulk/update/rating", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BulkResultDTO>> updateBookRatings(@AuthenticationPrincipal UserPrincipal userPrincipal, @RequestBody BulkRatingRequestDTO dto) throws BulkLimitExceededException {
+        log.debug("PUT /bulk/update/rating - User: {} updating {} ratings", userPrincipal.getUsername(), dto.getRatings().size());
+        Map<String, Integer> ratings = new LinkedHashMap<>();
+        dto.getRatings().forEach(rating -> ratings.put(rating.getBookID(), rating.getRating()));
+        return ResponseEntity.ok(toBulkResultDTOs(bookService.rateBooks(ratings, userPrincipal.getUser())));
+    }
+
+    /**
+     * Updates the user's reading status of many books in their library at once.
+     *
+     * @param userPrincipal the authenticated user's principal
+     * @param dto contains the book IDs and their new reading statuses
+     * @return {@code 200 OK} with one {@link BulkResultDTO} per distinct book ID
+     * @throws BulkLimitExceededException if more than {@link BookService#MAX_BULK_BOOKS} books are sent
+     */
+    @Operation(summary = "Update the reading status of up to 500 books in the user library at once", responses = {
+            @ApiResponse(responseCode = "200", description = "One result per distinct book ID, in the order of the request", content = @Content(array = @ArraySchema(schema = @Schema(implementation = BulkResultDTO.class)))),
+            @ApiResponse(responseCode = "400", description = "Too many books", content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "403", description = "User is not authenticated")
+    })
+    @PutMapping(value = "/bulk/update/status", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BulkResultDTO>> updateReadingStatuses(@AuthenticationPrincipal UserPrincipal userPrincipal, @RequestBody BulkReadingStatusRequestDTO dto) throws BulkLimitExceededException {
+        log.debug("PUT /bulk/update/status - User: {} updating {} reading statuses", userPrincipal.getUsername(), dto.getStatuses().size());
+        Map<String, ReadingStatus> statuses = new LinkedHashMap<>();
+        dto.getStatuses().forEach(status -> statuses.put(status.getBookID(), status.getStatus()));
+        return ResponseEntity.ok(toBulkResultDTOs(bookService.updateReadingStatuses(statuses, userPrincipal.getUser())));
+    }
 
+    /**
+     * Imports a CSV file (e.g. a Goodreads export) into the authenticated user's library in the background.
+     * <p>
+     * The file is only parsed and stored by this request. Its progress can be requested with {@link #getImport(UserPrincipal, UUID)}.
+     * </p>
+     *
+     * @param userPrincipal the authenticated user's principal
+     * @param file the CSV file, with a header and an ISBN or OpenLibrary ID column
+     * @return {@code 202 Accepted} with the queued import
+     * @throws IOException if the uploaded file cannot be read
+     * @throws InvalidImportFileException if the file is empty, has no ISBN or OpenLibrary ID column, or is no CSV file
+     * @throws BulkLimitExceededException if the file has more than {@link LibraryImportService#MAX_IMPORT_ROWS} rows
+     */
+    @Operation(summary = "Import up to 50000 books from a CSV file (e.g. a Goodreads export) into the library of the user",
+            description = "Recognized columns: ISBN13, ISBN, bookID (OpenLibrary ID), My Rating / rating and Exclusive Shelf / status. The books are imported in the background",
+            responses = {
+            @ApiResponse(responseCode = "202", description = "The file has been queued for import", content = @Content(schema = @Schema(implementation = ImportJobDTO.class))),
+            @ApiResponse(responseCode = "400", description = "The file is no usable CSV file or has too many rows", content = @Content(schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "403", description = "User is not authenticated")
+    })
+    @PostMapping(value = "/import/library", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ImportJobDTO> importLibrary(@AuthenticationPrincipal UserPrincipal userPrincipal, @RequestParam("file") MultipartFile file) throws IOException, InvalidImportFileException, BulkLimitExceededException {
+        log.info("POST /import/library - User: {} uploading {} bytes", userPrincipal.getUsername(), file.getSize());
+        try (InputStream csv = file.getInputStream()) {
+            ImportJob job = libraryImportService.createImport(csv, userPrincipal.getUser());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ImportJobDTO.fromImportJob(job));
+        }
+    }
+
+    /**
+     * Returns the state and progress of one of the authenticated user's imports.
+     *
+     * @param userPrincipal the authenticated user's principal
+     * @param jobID ID of the import
+     * @return {@code 200 OK} with the import, {@code 404 Not Found} if the user has no import with that ID
+     */
+    @Operation(summary = "Get the progress of a library import", responses = {
+            @ApiResponse(responseCode = "200", description = "State and progress of the import", content = @Content(schema = @Schema(implementation = ImportJobDTO.class))),
+            @ApiResponse(responseCode = "404", description = "The user has no import with that ID"),
+            @ApiResponse(responseCode = "403", description = "User is not authenticated")
+    })
+    @GetMapping(value = "/import/library/{jobID}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ImportJobDTO> getImport(@AuthenticationPrincipal UserPrincipal userPrincipal, @PathVariable UUID jobID) {
+        log.debug("GET /import/library/{} - User: {}", jobID, userPrincipal.getUsername());
+        Optional<ImportJob> job = libraryImportService.getImport(jobID, userPrincipal.getUser());
+        if (job.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        return ResponseEntity.ok(ImportJobDTO.fromImportJob(job.get()));
+    }
+
+    /**
+     * Exports the authenticated user's library as a file, including the user's ratings and reading statuses.
+     * <p>
+     * The file is streamed while the library is read, so it is not paged and its size is not limited. A CSV export can be
+     * imported again with {@link #importLibrary(UserPrincipal, MultipartFile)}.
+     * Only a few exports run at the same time ({@code export.maxConcurrent}), each with its own timeout
+     * ({@code export.timeoutMillis}), see {@link StreamingLimits}.
+     * </p>
+     *
+     * @param userPrincipal the authenticated user's principal
+     * @param format {@code ndjson} (one JSON object per line) or {@code csv}
+     * @param request the current request
+     * @return {@code 200 OK} with the streamed file, {@code 400 Bad Request} if the format is unknown
+     * @throws TooManyExportsException if the maximum number of exports is already running
+     */
+    @Operation(summary = "Export the library of the user as NDJSON or CSV file", responses = {
+            @ApiResponse(responseCode = "200", description = "All books in the library, one per line", content = {@Content(mediaType = "application/x-ndjson"), @Content(mediaType = "text/csv")}),
+            @ApiResponse(responseCode = "400", description = "Unknown format"),
+            @ApiResponse(responseCode = "403", description = "User is not authenticated"),
+            @ApiResponse(responseCode = "503", description = "Too many exports are running, retry later", content = @Content(schema = @Schema(implementation = ApiError.class)))
+    })
+    @GetMapping(value = "/export/library")
+    public ResponseEntity<StreamingResponseBody> exportLibrary(@AuthenticationPrincipal UserPrincipal userPrincipal, @RequestParam(defaultValue = "ndjson") String format, HttpServletRequest request) throws TooManyExportsException {
+        log.info("GET /export/library - User: {} exporting as {}", userPrincipal.getUsername(), format);
+        Optional<LibraryExportFormat> exportFormat = LibraryExportFormat.fromName(format);
+        if (exportFormat.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        streamingLimits.startExport(request);
+        User user = userPrincipal.getUser();
+        ContentDisposition attachment = ContentDisposition.attachment().filename("library." + exportFormat.get().getName()).build();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.get().getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, attachment.toString())
+                .body(out -> libraryExportService.exportLibrary(user, exportFormat.get(), out));
+    }
+
+    /**
+     * Writes all known books as a JSON array, one book at a time.
+     *
+     * @param out the response stream
+     * @param user the authenticated user, {@code null} if not authenticated
+     * @throws IOException if writing fails, e.g. because the client went away
+     */
+    private void writeBookArray(OutputStream out, User user) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(BookDTO.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+             Stream<BookSummary> books = bookService.streamAllKnownBooks(user)) {
+            generator.writeStartArray();
+            Iterator<BookSummary> iterator = books.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, Util.convertBookSummaryToDTO(iterator.next(), user));
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Converts the results of a bulk library change.
+     *
+     * @param results the results of the service
+     * @return the results as DTOs, in the same order
+     */
+    private static List<BulkResultDTO> toBulkResultDTOs(List<BulkResult> results) {
+        return results.stream().map(BulkResultDTO::fromBulkResult).toList();
+    }
+
+    /**
+     * Converts a book into a {@link BookDTO} and adds the user-specific data (rating, status, library/wishlist membership)
+     * if the user is authenticated.
+     *
+     * @param book the book to convert
+     * @return the {@link BookDTO}, personalized if the user is authenticated
+     */
+    private BookDTO convertBookToDTOWithUserSpecificInfoIfAuthenticated(Book book) {
+        BookDTO bookDTO = BookDTO.fromBook(book);
+
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+            User user = ((UserPrincipal) auth.getPrincipal()).getUser();
+            String bookID = book.getBookID();
+            log.debug("Authenticated user '{}' - enriching bookDTO with user-specific info", user.getUsername());
+            bookDTO.setIndividualRating(bookService.getIndividualRating(bookID, user));
+            bookDTO.setReadingStatus(bookService.getReadingStatus(bookID, user));
+            bookDTO.setBookIsInLibrary(bookService.isBookInLibrary(bookID, user));
+            bookDTO.setBookIsOnWishlist(bookService.isBookOnWishlist(bookID, user));
+        }
+
+        return bookDTO;
+    }
 }
@@ -3,6 +3,14 @@ package de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto.ApiError;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.BookNotFoundException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.BookNotInLibraryException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.BulkLimitExceededException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.DeadlineExceededException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidCursorException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidImportFileException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidIsbnException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidPageSizeException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidRatingException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.TooManyExportsException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.UnexpectedStatusException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.UsernameExistsException;
 import lombok.extern.slf4j.Slf4j;
@@ -11,6 +19,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.FieldError;
 import org.springframework.validation.ObjectError;
@@ -43,6 +52,11 @@ import java.util.List;
 @ControllerAdvice
 public class ControllerExceptionHandler extends ResponseEntityExceptionHandler {
 
+    /**
+     * Seconds after which clients may retry requests rejected because the server is busy.
+     */
+    private static final int RETRY_AFTER_SECONDS = 30;
+
     /**
      * Handles validation errors thrown when incoming JSON fails to meet Jakarta Bean Validation constraints.
      * <p>
@@ -87,6 +101,24 @@ public class ControllerExceptionHandler extends ResponseEntityExceptionHandler {
         return handleExceptionInternal(ex, apiError, headers, apiError.getStatus(), request);
     }
 
+    /**
+     * Handles {@link DeadlineExceededException}s, thrown when a request ran out of time before a required call to an
+     * external API or the database finished.
+     * <p>
+     * Returns a 504 (Gateway Timeout) response, so clients can tell a slow upstream from a failing one.
+     * </p>
+     *
+     * @param ex      the exception
+     * @param request the current web request
+     * @return structured {@link ApiError} response
+     */
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<ApiError> handleDeadlineExceededException(DeadlineExceededException ex, WebRequest request) {
+        log.warn("Request ran past its deadline: {}", ex.getMessage());
+        ApiError apiError = new ApiError(HttpStatus.GATEWAY_TIMEOUT, ex.getLocalizedMessage(), ex.getMessage());
+        return new ResponseEntity<>(apiError, new HttpHeaders(), apiError.getStatus());
+    }
+
     /**
      * Handles {@link IOException}s, typically thrown when external APIs are unavailable or unresponsive.
      * <p>
@@ -169,4 +201,139 @@ public class ControllerExceptionHandler extends ResponseEntityExceptionHandler {
         ApiError apiError = new ApiError(HttpStatus.NOT_FOUND, ex.getLocalizedMessage(), ex.getMessage());
         return new ResponseEntity<>(apiError, new HttpHeaders(), apiError.getStatus());
     }
-}
\ No newline at end of file
+
+    /**
+     * Handles pagination cursors that could not be decoded.
+     * <p>
+     * Responds with HTTP 400 (Bad Request).
+     * </p>
+     *
+     * @param ex      the invalid cursor exception
+     * @param request the current web request
+     * @return {@link ApiError} indicating the cursor is malformed
+     */
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ApiError> handleInvalidCursorException(InvalidCursorException ex, WebRequest request) {
+        ApiError apiError = new ApiError(HttpStatus.BAD_REQUEST, ex.getLocalizedMessage(), ex.getMessage());
+        return new ResponseEntity<>(apiError, new HttpHeaders(), apiError.getStatus());
+    }
+
+    /**
+     * Handles pagination parameters that are out of range, e.g. a page size above the configured maximum.
+     * <p>
+     * Responds with HTTP 400 (Bad Request).
+     * </p>
+     *
+     * @param ex      the invalid page size exception
+     * @param request the current web request
+     * @return {@link ApiError} indicating which pagination parameter is out of range
+     */
+    @ExceptionHandler(InvalidPageSizeException.class)
+    public ResponseEntity<ApiError> handleInvalidPageSizeException(InvalidPageSizeException ex, WebRequest request) {
+        ApiError apiError = new ApiError(HttpStatus.BAD_REQUEST, ex.getLocalizedMessage(), ex.getMessage());
+        return new ResponseEntity<>(apiError, new HttpHeaders(), apiError.getStatus());
+    }
+
+    /**
+     * Handles ratings outside the allowed range.
+     * <p>
+     * Responds with HTTP 400 (Bad Request).
+     * </p>
+     *
+     * @param ex      the invalid rating exception
+     * @param request the current web request
+     * @return {@link ApiError} containing the rejected rating
+     */
+    @ExceptionHandler(InvalidRatingException.class)
+    public ResponseEntity<ApiError> handleInvalidRatingException(InvalidRatingException ex, WebRequest request) {
+        ApiError apiError = new ApiError(HttpStatus.BAD_REQUEST, ex.getLocalizedMessage(), ex.getMessage());
+        return new ResponseEntity<>(apiError, new HttpHeaders(), apiError.getStatus());
+    }
+
+    /**
+     * Handles ISBNs that are malformed or have a wrong check digit.
+     * <p>
+     * Responds with HTTP 400 (Bad Request).
+     * </p>
+     *
+     * @param ex      the invalid ISBN exception
+     * @param request the current web request
+     * @return {@link ApiError} indicating the ISBN is invalid
+     */
+    @ExceptionHandler(InvalidIsbnException.class)
+    public ResponseEntity<ApiError> handleInvalidIsbnException(InvalidIsbnException ex, WebRequest request) {
+        ApiError apiError = new ApiError(HttpStatus.BAD_REQUEST, ex.getLocalizedMessage(), ex.getMessage());
+        return new ResponseEntity<>(apiError, new HttpHeaders(), apiError.getStatus());
+    }
+
+    /**
+     * Handles bulk requests with more items than allowed.
+     * <p>
+     * Responds with HTTP 400 (Bad Request).
+     * </p>
+     *
+     * @param ex      the bulk limit exception
+     * @param request the current web request
+     * @return {@link ApiError} stating the limit
+     */
+    @ExceptionHandler(BulkLimitExceededException.class)
+    public ResponseEntity<ApiError> handleBulkLimitExceededException(BulkLimitExceededException ex, WebRequest request) {
+        ApiError apiError = new ApiError(HttpStatus.BAD_REQUEST, ex.getLocalizedMessage(), ex.getMessage());
+        return new ResponseEntity<>(apiError, new HttpHeaders(), apiError.getStatus());
+    }
+
+    /**
+     * Handles uploaded library imports that are no usable CSV file.
+     * <p>
+     * Responds with HTTP 400 (Bad Request).
+     * </p>
+     *
+     * @param ex      the invalid import file exception
+     * @param request the current web request
+     * @return {@link ApiError} stating why the file cannot be imported
+     */
+    @ExceptionHandler(InvalidImportFileException.class)
+    public ResponseEntity<ApiError> handleInvalidImportFileException(InvalidImportFileException ex, WebRequest request) {
+        ApiError apiError = new ApiError(HttpStatus.BAD_REQUEST, ex.getLocalizedMessage(), ex.getMessage());
+        return new ResponseEntity<>(apiError, new HttpHeaders(), apiError.getStatus());
+    }
+
+    /**
+     * Handles library exports requested while the maximum number of exports is already running.
+     * <p>
+     * Responds with HTTP 503 (Service Unavailable) and a {@code Retry-After} header.
+     * </p>
+     *
+     * @param ex      the too many exports exception
+     * @param request the current web request
+     * @return {@link ApiError} stating the limit
+     */
+    @ExceptionHandler(TooManyExportsException.class)
+    public ResponseEntity<ApiError> handleTooManyExportsException(TooManyExportsException ex, WebRequest request) {
+        ApiError apiError = new ApiError(HttpStatus.SERVICE_UNAVAILABLE, ex.getLocalizedMessage(), ex.getMessage());
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS));
+        return new ResponseEntity<>(apiError, headers, apiError.getStatus());
+    }
+
+    /**
+     * Handles asynchronous requests that the executor of the asynchronous requests cannot take, because all of its
+     * threads are busy and its queue is full.
+     * <p>
+     * Responds with HTTP 503 (Service Unavailable) and a {@code Retry-After} header.
+     * </p>
+     *
+     * @param ex      the rejected task exception
+     * @param request the current web request
+     * @return {@link ApiError} stating that the server is busy
+     */
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<ApiError> handleTaskRejectedException(TaskRejectedException ex, WebRequest request) {
+        log.warn("Asynchronous request rejected: {}", ex.getMessage());
+        String message = "The server is busy, try again later";
+        ApiError apiError = new ApiError(HttpStatus.SERVICE_UNAVAILABLE, message, message);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS));
+        return new ResponseEntity<>(apiError, headers, apiError.getStatus());
+    }
+}
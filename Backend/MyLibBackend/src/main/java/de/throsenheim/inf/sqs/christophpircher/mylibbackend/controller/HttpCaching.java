@@ -0,0 +1,145 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Book;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookList;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookSummary;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookSummaryList;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Adds HTTP caching (entity tags, {@code Cache-Control} and {@code 304 Not Modified}) to the anonymous GET endpoints.
+ * <p>
+ * The entity tags are derived from versions that already exist, so they are cheap to compute: the time a book or
+ * search result from OpenLibrary was cached ({@link Book#getCacheVersion()}, {@link BookList#getCacheVersion()}) and
+ * the version of a stored book ({@link Book#getVersion()}). Anonymous responses may be stored by shared caches for
+ * {@code http.cache.maxAgeSeconds}. Responses with user-specific data must not be stored at all, so they get
+ * {@code Cache-Control: no-store} and no entity tag. All responses vary by the {@code Authorization} header.
+ * </p>
+ */
+@Component
+class HttpCaching {
+
+    /**
+     * Time in seconds anonymous responses may be used without revalidation.
+     */
+    @Getter
+    private final long maxAgeSeconds;
+
+    HttpCaching(@Value("${http.cache.maxAgeSeconds:60}") long maxAgeSeconds) {
+        this.maxAgeSeconds = maxAgeSeconds;
+    }
+
+    /**
+     * Creates a response with the caching headers, or {@code 304 Not Modified} without a body if the client already has
+     * the current representation.
+     *
+     * @param ifNoneMatch the value of the {@code If-None-Match} header, {@code null} if it is missing
+     * @param eTag the entity tag of the current representation, {@code null} if it has none (e.g. an incomplete book)
+     * @param personalized whether the response contains user-specific data
+     * @param body creates the body; not called if the response is {@code 304 Not Modified}
+     * @param <T> type of the body
+     * @return the response
+     */
+    <T> ResponseEntity<T> respond(String ifNoneMatch, String eTag, boolean personalized, Supplier<T> body) {
+        if (personalized || eTag == null) {
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .varyBy(HttpHeaders.AUTHORIZATION)
+                    .body(body.get());
+        }
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePublic();
+        if (matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(eTag)
+                    .cacheControl(cacheControl)
+                    .varyBy(HttpHeaders.AUTHORIZATION)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.AUTHORIZATION)
+                .body(body.get());
+    }
+
+    /**
+     * Computes the entity tag of a book.
+     *
+     * @param book the book
+     * @return the entity tag, {@code null} if the book has no version (an incomplete or uncached book from OpenLibrary)
+     */
+    static String eTag(Book book) {
+        if (book.getCacheVersion() > 0) {
+            return quote("e-" + book.getBookID() + "-" + book.getCacheVersion());
+        }
+        if (book.getId() != null) {
+            return quote("b-" + book.getBookID() + "-" + book.getVersion());
+        }
+        return null;
+    }
+
+    /**
+     * Computes the entity tag of an OpenLibrary search result.
+     *
+     * @param bookList the search result
+     * @return the entity tag, {@code null} if the search result is not cached
+     */
+    static String eTag(BookList bookList) {
+        return bookList.getCacheVersion() > 0 ? quote("s-" + bookList.getCacheVersion()) : null;
+    }
+
+    /**
+     * Computes the entity tag of a page of a listing from the book IDs and versions of its books, so it changes when
+     * a book is added, removed or rated.
+     *
+     * @param bookList the page
+     * @return the entity tag
+     */
+    static String eTag(BookSummaryList bookList) {
+        StringBuilder versions = new StringBuilder()
+                .append(bookList.getNumResults()).append('|')
+                .append(bookList.getStartIndex()).append('|')
+                .append(bookList.getNextCursor());
+        for (BookSummary book : bookList.getBooks()) {
+            versions.append('|').append(book.getBookID()).append(':').append(book.getVersion());
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(versions.toString().getBytes(StandardCharsets.UTF_8));
+            return quote("l-" + HexFormat.of().formatHex(hash, 0, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    /**
+     * Checks whether an {@code If-None-Match} header matches an entity tag (weak comparison, as required for
+     * {@code If-None-Match}).
+     */
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(eTag));
+    }
+
+    private static String quote(String tag) {
+        return "\"" + tag + "\"";
+    }
+}
@@ -0,0 +1,43 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidPageSizeException;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checks the pagination parameters ({@code startIndex} and {@code numResultsToGet}) of the paginated endpoints.
+ * <p>
+ * The page size is limited by the property {@code pagination.maxPageSize}, so a single request cannot load a whole
+ * listing (or search result) into memory.
+ * </p>
+ */
+@Component
+class PageSizeLimit {
+
+    /**
+     * Largest allowed {@code numResultsToGet}.
+     */
+    @Getter
+    private final int maxPageSize;
+
+    PageSizeLimit(@Value("${pagination.maxPageSize:500}") int maxPageSize) {
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Checks the pagination parameters of a request.
+     *
+     * @param startIndex zero-based start index of the page
+     * @param numResultsToGet requested page size
+     * @throws InvalidPageSizeException if the start index is negative or the page size is not between 1 and {@link #getMaxPageSize()}
+     */
+    void check(int startIndex, int numResultsToGet) throws InvalidPageSizeException {
+        if (startIndex < 0) {
+            throw new InvalidPageSizeException("startIndex must not be negative");
+        }
+        if (numResultsToGet < 1 || numResultsToGet > maxPageSize) {
+            throw new InvalidPageSizeException("numResultsToGet must be between 1 and " + maxPageSize);
+        }
+    }
+}
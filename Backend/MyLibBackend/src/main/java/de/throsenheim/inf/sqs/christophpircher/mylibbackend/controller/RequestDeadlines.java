@@ -0,0 +1,49 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Deadline;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Creates the {@link Deadline}s of the endpoints that support one.
+ * <p>
+ * Each endpoint has a time budget (e.g. {@code books.byID.deadlineMillis}). A client can shorten it with the
+ * {@value #TIMEOUT_HEADER} header, e.g. because it gives up earlier anyway, but not extend it.
+ * </p>
+ */
+@Component
+class RequestDeadlines {
+
+    /**
+     * Request header with the time in milliseconds the client waits for the response.
+     */
+    static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    /**
+     * Time budget of the book lookup by ID, in milliseconds.
+     */
+    @Getter
+    private final long getBookByIdMillis;
+
+    RequestDeadlines(@Value("${books.byID.deadlineMillis:5000}") long getBookByIdMillis) {
+        this.getBookByIdMillis = getBookByIdMillis;
+    }
+
+    /**
+     * Creates the deadline of a book lookup by ID.
+     *
+     * @param requestedMillis the value of the {@value #TIMEOUT_HEADER} header, {@code null} if it is missing
+     * @return the deadline, after the requested time if it is shorter than the budget of the endpoint
+     */
+    Deadline forGetBookById(Long requestedMillis) {
+        return deadline(getBookByIdMillis, requestedMillis);
+    }
+
+    private static Deadline deadline(long budgetMillis, Long requestedMillis) {
+        long millis = requestedMillis == null ? budgetMillis : Math.clamp(requestedMillis, 0, budgetMillis);
+        return Deadline.after(Duration.ofMillis(millis));
+    }
+}
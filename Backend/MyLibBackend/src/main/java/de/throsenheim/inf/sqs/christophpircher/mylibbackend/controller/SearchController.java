@@ -1,42 +1,67 @@
 package de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto.ApiError;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto.BookDTO;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto.BookListDTO;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto.HybridSearchResultDTO;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto.SearchSummaryDTO;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto.SuggestionDTO;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidCursorException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidPageSizeException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.UnexpectedStatusException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookList;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookSummaryList;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.SearchContinuation;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.User;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.BookService;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.InternalSearchService;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.SearchService;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.UserPrincipal;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.search.SuggestionService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
- * REST controller responsible for exposing search functionality to the OpenLibrary API.
+ * REST controller responsible for exposing search functionality to the OpenLibrary API and over the known books.
  * <p>
  * Provides endpoints for searching books by keyword or ISBN and returns results in DTO format.
- * This controller delegates API interaction logic to the {@link SearchService}.
+ * This controller delegates API interaction logic to the {@link SearchService} and the search over the internal
+ * database to the {@link InternalSearchService}. The hybrid search over both is part of the {@link SearchService}.
+ * The typeahead suggestions are served by the {@link SuggestionService}.
  * </p>
  *
  * <p>All endpoints are prefixed with <code>/api/v1/search</code>.</p>
  *
  * @see SearchService
+ * @see InternalSearchService
  * @see BookListDTO
  * @see BookDTO
  */
@@ -49,6 +74,11 @@ public class SearchController {
 
     private final SearchService searchService;
     private final BookService bookService;
+    private final PageSizeLimit pageSizeLimit;
+    private final HttpCaching httpCaching;
+    private final InternalSearchService internalSearchService;
+    private final SuggestionService suggestionService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Searches the OpenLibrary API for books using provided keywords.
@@ -56,31 +86,287 @@ public class SearchController {
      * Supports pagination through {@code startIndex} and {@code numResultsToGet} parameters.
      * Converts the {@link BookList} model into a {@link BookListDTO} for response.
      * </p>
+     * <p>
+     * The servlet thread is released while OpenLibrary is queried. If the client disconnects before the search
+     * completes, the request to OpenLibrary is cancelled (unless another request waits for the same search).
+     * </p>
+     * <p>
+     * Anonymous responses have the version of the cached search result as entity tag and may be cached, see {@link HttpCaching}.
+     * </p>
      *
      * @param keywords         The keywords to search for (required)
      * @param startIndex       The result offset for pagination (default = 0)
      * @param numResultsToGet  The number of results to return (default = 100)
-     * @return A {@link ResponseEntity} containing the search results or an error
-     * @throws UnexpectedStatusException If OpenLibrary returns an unexpected status code
-     * @throws IOException If there is a network or API error
+     * @param ifNoneMatch      The value of the {@code If-None-Match} header, if any
+     * @param request          The current request, identifies anonymous searchers
+     * @return A {@link DeferredResult} with the search results ({@code 304 Not Modified} if the cached search result did
+     *         not change since the client fetched it with the given entity tag), completed when OpenLibrary answers. Failures of
+     *         OpenLibrary ({@link UnexpectedStatusException}, {@link IOException}) complete it with {@code 502 Bad Gateway}
+     * @throws InvalidPageSizeException If {@code startIndex} is negative or {@code numResultsToGet} is out of range
      */
     @Operation(summary = "Keyword search on the OpenLibrary API", description = "Do a keywords search on the OpenLibrary API",
     responses = {
             @ApiResponse(responseCode = "200", description = "Search results", content =  @Content(schema = @Schema(implementation = BookListDTO.class))),
+            @ApiResponse(responseCode = "304", description = "The search result did not change since it was fetched with the entity tag in If-None-Match"),
+            @ApiResponse(responseCode = "400", description = "Page size above the maximum", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ApiError.class))),
             @ApiResponse(responseCode = "502", description = "Something went wrong while accessing the OpenLibrary API (e.g. the server is not responding etc.)", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ApiError.class)))
     })
     @GetMapping(value = "/external/keyword", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<BookListDTO> searchExternalKeyword(@RequestParam(value = "keywords") String keywords, @RequestParam(value = "startIndex", defaultValue = "0") int startIndex, @RequestParam(value = "numResultsToGet", defaultValue = "100") int numResultsToGet) throws UnexpectedStatusException, IOException {
+    public DeferredResult<ResponseEntity<?>> searchExternalKeyword(@RequestParam(value = "keywords") String keywords, @RequestParam(value = "startIndex", defaultValue = "0") int startIndex, @RequestParam(value = "numResultsToGet", defaultValue = "100") int numResultsToGet,
+                                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch, HttpServletRequest request) throws InvalidPageSizeException {
 
         log.info("GET /search/external/keyword - keywords='{}', startIndex={}, numResultsToGet={}", keywords, startIndex, numResultsToGet);
-        BookList searchResult = searchService.searchKeywordsExternal(keywords, startIndex, numResultsToGet);
+        pageSizeLimit.check(startIndex, numResultsToGet);
 
+        // The security context is bound to the servlet thread, the result is converted on the thread completing the search
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication != null && authentication.isAuthenticated() && !(authentication instanceof AnonymousAuthenticationToken)) {
+        boolean authenticated = authentication != null && authentication.isAuthenticated() && !(authentication instanceof AnonymousAuthenticationToken);
+        if (authenticated) {
             log.debug("Authenticated search request by user: {}", ((UserPrincipal) authentication.getPrincipal()).getUsername());
         }
+        String searcher = searcherOf(Util.getAuthenticatedUser(authentication), request);
+
+        return Util.toDeferredResult(searchService.searchKeywordsExternalAsync(keywords, startIndex, numResultsToGet),
+                searchResult -> {
+                    recordSearch(keywords, startIndex, searcher);
+                    if (authenticated) {
+                        return httpCaching.respond(ifNoneMatch, null, true,
+                                () -> Util.convertBookListToDTOWithUserSpecificInfoIfAuthenticated(searchResult, bookService, authentication));
+                    }
+                    return httpCaching.respond(ifNoneMatch, HttpCaching.eTag(searchResult), false,
+                            () -> anonymousBody(searchResult, keywords, startIndex, numResultsToGet));
+                });
+    }
+
+    /**
+     * Creates the body of an anonymous response with an OpenLibrary search result. For a cached result this is the JSON
+     * kept next to its cache entry, so repeated searches skip the mapping and the serialization.
+     *
+     * @param searchResult the search result
+     * @param keywords the keywords of the search
+     * @param startIndex the start index of the search
+     * @param numResultsToGet the number of results of the search
+     * @return the JSON of the {@link BookListDTO} if the result is cached, the {@link BookListDTO} otherwise
+     */
+    private Object anonymousBody(BookList searchResult, String keywords, int startIndex, int numResultsToGet) {
+        if (searchResult.getCacheVersion() > 0) {
+            return searchService.getSerializedSearchResult(keywords, startIndex, numResultsToGet, searchResult,
+                    () -> Util.toJson(objectMapper, BookListDTO.fromSearchResult(searchResult)));
+        }
+        return BookListDTO.fromSearchResult(searchResult);
+    }
+
+    /**
+     * Searches the OpenLibrary API like {@link #searchExternalKeyword(String, int, int, String)}, but streams the results as
+     * Server-Sent Events.
+     * <p>
+     * Every book is sent as a {@code book} event with a {@link BookDTO} as soon as it is resolved, so the first books
+     * arrive after the search request to OpenLibrary, while the books that need an extra lookup of their edition follow.
+     * The order of the events is therefore not the order of the search results. The stream ends with a {@code summary}
+     * event ({@link SearchSummaryDTO}), or with an {@code error} event ({@link ApiError}) if OpenLibrary fails.
+     * </p>
+     *
+     * @param keywords         The keywords to search for (required)
+     * @param startIndex       The result offset for pagination (default = 0)
+     * @param numResultsToGet  The number of results to return (default = 100)
+     * @param request          The current request, identifies anonymous searchers
+     * @return A {@link ResponseEntity} streaming the events
+     * @throws InvalidPageSizeException If {@code startIndex} is negative or {@code numResultsToGet} is out of range
+     */
+    @Operation(summary = "Streamed keyword search on the OpenLibrary API", description = "Do a keywords search on the OpenLibrary API and stream every book as a Server-Sent Event ('book') as soon as it is resolved, followed by a 'summary' event with the pagination metadata or an 'error' event",
+    responses = {
+            @ApiResponse(responseCode = "200", description = "Event stream of BookDTOs ('book'), ending with a SearchSummaryDTO ('summary') or an ApiError ('error')", content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE, schema = @Schema(implementation = BookDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Page size above the maximum", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ApiError.class)))
+    })
+    @GetMapping(value = "/external/keyword/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamExternalKeyword(@RequestParam(value = "keywords") String keywords, @RequestParam(value = "startIndex", defaultValue = "0") int startIndex, @RequestParam(value = "numResultsToGet", defaultValue = "100") int numResultsToGet, HttpServletRequest request) throws InvalidPageSizeException {
+
+        log.info("GET /search/external/keyword/stream - keywords='{}', startIndex={}, numResultsToGet={}", keywords, startIndex, numResultsToGet);
+        pageSizeLimit.check(startIndex, numResultsToGet);
+        User user = Util.getAuthenticatedUser(SecurityContextHolder.getContext().getAuthentication());
+        recordSearch(keywords, startIndex, searcherOf(user, request));
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .body(out -> writeSearchEvents(out, keywords, startIndex, numResultsToGet, user));
+    }
+
+    /**
+     * Searches the books already known to the internal database using provided keywords, without contacting OpenLibrary.
+     * <p>
+     * Matches title, subtitle, authors and description, best matches first. Supports pagination through
+     * {@code startIndex} and {@code numResultsToGet}; {@code numResults} of the response is the total number of matches.
+     * </p>
+     *
+     * @param keywords         The keywords to search for (required)
+     * @param startIndex       The result offset for pagination (default = 0)
+     * @param numResultsToGet  The number of results to return (default = 100)
+     * @param request          The current request, identifies anonymous searchers
+     * @return A {@link ResponseEntity} containing the search results, including user specific info if authenticated
+     * @throws InvalidPageSizeException If {@code startIndex} is negative or {@code numResultsToGet} is out of range
+     */
+    @Operation(summary = "Keyword search on the known books", description = "Do a ranked keyword search over the books in the internal database, without contacting the OpenLibrary API",
+    responses = {
+            @ApiResponse(responseCode = "200", description = "Search results", content =  @Content(schema = @Schema(implementation = BookListDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Page size above the maximum", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ApiError.class)))
+    })
+    @GetMapping(value = "/internal/keyword", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BookListDTO> searchInternalKeyword(@RequestParam(value = "keywords") String keywords, @RequestParam(value = "startIndex", defaultValue = "0") int startIndex, @RequestParam(value = "numResultsToGet", defaultValue = "100") int numResultsToGet, HttpServletRequest request) throws InvalidPageSizeException {
+
+        log.info("GET /search/internal/keyword - keywords='{}', startIndex={}, numResultsToGet={}", keywords, startIndex, numResultsToGet);
+        pageSizeLimit.check(startIndex, numResultsToGet);
+        User user = Util.getAuthenticatedUser(SecurityContextHolder.getContext().getAuthentication());
+        BookSummaryList searchResult = internalSearchService.searchKeywordsInternal(keywords, startIndex, numResultsToGet, user);
+        recordSearch(keywords, startIndex, searcherOf(user, request));
+        return ResponseEntity.ok(Util.convertBookSummaryListToDTO(searchResult, user));
+    }
+
+    /**
+     * Searches the known books and the OpenLibrary API concurrently and merges the results.
+     * <p>
+     * The known books matching the keywords come first (on the first page only), followed by the OpenLibrary results
+     * that are not known books. {@code startIndex} pages through the OpenLibrary results. If OpenLibrary does not answer
+     * within the deadline of the search, only the known books are returned, together with a {@code continuation} token
+     * for {@link #continueHybridSearch(String)}.
+     * </p>
+     * <p>
+     * The servlet thread is released while OpenLibrary is queried; the response is sent when OpenLibrary answers or at the
+     * deadline, whichever comes first.
+     * </p>
+     *
+     * @param keywords         The keywords to search for (required)
+     * @param startIndex       The offset of the OpenLibrary results (default = 0)
+     * @param numResultsToGet  The number of known books and of OpenLibrary results to return (default = 100)
+     * @param request          The current request, identifies anonymous searchers
+     * @return A {@link DeferredResult} with the search results, including user specific info if authenticated
+     * @throws InvalidPageSizeException If {@code startIndex} is negative or {@code numResultsToGet} is out of range
+     */
+    @Operation(summary = "Hybrid keyword search", description = "Search the known books and the OpenLibrary API concurrently. Returns the known books and a continuation token if OpenLibrary does not answer in time",
+    responses = {
+            @ApiResponse(responseCode = "200", description = "Search results", content = @Content(schema = @Schema(implementation = HybridSearchResultDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Page size above the maximum", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ApiError.class)))
+    })
+    @GetMapping(value = "/hybrid/keyword", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ResponseEntity<HybridSearchResultDTO>> searchHybridKeyword(@RequestParam(value = "keywords") String keywords, @RequestParam(value = "startIndex", defaultValue = "0") int startIndex, @RequestParam(value = "numResultsToGet", defaultValue = "100") int numResultsToGet, HttpServletRequest request) throws InvalidPageSizeException {
+
+        log.info("GET /search/hybrid/keyword - keywords='{}', startIndex={}, numResultsToGet={}", keywords, startIndex, numResultsToGet);
+        pageSizeLimit.check(startIndex, numResultsToGet);
+        User user = Util.getAuthenticatedUser(SecurityContextHolder.getContext().getAuthentication());
+        recordSearch(keywords, startIndex, searcherOf(user, request));
+        return Util.toDeferredResult(searchService.searchKeywordsHybridAsync(keywords, startIndex, numResultsToGet, user),
+                searchResult -> ResponseEntity.ok(Util.convertHybridSearchResultToDTO(searchResult, user, bookService)));
+    }
+
+    /**
+     * Fetches the OpenLibrary results of a hybrid search that did not answer in time.
+     * <p>
+     * Returns only the OpenLibrary results that are not known books. If OpenLibrary still does not answer in time, the
+     * response contains the same {@code continuation} token again. The servlet thread is released while OpenLibrary is queried.
+     * </p>
+     *
+     * @param continuation The continuation token of a hybrid search (required)
+     * @return A {@link DeferredResult} with the OpenLibrary results, including user specific info if authenticated.
+     *         Failures of OpenLibrary ({@link UnexpectedStatusException}, {@link IOException}) complete it with {@code 502 Bad Gateway}
+     * @throws InvalidCursorException If the token is malformed
+     * @throws InvalidPageSizeException If the page of the token is out of range
+     */
+    @Operation(summary = "Continue a hybrid keyword search", description = "Fetch the OpenLibrary results of a hybrid search that did not answer in time",
+    responses = {
+            @ApiResponse(responseCode = "200", description = "Search results", content = @Content(schema = @Schema(implementation = HybridSearchResultDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Malformed continuation token", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ApiError.class))),
+            @ApiResponse(responseCode = "502", description = "Something went wrong while accessing the OpenLibrary API (e.g. the server is not responding etc.)", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ApiError.class)))
+    })
+    @GetMapping(value = "/hybrid/continuation", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ResponseEntity<HybridSearchResultDTO>> continueHybridSearch(@RequestParam(value = "continuation") String continuation) throws InvalidCursorException, InvalidPageSizeException {
+
+        log.info("GET /search/hybrid/continuation - continuation='{}'", continuation);
+        SearchContinuation searchContinuation = SearchContinuation.decode(continuation);
+        pageSizeLimit.check(searchContinuation.getStartIndex(), searchContinuation.getNumResultsToGet());
+        User user = Util.getAuthenticatedUser(SecurityContextHolder.getContext().getAuthentication());
+        return Util.toDeferredResult(searchService.continueHybridSearchAsync(searchContinuation, user),
+                searchResult -> ResponseEntity.ok(Util.convertHybridSearchResultToDTO(searchResult, user, bookService)));
+    }
+
+    /**
+     * Suggests keywords for a partially typed search: titles and authors of the known books and popular searches.
+     * <p>
+     * Served from memory without contacting OpenLibrary, so it can be called on every keystroke.
+     * </p>
+     *
+     * @param prefix The typed text; suggestions contain a word starting with it (required)
+     * @param limit  The maximum number of suggestions (default = 10, at most {@link SuggestionService#MAX_SUGGESTIONS})
+     * @return A {@link ResponseEntity} containing the suggestions, most popular first
+     * @throws InvalidPageSizeException If {@code limit} is out of range
+     */
+    @Operation(summary = "Typeahead suggestions", description = "Suggest titles and authors of the known books and popular search keywords for a typed prefix, most popular first",
+    responses = {
+            @ApiResponse(responseCode = "200", description = "Suggestions", content = @Content(array = @ArraySchema(schema = @Schema(implementation = SuggestionDTO.class)))),
+            @ApiResponse(responseCode = "400", description = "Limit out of range", content = @Content(mediaType = "application/json", schema = @Schema(implementation = ApiError.class)))
+    })
+    @GetMapping(value = "/suggest", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<SuggestionDTO>> suggest(@RequestParam(value = "prefix") String prefix, @RequestParam(value = "limit", defaultValue = "10") int limit) throws InvalidPageSizeException {
+        log.debug("GET /search/suggest - prefix='{}', limit={}", prefix, limit);
+        if (limit < 1 || limit > SuggestionService.MAX_SUGGESTIONS) {
+            throw new InvalidPageSizeException("limit must be between 1 and " + SuggestionService.MAX_SUGGESTIONS);
+        }
+        return ResponseEntity.ok(suggestionService.suggest(prefix, limit).stream().map(SuggestionDTO::fromSuggestion).toList());
+    }
+
+    /**
+     * Writes the events of a streamed keyword search. Failures of OpenLibrary are sent as an {@code error} event, since
+     * the response status has already been sent.
+     *
+     * @throws IOException if writing to the client fails
+     */
+    private void writeSearchEvents(OutputStream out, String keywords, int startIndex, int numResultsToGet, User user) throws IOException {
+        BookList searchResult;
+        try {
+            searchResult = searchService.searchKeywordsExternal(keywords, startIndex, numResultsToGet, book -> {
+                BookDTO bookDTO = user != null ? Util.convertBookToDTOWithUserSpecificInfo(book, user, bookService) : BookDTO.fromBook(book);
+                try {
+                    writeEvent(out, "book", bookDTO);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (UnexpectedStatusException e) {
+            writeEvent(out, "error", new ApiError(HttpStatus.BAD_GATEWAY, e.getMessage(), e.getLocalizedMessage()));
+            return;
+        } catch (IOException e) {
+            log.error("Could not connect to external API: {}", e.getMessage());
+            String message = "Could not connect to external API: " + e.getMessage();
+            writeEvent(out, "error", new ApiError(HttpStatus.BAD_GATEWAY, message, message));
+            return;
+        }
+        writeEvent(out, "summary", SearchSummaryDTO.fromSearchResult(searchResult));
+    }
+
+    /**
+     * Writes one Server-Sent Event with JSON data and flushes it to the client.
+     */
+    private void writeEvent(OutputStream out, String event, Object data) throws IOException {
+        out.write(("event: " + event + "\ndata: ").getBytes(StandardCharsets.UTF_8));
+        out.write(objectMapper.writeValueAsBytes(data));
+        out.write("\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * Counts a search for the suggestions of popular searches. Only the first page counts, so paging does not add to it.
+     */
+    private void recordSearch(String keywords, int startIndex, String searcher) {
+        if (startIndex == 0) {
+            suggestionService.recordSearch(keywords, searcher);
+        }
+    }
 
-        BookListDTO resultDTO = Util.convertBookListToDTOWithUserSpecificInfoIfAuthenticated(searchResult, bookService, authentication);
-        return ResponseEntity.ok(resultDTO);
+    /**
+     * Identifies who searched, so repeated searches of the same user or client count once for the suggestions:
+     * the authenticated user, otherwise the address of the client.
+     */
+    private static String searcherOf(User user, HttpServletRequest request) {
+        return user != null ? "user:" + user.getId() : "address:" + request.getRemoteAddr();
     }
 }
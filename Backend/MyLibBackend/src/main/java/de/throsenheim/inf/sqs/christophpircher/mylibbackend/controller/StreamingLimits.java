@@ -0,0 +1,91 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.TooManyExportsException;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits the endpoints that stream a response for a long time.
+ * <p>
+ * These endpoints get their own timeout ({@code export.timeoutMillis}, {@code books.stream.timeoutMillis}) instead of the
+ * short default of the asynchronous requests. The library exports are also limited to {@code export.maxConcurrent}
+ * at a time per node, as each of them holds a database connection until the client has received the whole file.
+ * </p>
+ */
+@Component
+class StreamingLimits {
+
+    /**
+     * Largest number of library exports running at the same time.
+     */
+    @Getter
+    private final int maxConcurrentExports;
+
+    private final Semaphore exports;
+    private final long exportTimeoutMillis;
+    private final long bookStreamTimeoutMillis;
+
+    StreamingLimits(@Value("${export.maxConcurrent:4}") int maxConcurrentExports,
+                    @Value("${export.timeoutMillis:600000}") long exportTimeoutMillis,
+                    @Value("${books.stream.timeoutMillis:600000}") long bookStreamTimeoutMillis) {
+        this.maxConcurrentExports = maxConcurrentExports;
+        this.exports = new Semaphore(maxConcurrentExports);
+        this.exportTimeoutMillis = exportTimeoutMillis;
+        this.bookStreamTimeoutMillis = bookStreamTimeoutMillis;
+    }
+
+    /**
+     * Reserves one of the library exports of this node for the request and sets the timeout of the export. The
+     * reservation ends when the asynchronous request completes, times out or fails.
+     * Must be called by the handler of the request before it returns the streamed response.
+     *
+     * @param request the export request
+     * @throws TooManyExportsException if {@link #getMaxConcurrentExports()} exports are already running
+     */
+    void startExport(HttpServletRequest request) throws TooManyExportsException {
+        if (!exports.tryAcquire()) {
+            throw new TooManyExportsException("At most " + maxConcurrentExports + " library exports can run at the same time, try again later");
+        }
+        streamFor(request, exportTimeoutMillis, exports::release);
+    }
+
+    /**
+     * Sets the timeout of a request streaming all books.
+     * Must be called by the handler of the request before it returns the streamed response.
+     *
+     * @param request the stream request
+     */
+    void startBookStream(HttpServletRequest request) {
+        streamFor(request, bookStreamTimeoutMillis, () -> { });
+    }
+
+    /**
+     * Sets the timeout of the asynchronous processing of a request, right before it starts.
+     *
+     * @param request the request
+     * @param timeoutMillis the timeout of the request
+     * @param onCompletion called once when the asynchronous processing is completed for any reason
+     */
+    private static void streamFor(HttpServletRequest request, long timeoutMillis, Runnable onCompletion) {
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(StreamingLimits.class.getName(), new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest webRequest, Callable<T> task) {
+                ((AsyncWebRequest) webRequest).setTimeout(timeoutMillis);
+            }
+
+            @Override
+            public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                onCompletion.run();
+            }
+        });
+    }
+}
@@ -2,22 +2,41 @@ package de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller;
 
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto.BookDTO;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto.BookListDTO;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto.HybridSearchResultDTO;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.DeadlineExceededException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Book;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookList;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookSummary;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookSummaryList;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Deadline;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.HybridSearchResult;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.ReadingStatus;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.User;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.BookService;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.UserPrincipal;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 
 @Slf4j
 class Util {
 
+    /**
+     * Time after the deadline of a request until its response times out, see {@link #toDeferredResult(CompletableFuture, Deadline, Function)}.
+     */
+    static final long DEADLINE_GRACE_MILLIS = 1000;
+
     private Util() {}
 
 
@@ -43,10 +62,8 @@ class Util {
      * @see BookService#isBookOnWishlist(String, User)
      */
     static BookListDTO convertBookListToDTOWithUserSpecificInfoIfAuthenticated(BookList bookList, BookService bookService, Authentication authentication) {
-        if (authentication != null &&
-                authentication.isAuthenticated() &&
-                !(authentication instanceof AnonymousAuthenticationToken)) {
-            User user = ((UserPrincipal) authentication.getPrincipal()).getUser();
+        User user = getAuthenticatedUser(authentication);
+        if (user != null) {
             log.debug("Authenticated request detected. Personalizing BookListDTO for user '{}'", user.getUsername());
             return convertBookListToDTOWithUserSpecificInfo(bookList, user, bookService);
         } else {
@@ -55,6 +72,102 @@ class Util {
         }
     }
 
+    /**
+     * Converts a {@link BookSummaryList} of a database listing into a {@link BookListDTO}.
+     * <p>
+     * The user-specific information is already part of the summaries. For authenticated users, books that are not in
+     * their library get the reading status {@code UNREAD}, like in {@link #convertBookListToDTOWithUserSpecificInfo(BookList, User, BookService)}.
+     * </p>
+     *
+     * @param bookSummaryList the listing page to convert
+     * @param user            the authenticated user the summaries were loaded for, {@code null} if not authenticated
+     * @return a {@link BookListDTO}, personalized if the user is authenticated
+     */
+    static BookListDTO convertBookSummaryListToDTO(BookSummaryList bookSummaryList, User user) {
+        BookListDTO bookListDTO = BookListDTO.fromSummaryList(bookSummaryList);
+        if (user != null) {
+            bookListDTO.getBooks().stream()
+                    .filter(bookDTO -> bookDTO.getReadingStatus() == null)
+                    .forEach(bookDTO -> bookDTO.setReadingStatus(ReadingStatus.UNREAD));
+        }
+        return bookListDTO;
+    }
+
+    /**
+     * Converts a single {@link BookSummary} of a database listing into a {@link BookDTO}, like
+     * {@link #convertBookSummaryListToDTO(BookSummaryList, User)} does for every book of a page.
+     *
+     * @param bookSummary the book to convert
+     * @param user        the authenticated user the summary was loaded for, {@code null} if not authenticated
+     * @return a {@link BookDTO}, personalized if the user is authenticated
+     */
+    static BookDTO convertBookSummaryToDTO(BookSummary bookSummary, User user) {
+        BookDTO bookDTO = BookDTO.fromSummary(bookSummary);
+        if (user != null && bookDTO.getReadingStatus() == null) {
+            bookDTO.setReadingStatus(ReadingStatus.UNREAD);
+        }
+        return bookDTO;
+    }
+
+    /**
+     * Converts a {@link HybridSearchResult} into a {@link HybridSearchResultDTO}: the local matches like
+     * {@link #convertBookSummaryToDTO(BookSummary, User)}, followed by the OpenLibrary results, which are enriched with the
+     * user specific information like {@link #convertBookListToDTOWithUserSpecificInfo(BookList, User, BookService)}.
+     *
+     * @param result      the search result to convert
+     * @param user        the authenticated user the local matches were loaded for, {@code null} if not authenticated
+     * @param bookService the service used to retrieve the user specific data of the OpenLibrary results
+     * @return a {@link HybridSearchResultDTO}, personalized if the user is authenticated
+     */
+    static HybridSearchResultDTO convertHybridSearchResultToDTO(HybridSearchResult result, User user, BookService bookService) {
+        List<BookDTO> books = new ArrayList<>();
+        result.getLocalBooks().forEach(bookSummary -> books.add(convertBookSummaryToDTO(bookSummary, user)));
+
+        HybridSearchResultDTO.HybridSearchResultDTOBuilder builder = HybridSearchResultDTO.builder()
+                .numLocalResults(result.getNumLocalResults())
+                .continuation(result.getContinuation());
+        BookList externalBooks = result.getExternalBooks();
+        if (externalBooks != null) {
+            BookListDTO external = user != null ? convertBookListToDTOWithUserSpecificInfo(externalBooks, user, bookService) : BookListDTO.fromSearchResult(externalBooks);
+            books.addAll(external.getBooks());
+            builder.numExternalResults(external.getNumResults())
+                    .startIndex(external.getStartIndex())
+                    .skippedBooks(external.getSkippedBooks());
+        }
+        return builder.books(books).build();
+    }
+
+    /**
+     * Returns the authenticated user of a request.
+     *
+     * @param authentication the current authentication context
+     * @return the user, or {@code null} if the request is not authenticated
+     */
+    static User getAuthenticatedUser(Authentication authentication) {
+        if (authentication != null &&
+                authentication.isAuthenticated() &&
+                !(authentication instanceof AnonymousAuthenticationToken)) {
+            return ((UserPrincipal) authentication.getPrincipal()).getUser();
+        }
+        return null;
+    }
+
+    /**
+     * Serializes a DTO into the JSON the endpoints would write for it, so it can be cached and written as is.
+     *
+     * @param objectMapper the object mapper of the application (also used for the responses)
+     * @param dto the DTO to serialize
+     * @return the JSON as UTF-8 bytes
+     * @throws UncheckedIOException if the DTO cannot be serialized
+     */
+    static byte[] toJson(ObjectMapper objectMapper, Object dto) {
+        try {
+            return objectMapper.writeValueAsBytes(dto);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * Converts a {@link BookList} into a {@link BookListDTO} with full enrichment
      * using user-specific information.
@@ -81,15 +194,11 @@ class Util {
         bookListDTOBuilder.startIndex(bookList.getStartIndex());
         bookListDTOBuilder.numResults(bookList.getNumResults());
         bookListDTOBuilder.skippedBooks(bookList.getSkippedBooks());
+        bookListDTOBuilder.nextCursor(bookList.getNextCursor());
 
         List<BookDTO> bookDTOs = new ArrayList<>(bookList.getBooks().size());
         for (Book book : bookList.getBooks()) {
-            BookDTO bookDTO = BookDTO.fromBook(book);
-            bookDTO.setIndividualRating(bookService.getIndividualRating(book.getBookID(), user));
-            bookDTO.setReadingStatus(bookService.getReadingStatus(book.getBookID(), user));
-            bookDTO.setBookIsInLibrary(bookService.isBookInLibrary(book.getBookID(), user));
-            bookDTO.setBookIsOnWishlist(bookService.isBookOnWishlist(book.getBookID(), user));
-            bookDTOs.add(bookDTO);
+            bookDTOs.add(convertBookToDTOWithUserSpecificInfo(book, user, bookService));
         }
 
         log.debug("Finished enriching {} books for user '{}'", bookDTOs.size(), user.getUsername());
@@ -97,4 +206,91 @@ class Util {
         bookListDTOBuilder.books(bookDTOs);
         return bookListDTOBuilder.build();
     }
+
+    /**
+     * Converts a single {@link Book} into a {@link BookDTO} with the user-specific information, like
+     * {@link #convertBookListToDTOWithUserSpecificInfo(BookList, User, BookService)} does for every book of a list.
+     *
+     * @param book        the book to convert
+     * @param user        the authenticated user whose data will be used
+     * @param bookService the service used to retrieve personalized metadata
+     * @return a fully enriched {@link BookDTO}
+     */
+    static BookDTO convertBookToDTOWithUserSpecificInfo(Book book, User user, BookService bookService) {
+        BookDTO bookDTO = BookDTO.fromBook(book);
+        bookDTO.setIndividualRating(bookService.getIndividualRating(book.getBookID(), user));
+        bookDTO.setReadingStatus(bookService.getReadingStatus(book.getBookID(), user));
+        bookDTO.setBookIsInLibrary(bookService.isBookInLibrary(book.getBookID(), user));
+        bookDTO.setBookIsOnWishlist(bookService.isBookOnWishlist(book.getBookID(), user));
+        return bookDTO;
+    }
+
+    /**
+     * Creates the {@link DeferredResult} of an endpoint that waits for an asynchronous OpenLibrary request, so the
+     * servlet thread is released while the request is running.
+     * <p>
+     * The result is converted into the response when the request completes. Failures are passed on unwrapped, so they
+     * are handled by the {@link ControllerExceptionHandler} like those of the synchronous endpoints. If the client
+     * disconnects or the response times out, the request is cancelled.
+     * </p>
+     *
+     * @param request the asynchronous request
+     * @param toResponse converts the result of the request into the response
+     * @return the deferred response
+     */
+    static <T, R> DeferredResult<R> toDeferredResult(CompletableFuture<T> request, Function<T, R> toResponse) {
+        return toDeferredResult(new DeferredResult<>(), request, toResponse, () -> { });
+    }
+
+    /**
+     * Creates the {@link DeferredResult} of an endpoint like {@link #toDeferredResult(CompletableFuture, Function)}, for a
+     * request with a deadline.
+     * <p>
+     * The request itself gives up at the deadline. As a safety net, the response times out {@link #DEADLINE_GRACE_MILLIS}
+     * later with a {@link DeadlineExceededException} instead of waiting for the timeout of the servlet container.
+     * </p>
+     *
+     * @param request the asynchronous request
+     * @param deadline the deadline of the request
+     * @param toResponse converts the result of the request into the response
+     * @return the deferred response
+     */
+    static <T, R> DeferredResult<R> toDeferredResult(CompletableFuture<T> request, Deadline deadline, Function<T, R> toResponse) {
+        DeferredResult<R> deferredResult = new DeferredResult<>(deadline.remainingMillis() + DEADLINE_GRACE_MILLIS);
+        return toDeferredResult(deferredResult, request, toResponse,
+                () -> deferredResult.setErrorResult(new DeadlineExceededException("Request did not complete before its deadline")));
+    }
+
+    /**
+     * Wires the request to the given {@link DeferredResult}.
+     * <p>
+     * A {@link DeferredResult} only holds a single timeout callback, so the timeout handling of the caller is passed in as
+     * {@code onTimeout} and runs after the request was cancelled.
+     * </p>
+     *
+     * @param deferredResult the deferred response
+     * @param request the asynchronous request
+     * @param toResponse converts the result of the request into the response
+     * @param onTimeout additional action to run when the response times out
+     * @return the deferred response
+     */
+    private static <T, R> DeferredResult<R> toDeferredResult(DeferredResult<R> deferredResult, CompletableFuture<T> request, Function<T, R> toResponse, Runnable onTimeout) {
+        request.thenApply(toResponse).whenComplete((response, e) -> {
+            if (e == null) {
+                deferredResult.setResult(response);
+            } else if (!request.isCancelled()) {
+                deferredResult.setErrorResult(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            }
+        });
+        deferredResult.onError(e -> {
+            log.debug("Asynchronous request failed ({}), cancelling the request to OpenLibrary", e.getMessage());
+            request.cancel(true);
+        });
+        deferredResult.onTimeout(() -> {
+            log.warn("Asynchronous request timed out, cancelling the request to OpenLibrary");
+            request.cancel(true);
+            onTimeout.run();
+        });
+        return deferredResult;
+    }
 }
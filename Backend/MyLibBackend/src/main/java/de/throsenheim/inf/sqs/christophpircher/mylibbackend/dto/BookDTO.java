@@ -1,7 +1,9 @@
 package de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Book;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookSummary;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.ReadingStatus;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Builder;
@@ -141,6 +143,15 @@ public class BookDTO {
     @Builder.Default
     private boolean bookIsOnWishlist = false;
 
+    /**
+     * Flag to indicate that some data of the book (e.g. the description or authors) is missing, because OpenLibrary did
+     * not deliver it in time. Only included if set.
+     */
+    @JsonProperty("incomplete")
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    @Schema(description = "Set if OpenLibrary did not deliver all data of the book (e.g. the description or some authors) before the request timed out. Only included if true", example = "true")
+    private boolean incomplete;
+
     /**
      * Converts a {@link Book} domain model into a {@link BookDTO} for API output.
      *
@@ -152,7 +163,7 @@ public class BookDTO {
         builder.bookID(book.getBookID());
         builder.title(book.getTitle());
         builder.subtitle(book.getSubtitle());
-        builder.authors(book.getAuthors());
+        builder.authors(book.getAuthorNames());
         builder.description(book.getDescription());
         builder.isbns(book.getIsbns());
         builder.publishDate(book.getPublishDate());
@@ -160,6 +171,39 @@ public class BookDTO {
         builder.coverURLMedium(book.getCoverURLMedium());
         builder.coverURLLarge(book.getCoverURLLarge());
         builder.averageRating(book.getAverageRating());
+        builder.incomplete(book.isIncomplete());
+        return builder.build();
+    }
+
+    /**
+     * Converts a {@link BookSummary} of a book listing into a {@link BookDTO} for API output.
+     * <p>
+     * The description is not part of the summary, so it is left empty. The user-specific fields are taken from the summary.
+     * </p>
+     *
+     * @param summary The {@link BookSummary} object to convert
+     * @return A {@link BookDTO} with values mapped from the {@code summary}
+     */
+    public static BookDTO fromSummary(BookSummary summary) {
+        BookDTO.BookDTOBuilder builder = BookDTO.builder();
+        builder.bookID(summary.getBookID());
+        builder.title(summary.getTitle());
+        builder.subtitle(summary.getSubtitle());
+        builder.authors(summary.getAuthors());
+        if (summary.getIsbns() != null) {
+            builder.isbns(summary.getIsbns());
+        }
+        builder.publishDate(summary.getPublishDate());
+        builder.coverURLSmall(summary.getCoverURLSmall());
+        builder.coverURLMedium(summary.getCoverURLMedium());
+        builder.coverURLLarge(summary.getCoverURLLarge());
+        builder.averageRating(summary.getAverageRating());
+        builder.bookIsInLibrary(summary.isInLibrary());
+        builder.bookIsOnWishlist(summary.isOnWishlist());
+        if (summary.isInLibrary()) {
+            builder.individualRating(summary.getIndividualRating());
+            builder.readingStatus(summary.getReadingStatus());
+        }
         return builder.build();
     }
 }
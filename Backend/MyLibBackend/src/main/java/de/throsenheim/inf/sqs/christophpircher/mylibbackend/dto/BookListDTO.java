@@ -2,6 +2,7 @@ package de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookList;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookSummaryList;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Builder;
 import lombok.Data;
@@ -55,6 +56,28 @@ public class BookListDTO {
     @Builder.Default
     private int skippedBooks = 0;
 
+    /**
+     * Opaque cursor for fetching the next page with keyset pagination, or {@code null} if this is the last page.
+     */
+    @JsonProperty("nextCursor")
+    @Schema(description = "Opaque cursor for the next page (pass it as 'cursor' parameter). Null if this is the last page. Only set for the database, library and wishlist listings", example = "ZTQ2YjYyOGMtMWE3Ni00ZjM2LWI5OWItOTcyYjNmNDRhZTBhTWFzcyBlZmZlY3Q")
+    private String nextCursor;
+
+    /**
+     * Converts a {@link BookSummaryList} of a database listing into a {@link BookListDTO} for API response.
+     *
+     * @param bookSummaryList the listing page to convert
+     * @return a {@link BookListDTO} populated with converted data, including the user-specific data of the summaries
+     */
+    public static BookListDTO fromSummaryList(BookSummaryList bookSummaryList) {
+        BookListDTOBuilder builder = BookListDTO.builder();
+        builder.numResults(bookSummaryList.getNumResults());
+        builder.startIndex(bookSummaryList.getStartIndex());
+        builder.nextCursor(bookSummaryList.getNextCursor());
+        builder.books(bookSummaryList.getBooks().stream().map(BookDTO::fromSummary).toList());
+        return builder.build();
+    }
+
     /**
      * Converts a {@link BookList} domain model into a {@link BookListDTO} for API response.
      *
@@ -66,6 +89,7 @@ public class BookListDTO {
         builder.numResults(bookList.getNumResults());
         builder.startIndex(bookList.getStartIndex());
         builder.skippedBooks(bookList.getSkippedBooks());
+        builder.nextCursor(bookList.getNextCursor());
         List<BookDTO> bookDTOS = bookList.getBooks().stream().map(BookDTO::fromBook).toList();
 
         builder.books(bookDTOS);
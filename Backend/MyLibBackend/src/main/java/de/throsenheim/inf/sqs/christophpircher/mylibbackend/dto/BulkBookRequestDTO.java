@@ -0,0 +1,38 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) used to add many books to, or remove many books from, the user's library at once.
+ *
+ * <p>This class is used in the endpoints:</p>
+ * <ul>
+ *   <li>POST /bulk/add/library</li>
+ *   <li>POST /bulk/delete/library</li>
+ * </ul>
+ *
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller.BookController
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor // for test
+public class BulkBookRequestDTO {
+
+    /**
+     * The OpenLibrary book identifiers.
+     */
+    @JsonProperty("bookIDs")
+    @ArraySchema(arraySchema = @Schema(description = "OpenLibrary book IDs. At most 500 per request"),
+            schema = @Schema(example = "OL9698350M"))
+    @NotNull
+    private List<String> bookIDs = new ArrayList<>();
+}
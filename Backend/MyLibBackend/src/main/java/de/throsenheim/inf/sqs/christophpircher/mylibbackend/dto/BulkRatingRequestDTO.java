@@ -0,0 +1,37 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) used to rate many books of the user's library at once.
+ *
+ * <p>This class is used in the endpoint:</p>
+ * <ul>
+ *   <li>PUT /bulk/update/rating</li>
+ * </ul>
+ *
+ * @see ChangeBookRatingDTO
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller.BookController
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor // for test
+public class BulkRatingRequestDTO {
+
+    /**
+     * The new ratings.
+     */
+    @JsonProperty("ratings")
+    @ArraySchema(arraySchema = @Schema(description = "New ratings of the books. At most 500 per request. If a book appears more than once, the last rating is used"))
+    @NotNull
+    private List<ChangeBookRatingDTO> ratings = new ArrayList<>();
+}
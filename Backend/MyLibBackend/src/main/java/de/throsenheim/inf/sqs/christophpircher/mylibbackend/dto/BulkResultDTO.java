@@ -0,0 +1,55 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BulkResult;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BulkResultStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object (DTO) for the result of changing one book of a bulk library change.
+ *
+ * <p>This class is used in the endpoints:</p>
+ * <ul>
+ *   <li>POST /bulk/add/library</li>
+ *   <li>POST /bulk/delete/library</li>
+ *   <li>PUT /bulk/update/rating</li>
+ *   <li>PUT /bulk/update/status</li>
+ * </ul>
+ *
+ * @see BulkResult
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller.BookController
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkResultDTO {
+
+    /**
+     * The OpenLibrary book ID as sent in the request.
+     */
+    @JsonProperty("bookID")
+    @Schema(description = "OpenLibrary book ID", example = "OL9698350M")
+    private String bookID;
+
+    /**
+     * Outcome of the change.
+     */
+    @JsonProperty("status")
+    @Schema(description = "DONE, NOT_FOUND, NOT_IN_LIBRARY, INVALID (blank book ID, rating not between 0 and 5 or missing status) or FAILED (OpenLibrary could not be reached)", example = "DONE")
+    private BulkResultStatus status;
+
+    /**
+     * Converts a {@link BulkResult} into a {@link BulkResultDTO}.
+     *
+     * @param result The result to convert.
+     * @return The DTO.
+     */
+    public static BulkResultDTO fromBulkResult(BulkResult result) {
+        return new BulkResultDTO(result.getBookID(), result.getStatus());
+    }
+}
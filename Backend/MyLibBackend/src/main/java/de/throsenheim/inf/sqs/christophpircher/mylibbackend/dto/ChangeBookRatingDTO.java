@@ -47,12 +47,12 @@ public class ChangeBookRatingDTO {
     /**
      * The user-assigned rating for the book.
      * <p>
-     * Must be an integer between 1 and 5 (inclusive).
+     * Must be an integer between 1 and 5 (inclusive), or 0 to remove the rating.
      * </p>
      */
     @JsonProperty("rating")
-    @Schema(description = "The rating of the book between 1 and 5", example = "4")
-    @Range(min = 1, max = 5)
+    @Schema(description = "The rating of the book between 1 and 5, or 0 to remove the rating", example = "4")
+    @Range(min = 0, max = 5)
     @NotNull
     @NotBlank
     @NotEmpty
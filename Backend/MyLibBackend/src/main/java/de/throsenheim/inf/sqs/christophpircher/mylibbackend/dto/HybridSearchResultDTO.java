@@ -0,0 +1,69 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.HybridSearchResult;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for the results of a hybrid keyword search over the known books and the OpenLibrary API.
+ *
+ * <p>This class is used in the endpoints:</p>
+ * <ul>
+ *   <li>GET /search/hybrid/keyword</li>
+ *   <li>GET /search/hybrid/continuation</li>
+ * </ul>
+ *
+ * @see HybridSearchResult
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller.SearchController
+ */
+@Data
+@Builder
+public class HybridSearchResultDTO {
+
+    /**
+     * The local matches followed by the OpenLibrary results, every edition once.
+     */
+    @JsonProperty("books")
+    @Schema(description = "Known books matching the keywords (first page only), followed by the OpenLibrary results that are not known books")
+    private List<BookDTO> books;
+
+    /**
+     * Total number of local matches.
+     */
+    @JsonProperty("numLocalResults")
+    @Schema(description = "Number of known books matching the keywords", example = "3")
+    private int numLocalResults;
+
+    /**
+     * Total number of OpenLibrary results, {@code null} if OpenLibrary did not answer in time.
+     */
+    @JsonProperty("numExternalResults")
+    @Schema(description = "Number of OpenLibrary results (without pagination). Null if OpenLibrary did not answer in time", example = "801")
+    private Integer numExternalResults;
+
+    /**
+     * Start index of the OpenLibrary page.
+     */
+    @JsonProperty("startIndex")
+    @Schema(description = "Start index within the OpenLibrary results", example = "0")
+    private int startIndex;
+
+    /**
+     * Due to some inconsistencies in the OpenLibrary, some search results will be skipped if they don't have an associated addition.
+     */
+    @JsonProperty("skippedBooks")
+    @Schema(description = "Due to some inconsistencies in the OpenLibrary, some search results will be skipped if they don't have an associated addition", example = "1")
+    @Builder.Default
+    private int skippedBooks = 0;
+
+    /**
+     * Opaque token for fetching the OpenLibrary results later, or {@code null} if they are included.
+     */
+    @JsonProperty("continuation")
+    @Schema(description = "Opaque token for fetching the OpenLibrary results with /search/hybrid/continuation, if OpenLibrary did not answer in time. Null if the OpenLibrary results are included", example = "MDoxMDA6bWFzcyBlZmZlY3Q")
+    private String continuation;
+}
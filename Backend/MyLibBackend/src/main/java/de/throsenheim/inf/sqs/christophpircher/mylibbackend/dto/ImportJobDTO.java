@@ -0,0 +1,127 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.ImportJob;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.ImportJobStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Data Transfer Object (DTO) for the state and progress of a library import.
+ *
+ * <p>This class is used in the endpoints:</p>
+ * <ul>
+ *   <li>POST /import/library</li>
+ *   <li>GET /import/library/{jobID}</li>
+ * </ul>
+ *
+ * @see ImportJob
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller.BookController
+ */
+@Data
+@Builder
+public class ImportJobDTO {
+
+    /**
+     * ID of the import.
+     */
+    @JsonProperty("jobID")
+    @Schema(description = "ID of the import, for requesting its progress", example = "6f1c2b8e-3f7a-4d2e-9a51-0c4b7e8d9f10")
+    private UUID jobID;
+
+    /**
+     * State of the import.
+     */
+    @JsonProperty("status")
+    @Schema(description = "QUEUED, RUNNING, COMPLETED or FAILED", example = "RUNNING")
+    private ImportJobStatus status;
+
+    /**
+     * Number of rows of the CSV file.
+     */
+    @JsonProperty("totalRows")
+    @Schema(description = "Number of books in the file", example = "1200")
+    private int totalRows;
+
+    /**
+     * Number of rows processed so far.
+     */
+    @JsonProperty("processedRows")
+    @Schema(description = "Number of books processed so far", example = "350")
+    private int processedRows;
+
+    /**
+     * Number of rows whose book was added to the library.
+     */
+    @JsonProperty("importedRows")
+    @Schema(description = "Number of books added to the library (or already in it)", example = "340")
+    private int importedRows;
+
+    /**
+     * Number of rows whose book does not exist on OpenLibrary.
+     */
+    @JsonProperty("notFoundRows")
+    @Schema(description = "Number of books that do not exist on OpenLibrary", example = "7")
+    private int notFoundRows;
+
+    /**
+     * Number of rows without a valid ISBN or OpenLibrary ID.
+     */
+    @JsonProperty("invalidRows")
+    @Schema(description = "Number of rows without a valid ISBN or OpenLibrary ID", example = "2")
+    private int invalidRows;
+
+    /**
+     * Number of rows whose book could not be requested from OpenLibrary.
+     */
+    @JsonProperty("failedRows")
+    @Schema(description = "Number of books that could not be requested from OpenLibrary", example = "1")
+    private int failedRows;
+
+    /**
+     * Error that stopped the import, if it failed.
+     */
+    @JsonProperty("error")
+    @Schema(description = "Error that stopped the import. Only set if the status is FAILED", example = "null")
+    private String error;
+
+    /**
+     * Time of the upload.
+     */
+    @JsonProperty("createdAt")
+    @Schema(description = "Time of the upload")
+    private Instant createdAt;
+
+    /**
+     * Time of the last progress.
+     */
+    @JsonProperty("updatedAt")
+    @Schema(description = "Time of the last progress")
+    private Instant updatedAt;
+
+    /**
+     * Converts an {@link ImportJob} into an {@link ImportJobDTO}.
+     *
+     * @param job The import to convert.
+     * @return The DTO.
+     */
+    public static ImportJobDTO fromImportJob(ImportJob job) {
+        return ImportJobDTO.builder()
+                .jobID(job.getId())
+                .status(job.getStatus())
+                .totalRows(job.getTotalRows())
+                .processedRows(job.getProcessedRows())
+                .importedRows(job.getImportedRows())
+                .notFoundRows(job.getNotFoundRows())
+                .invalidRows(job.getInvalidRows())
+                .failedRows(job.getFailedRows())
+                .error(job.getError())
+                .createdAt(job.getCreatedAt())
+                .updatedAt(job.getUpdatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,67 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.IsbnLookup;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.IsbnLookupStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Data Transfer Object (DTO) for the result of looking up one ISBN of a bulk ISBN lookup.
+ *
+ * <p>This class is used in the endpoint:</p>
+ * <ul>
+ *   <li>POST /get/byISBN</li>
+ * </ul>
+ *
+ * @see IsbnLookup
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller.BookController
+ */
+@Data
+@Builder
+public class IsbnLookupDTO {
+
+    /**
+     * The ISBN as sent in the request.
+     */
+    @JsonProperty("isbn")
+    @Schema(description = "The ISBN as sent in the request", example = "0-345-49852-6")
+    private String isbn;
+
+    /**
+     * The ISBN normalized to ISBN-13.
+     */
+    @JsonProperty("normalizedIsbn")
+    @Schema(description = "The ISBN normalized to ISBN-13. Null if the ISBN is invalid", example = "9780345498526")
+    private String normalizedIsbn;
+
+    /**
+     * Outcome of the lookup.
+     */
+    @JsonProperty("status")
+    @Schema(description = "FOUND, NOT_FOUND, INVALID (malformed or wrong check digit) or FAILED (OpenLibrary could not be reached)", example = "FOUND")
+    private IsbnLookupStatus status;
+
+    /**
+     * The found book.
+     */
+    @JsonProperty("book")
+    @Schema(description = "The book with this ISBN. Null unless the status is FOUND. Contains no user-specific information")
+    private BookDTO book;
+
+    /**
+     * Converts an {@link IsbnLookup} into an {@link IsbnLookupDTO}.
+     *
+     * @param lookup The lookup result to convert.
+     * @return The DTO, with the book converted by {@link BookDTO#fromBook}.
+     */
+    public static IsbnLookupDTO fromIsbnLookup(IsbnLookup lookup) {
+        return IsbnLookupDTO.builder()
+                .isbn(lookup.getIsbn())
+                .normalizedIsbn(lookup.getNormalizedIsbn())
+                .status(lookup.getStatus())
+                .book(lookup.getBook() == null ? null : BookDTO.fromBook(lookup.getBook()))
+                .build();
+    }
+}
@@ -0,0 +1,37 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) used to look up many books by their ISBNs at once.
+ *
+ * <p>This class is used in the endpoint:</p>
+ * <ul>
+ *   <li>POST /get/byISBN</li>
+ * </ul>
+ *
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller.BookController
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor // for test
+public class IsbnLookupRequestDTO {
+
+    /**
+     * The ISBNs to look up.
+     */
+    @JsonProperty("isbns")
+    @ArraySchema(arraySchema = @Schema(description = "ISBN-10s or ISBN-13s to look up, hyphens and spaces are allowed. At most 500 per request"),
+            schema = @Schema(example = "978-0-345-49852-6"))
+    @NotNull
+    private List<String> isbns = new ArrayList<>();
+}
@@ -0,0 +1,73 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Book;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Data Transfer Object (DTO) for the rating distribution of a book.
+ * <p>
+ * Built from the rating aggregates of the book, so no library entries are loaded.
+ * </p>
+ *
+ * <p>This class is used in the endpoint:</p>
+ * <ul>
+ *   <li>GET /get/ratings/{id}</li>
+ * </ul>
+ *
+ * @see Book
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller.BookController
+ */
+@Data
+@Builder
+public class RatingHistogramDTO {
+
+    /**
+     * OpenLibrary Book ID.
+     */
+    @JsonProperty("bookID")
+    @Schema(description = "OpenLibrary Book ID", example = "OL9698350M")
+    private String bookID;
+
+    /**
+     * Average rating of all users that have rated the book.
+     */
+    @JsonProperty("averageRating")
+    @Schema(description = "Average rating of a book from 1 to 5 of all users that have rated the book. 0 = no rating yet", example = "4.5")
+    private float averageRating;
+
+    /**
+     * Number of users that have rated the book.
+     */
+    @JsonProperty("numRatings")
+    @Schema(description = "Number of users that have rated the book", example = "2")
+    private int numRatings;
+
+    /**
+     * Number of ratings per number of stars.
+     */
+    @JsonProperty("histogram")
+    @Schema(description = "Number of ratings for each number of stars from 1 to 5", example = "{\"1\": 0, \"2\": 0, \"3\": 0, \"4\": 1, \"5\": 1}")
+    @Builder.Default
+    private Map<Integer, Integer> histogram = new LinkedHashMap<>();
+
+    /**
+     * Converts the rating aggregates of a {@link Book} into a {@link RatingHistogramDTO}.
+     *
+     * @param book The book to convert.
+     * @return The rating distribution of the book.
+     */
+    public static RatingHistogramDTO fromBook(Book book) {
+        return RatingHistogramDTO.builder()
+                .bookID(book.getBookID())
+                .averageRating(book.getAverageRating())
+                .numRatings(book.getNumRatings())
+                .histogram(book.getRatingHistogram())
+                .build();
+    }
+}
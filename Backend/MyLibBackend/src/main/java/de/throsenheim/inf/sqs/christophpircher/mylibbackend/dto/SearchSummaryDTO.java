@@ -0,0 +1,61 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookList;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Data Transfer Object (DTO) for the pagination metadata of a search whose books are streamed one by one.
+ * <p>
+ * Sent as the last event of the streamed keyword search, after all {@link BookDTO}s of the page.
+ * </p>
+ *
+ * <p>This class is used in the endpoint:</p>
+ * <ul>
+ *   <li>GET /search/external/keyword/stream</li>
+ * </ul>
+ *
+ * @see BookListDTO
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller.SearchController
+ */
+@Data
+@Builder
+public class SearchSummaryDTO {
+
+    /**
+     * Total number of search results available (ignores pagination).
+     */
+    @JsonProperty("numResults")
+    @Schema(description = "Number of total results (without pagination)", example = "801")
+    private int numResults;
+
+    /**
+     * Index of the first result in the current page (zero-based).
+     */
+    @JsonProperty("startIndex")
+    @Schema(description = "Start index within the total number of search results", example = "100")
+    private int startIndex;
+
+    /**
+     * Due to some inconsistencies in the OpenLibrary, some search results will be skipped if they don't have an associated addition.
+     */
+    @JsonProperty("skippedBooks")
+    @Schema(description = "Due to some inconsistencies in the OpenLibrary, some search results will be skipped if they don't have an associated addition", example = "1")
+    private int skippedBooks;
+
+    /**
+     * Creates the summary of a search result.
+     *
+     * @param bookList the search result
+     * @return the pagination metadata of the search result
+     */
+    public static SearchSummaryDTO fromSearchResult(BookList bookList) {
+        return SearchSummaryDTO.builder()
+                .numResults(bookList.getNumResults())
+                .startIndex(bookList.getStartIndex())
+                .skippedBooks(bookList.getSkippedBooks())
+                .build();
+    }
+}
@@ -0,0 +1,51 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Suggestion;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.SuggestionType;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Data Transfer Object (DTO) for one typeahead suggestion.
+ *
+ * <p>This class is used in the endpoint:</p>
+ * <ul>
+ *   <li>GET /search/suggest</li>
+ * </ul>
+ *
+ * @see Suggestion
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller.SearchController
+ */
+@Data
+@Builder
+public class SuggestionDTO {
+
+    /**
+     * The suggested text.
+     */
+    @JsonProperty("text")
+    @Schema(description = "The suggested keywords", example = "Mass effect")
+    private String text;
+
+    /**
+     * Where the suggestion comes from.
+     */
+    @JsonProperty("type")
+    @Schema(description = "TITLE (title of a known book), AUTHOR (author of a known book) or SEARCH (popular search keywords)", example = "TITLE")
+    private SuggestionType type;
+
+    /**
+     * Converts a {@link Suggestion} into a {@link SuggestionDTO}.
+     *
+     * @param suggestion The suggestion to convert.
+     * @return The DTO.
+     */
+    public static SuggestionDTO fromSuggestion(Suggestion suggestion) {
+        return SuggestionDTO.builder()
+                .text(suggestion.getText())
+                .type(suggestion.getType())
+                .build();
+    }
+}
@@ -0,0 +1,23 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions;
+
+/**
+ * Exception thrown when a bulk request contains more items than a single request may process.
+ * <p>
+ * The limit keeps the work of one request (and the number of concurrent OpenLibrary requests it causes) bounded.
+ * Clients have to split larger batches into several requests.
+ * </p>
+ *
+ * <p>This exception is generally translated to an HTTP 400 (Bad Request) response.</p>
+ *
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller.ControllerExceptionHandler
+ */
+public class BulkLimitExceededException extends Exception {
+    /**
+     * Constructs a new {@code BulkLimitExceededException} with the specified detail message.
+     *
+     * @param message the detail message stating the limit
+     */
+    public BulkLimitExceededException(String message) {
+        super(message);
+    }
+}
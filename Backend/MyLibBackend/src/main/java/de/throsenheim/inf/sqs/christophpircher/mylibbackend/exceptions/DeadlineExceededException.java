@@ -0,0 +1,27 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown when the time budget of a request ({@link de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Deadline})
+ * ran out before a required call finished, or when a call was not even sent because too little time was left.
+ * <p>
+ * Calls whose data is optional (e.g. the authors of a book) do not fail the request with this exception; their data is
+ * left out and the result is flagged as incomplete instead. It is an {@link IOException}, since a call running out of
+ * time is a communication failure to callers that do not distinguish it.
+ * </p>
+ *
+ * <p>This exception is generally translated to an HTTP 504 (Gateway Timeout) response.</p>
+ *
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller.ControllerExceptionHandler
+ */
+public class DeadlineExceededException extends IOException {
+    /**
+     * Constructs a new {@code DeadlineExceededException} with the specified detail message.
+     *
+     * @param message the detail message naming the call that ran out of time
+     */
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
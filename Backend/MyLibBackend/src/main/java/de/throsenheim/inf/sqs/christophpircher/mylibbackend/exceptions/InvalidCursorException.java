@@ -0,0 +1,24 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions;
+
+/**
+ * Exception thrown when a pagination cursor sent by a client cannot be decoded.
+ * <p>
+ * Cursors are opaque tokens handed out in the {@code nextCursor} field of list responses. This exception is raised
+ * when a client sends a token that was not produced by the backend, e.g. because it was truncated or modified.
+ * </p>
+ *
+ * <p>This exception is generally translated to an HTTP 400 (Bad Request) response.</p>
+ *
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookCursor
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller.ControllerExceptionHandler
+ */
+public class InvalidCursorException extends Exception {
+    /**
+     * Constructs a new {@code InvalidCursorException} with the specified detail message.
+     *
+     * @param message the detail message explaining why the cursor is invalid
+     */
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
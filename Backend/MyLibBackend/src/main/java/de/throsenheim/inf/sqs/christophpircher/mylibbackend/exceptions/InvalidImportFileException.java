@@ -0,0 +1,24 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions;
+
+/**
+ * Exception thrown when an uploaded library import is no usable CSV file.
+ * <p>
+ * This includes empty files, files without a column that identifies the books (ISBN or OpenLibrary ID)
+ * and records that are too long to be a book, which usually means the file is no CSV file at all.
+ * </p>
+ *
+ * <p>This exception is generally translated to an HTTP 400 (Bad Request) response.</p>
+ *
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.imports.LibraryImportService
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller.ControllerExceptionHandler
+ */
+public class InvalidImportFileException extends Exception {
+    /**
+     * Constructs a new {@code InvalidImportFileException} with the specified detail message.
+     *
+     * @param message the detail message explaining why the file cannot be imported
+     */
+    public InvalidImportFileException(String message) {
+        super(message);
+    }
+}
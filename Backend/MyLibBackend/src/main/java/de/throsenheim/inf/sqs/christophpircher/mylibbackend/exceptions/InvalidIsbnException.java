@@ -0,0 +1,23 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions;
+
+/**
+ * Exception thrown when a string sent by a client is no valid ISBN-10 or ISBN-13.
+ * <p>
+ * Besides malformed input, this includes ISBNs with a wrong check digit, which usually are typos or scanning errors.
+ * </p>
+ *
+ * <p>This exception is generally translated to an HTTP 400 (Bad Request) response.</p>
+ *
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Isbn
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller.ControllerExceptionHandler
+ */
+public class InvalidIsbnException extends Exception {
+    /**
+     * Constructs a new {@code InvalidIsbnException} with the specified detail message.
+     *
+     * @param message the detail message explaining why the ISBN is invalid
+     */
+    public InvalidIsbnException(String message) {
+        super(message);
+    }
+}
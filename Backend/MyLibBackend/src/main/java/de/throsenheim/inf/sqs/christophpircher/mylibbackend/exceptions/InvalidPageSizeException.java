@@ -0,0 +1,23 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions;
+
+/**
+ * Exception thrown when a client requests a page of a paginated listing that is too large or starts at a negative index.
+ * <p>
+ * The maximum page size keeps single requests from loading a whole listing into memory. Clients that need all books
+ * use the streaming endpoints instead.
+ * </p>
+ *
+ * <p>This exception is generally translated to an HTTP 400 (Bad Request) response.</p>
+ *
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller.ControllerExceptionHandler
+ */
+public class InvalidPageSizeException extends Exception {
+    /**
+     * Constructs a new {@code InvalidPageSizeException} with the specified detail message.
+     *
+     * @param message the detail message explaining which page parameter is out of range
+     */
+    public InvalidPageSizeException(String message) {
+        super(message);
+    }
+}
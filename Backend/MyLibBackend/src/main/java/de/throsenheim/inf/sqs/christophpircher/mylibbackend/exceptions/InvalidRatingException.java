@@ -0,0 +1,23 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions;
+
+/**
+ * Exception thrown when a user rates a book with a value outside the allowed range.
+ * <p>
+ * Ratings are added to the per-book rating aggregates, so a value without a star bucket would skew the average and the
+ * histogram of every reader of the book.
+ * </p>
+ *
+ * <p>This exception is generally translated to an HTTP 400 (Bad Request) response.</p>
+ *
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller.ControllerExceptionHandler
+ */
+public class InvalidRatingException extends Exception {
+    /**
+     * Constructs a new {@code InvalidRatingException} with the specified detail message.
+     *
+     * @param message the detail message containing the rejected rating
+     */
+    public InvalidRatingException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,23 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions;
+
+/**
+ * Exception thrown when a library export is requested while the maximum number of exports is already running on this node.
+ * <p>
+ * Every export holds a database connection and a thread until the client has received the whole file, so the number of
+ * concurrent exports is limited. Clients retry later.
+ * </p>
+ *
+ * <p>This exception is generally translated to an HTTP 503 (Service Unavailable) response.</p>
+ *
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller.ControllerExceptionHandler
+ */
+public class TooManyExportsException extends Exception {
+    /**
+     * Constructs a new {@code TooManyExportsException} with the specified detail message.
+     *
+     * @param message the detail message stating the limit
+     */
+    public TooManyExportsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,66 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Entity representing an author of one or more {@link Book}s.
+ * <p>
+ * Every author name is stored once and referenced by the books through the {@code book_author} join table, so all books
+ * of an author can be found through an index instead of scanning the book table.
+ * </p>
+ *
+ * @see Book
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_author_name", columnNames = "name"))
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+public class Author {
+
+    /**
+     * Unique identifier for this author in the database. {@code null} for authors that are not stored yet.
+     */
+    @Id
+    private UUID id;
+
+    /**
+     * Name of the author, as provided by OpenLibrary.
+     */
+    @Column(nullable = false)
+    private String name;
+
+    /**
+     * Creates an author that is not stored in the database yet.
+     *
+     * @param name name of the author
+     * @return the new author
+     */
+    public static Author of(String name) {
+        return new Author(null, name);
+    }
+
+    /**
+     * Creates authors that are not stored in the database yet.
+     *
+     * @param names names of the authors, may be {@code null}
+     * @return the authors in the same order, or {@code null} if {@code names} is {@code null}
+     */
+    public static List<Author> fromNames(List<String> names) {
+        if (names == null) {
+            return null;
+        }
+        List<Author> authors = new ArrayList<>(names.size());
+        for (String name : names) {
+            authors.add(of(name));
+        }
+        return authors;
+    }
+}
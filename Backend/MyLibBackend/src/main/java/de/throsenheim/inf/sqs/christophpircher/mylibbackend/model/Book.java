@@ -2,9 +2,16 @@ package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.SourceType;
+import org.hibernate.type.SqlTypes;
 
-import java.util.HashSet;
+import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -19,12 +26,32 @@ import java.util.UUID;
  * @see User
  */
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_book_bookid", columnNames = "bookID"),
+        indexes = {@Index(name = "idx_book_title_id", columnList = "title, id"), // Sort key of the book listings (keyset pagination)
+                @Index(name = "idx_book_created_at", columnList = "created_at")}) // Books added since the last search index refresh
+@SecondaryTable(name = Book.RATING_TABLE, pkJoinColumns = @PrimaryKeyJoinColumn(name = "book_id"),
+        foreignKey = @ForeignKey(name = "fk_book_rating_book"))
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Getter
 public class Book {
 
+    /**
+     * Table holding the rating aggregates of a book.
+     * <p>
+     * The aggregates are maintained incrementally by the {@link de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.BookService}
+     * whenever a rating changes, so they are read-only in this entity. The row is missing (all aggregates are {@code null})
+     * for books that were never added to a library.
+     * </p>
+     */
+    public static final String RATING_TABLE = "book_rating";
+
+    /**
+     * Number of books whose authors or ISBNs are loaded with one query, when they are accessed on several books.
+     */
+    static final int BATCH_SIZE = 50;
+
     /**
      * Unique identifier for this book record in the database.
      */
@@ -40,7 +67,11 @@ public class Book {
 
     /**
      * Title of the book.
+     * <p>
+     * Never {@code null}, because it is part of the sort key for keyset pagination (see {@link BookCursor}).
+     * </p>
      */
+    @Column(nullable = false)
     private String title;
 
     /**
@@ -49,19 +80,44 @@ public class Book {
     private String subtitle;
 
     /**
-     * List of authors.
+     * List of authors, in the order given by OpenLibrary.
+     * <p>
+     * Loaded lazily, in batches for several books at once.
+     * </p>
      */
-    private List<String> authors;
+    @ManyToMany
+    @JoinTable(name = "book_author",
+            joinColumns = @JoinColumn(name = "book_id", foreignKey = @ForeignKey(name = "fk_book_author_book")),
+            inverseJoinColumns = @JoinColumn(name = "author_id", foreignKey = @ForeignKey(name = "fk_book_author_author")),
+            indexes = @Index(name = "idx_book_author_author", columnList = "author_id")) // Author to books lookup
+    @OrderColumn(name = "position")
+    @BatchSize(size = BATCH_SIZE)
+    @Setter
+    private List<Author> authors;
 
     /**
      * Description or summary text for the book.
+     * <p>
+     * Stored as {@code text} instead of a large object, so it is read together with the row. The book listings do not
+     * select it at all (see {@link BookSummary}).
+     * </p>
      */
-    @Lob
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
     private String description;
 
     /**
      * List of ISBNs, including both ISBN-10 and ISBN-13 values.
+     * <p>
+     * Loaded lazily, in batches for several books at once.
+     * </p>
      */
+    @ElementCollection
+    @CollectionTable(name = "book_isbn",
+            joinColumns = @JoinColumn(name = "book_id", foreignKey = @ForeignKey(name = "fk_book_isbn_book")),
+            indexes = @Index(name = "idx_book_isbn_isbn", columnList = "isbn")) // ISBN to book lookup
+    @OrderColumn(name = "position")
+    @Column(name = "isbn", nullable = false)
+    @BatchSize(size = BATCH_SIZE)
     private List<String> isbns;
 
     /**
@@ -84,6 +140,14 @@ public class Book {
      */
     private String publishDate;
 
+    /**
+     * Time the book was stored, set by the database (start of the storing transaction). Used by the search index to
+     * load only the books stored since its last refresh.
+     */
+    @CreationTimestamp(source = SourceType.DB)
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
     /**
      * Mapping to the {@link LibraryBook} entities, which represent a many-to-many relationship
      * between users and books stored in their libraries, with additional metadata like rating.
@@ -91,27 +155,140 @@ public class Book {
     @OneToMany(mappedBy = "book")
     private Set<LibraryBook> libraryBooks;
 
+    /**
+     * Sum of all ratings given to this book.
+     */
+    @Column(table = RATING_TABLE, name = "rating_sum", insertable = false, updatable = false)
+    private Long ratingSum;
+
+    /**
+     * Number of users who have rated this book.
+     */
+    @Column(table = RATING_TABLE, name = "rating_count", insertable = false, updatable = false)
+    private Integer ratingCount;
+
+    /**
+     * Number of 1-star ratings.
+     */
+    @Column(table = RATING_TABLE, name = "stars_1", insertable = false, updatable = false)
+    private Integer stars1;
+
+    /**
+     * Number of 2-star ratings.
+     */
+    @Column(table = RATING_TABLE, name = "stars_2", insertable = false, updatable = false)
+    private Integer stars2;
+
+    /**
+     * Number of 3-star ratings.
+     */
+    @Column(table = RATING_TABLE, name = "stars_3", insertable = false, updatable = false)
+    private Integer stars3;
+
+    /**
+     * Number of 4-star ratings.
+     */
+    @Column(table = RATING_TABLE, name = "stars_4", insertable = false, updatable = false)
+    private Integer stars4;
+
+    /**
+     * Number of 5-star ratings.
+     */
+    @Column(table = RATING_TABLE, name = "stars_5", insertable = false, updatable = false)
+    private Integer stars5;
+
+    /**
+     * Version of the rating aggregates, incremented with every rating change. {@code null} if the book has no aggregates.
+     */
+    @Column(table = RATING_TABLE, name = "version", insertable = false, updatable = false)
+    private Long ratingVersion;
+
+    /**
+     * Version of a book from OpenLibrary in the cache of the external books: the time it was cached in milliseconds, 0 if
+     * it is not cached. Set by the cache, not stored.
+     */
+    @Transient
+    @Setter
+    private long cacheVersion;
+
+    /**
+     * Whether data of the book is missing because OpenLibrary did not deliver it before the deadline of the request
+     * (e.g. the description or some authors). Not stored; incomplete books are not cached, so they never reach the database.
+     */
+    @Transient
+    private boolean incomplete;
+
+    /**
+     * Returns the names of the authors.
+     *
+     * @return The author names in order, or {@code null} if the authors are unknown.
+     */
+    public List<String> getAuthorNames() {
+        if (authors == null) {
+            return null;
+        }
+        return authors.stream().map(Author::getName).toList();
+    }
+
+    /**
+     * Returns the version of this stored book.
+     * <p>
+     * Only the rating aggregates of a book change after it is stored, so their version is the version of the book.
+     * </p>
+     *
+     * @return The version, 0 if the book was never rated.
+     */
+    public long getVersion() {
+        return ratingVersion == null ? 0 : ratingVersion;
+    }
+
     /**
      * Computes the average rating of this book across all users who have rated it.
+     * <p>
+     * Uses the rating aggregates, so the library entries of the book are not loaded.
+     * </p>
      *
      * @return The average rating (between 1 and 5), or 0 if there are no ratings.
      */
     public float getAverageRating() {
-        if(libraryBooks == null || libraryBooks.isEmpty()) {
+        return averageRating(ratingSum, ratingCount);
+    }
+
+    /**
+     * Computes an average rating from the rating aggregates.
+     *
+     * @param ratingSum sum of all ratings, {@code null} if there are no aggregates
+     * @param ratingCount number of ratings, {@code null} if there are no aggregates
+     * @return The average rating (between 1 and 5), or 0 if there are no ratings.
+     */
+    static float averageRating(Long ratingSum, Integer ratingCount) {
+        if (ratingSum == null || ratingCount == null || ratingCount == 0) {
             return 0;
         }
-        float sum = 0;
-        int count = 0;
-        for(LibraryBook libraryBook : libraryBooks){
-            if(libraryBook.getRating() > 0){
-                sum += libraryBook.getRating();
-                ++count;
-            }
-        }
-        if(count != 0){
-            return  sum/count;
-        }else{
-            return sum;
-        }
+        return (float) ratingSum / ratingCount;
+    }
+
+    /**
+     * Returns the number of ratings with each number of stars.
+     *
+     * @return Map from the number of stars (1 to 5, in ascending order) to the number of ratings with that many stars.
+     */
+    public Map<Integer, Integer> getRatingHistogram() {
+        Map<Integer, Integer> histogram = new LinkedHashMap<>();
+        histogram.put(1, stars1 == null ? 0 : stars1);
+        histogram.put(2, stars2 == null ? 0 : stars2);
+        histogram.put(3, stars3 == null ? 0 : stars3);
+        histogram.put(4, stars4 == null ? 0 : stars4);
+        histogram.put(5, stars5 == null ? 0 : stars5);
+        return histogram;
+    }
+
+    /**
+     * Returns the number of users who have rated this book.
+     *
+     * @return Number of ratings, or 0 if there are none.
+     */
+    public int getNumRatings() {
+        return ratingCount == null ? 0 : ratingCount;
     }
 }
@@ -0,0 +1,89 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidCursorException;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Position in a book listing that is sorted by title and ID, used for keyset (cursor) pagination.
+ * <p>
+ * A cursor holds the sort key of the last book on a page. The next page starts right after that key, so the database
+ * can seek to it in the {@code (title, id)} index instead of skipping over all previous rows like with an offset.
+ * The ID makes the key unique when several books have the same title.
+ * </p>
+ * <p>
+ * Clients only see the encoded form ({@link #encode()}), which is an opaque, URL-safe token.
+ * </p>
+ *
+ * @see Book
+ * @see BookList#getNextCursor()
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+public class BookCursor {
+
+    /**
+     * Length of the textual UUID representation at the start of the encoded cursor.
+     */
+    private static final int UUID_LENGTH = 36;
+
+    /**
+     * Title of the last book on the previous page.
+     */
+    private final String title;
+
+    /**
+     * Internal ID of the last book on the previous page.
+     */
+    private final UUID id;
+
+    /**
+     * Creates the cursor pointing right after the last book of a page.
+     *
+     * @param page the books of the current page, in listing order
+     * @param hasMore whether there are books after this page
+     * @return the encoded cursor for the next page, or {@code null} if this is the last page
+     */
+    public static String nextCursor(List<BookSummary> page, boolean hasMore) {
+        if (!hasMore || page.isEmpty()) {
+            return null;
+        }
+        BookSummary last = page.getLast();
+        return new BookCursor(last.getTitle(), last.getId()).encode();
+    }
+
+    /**
+     * Encodes the cursor as an opaque, URL-safe token.
+     *
+     * @return the Base64 (URL-safe, unpadded) encoded cursor
+     */
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((id + title).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token created by {@link #encode()}.
+     *
+     * @param token the token sent by the client
+     * @return the decoded cursor
+     * @throws InvalidCursorException if the token is not a valid cursor
+     */
+    public static BookCursor decode(String token) throws InvalidCursorException {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (decoded.length() < UUID_LENGTH) {
+                throw new InvalidCursorException("Invalid cursor: " + token);
+            }
+            return new BookCursor(decoded.substring(UUID_LENGTH), UUID.fromString(decoded.substring(0, UUID_LENGTH)));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor: " + token);
+        }
+    }
+}
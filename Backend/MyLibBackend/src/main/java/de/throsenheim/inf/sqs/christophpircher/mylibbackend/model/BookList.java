@@ -42,4 +42,16 @@ public class BookList {
     @Builder.Default
     private int skippedBooks = 0;
 
+    /**
+     * Encoded {@link BookCursor} pointing after the last book of this page, or {@code null} if there are no more books.
+     * Only set for listings that support keyset pagination.
+     */
+    private String nextCursor;
+
+    /**
+     * Version of an OpenLibrary search result in the search cache: the time it was cached in milliseconds, 0 if it is not
+     * cached. Set by the cache.
+     */
+    private long cacheVersion;
+
 }
@@ -0,0 +1,141 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Read-only projection of a {@link Book} for the book listings (all books, library, wishlist).
+ * <p>
+ * Contains only the columns shown in list views, the rating aggregates and the library and wishlist state of one user,
+ * all read in a single query. The description is left out; it is only loaded for the detail view.
+ * </p>
+ *
+ * @see Book
+ * @see BookSummaryList
+ */
+@Getter
+@RequiredArgsConstructor
+public class BookSummary {
+
+    /**
+     * JPQL select clause creating a {@link BookSummary} from a book {@code b}, the user's library entry {@code lb}
+     * (left joined, may be missing) and the parameter {@code :userId}.
+     */
+    public static final String SELECT = "SELECT new de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookSummary(" +
+            "b.id, b.bookID, b.title, b.subtitle, b.coverURLSmall, b.coverURLMedium, b.coverURLLarge, b.publishDate, " +
+            "b.ratingSum, b.ratingCount, b.ratingVersion, lb.rating, lb.readingStatus, " +
+            "CASE WHEN EXISTS (SELECT 1 FROM User u JOIN u.wishlistBooks w WHERE u.id = :userId AND w.id = b.id) THEN TRUE ELSE FALSE END) ";
+
+    /**
+     * Internal ID of the book.
+     */
+    private final UUID id;
+
+    /**
+     * OpenLibrary book identifier.
+     */
+    private final String bookID;
+
+    /**
+     * Title of the book.
+     */
+    private final String title;
+
+    /**
+     * Subtitle of the book, if available.
+     */
+    private final String subtitle;
+
+    /**
+     * List of authors. Not part of the query result (it is a collection), but set afterwards for the whole page.
+     */
+    @Setter
+    private List<String> authors;
+
+    /**
+     * ISBNs of the book. Not part of the query result (it is a collection), but set afterwards for the whole page.
+     */
+    @Setter
+    private List<String> isbns;
+
+    /**
+     * URL to a small-sized cover image.
+     */
+    private final String coverURLSmall;
+
+    /**
+     * URL to a medium-sized cover image.
+     */
+    private final String coverURLMedium;
+
+    /**
+     * URL to a large-sized cover image.
+     */
+    private final String coverURLLarge;
+
+    /**
+     * Publish date of the book.
+     */
+    private final String publishDate;
+
+    /**
+     * Sum of all ratings, {@code null} if the book has no rating aggregates.
+     */
+    private final Long ratingSum;
+
+    /**
+     * Number of ratings, {@code null} if the book has no rating aggregates.
+     */
+    private final Integer ratingCount;
+
+    /**
+     * Version of the rating aggregates, {@code null} if the book has no rating aggregates.
+     */
+    private final Long ratingVersion;
+
+    /**
+     * The user's rating, {@code null} if the book is not in the user's library.
+     */
+    private final Integer individualRating;
+
+    /**
+     * The user's reading status, {@code null} if the book is not in the user's library.
+     */
+    private final ReadingStatus readingStatus;
+
+    /**
+     * Whether the book is on the user's wishlist.
+     */
+    private final boolean onWishlist;
+
+    /**
+     * Whether the book is in the user's library.
+     *
+     * @return {@code true} if the user has a library entry for the book
+     */
+    public boolean isInLibrary() {
+        return individualRating != null;
+    }
+
+    /**
+     * Returns the version of the book, see {@link Book#getVersion()}.
+     *
+     * @return The version, 0 if the book was never rated.
+     */
+    public long getVersion() {
+        return ratingVersion == null ? 0 : ratingVersion;
+    }
+
+    /**
+     * Computes the average rating of this book across all users who have rated it.
+     *
+     * @return The average rating (between 1 and 5), or 0 if there are no ratings.
+     */
+    public float getAverageRating() {
+        return Book.averageRating(ratingSum, ratingCount);
+    }
+}
@@ -0,0 +1,43 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a book listing (all books, library or wishlist) made of {@link BookSummary} projections.
+ * <p>
+ * The counterpart of {@link BookList} for listings read from the database.
+ * </p>
+ *
+ * @see BookSummary
+ */
+@Data
+@Builder
+@AllArgsConstructor //for unit test
+@NoArgsConstructor
+public class BookSummaryList {
+
+    /**
+     * Total number of books in the listing.
+     */
+    private int numResults;
+
+    /**
+     * Start index of the page within the listing.
+     */
+    private int startIndex;
+
+    /**
+     * The books of the page.
+     */
+    private List<BookSummary> books;
+
+    /**
+     * Cursor for the next page (keyset pagination), {@code null} on the last page.
+     */
+    private String nextCursor;
+}
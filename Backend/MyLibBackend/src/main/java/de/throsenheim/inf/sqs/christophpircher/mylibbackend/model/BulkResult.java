@@ -0,0 +1,27 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Result of changing one book of a bulk library change.
+ * <p>
+ * Every book of a bulk change gets its own result, so one unknown book does not fail the whole request.
+ * </p>
+ *
+ * @see BulkResultStatus
+ */
+@Getter
+@AllArgsConstructor
+public class BulkResult {
+
+    /**
+     * The OpenLibrary book ID as sent by the client.
+     */
+    private final String bookID;
+
+    /**
+     * Outcome of the change.
+     */
+    private final BulkResultStatus status;
+}
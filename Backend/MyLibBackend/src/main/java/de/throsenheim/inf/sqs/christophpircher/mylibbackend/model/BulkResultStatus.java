@@ -0,0 +1,30 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+/**
+ * Enumeration representing the outcome of changing one book of a bulk library change.
+ *
+ * @see BulkResult
+ */
+public enum BulkResultStatus {
+    /**
+     * The change was applied, or the library was already in the requested state (e.g. the book was already in the library).
+     */
+    DONE,
+    /**
+     * There is no book with the ID. Only books that are added are also looked up in the OpenLibrary API, because a book
+     * that is not in the database is in no library.
+     */
+    NOT_FOUND,
+    /**
+     * The book is not in the user's library, so it cannot be removed, rated or get a reading status.
+     */
+    NOT_IN_LIBRARY,
+    /**
+     * The book ID is blank, the rating is not between 0 (no rating) and 5, or the reading status is missing.
+     */
+    INVALID,
+    /**
+     * The book could not be resolved, because the OpenLibrary API failed or returned an unexpected status.
+     */
+    FAILED
+}
@@ -0,0 +1,61 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+import java.time.Duration;
+
+/**
+ * The point in time by which a request must be answered.
+ * <p>
+ * A deadline is created once per request (see the {@code X-Request-Timeout} header and the {@code deadline.*}
+ * properties) and passed on to every call the request makes, so the calls share one time budget instead of each waiting
+ * up to its own timeout. Calls use {@link #remainingMillis()} as their timeout and are skipped once too little time is left.
+ * </p>
+ * <p>
+ * Based on {@link System#nanoTime()}, so it is not affected by changes of the wall clock.
+ * </p>
+ */
+public final class Deadline {
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Creates a deadline that expires after the given time from now.
+     *
+     * @param timeout the time budget
+     * @return the deadline
+     */
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * Returns the time left until the deadline.
+     *
+     * @return the remaining milliseconds, {@code 0} if the deadline has passed
+     */
+    public long remainingMillis() {
+        return Math.max(0, Duration.ofNanos(deadlineNanos - System.nanoTime()).toMillis());
+    }
+
+    /**
+     * Checks whether at least the given time is left until the deadline.
+     *
+     * @param millis the time needed, e.g. for one more call
+     * @return {@code true} if at least {@code millis} milliseconds are left
+     */
+    public boolean hasRemaining(long millis) {
+        return deadlineNanos - System.nanoTime() >= Duration.ofMillis(millis).toNanos();
+    }
+
+    /**
+     * Checks whether the deadline has passed.
+     *
+     * @return {@code true} if no time is left
+     */
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+}
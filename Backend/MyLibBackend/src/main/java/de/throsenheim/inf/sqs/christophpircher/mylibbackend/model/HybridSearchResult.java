@@ -0,0 +1,47 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Result of a hybrid keyword search over the known books and the OpenLibrary API.
+ * <p>
+ * Combines the best local matches ({@link BookSummary} projections, which already carry the user specific data) with
+ * one page of OpenLibrary results. OpenLibrary results that are also local matches are removed, so every edition is
+ * listed once. If OpenLibrary did not answer before the deadline, {@link #getExternalBooks()} is {@code null} and
+ * {@link #getContinuation()} fetches the OpenLibrary results later.
+ * </p>
+ *
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.SearchService
+ */
+@Data
+@Builder
+@AllArgsConstructor //for unit test
+@NoArgsConstructor
+public class HybridSearchResult {
+
+    /**
+     * The best local matches. Empty on later pages and for continuations, which only return OpenLibrary results.
+     */
+    private List<BookSummary> localBooks;
+
+    /**
+     * Total number of local matches.
+     */
+    private int numLocalResults;
+
+    /**
+     * The OpenLibrary page without the local matches, {@code null} if OpenLibrary did not answer in time.
+     * {@link BookList#getNumResults()} is the total reported by OpenLibrary.
+     */
+    private BookList externalBooks;
+
+    /**
+     * Encoded {@link SearchContinuation} for the OpenLibrary results, {@code null} if they are part of this result.
+     */
+    private String continuation;
+}
@@ -0,0 +1,173 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Entity representing the import of a CSV file into a user's library, which runs in the background.
+ * <p>
+ * The rows of the file are stored as {@link ImportJobRow}s and imported in chunks. Every chunk is committed together
+ * with the progress of the job, so an import that is interrupted (e.g. by a restart) continues after the last
+ * committed chunk.
+ * </p>
+ *
+ * @see ImportJobRow
+ * @see ImportJobStatus
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.imports.LibraryImportService
+ */
+@Entity
+@Table(name = "import_job", indexes = {
+        @Index(name = "idx_import_job_status_updated", columnList = "status, updated_at"), // Next job to work on
+        @Index(name = "idx_import_job_user", columnList = "user_id")})
+@NoArgsConstructor
+@Getter
+public class ImportJob {
+
+    /**
+     * Maximum length of the stored error message.
+     */
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    /**
+     * Unique identifier of the import.
+     */
+    @Id
+    private UUID id;
+
+    /**
+     * The user whose library the books are imported into.
+     */
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", foreignKey = @ForeignKey(name = "fk_import_job_user"))
+    private User user;
+
+    /**
+     * State of the import.
+     */
+    @Column(nullable = false)
+    @JdbcTypeCode(SqlTypes.SMALLINT)
+    private ImportJobStatus status;
+
+    /**
+     * Number of rows of the CSV file.
+     */
+    private int totalRows;
+
+    /**
+     * Number of rows processed so far. The rows are processed in order, so this is also the number of the last processed row.
+     */
+    private int processedRows;
+
+    /**
+     * Number of rows whose book was added to the library (or already was in it).
+     */
+    private int importedRows;
+
+    /**
+     * Number of rows whose book does not exist on OpenLibrary.
+     */
+    private int notFoundRows;
+
+    /**
+     * Number of rows without a valid ISBN or OpenLibrary ID.
+     */
+    private int invalidRows;
+
+    /**
+     * Number of rows whose book could not be resolved because the OpenLibrary API failed.
+     */
+    private int failedRows;
+
+    /**
+     * Message of the error that stopped the import, {@code null} unless the import {@link ImportJobStatus#FAILED failed}.
+     */
+    @Column(length = MAX_ERROR_LENGTH)
+    private String error;
+
+    /**
+     * Time the file was uploaded.
+     */
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    /**
+     * Time of the last progress. Jobs are worked on in the order of this time, so concurrent imports take turns.
+     */
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    /**
+     * Creates a queued import without rows.
+     *
+     * @param id unique identifier of the import
+     * @param user the user whose library the books are imported into
+     */
+    public ImportJob(UUID id, User user) {
+        this.id = id;
+        this.user = user;
+        this.status = ImportJobStatus.QUEUED;
+        this.createdAt = Instant.now();
+        this.updatedAt = createdAt;
+    }
+
+    /**
+     * Sets the number of rows once the whole file has been stored.
+     *
+     * @param totalRows number of rows of the CSV file
+     */
+    public void setTotalRows(int totalRows) {
+        this.totalRows = totalRows;
+        this.updatedAt = Instant.now();
+    }
+
+    /**
+     * Marks the import as running.
+     */
+    public void start() {
+        this.status = ImportJobStatus.RUNNING;
+    }
+
+    /**
+     * Counts the outcome of one processed row.
+     *
+     * @param result the outcome of the row
+     */
+    public void countResult(BulkResultStatus result) {
+        switch (result) {
+            case DONE -> importedRows++;
+            case NOT_FOUND, NOT_IN_LIBRARY -> notFoundRows++;
+            case INVALID -> invalidRows++;
+            case FAILED -> failedRows++;
+        }
+    }
+
+    /**
+     * Records the progress after a chunk of rows was processed, and completes the import after the last row.
+     *
+     * @param lastLine number of the last processed row
+     */
+    public void advanceTo(int lastLine) {
+        this.processedRows = lastLine;
+        this.updatedAt = Instant.now();
+        if (processedRows >= totalRows) {
+            this.status = ImportJobStatus.COMPLETED;
+        }
+    }
+
+    /**
+     * Stops the import after an unexpected error.
+     *
+     * @param message message of the error
+     */
+    public void fail(String message) {
+        this.status = ImportJobStatus.FAILED;
+        this.error = message != null && message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+        this.updatedAt = Instant.now();
+    }
+}
@@ -0,0 +1,61 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+/**
+ * Entity representing one book of a library import, as read from the uploaded CSV file.
+ * <p>
+ * The rows are stored while the file is uploaded, so the file does not have to be kept (or held in memory) until the
+ * books are resolved. The background import fills in the resolved book ID and the outcome of each row.
+ * </p>
+ *
+ * @see ImportJob
+ * @see ImportJobRowKey
+ */
+@Entity
+@Table(name = "import_job_row")
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImportJobRow {
+
+    /**
+     * Composite key containing the job ID and the row number.
+     */
+    @EmbeddedId
+    private ImportJobRowKey id;
+
+    /**
+     * ISBN of the book, normalized to ISBN-13. {@code null} if the row has no valid ISBN.
+     */
+    @Column(length = 13)
+    private String isbn;
+
+    /**
+     * OpenLibrary ID of the book (e.g., "OL9698350M"). Either read from the file or resolved from the ISBN.
+     */
+    @Setter
+    private String bookID;
+
+    /**
+     * Rating to set (1 to 5), 0 if the row has no rating.
+     */
+    private int rating;
+
+    /**
+     * Reading status to set, {@code null} if the row has none.
+     */
+    @JdbcTypeCode(SqlTypes.SMALLINT)
+    private ReadingStatus readingStatus;
+
+    /**
+     * Outcome of the row, {@code null} until the row is processed.
+     */
+    @Setter
+    @JdbcTypeCode(SqlTypes.SMALLINT)
+    private BulkResultStatus status;
+}
@@ -0,0 +1,38 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Embeddable class representing the composite primary key for the {@link ImportJobRow} entity.
+ * <p>
+ * The rows of an import are numbered from 1 in the order of the CSV file, so the primary key index returns them in
+ * that order and the import can continue after the last processed row.
+ * </p>
+ *
+ * @see ImportJobRow
+ */
+@Embeddable
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@EqualsAndHashCode
+public class ImportJobRowKey {
+    /**
+     * UUID of the {@link ImportJob} the row belongs to.
+     */
+    @Column(name = "job_id")
+    private UUID jobId;
+
+    /**
+     * Number of the row within the import, starting at 1. Empty lines of the file are not counted.
+     */
+    @Column(name = "line")
+    private int line;
+}
@@ -0,0 +1,25 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+/**
+ * Enumeration representing the state of a library import.
+ *
+ * @see ImportJob
+ */
+public enum ImportJobStatus {
+    /**
+     * The CSV file was stored, no row has been imported yet.
+     */
+    QUEUED,
+    /**
+     * The rows are being imported.
+     */
+    RUNNING,
+    /**
+     * All rows were processed. Rows that could not be imported are counted separately, they do not fail the import.
+     */
+    COMPLETED,
+    /**
+     * The import was stopped by an unexpected error. The rows processed before the error stay imported.
+     */
+    FAILED
+}
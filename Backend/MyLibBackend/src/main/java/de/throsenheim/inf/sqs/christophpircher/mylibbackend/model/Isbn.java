@@ -0,0 +1,103 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidIsbnException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Normalization of ISBNs, e.g. scanned from a barcode or typed in by a user.
+ * <p>
+ * All ISBNs are normalized to ISBN-13 without separators. ISBN-10s are converted by adding the {@code 978} prefix and
+ * recomputing the check digit. The check digits of the input are validated, so typos are rejected instead of being looked up.
+ * </p>
+ * <p>
+ * OpenLibrary delivers ISBN-10s and ISBN-13s as stored by its editions, so {@link #lookupForms(String)} returns every
+ * form under which a normalized ISBN may be stored in the {@code book_isbn} table.
+ * </p>
+ *
+ * @see Book#getIsbns()
+ */
+public final class Isbn {
+
+    /**
+     * Prefix of the ISBN-13s that have an ISBN-10 equivalent.
+     */
+    private static final String BOOKLAND_PREFIX = "978";
+
+    private Isbn() {}
+
+    /**
+     * Normalizes an ISBN-10 or ISBN-13 to an ISBN-13 without separators.
+     *
+     * @param isbn the ISBN, may contain hyphens and spaces
+     * @return the ISBN-13 consisting of 13 digits
+     * @throws InvalidIsbnException if the input is no ISBN-10 or ISBN-13, or its check digit is wrong
+     */
+    public static String toIsbn13(String isbn) throws InvalidIsbnException {
+        if (isbn == null) {
+            throw new InvalidIsbnException("Invalid ISBN: null");
+        }
+        String compact = isbn.replace("-", "").replace(" ", "").toUpperCase();
+        if (compact.length() == 10 && compact.matches("\\d{9}[\\dX]")) {
+            if (isbn10CheckDigit(compact) != compact.charAt(9)) {
+                throw new InvalidIsbnException("Invalid ISBN-10 check digit: " + isbn);
+            }
+            String withoutCheckDigit = BOOKLAND_PREFIX + compact.substring(0, 9);
+            return withoutCheckDigit + isbn13CheckDigit(withoutCheckDigit);
+        }
+        if (compact.length() == 13 && compact.matches("\\d{13}")) {
+            if (isbn13CheckDigit(compact) != compact.charAt(12)) {
+                throw new InvalidIsbnException("Invalid ISBN-13 check digit: " + isbn);
+            }
+            return compact;
+        }
+        throw new InvalidIsbnException("Invalid ISBN: " + isbn);
+    }
+
+    /**
+     * Returns all forms under which a normalized ISBN may be stored: the ISBN-13 itself and, for ISBN-13s with the
+     * {@code 978} prefix, the equivalent ISBN-10.
+     *
+     * @param isbn13 an ISBN-13 as returned by {@link #toIsbn13(String)}
+     * @return the ISBN-13 first, followed by the ISBN-10 if there is one
+     */
+    public static List<String> lookupForms(String isbn13) {
+        List<String> forms = new ArrayList<>(2);
+        forms.add(isbn13);
+        if (isbn13.startsWith(BOOKLAND_PREFIX)) {
+            String withoutCheckDigit = isbn13.substring(3, 12);
+            forms.add(withoutCheckDigit + isbn10CheckDigit(withoutCheckDigit));
+        }
+        return forms;
+    }
+
+    /**
+     * Computes the check digit of an ISBN-10 (weights 10 to 2, modulo 11, 10 is written as {@code X}).
+     *
+     * @param digits the first 9 digits (further characters are ignored)
+     * @return the check digit
+     */
+    private static char isbn10CheckDigit(String digits) {
+        int sum = 0;
+        for (int i = 0; i < 9; i++) {
+            sum += (10 - i) * (digits.charAt(i) - '0');
+        }
+        int check = (11 - sum % 11) % 11;
+        return check == 10 ? 'X' : (char) ('0' + check);
+    }
+
+    /**
+     * Computes the check digit of an ISBN-13 (alternating weights 1 and 3, modulo 10).
+     *
+     * @param digits the first 12 digits (further characters are ignored)
+     * @return the check digit
+     */
+    private static char isbn13CheckDigit(String digits) {
+        int sum = 0;
+        for (int i = 0; i < 12; i++) {
+            sum += (i % 2 == 0 ? 1 : 3) * (digits.charAt(i) - '0');
+        }
+        return (char) ('0' + (10 - sum % 10) % 10);
+    }
+}
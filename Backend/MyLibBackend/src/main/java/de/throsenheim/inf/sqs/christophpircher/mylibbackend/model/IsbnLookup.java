@@ -0,0 +1,38 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Result of looking up one ISBN of a bulk ISBN lookup.
+ * <p>
+ * Every ISBN of a bulk lookup gets its own result, so one invalid or unknown ISBN does not fail the whole request.
+ * </p>
+ *
+ * @see IsbnLookupStatus
+ * @see Isbn
+ */
+@Getter
+@AllArgsConstructor
+public class IsbnLookup {
+
+    /**
+     * The ISBN as sent by the client.
+     */
+    private final String isbn;
+
+    /**
+     * The ISBN normalized to ISBN-13, {@code null} if it is invalid.
+     */
+    private final String normalizedIsbn;
+
+    /**
+     * Outcome of the lookup.
+     */
+    private final IsbnLookupStatus status;
+
+    /**
+     * The book with the ISBN, {@code null} unless the status is {@link IsbnLookupStatus#FOUND}.
+     */
+    private final Book book;
+}
@@ -0,0 +1,25 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+/**
+ * Enumeration representing the outcome of looking up one ISBN of a bulk ISBN lookup.
+ *
+ * @see IsbnLookup
+ */
+public enum IsbnLookupStatus {
+    /**
+     * A book with the ISBN was found in the database or in the OpenLibrary API.
+     */
+    FOUND,
+    /**
+     * Neither the database nor the OpenLibrary API know a book with the ISBN.
+     */
+    NOT_FOUND,
+    /**
+     * The ISBN is malformed or its check digit is wrong, so it was not looked up.
+     */
+    INVALID,
+    /**
+     * The ISBN could not be looked up, because the OpenLibrary API failed or returned an unexpected status.
+     */
+    FAILED
+}
@@ -2,6 +2,8 @@ package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 /**
  * Entity class representing the many-to-many relationship between {@link User} and {@link Book} entities.
@@ -19,6 +21,7 @@ import lombok.*;
  * @see Book
  */
 @Entity
+@Table(indexes = @Index(name = "idx_library_book_user", columnList = "user_id, book_id")) // Per-user library lookups, the primary key starts with book_id
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -61,7 +64,9 @@ public class LibraryBook {
      * Reading status of the book for the associated user.
      * <p>
      * This is an enum field representing whether the user has read, is reading, or plans to read the book.
+     * It is stored as its ordinal in a {@code smallint} column, which is what the migrations create on PostgreSQL.
      * </p>
      */
+    @JdbcTypeCode(SqlTypes.SMALLINT)
     private ReadingStatus readingStatus;
 }
@@ -0,0 +1,38 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entity holding the number of rows of a listing (e.g. all books or the library of one user).
+ * <p>
+ * The counters are changed in the same transaction as the rows they count, so the paginated listings can report their
+ * total number of results without counting the rows on every request.
+ * </p>
+ *
+ * @see de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.RowCounterService
+ */
+@Entity
+@Table(name = "row_counter")
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+public class RowCounter {
+
+    /**
+     * Name of the counted listing, e.g. {@code "book"} or {@code "library:<user ID>"}.
+     */
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    /**
+     * Number of rows in the listing.
+     */
+    private long total;
+}
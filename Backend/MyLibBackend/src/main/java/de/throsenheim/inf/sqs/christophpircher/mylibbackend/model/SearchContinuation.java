@@ -0,0 +1,73 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidCursorException;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * The OpenLibrary part of a hybrid search that did not answer before the deadline of the search.
+ * <p>
+ * A hybrid search returns the local results together with this continuation, so the client can fetch the OpenLibrary
+ * results with a second request once they are available. The request to OpenLibrary keeps running in the meantime.
+ * </p>
+ * <p>
+ * Like a {@link BookCursor}, clients only see the encoded form ({@link #encode()}), which is an opaque, URL-safe token.
+ * </p>
+ *
+ * @see HybridSearchResult#getContinuation()
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+public class SearchContinuation {
+
+    private static final String SEPARATOR = ":";
+
+    /**
+     * The searched keywords.
+     */
+    private final String keywords;
+
+    /**
+     * Start index of the OpenLibrary page.
+     */
+    private final int startIndex;
+
+    /**
+     * Size of the OpenLibrary page.
+     */
+    private final int numResultsToGet;
+
+    /**
+     * Encodes the continuation as an opaque, URL-safe token.
+     *
+     * @return the Base64 (URL-safe, unpadded) encoded continuation
+     */
+    public String encode() {
+        String value = startIndex + SEPARATOR + numResultsToGet + SEPARATOR + keywords;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token created by {@link #encode()}.
+     *
+     * @param token the token sent by the client
+     * @return the decoded continuation
+     * @throws InvalidCursorException if the token is not a valid continuation
+     */
+    public static SearchContinuation decode(String token) throws InvalidCursorException {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(SEPARATOR, 3);
+            if (parts.length < 3) {
+                throw new InvalidCursorException("Invalid continuation: " + token);
+            }
+            return new SearchContinuation(parts[2], Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid continuation: " + token);
+        }
+    }
+}
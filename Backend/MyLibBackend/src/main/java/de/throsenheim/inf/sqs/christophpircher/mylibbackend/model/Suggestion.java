@@ -0,0 +1,30 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A typeahead suggestion for the keyword search: a book title, an author name or popular search keywords.
+ *
+ * @see SuggestionType
+ */
+@Getter
+@AllArgsConstructor
+public class Suggestion {
+
+    /**
+     * The suggested text, as stored (not normalized).
+     */
+    private final String text;
+
+    /**
+     * Where the suggestion comes from.
+     */
+    private final SuggestionType type;
+
+    /**
+     * Popularity the suggestions are ranked by: the number of libraries containing the book (or the books of the author)
+     * plus one, or the number of searches.
+     */
+    private final int popularity;
+}
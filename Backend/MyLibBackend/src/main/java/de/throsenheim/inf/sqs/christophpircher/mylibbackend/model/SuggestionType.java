@@ -0,0 +1,21 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+/**
+ * Enumeration representing where a typeahead suggestion comes from.
+ *
+ * @see Suggestion
+ */
+public enum SuggestionType {
+    /**
+     * The title of a known book.
+     */
+    TITLE,
+    /**
+     * The name of an author of a known book.
+     */
+    AUTHOR,
+    /**
+     * Keywords that were searched repeatedly.
+     */
+    SEARCH
+}
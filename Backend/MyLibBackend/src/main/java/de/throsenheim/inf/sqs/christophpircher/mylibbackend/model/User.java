@@ -24,7 +24,8 @@ import java.util.UUID;
 @NoArgsConstructor
 @Builder
 @Getter
-@Table(name = "usertable") //User is a SQL keyword...
+@Table(name = "usertable", //User is a SQL keyword...
+        uniqueConstraints = @UniqueConstraint(name = "uk_usertable_username", columnNames = "username"))
 public class User {
     /**
      * Unique identifier for the user in the database.
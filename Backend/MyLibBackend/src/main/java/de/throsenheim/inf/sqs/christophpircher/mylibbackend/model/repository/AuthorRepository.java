@@ -0,0 +1,31 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Author;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface AuthorRepository extends JpaRepository<Author, UUID> {
+
+    @Transactional(readOnly = true)
+    List<Author> findByNameIn(Collection<String> names);
+
+    /**
+     * Inserts an author unless an author with the same name already exists.
+     * <p>
+     * Relies on the unique constraint on {@code name}, so concurrent inserts of the same author cannot create duplicates.
+     * </p>
+     *
+     * @return 1 if the author was inserted, 0 if it already existed
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO author (id, name) VALUES (:id, :name) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("id") UUID id, @Param("name") String name);
+}
@@ -1,13 +1,240 @@
 package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository;
 
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Book;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
-public interface BookRepository extends JpaRepository<Book, UUID> {
+public interface BookRepository extends JpaRepository<Book, UUID>, BookRepositoryCustom {
+
+    /**
+     * JPQL condition of the substring search on a book {@code b} with the parameter {@code :pattern}.
+     */
+    String SUBSTRING_MATCH = "(LOWER(b.title) LIKE :pattern ESCAPE '!' OR LOWER(b.subtitle) LIKE :pattern ESCAPE '!' " +
+            "OR LOWER(CAST(b.description AS String)) LIKE :pattern ESCAPE '!' OR EXISTS (SELECT 1 FROM b.authors a WHERE LOWER(a.name) LIKE :pattern ESCAPE '!'))";
+
     @Transactional(readOnly = true)
     Optional<Book> getBookByBookID(String bookID);
+
+    /**
+     * Finds the books with any of the given OpenLibrary IDs with a single query on the unique {@code bookid} index.
+     *
+     * @param bookIDs OpenLibrary book IDs
+     * @return the books that are stored, in no particular order
+     */
+    @Transactional(readOnly = true)
+    List<Book> findByBookIDIn(Collection<String> bookIDs);
+
+    /**
+     * Returns one page of all books as {@link BookSummary} projections, sorted by title and ID, together with the
+     * library and wishlist state of the given user in a single query.
+     *
+     * @param userId ID of the user whose library and wishlist state is included, {@code null} for anonymous requests
+     * @param offset number of books to skip
+     * @param limit maximum number of books to return
+     * @return the books of the requested page
+     */
+    @Transactional(readOnly = true)
+    @Query(BookSummary.SELECT + "FROM Book b LEFT JOIN LibraryBook lb ON lb.book = b AND lb.user.id = :userId " +
+            "ORDER BY b.title, b.id LIMIT :limit OFFSET :offset")
+    List<BookSummary> findSummaries(@Param("userId") UUID userId, @Param("offset") int offset, @Param("limit") int limit);
+
+    /**
+     * Keyset pagination: returns the books sorted by title and ID that come after the given sort key, as
+     * {@link BookSummary} projections like {@link #findSummaries(UUID, int, int)}.
+     * <p>
+     * Served by the {@code (title, id)} index, so every page costs the same regardless of its depth. The row value comparison
+     * is deliberate: Postgres only uses it as index condition, the equivalent {@code title > ? OR (title = ? AND id > ?)}
+     * becomes a filter over all preceding index entries.
+     * </p>
+     *
+     * @param userId ID of the user whose library and wishlist state is included, {@code null} for anonymous requests
+     * @param title title of the last book on the previous page
+     * @param id ID of the last book on the previous page
+     * @param limit page size (only the page size of the {@link Pageable} is used, the page number must be 0)
+     * @return the next books in title order
+     */
+    @Transactional(readOnly = true)
+    @Query(BookSummary.SELECT + "FROM Book b LEFT JOIN LibraryBook lb ON lb.book = b AND lb.user.id = :userId " +
+            "WHERE (b.title, b.id) > (:title, :id) ORDER BY b.title, b.id")
+    List<BookSummary> findSummariesAfter(@Param("userId") UUID userId, @Param("title") String title, @Param("id") UUID id, Pageable limit);
+
+    /**
+     * Returns several books as {@link BookSummary} projections like {@link #findSummaries(UUID, int, int)}, e.g. the books
+     * of a search result page.
+     *
+     * @param userId ID of the user whose library and wishlist state is included, {@code null} for anonymous requests
+     * @param ids internal IDs of the books
+     * @return the books, in no particular order
+     */
+    @Transactional(readOnly = true)
+    @Query(BookSummary.SELECT + "FROM Book b LEFT JOIN LibraryBook lb ON lb.book = b AND lb.user.id = :userId WHERE b.id IN :ids")
+    List<BookSummary> findSummariesByIds(@Param("userId") UUID userId, @Param("ids") Collection<UUID> ids);
+
+    /**
+     * Full-text search (PostgreSQL only): returns one page of the books matching the keywords, best matches first.
+     * <p>
+     * Served by the GIN index on the {@code search_vector} column, which the triggers of the migrations keep up to date with
+     * the title, subtitle, authors and description. The keywords use the web search syntax, e.g. {@code "mass effect" -revelation}.
+     * </p>
+     *
+     * @param keywords the search keywords
+     * @param offset number of matches to skip
+     * @param limit maximum number of matches to return
+     * @return the internal IDs of the matching books, ordered by rank
+     */
+    @Transactional(readOnly = true)
+    @Query(value = "SELECT b.id FROM book b, websearch_to_tsquery('english', :keywords) query WHERE b.search_vector @@ query " +
+            "ORDER BY ts_rank_cd(b.search_vector, query) DESC, b.title, b.id LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<UUID> searchFullText(@Param("keywords") String keywords, @Param("offset") int offset, @Param("limit") int limit);
+
+    /**
+     * Counts the matches of a full-text search (PostgreSQL only), see {@link #searchFullText(String, int, int)}.
+     *
+     * @param keywords the search keywords
+     * @return the number of matching books
+     */
+    @Transactional(readOnly = true)
+    @Query(value = "SELECT count(*) FROM book b WHERE b.search_vector @@ websearch_to_tsquery('english', :keywords)", nativeQuery = true)
+    long countFullText(@Param("keywords") String keywords);
+
+    /**
+     * Substring search for databases without full-text search (H2 in dev and test): returns one page of the books whose
+     * title, subtitle, description or an author contains the pattern, sorted by title. Not served by an index.
+     *
+     * @param pattern lower case {@code LIKE} pattern, with {@code !} as escape character
+     * @param offset number of matches to skip
+     * @param limit maximum number of matches to return
+     * @return the internal IDs of the matching books, sorted by title
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT b.id FROM Book b WHERE " + SUBSTRING_MATCH + " ORDER BY b.title, b.id LIMIT :limit OFFSET :offset")
+    List<UUID> searchSubstring(@Param("pattern") String pattern, @Param("offset") int offset, @Param("limit") int limit);
+
+    /**
+     * Counts the matches of a substring search, see {@link #searchSubstring(String, int, int)}.
+     *
+     * @param pattern lower case {@code LIKE} pattern, with {@code !} as escape character
+     * @return the number of matching books
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT count(b) FROM Book b WHERE " + SUBSTRING_MATCH)
+    long countSubstring(@Param("pattern") String pattern);
+
+    /**
+     * Returns the author names of several books, for the {@link BookSummary} projections which cannot select a collection.
+     *
+     * @param bookIds internal IDs of the books
+     * @return pairs of book ID and author name, sorted by book and by the position of the author
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT b.id, a.name FROM Book b JOIN b.authors a WHERE b.id IN :bookIds ORDER BY b.id, INDEX(a)")
+    List<Object[]> findAuthorNames(@Param("bookIds") Collection<UUID> bookIds);
+
+    /**
+     * Returns the ISBNs of several books, for the {@link BookSummary} projections which cannot select a collection.
+     *
+     * @param bookIds internal IDs of the books
+     * @return pairs of book ID and ISBN, sorted by book and by the position of the ISBN
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT b.id, i FROM Book b JOIN b.isbns i WHERE b.id IN :bookIds ORDER BY b.id, INDEX(i)")
+    List<Object[]> findIsbns(@Param("bookIds") Collection<UUID> bookIds);
+
+    /**
+     * Finds the books with any of the given ISBNs through the index on the ISBN table.
+     *
+     * @param isbns ISBN-10s or ISBN-13s, as stored
+     * @return pairs of matching ISBN and book
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT i, b FROM Book b JOIN b.isbns i WHERE i IN :isbns")
+    List<Object[]> findBooksByIsbnIn(@Param("isbns") Collection<String> isbns);
+
+    /**
+     * Finds the books of an author through the index on the book-author join table, sorted by title and ID.
+     *
+     * @param name name of the author
+     * @return the books of the author
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT b FROM Book b JOIN b.authors a WHERE a.name = :name ORDER BY b.title, b.id")
+    List<Book> getBooksByAuthorName(@Param("name") String name);
+
+    /**
+     * Inserts the scalar columns of a book unless a book with the same OpenLibrary ID already exists.
+     * <p>
+     * Relies on the unique constraint on {@code bookid}, so concurrent inserts of the same book cannot create duplicates.
+     * </p>
+     *
+     * @return 1 if the row was inserted, 0 if the book already existed
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO book (id, bookid, title, subtitle, coverurlsmall, coverurlmedium, coverurllarge, publish_date, created_at) " +
+            "VALUES (:id, :bookID, :title, :subtitle, :coverURLSmall, :coverURLMedium, :coverURLLarge, :publishDate, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("id") UUID id, @Param("bookID") String bookID, @Param("title") String title, @Param("subtitle") String subtitle,
+                       @Param("coverURLSmall") String coverURLSmall, @Param("coverURLMedium") String coverURLMedium,
+                       @Param("coverURLLarge") String coverURLLarge, @Param("publishDate") String publishDate);
+
+    /**
+     * Creates the empty rating aggregates of a book, unless they already exist.
+     *
+     * @param bookId internal ID of the book
+     * @return 1 if the aggregates were created, 0 if they already existed
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO book_rating (book_id, rating_sum, rating_count, stars_1, stars_2, stars_3, stars_4, stars_5, version) " +
+            "VALUES (:bookId, 0, 0, 0, 0, 0, 0, 0, 0) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertRatingIfAbsent(@Param("bookId") UUID bookId);
+
+    /**
+     * Creates the empty rating aggregates of several books with a single statement, unless they already exist.
+     *
+     * @param bookIds internal IDs of the books
+     * @return the number of created aggregates
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO book_rating (book_id, rating_sum, rating_count, stars_1, stars_2, stars_3, stars_4, stars_5, version) " +
+            "SELECT id, 0, 0, 0, 0, 0, 0, 0, 0 FROM book WHERE id IN (:bookIds) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertRatingsIfAbsent(@Param("bookIds") Collection<UUID> bookIds);
+
+    /**
+     * Replaces one rating in the rating aggregates of a book.
+     * <p>
+     * A rating of 0 means "not rated", so it neither counts towards the sum nor the number of ratings. The update is done
+     * relative to the stored values in a single statement, so concurrent rating changes of other users are not lost.
+     * The version of the aggregates is incremented, see {@link Book#getVersion()}.
+     * </p>
+     *
+     * @param bookId internal ID of the book
+     * @param oldRating rating before the change, 0 if the user had not rated the book
+     * @param newRating rating after the change, 0 if the rating is removed
+     * @return 1 if the aggregates were updated, 0 if the book has no aggregates
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE book_rating SET " +
+            "rating_sum = rating_sum + CASE WHEN :newRating > 0 THEN :newRating ELSE 0 END - CASE WHEN :oldRating > 0 THEN :oldRating ELSE 0 END, " +
+            "rating_count = rating_count + CASE WHEN :newRating > 0 THEN 1 ELSE 0 END - CASE WHEN :oldRating > 0 THEN 1 ELSE 0 END, " +
+            "stars_1 = stars_1 + CASE WHEN :newRating = 1 THEN 1 ELSE 0 END - CASE WHEN :oldRating = 1 THEN 1 ELSE 0 END, " +
+            "stars_2 = stars_2 + CASE WHEN :newRating = 2 THEN 1 ELSE 0 END - CASE WHEN :oldRating = 2 THEN 1 ELSE 0 END, " +
+            "stars_3 = stars_3 + CASE WHEN :newRating = 3 THEN 1 ELSE 0 END - CASE WHEN :oldRating = 3 THEN 1 ELSE 0 END, " +
+            "stars_4 = stars_4 + CASE WHEN :newRating = 4 THEN 1 ELSE 0 END - CASE WHEN :oldRating = 4 THEN 1 ELSE 0 END, " +
+            "stars_5 = stars_5 + CASE WHEN :newRating = 5 THEN 1 ELSE 0 END - CASE WHEN :oldRating = 5 THEN 1 ELSE 0 END, " +
+            "version = version + 1 " +
+            "WHERE book_id = :bookId", nativeQuery = true)
+    int updateRating(@Param("bookId") UUID bookId, @Param("oldRating") int oldRating, @Param("newRating") int newRating);
 }
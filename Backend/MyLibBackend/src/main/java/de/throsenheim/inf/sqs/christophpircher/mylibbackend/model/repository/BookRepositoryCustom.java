@@ -0,0 +1,24 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Book;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Deadline;
+
+import java.util.Optional;
+
+/**
+ * Queries of the {@link BookRepository} that cannot be derived or declared with {@code @Query}, because they depend on
+ * the request (e.g. its {@link Deadline}).
+ */
+public interface BookRepositoryCustom {
+
+    /**
+     * Finds a book by its OpenLibrary ID like {@link BookRepository#getBookByBookID(String)}, but the query is cancelled
+     * by the database if it runs past the deadline.
+     *
+     * @param bookID OpenLibrary book ID (e.g., "OL12345M")
+     * @param deadline the deadline of the request
+     * @return the book, or empty if it is not stored
+     * @throws org.springframework.dao.QueryTimeoutException if the query ran past the deadline
+     */
+    Optional<Book> getBookByBookID(String bookID, Deadline deadline);
+}
@@ -0,0 +1,46 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Book;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Deadline;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Implementation of the {@link BookRepositoryCustom} queries, picked up by Spring Data through its name.
+ */
+class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    /**
+     * JPA hint for the query timeout in milliseconds. JDBC drivers only support whole seconds.
+     */
+    private static final String QUERY_TIMEOUT_HINT = "jakarta.persistence.query.timeout";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Book> getBookByBookID(String bookID, Deadline deadline) {
+        return entityManager.createQuery("SELECT b FROM Book b WHERE b.bookID = :bookID", Book.class)
+                .setParameter("bookID", bookID)
+                .setHint(QUERY_TIMEOUT_HINT, timeoutMillis(deadline))
+                .getResultList()
+                .stream()
+                .findFirst(); // bookID is unique
+    }
+
+    /**
+     * Rounds the time left until the deadline up to whole seconds, with at least one second. Rounding down could turn a
+     * short timeout into 0, which means no timeout at all.
+     *
+     * @param deadline the deadline of the request
+     * @return the query timeout in milliseconds
+     */
+    static int timeoutMillis(Deadline deadline) {
+        long seconds = Math.max(1, (deadline.remainingMillis() + 999) / 1000);
+        return (int) Math.min(Integer.MAX_VALUE / 1000, seconds) * 1000;
+    }
+}
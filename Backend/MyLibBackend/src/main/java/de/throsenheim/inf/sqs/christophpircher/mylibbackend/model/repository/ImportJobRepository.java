@@ -0,0 +1,49 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.ImportJob;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.ImportJobStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface ImportJobRepository extends JpaRepository<ImportJob, UUID> {
+
+    /**
+     * Finds the import with the given status that has made no progress for the longest time.
+     *
+     * @param statuses the statuses of the imports that are still to be worked on
+     * @return the import to work on next, empty if there is none
+     */
+    @Transactional(readOnly = true)
+    Optional<ImportJob> findFirstByStatusInOrderByUpdatedAt(Collection<ImportJobStatus> statuses);
+
+    /**
+     * Finds an import of a user.
+     *
+     * @param id ID of the import
+     * @param userId ID of the user
+     * @return the import, empty if it does not exist or belongs to another user
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT j FROM ImportJob j WHERE j.id = :id AND j.user.id = :userId")
+    Optional<ImportJob> findByIdAndUserId(@Param("id") UUID id, @Param("userId") UUID userId);
+
+    /**
+     * Returns an import and locks it until the end of the surrounding transaction, so a chunk of rows cannot be
+     * imported twice by concurrent workers.
+     *
+     * @param id ID of the import
+     * @return the locked import, empty if it does not exist
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Transactional(propagation = Propagation.MANDATORY)
+    Optional<ImportJob> findForUpdateById(UUID id);
+}
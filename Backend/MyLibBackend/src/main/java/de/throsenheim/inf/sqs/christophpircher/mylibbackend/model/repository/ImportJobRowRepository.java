@@ -0,0 +1,27 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.ImportJobRow;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.ImportJobRowKey;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface ImportJobRowRepository extends JpaRepository<ImportJobRow, ImportJobRowKey> {
+
+    /**
+     * Returns the rows of an import after the given row, in the order of the file. Served by the primary key index.
+     *
+     * @param jobId ID of the import
+     * @param line number of the last processed row
+     * @param limit number of rows (only the page size of the {@link Pageable} is used, the page number must be 0)
+     * @return the next rows
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT r FROM ImportJobRow r WHERE r.id.jobId = :jobId AND r.id.line > :line ORDER BY r.id.line")
+    List<ImportJobRow> findRowsAfter(@Param("jobId") UUID jobId, @Param("line") int line, Pageable limit);
+}
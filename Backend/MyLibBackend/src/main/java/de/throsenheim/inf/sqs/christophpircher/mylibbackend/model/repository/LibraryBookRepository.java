@@ -1,22 +1,106 @@
 package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository;
 
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookSummary;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.LibraryBook;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.LibraryBookKey;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 public interface LibraryBookRepository extends JpaRepository<LibraryBook, LibraryBookKey> {
     @Transactional(readOnly = true)
     List<LibraryBook> getLibraryBooksByUser(User user, Pageable pageable);
 
+    /**
+     * Returns one page of the user's library as {@link BookSummary} projections, sorted by book title and book ID.
+     *
+     * @param userId ID of the library owner
+     * @param offset number of books to skip
+     * @param limit maximum number of books to return
+     * @return the books of the requested page
+     */
+    @Transactional(readOnly = true)
+    @Query(BookSummary.SELECT + "FROM LibraryBook lb JOIN lb.book b WHERE lb.user.id = :userId " +
+            "ORDER BY b.title, b.id LIMIT :limit OFFSET :offset")
+    List<BookSummary> getLibrarySummaries(@Param("userId") UUID userId, @Param("offset") int offset, @Param("limit") int limit);
+
+    /**
+     * Keyset pagination: returns the books in the user's library sorted by title and ID that come after the given sort key,
+     * as {@link BookSummary} projections.
+     *
+     * @param userId ID of the library owner
+     * @param title title of the last book on the previous page
+     * @param bookId internal ID of the last book on the previous page
+     * @param limit page size (only the page size of the {@link Pageable} is used, the page number must be 0)
+     * @return the next books of the library in title order
+     */
+    @Transactional(readOnly = true)
+    @Query(BookSummary.SELECT + "FROM LibraryBook lb JOIN lb.book b WHERE lb.user.id = :userId " +
+            "AND (b.title, b.id) > (:title, :bookId) ORDER BY b.title, b.id")
+    List<BookSummary> getLibrarySummariesAfter(@Param("userId") UUID userId, @Param("title") String title, @Param("bookId") UUID bookId, Pageable limit);
+
     @Transactional(readOnly = true)
     Optional<LibraryBook> getLibraryBooksById(LibraryBookKey id);
 
+    /**
+     * Returns a library entry and locks it until the end of the surrounding transaction, so that the rating aggregates
+     * can be updated based on the current rating without racing another change of the same entry.
+     *
+     * @param id key of the library entry
+     * @return the locked library entry, or empty if the book is not in the library
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Transactional(propagation = Propagation.MANDATORY)
+    Optional<LibraryBook> findForUpdateById(LibraryBookKey id);
+
+    /**
+     * Returns the library entries of a user for several books and locks them until the end of the surrounding transaction,
+     * like {@link #findForUpdateById(LibraryBookKey)} for a single entry.
+     *
+     * @param userId ID of the library owner
+     * @param bookIds internal IDs of the books
+     * @return the locked library entries, without the books that are not in the library
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query("SELECT lb FROM LibraryBook lb WHERE lb.id.userId = :userId AND lb.id.bookId IN :bookIds")
+    List<LibraryBook> findForUpdateByUserIdAndBookIds(@Param("userId") UUID userId, @Param("bookIds") Collection<UUID> bookIds);
+
+    /**
+     * Returns which of the given books are in a user's library, through the primary key of the library entries.
+     *
+     * @param userId ID of the library owner
+     * @param bookIds internal IDs of the books
+     * @return the internal IDs of the books that are in the library
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT lb.id.bookId FROM LibraryBook lb WHERE lb.id.userId = :userId AND lb.id.bookId IN :bookIds")
+    List<UUID> findBookIdsInLibrary(@Param("userId") UUID userId, @Param("bookIds") Collection<UUID> bookIds);
+
     @Transactional(readOnly = true)
     long countByUser(User user);
+
+    /**
+     * Adds a book to a user's library without rating, unless it is already there.
+     *
+     * @param readingStatus ordinal of the initial {@link de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.ReadingStatus}
+     * @return 1 if the entry was created, 0 if the book was already in the library
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO library_book (book_id, user_id, rating, reading_status) VALUES (:bookId, :userId, 0, :readingStatus) " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("bookId") UUID bookId, @Param("userId") UUID userId, @Param("readingStatus") int readingStatus);
 }
@@ -0,0 +1,57 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.RowCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public interface RowCounterRepository extends JpaRepository<RowCounter, String> {
+
+    @Transactional(readOnly = true)
+    @Query("SELECT c.total FROM RowCounter c WHERE c.name = :name")
+    Optional<Long> getTotal(@Param("name") String name);
+
+    /**
+     * Sums a counter and its shards ({@code <name>#<shard>}). Shards of a counter that does not exist are ignored.
+     *
+     * @return the total, or empty if the counter does not exist
+     */
+    @Transactional(readOnly = true)
+    @Query(value = "SELECT SUM(c.total) FROM row_counter c WHERE (c.name = :name OR c.name LIKE :name || '#%') " +
+            "AND EXISTS (SELECT 1 FROM row_counter b WHERE b.name = :name)", nativeQuery = true)
+    Optional<Long> getShardedTotal(@Param("name") String name);
+
+    /**
+     * Creates a counter with the given value, unless it already exists.
+     *
+     * @return 1 if the counter was created, 0 if it already existed
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO row_counter (name, total) VALUES (:name, :total) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("name") String name, @Param("total") long total);
+
+    /**
+     * Adds a (possibly negative) value to a counter. The counter row stays locked until the end of the transaction.
+     *
+     * @return 1 if the counter was changed, 0 if it does not exist
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE row_counter SET total = total + :delta WHERE name = :name", nativeQuery = true)
+    int add(@Param("name") String name, @Param("delta") long delta);
+
+    /**
+     * Adds a (possibly negative) value to a counter, creating it with that value if it does not exist. Used for the shards
+     * of a counter, which start at 0. The counter row stays locked until the end of the transaction.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO row_counter (name, total) VALUES (:name, :delta) " +
+            "ON CONFLICT (name) DO UPDATE SET total = row_counter.total + EXCLUDED.total", nativeQuery = true)
+    void upsertAdd(@Param("name") String name, @Param("delta") long delta);
+}
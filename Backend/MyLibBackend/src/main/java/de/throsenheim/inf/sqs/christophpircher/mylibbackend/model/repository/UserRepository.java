@@ -1,9 +1,16 @@
 package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository;
 
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookSummary;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 public interface UserRepository extends JpaRepository<User, UUID> {
@@ -13,4 +20,110 @@ public interface UserRepository extends JpaRepository<User, UUID> {
 
     @Transactional(readOnly = true)
     User getUserById(UUID id);
+
+    /**
+     * Returns one page of the books on the user's wishlist as {@link BookSummary} projections, sorted by title and ID.
+     * <p>
+     * Only the requested page is loaded, the wishlist collection of the {@link User} is not touched.
+     * The rows are found through the primary key {@code (user_id, wishlist_books_id)} of the join table.
+     * </p>
+     *
+     * @param userId ID of the wishlist owner
+     * @param offset number of books to skip
+     * @param limit maximum number of books to return
+     * @return the books of the requested page
+     */
+    @Transactional(readOnly = true)
+    @Query(BookSummary.SELECT + "FROM User o JOIN o.wishlistBooks b LEFT JOIN LibraryBook lb ON lb.book = b AND lb.user.id = :userId " +
+            "WHERE o.id = :userId ORDER BY b.title, b.id LIMIT :limit OFFSET :offset")
+    List<BookSummary> getWishlistSummaries(@Param("userId") UUID userId, @Param("offset") int offset, @Param("limit") int limit);
+
+    /**
+     * Checks whether a book is on the user's wishlist with a single primary key lookup on the join table.
+     *
+     * @param userId ID of the wishlist owner
+     * @param bookID OpenLibrary ID of the book
+     * @return {@code true} if the book is on the wishlist
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT CASE WHEN COUNT(b) > 0 THEN TRUE ELSE FALSE END FROM User u JOIN u.wishlistBooks b WHERE u.id = :userId AND b.bookID = :bookID")
+    boolean isBookOnWishlist(@Param("userId") UUID userId, @Param("bookID") String bookID);
+
+    /**
+     * Keyset pagination: returns the books on the user's wishlist sorted by title and ID that come after the given sort key,
+     * as {@link BookSummary} projections.
+     *
+     * @param userId ID of the wishlist owner
+     * @param title title of the last book on the previous page
+     * @param bookId internal ID of the last book on the previous page
+     * @param limit page size (only the page size of the {@link Pageable} is used, the page number must be 0)
+     * @return the next wishlist books in title order
+     */
+    @Transactional(readOnly = true)
+    @Query(BookSummary.SELECT + "FROM User o JOIN o.wishlistBooks b LEFT JOIN LibraryBook lb ON lb.book = b AND lb.user.id = :userId " +
+            "WHERE o.id = :userId AND (b.title, b.id) > (:title, :bookId) ORDER BY b.title, b.id")
+    List<BookSummary> getWishlistSummariesAfter(@Param("userId") UUID userId, @Param("title") String title, @Param("bookId") UUID bookId, Pageable limit);
+
+    /**
+     * Counts the books on the user's wishlist without loading them.
+     *
+     * @param userId ID of the wishlist owner
+     * @return number of books on the wishlist
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT COUNT(b) FROM User u JOIN u.wishlistBooks b WHERE u.id = :userId")
+    long countWishlistBooks(@Param("userId") UUID userId);
+
+    /**
+     * Creates a user unless the username is already taken.
+     * <p>
+     * Relies on the unique constraint on {@code username}, so two concurrent registrations with the same name cannot both succeed.
+     * </p>
+     *
+     * @return 1 if the user was created, 0 if the username already exists
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO usertable (id, username, password_hash) VALUES (:id, :username, :passwordHash) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("id") UUID id, @Param("username") String username, @Param("passwordHash") String passwordHash);
+
+    /**
+     * Adds a book to the user's wishlist with a single insert into the join table.
+     * <p>
+     * The {@link User#getWishlistBooks()} collection is not loaded, so the cost does not depend on the size of the wishlist,
+     * and concurrent additions cannot overwrite each other.
+     * </p>
+     *
+     * @param userId ID of the wishlist owner
+     * @param bookId internal ID of the book
+     * @return 1 if the book was added, 0 if it was already on the wishlist
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO usertable_wishlist_books (user_id, wishlist_books_id) VALUES (:userId, :bookId) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int addToWishlist(@Param("userId") UUID userId, @Param("bookId") UUID bookId);
+
+    /**
+     * Removes a book from the user's wishlist with a single delete on the join table.
+     *
+     * @param userId ID of the wishlist owner
+     * @param bookID OpenLibrary ID of the book
+     * @return 1 if the book was removed, 0 if it was not on the wishlist
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM usertable_wishlist_books WHERE user_id = :userId AND wishlist_books_id = (SELECT id FROM book WHERE bookid = :bookID)", nativeQuery = true)
+    int removeFromWishlist(@Param("userId") UUID userId, @Param("bookID") String bookID);
+
+    /**
+     * Removes several books from the user's wishlist with a single delete on the join table.
+     *
+     * @param userId ID of the wishlist owner
+     * @param bookIds internal IDs of the books
+     * @return the number of books that were removed
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM usertable_wishlist_books WHERE user_id = :userId AND wishlist_books_id IN (:bookIds)", nativeQuery = true)
+    int removeAllFromWishlist(@Param("userId") UUID userId, @Param("bookIds") Collection<UUID> bookIds);
 }
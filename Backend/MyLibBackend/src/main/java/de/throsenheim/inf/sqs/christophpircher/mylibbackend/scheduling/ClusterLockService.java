@@ -0,0 +1,148 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.scheduling;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Lightweight leader election for scheduled jobs, built on PostgreSQL session-level advisory locks.
+ * <p>
+ * Each job name is mapped to an advisory lock key. Before a job runs, a connection is borrowed from the
+ * existing datasource and {@code pg_try_advisory_lock} is called. The connection is held for the duration
+ * of the job and the lock is released afterwards. Because the lock belongs to the database session, a node
+ * that crashes or loses its connection releases the lock automatically, so another node takes over on its
+ * next tick (fail-over without heartbeats or lease tables).
+ * </p>
+ *
+ * <p>On databases without advisory locks (H2 in dev and test) the application is assumed to run as a single
+ * node and every job is executed.</p>
+ *
+ * @see ClusterSingleton
+ */
+@Service
+@Slf4j
+public class ClusterLockService {
+
+    /**
+     * First half of the two-key advisory lock, reserved for this application so the locks don't collide
+     * with advisory locks taken by other applications on the same database.
+     */
+    static final int LOCK_NAMESPACE = 0x4D794C62; // "MyLb"
+
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_lock(?, ?)";
+    private static final String UNLOCK_SQL = "SELECT pg_advisory_unlock(?, ?)";
+
+    private final DataSource dataSource;
+
+    private boolean advisoryLocksSupported;
+
+    /**
+     * Constructor used by Spring Boot to inject the application datasource.
+     *
+     * @param dataSource the datasource whose sessions hold the advisory locks
+     */
+    public ClusterLockService(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Checks once at startup whether the configured database supports advisory locks.
+     */
+    @PostConstruct
+    void detectAdvisoryLockSupport() {
+        try (Connection connection = dataSource.getConnection()) {
+            String product = connection.getMetaData().getDatabaseProductName();
+            advisoryLocksSupported = "PostgreSQL".equalsIgnoreCase(product);
+            log.info("Database '{}' detected, cluster-wide job locking {}", product, advisoryLocksSupported ? "enabled" : "disabled (single node mode)");
+        } catch (SQLException e) {
+            log.warn("Could not detect database type, cluster-wide job locking disabled: {}", e.getMessage());
+            advisoryLocksSupported = false;
+        }
+    }
+
+    /**
+     * Runs the given job if this node can acquire the cluster-wide lock for the job name.
+     *
+     * @param jobName name of the job, used to derive the lock key
+     * @param job     the job to run
+     * @return {@code true} if the job was executed on this node, {@code false} if another node holds the lock
+     *         or the lock could not be acquired
+     */
+    public boolean runIfLeader(String jobName, Runnable job) {
+        if (!advisoryLocksSupported) {
+            job.run();
+            return true;
+        }
+
+        int lockKey = lockKeyFor(jobName);
+        try (Connection connection = dataSource.getConnection()) {
+            if (!callLockFunction(connection, TRY_LOCK_SQL, lockKey)) {
+                log.debug("Job '{}' is running on another node, skipping", jobName);
+                finishTransaction(connection);
+                return false;
+            }
+            log.debug("Acquired cluster lock for job '{}'", jobName);
+            try {
+                job.run();
+            } finally {
+                callLockFunction(connection, UNLOCK_SQL, lockKey);
+                finishTransaction(connection);
+                log.debug("Released cluster lock for job '{}'", jobName);
+            }
+            return true;
+        } catch (SQLException e) {
+            log.error("Could not acquire cluster lock for job '{}', skipping: {}", jobName, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Derives the second half of the advisory lock key from the job name.
+     * {@link String#hashCode()} is specified by the JLS and therefore identical on every node.
+     *
+     * @param jobName the job name
+     * @return the lock key
+     */
+    static int lockKeyFor(String jobName) {
+        return jobName.hashCode();
+    }
+
+    /**
+     * Executes one of the boolean advisory lock functions.
+     *
+     * @param connection connection holding the session
+     * @param sql        the lock or unlock statement
+     * @param lockKey    the job-specific half of the lock key
+     * @return the boolean result of the function
+     * @throws SQLException on database errors
+     */
+    private boolean callLockFunction(Connection connection, String sql, int lockKey) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, LOCK_NAMESPACE);
+            statement.setInt(2, lockKey);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * Ends the transaction opened by the lock statements when auto-commit is disabled,
+     * so that the connection is returned to the pool in a clean state.
+     * Session-level advisory locks are not affected by commit or rollback.
+     *
+     * @param connection the connection to clean up
+     * @throws SQLException on database errors
+     */
+    private void finishTransaction(Connection connection) throws SQLException {
+        if (!connection.getAutoCommit()) {
+            connection.commit();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.scheduling;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a scheduled job that must only run on one node of the cluster at a time.
+ * <p>
+ * Invocations of an annotated method are routed through {@link ClusterLockService#runIfLeader(String, Runnable)}.
+ * The node that acquires the lock runs the job; every other node skips this tick. If the leading node dies,
+ * its database session ends, the lock is released and the next node to tick takes over.
+ * </p>
+ *
+ * <p>The annotated method must be public and return {@code void}, since it is intercepted through a Spring proxy
+ * and skipped invocations have no result.</p>
+ *
+ * <p>Do not use this for jobs that work on node-local state (e.g. the in-memory flyweight caches):
+ * every node has to sweep its own memory.</p>
+ *
+ * @see ClusterSingletonAspect
+ * @see ClusterLockService
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ClusterSingleton {
+
+    /**
+     * Name of the job. Nodes compete for the same lock if and only if they use the same name.
+     *
+     * @return the job name used to derive the lock key
+     */
+    String value();
+}
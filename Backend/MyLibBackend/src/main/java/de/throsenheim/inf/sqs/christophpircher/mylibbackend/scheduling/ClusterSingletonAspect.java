@@ -0,0 +1,49 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.scheduling;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Aspect that wraps every method annotated with {@link ClusterSingleton} in a cluster-wide lock.
+ * <p>
+ * If this node does not get the lock, the method body is not executed for this invocation.
+ * </p>
+ *
+ * @see ClusterLockService
+ */
+@Aspect
+@Component
+@AllArgsConstructor
+@Slf4j
+public class ClusterSingletonAspect {
+
+    private final ClusterLockService clusterLockService;
+
+    /**
+     * Runs the intercepted job only if this node acquires the lock for the job name.
+     *
+     * @param joinPoint        the intercepted method invocation
+     * @param clusterSingleton the annotation carrying the job name
+     * @return always {@code null}, as cluster-singleton jobs return {@code void}
+     * @throws Throwable any exception thrown by the job itself
+     */
+    @Around("@annotation(clusterSingleton)")
+    public Object runIfLeader(ProceedingJoinPoint joinPoint, ClusterSingleton clusterSingleton) throws Throwable {
+        Throwable[] failure = new Throwable[1];
+        clusterLockService.runIfLeader(clusterSingleton.value(), () -> {
+            try {
+                joinPoint.proceed();
+            } catch (Throwable t) {
+                failure[0] = t;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return null;
+    }
+}
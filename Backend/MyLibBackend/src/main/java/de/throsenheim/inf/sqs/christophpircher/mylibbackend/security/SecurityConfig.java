@@ -2,11 +2,13 @@ package de.throsenheim.inf.sqs.christophpircher.mylibbackend.security;
 
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.CustomUserDetailsService;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.JwtService;
+import jakarta.servlet.DispatcherType;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -20,6 +22,11 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.header.writers.CacheControlHeadersWriter;
+import org.springframework.security.web.header.writers.DelegatingRequestMatcherHeaderWriter;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.NegatedRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -88,11 +95,15 @@ public class SecurityConfig {
 
                 // Configure endpoint authorization
                 .authorizeHttpRequests(auth -> auth
-                        // Permit public access to OpenAPI documentation, h2 console, the auth endpoints, the search endpoints, the get book by ID endpoint and the get all known books endpoint
-                        .requestMatchers(SWAGGER_WHITELIST).permitAll().requestMatchers(toH2Console()).permitAll().requestMatchers("/api/v1/auth/**", "/api/v1/search/**", "/api/v1/books/get/byID/**", "/api/v1/books/get/all", "/api/v1/health").permitAll()
+                        // Permit public access to OpenAPI documentation, h2 console, the auth endpoints, the search endpoints, the get book by ID/ISBN endpoints and the get all known books endpoint
+                        .requestMatchers(SWAGGER_WHITELIST).permitAll().requestMatchers(toH2Console()).permitAll().requestMatchers("/api/v1/auth/**", "/api/v1/search/**", "/api/v1/books/get/byID/**", "/api/v1/books/get/byISBN", "/api/v1/books/get/byISBN/**", "/api/v1/books/get/ratings/**", "/api/v1/books/get/all", "/api/v1/books/get/all/stream", "/api/v1/health").permitAll()
 
                         .requestMatchers("/error").permitAll()
 
+                        // The response of a streamed (asynchronous) request is completed in a second dispatch, which carries no JWT.
+                        // The request itself was already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                         // All other endpoints require authentication
                         .anyRequest().authenticated()
                 )
@@ -106,8 +117,16 @@ public class SecurityConfig {
                 // Add JWT filter before Spring Security's default filter
                 .addFilterBefore(jwtAuthFilter(), UsernamePasswordAuthenticationFilter.class)
 
-                // to enable H2 console
-                .headers(headers -> headers.frameOptions(HeadersConfigurer.FrameOptionsConfig::sameOrigin));
+                .headers(headers -> headers
+                        // to enable H2 console
+                        .frameOptions(HeadersConfigurer.FrameOptionsConfig::sameOrigin)
+                        // The headers are written at the end of the first dispatch. The cacheable endpoints that answer asynchronously
+                        // set Cache-Control themselves in the second dispatch, which would conflict with the default "no-cache, no-store"
+                        .cacheControl(HeadersConfigurer.CacheControlConfig::disable)
+                        .addHeaderWriter(new DelegatingRequestMatcherHeaderWriter(new NegatedRequestMatcher(new OrRequestMatcher(
+                                PathPatternRequestMatcher.withDefaults().matcher(HttpMethod.GET, "/api/v1/books/get/byID/**"),
+                                PathPatternRequestMatcher.withDefaults().matcher(HttpMethod.GET, "/api/v1/search/external/keyword"))),
+                                new CacheControlHeadersWriter())));
 
         return http.build();
     }
@@ -2,24 +2,37 @@ package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service;
 
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.api.OpenLibraryAPI;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.BookNotFoundException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.BulkLimitExceededException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.DeadlineExceededException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.BookNotInLibraryException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidCursorException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidIsbnException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidRatingException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.UnexpectedStatusException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.*;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.AuthorRepository;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.BookRepository;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.LibraryBookRepository;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.UserRepository;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.flyweights.ExternalBookFlyweightFactory;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.search.BookStoredEvent;
+import jakarta.persistence.EntityManager;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service class for managing book-related operations for users and their personal libraries.
@@ -44,9 +57,29 @@ import java.util.UUID;
 @AllArgsConstructor
 public class BookService {
     private BookRepository bookRepository;
+    private AuthorRepository authorRepository;
     private LibraryBookRepository libraryBookRepository;
     private UserRepository userRepository;
     private ExternalBookFlyweightFactory externalBookFlyweightFactory;
+    private RowCounterService rowCounterService;
+    private EntityManager entityManager;
+    private ApplicationEventPublisher eventPublisher;
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Maximum number of ISBNs of one bulk ISBN lookup.
+     */
+    public static final int MAX_BULK_ISBNS = 500;
+
+    /**
+     * Maximum number of books of one bulk library change.
+     */
+    public static final int MAX_BULK_BOOKS = 500;
+
+    /**
+     * Number of books loaded with one query while all known books are streamed.
+     */
+    static final int STREAM_CHUNK_SIZE = 500;
 
     /**
      * Retrieves a book by its OpenLibrary ID.
@@ -70,76 +103,375 @@ public class BookService {
     }
 
     /**
-     * Retrieves a paginated list of all books stored in the internal database.
+     * Retrieves a book by its OpenLibrary ID like {@link #getBookById(String)}, but without blocking the calling thread
+     * while OpenLibrary is queried. The internal database is still checked first, on the calling thread.
+     * Cancelling the returned future (e.g. because the client disconnected) cancels the requests to OpenLibrary.
+     * <p>
+     * With a deadline, the database query and the requests to OpenLibrary share its time budget. A book whose optional
+     * data OpenLibrary did not deliver in time is returned {@link Book#isIncomplete() incomplete}.
+     * </p>
+     *
+     * @param bookID The OpenLibrary book ID (e.g., "OL12345M")
+     * @param deadline The deadline of the request, {@code null} for none
+     * @return A future with the {@link Book} (empty if not found in either source), or failed with a
+     *         {@link DeadlineExceededException} if the book could not be looked up in time, an
+     *         {@link UnexpectedStatusException} or {@link IOException}
+     */
+    public CompletableFuture<Optional<Book>> getBookByIdAsync(String bookID, Deadline deadline) {
+        log.debug("Looking up book '{}' in local repository", bookID);
+        Optional<Book> book;
+        try {
+            book = deadline == null ? bookRepository.getBookByBookID(bookID) : bookRepository.getBookByBookID(bookID, deadline);
+        } catch (QueryTimeoutException e) {
+            log.warn("Looking up book '{}' in local repository ran past the deadline", bookID);
+            return CompletableFuture.failedFuture(new DeadlineExceededException("Deadline exceeded while looking up book " + bookID));
+        }
+        if (book.isEmpty()) {
+            log.info("Book '{}' not found locally, querying OpenLibrary asynchronously", bookID);
+            return externalBookFlyweightFactory.getBookByIDAsync(bookID, deadline);
+        }
+        return CompletableFuture.completedFuture(book);
+    }
+
+    /**
+     * Returns the serialized form of a book from OpenLibrary (e.g. the JSON of the anonymous HTTP response), kept next to
+     * its cache entry, see {@link ExternalBookFlyweightFactory#getSerializedBook(Book, Supplier)}.
+     *
+     * @param book a book returned by {@link #getBookByIdAsync(String, Deadline)}
+     * @param serializer creates the serialized form of the book
+     * @return The serialized form (must not be modified).
+     */
+    public byte[] getSerializedBook(Book book, Supplier<byte[]> serializer) {
+        return externalBookFlyweightFactory.getSerializedBook(book, serializer);
+    }
+
+    /**
+     * Retrieves a book by its OpenLibrary ID from the internal database only.
+     * <p>
+     * Books that are not in the database are in no library, so there is no user-specific data (e.g. ratings) for them.
+     * </p>
+     *
+     * @param bookID The OpenLibrary book ID (e.g., "OL12345M")
+     * @return An {@link Optional} containing the {@link Book}, or empty if it is not in the database
+     */
+    public Optional<Book> getKnownBookById(String bookID) {
+        return bookRepository.getBookByBookID(bookID);
+    }
+
+    /**
+     * Retrieves several books by their OpenLibrary IDs from the internal database only, with a single query.
+     *
+     * @param bookIDs OpenLibrary book IDs
+     * @return the books that are in the database, by book ID
+     */
+    public Map<String, Book> getKnownBooksById(Collection<String> bookIDs) {
+        Map<String, Book> books = new HashMap<>();
+        if (!bookIDs.isEmpty()) {
+            bookRepository.findByBookIDIn(bookIDs).forEach(book -> books.put(book.getBookID(), book));
+        }
+        return books;
+    }
+
+    /**
+     * Retrieves a book by its ISBN.
+     * <p>
+     * The ISBN is normalized first. Like {@link #getBookById(String)}, the internal database is checked before the OpenLibrary API.
+     * </p>
+     *
+     * @param isbn ISBN-10 or ISBN-13, may contain hyphens and spaces
+     * @return An {@link Optional} containing the {@link Book}, or empty if not found in either source
+     * @throws InvalidIsbnException if the ISBN is malformed or its check digit is wrong
+     * @throws UnexpectedStatusException if the OpenLibrary API returns an unexpected status
+     * @throws IOException if the external API call fails due to network issues
+     */
+    public Optional<Book> getBookByIsbn(String isbn) throws InvalidIsbnException, UnexpectedStatusException, IOException {
+        String isbn13 = Isbn.toIsbn13(isbn);
+        Book known = getKnownBooksByIsbn(Set.of(isbn13)).get(isbn13);
+        if (known != null) {
+            return Optional.of(known);
+        }
+        log.info("ISBN '{}' not found locally, querying OpenLibrary", isbn13);
+        return externalBookFlyweightFactory.getBookByIsbn(isbn13);
+    }
+
+    /**
+     * Looks up many ISBNs at once, e.g. a shelf of scanned barcodes.
+     * <p>
+     * All ISBNs are normalized and looked up in the internal database with a single query. The remaining ones are requested
+     * from the OpenLibrary API concurrently, each distinct ISBN only once. Every ISBN gets its own result, so invalid or
+     * unknown ISBNs and failed OpenLibrary requests do not fail the other lookups.
+     * </p>
+     *
+     * @param isbns ISBN-10s or ISBN-13s, may contain hyphens and spaces
+     * @return one result per ISBN, in the order of the request
+     * @throws BulkLimitExceededException if there are more than {@link #MAX_BULK_ISBNS} ISBNs
+     */
+    public List<IsbnLookup> getBooksByIsbns(List<String> isbns) throws BulkLimitExceededException {
+        if (isbns.size() > MAX_BULK_ISBNS) {
+            throw new BulkLimitExceededException("At most " + MAX_BULK_ISBNS + " ISBNs can be looked up at once");
+        }
+
+        List<String> normalized = new ArrayList<>(isbns.size());
+        for (String isbn : isbns) {
+            try {
+                normalized.add(Isbn.toIsbn13(isbn));
+            } catch (InvalidIsbnException e) {
+                log.debug("Skipping lookup of invalid ISBN '{}'", isbn);
+                normalized.add(null);
+            }
+        }
+        Set<String> distinct = new LinkedHashSet<>(normalized);
+        distinct.remove(null);
+
+        Map<String, Book> known = getKnownBooksByIsbn(distinct);
+        Map<String, CompletableFuture<Optional<Book>>> external = new HashMap<>();
+        for (String isbn13 : distinct) {
+            if (!known.containsKey(isbn13)) {
+                external.put(isbn13, externalBookFlyweightFactory.getBookByIsbnAsync(isbn13));
+            }
+        }
+        log.info("Looking up {} ISBNs: {} known, {} requested from OpenLibrary", isbns.size(), known.size(), external.size());
+
+        List<IsbnLookup> results = new ArrayList<>(isbns.size());
+        for (int i = 0; i < isbns.size(); i++) {
+            results.add(toIsbnLookup(isbns.get(i), normalized.get(i), known, external));
+        }
+        return results;
+    }
+
+    /**
+     * Finds the books with the given ISBNs in the internal database with a single query, whether they are stored as
+     * ISBN-13 or ISBN-10.
+     *
+     * @param isbns13 normalized ISBN-13s
+     * @return the found books by ISBN-13
+     */
+    public Map<String, Book> getKnownBooksByIsbn(Collection<String> isbns13) {
+        Map<String, String> isbn13ByForm = new HashMap<>();
+        for (String isbn13 : isbns13) {
+            for (String form : Isbn.lookupForms(isbn13)) {
+                isbn13ByForm.put(form, isbn13);
+            }
+        }
+        Map<String, Book> books = new HashMap<>();
+        if (isbn13ByForm.isEmpty()) {
+            return books;
+        }
+        for (Object[] row : bookRepository.findBooksByIsbnIn(isbn13ByForm.keySet())) {
+            books.putIfAbsent(isbn13ByForm.get((String) row[0]), (Book) row[1]);
+        }
+        return books;
+    }
+
+    /**
+     * Builds the result of one ISBN of a bulk lookup, waiting for its OpenLibrary request if necessary.
+     *
+     * @param isbn the ISBN as sent by the client
+     * @param isbn13 the normalized ISBN, {@code null} if it is invalid
+     * @param known the books found in the internal database by ISBN-13
+     * @param external the running OpenLibrary requests by ISBN-13
+     * @return the result of the lookup
+     */
+    private static IsbnLookup toIsbnLookup(String isbn, String isbn13, Map<String, Book> known, Map<String, CompletableFuture<Optional<Book>>> external) {
+        if (isbn13 == null) {
+            return new IsbnLookup(isbn, null, IsbnLookupStatus.INVALID, null);
+        }
+        if (known.containsKey(isbn13)) {
+            return new IsbnLookup(isbn, isbn13, IsbnLookupStatus.FOUND, known.get(isbn13));
+        }
+        try {
+            Optional<Book> book = external.get(isbn13).join();
+            return book.map(found -> new IsbnLookup(isbn, isbn13, IsbnLookupStatus.FOUND, found))
+                    .orElseGet(() -> new IsbnLookup(isbn, isbn13, IsbnLookupStatus.NOT_FOUND, null));
+        } catch (CompletionException e) {
+            log.warn("Lookup of ISBN '{}' failed: {}", isbn13, e.getCause().getMessage());
+            return new IsbnLookup(isbn, isbn13, IsbnLookupStatus.FAILED, null);
+        }
+    }
+
+    /**
+     * Retrieves a paginated list of all books stored in the internal database, sorted by title.
      * <p>
      * These books are considered "known" and are typically associated with libraries or previously queried data.
+     * This is offset pagination. The result contains a cursor for continuing with {@link #getAllKnownBooksAfter(String, int, int, User)}.
      * </p>
      *
      * @param startIndex       the starting index (zero-based) for pagination
      * @param numResultsToGet  the number of results to return
-     * @return A {@link BookList} instance with books from the internal database
+     * @param user             the user whose library and wishlist state is included, {@code null} for anonymous requests
+     * @return A {@link BookSummaryList} instance with books from the internal database
      */
-    public BookList getAllKnownBooks(int startIndex, int numResultsToGet) {
+    public BookSummaryList getAllKnownBooks(int startIndex, int numResultsToGet, User user) {
         log.debug("Fetching all known books with pagination: start={}, count={}", startIndex, numResultsToGet);
-        List<Book> books = bookRepository.findAll(PageRequest.of(startIndex / numResultsToGet, numResultsToGet)).toList();
-        int total = (int) bookRepository.count();
+        List<BookSummary> books = bookRepository.findSummaries(userId(user), startIndex, numResultsToGet);
+        int total = (int) countBooks();
         log.info("Retrieved {} books (total available: {})", books.size(), total);
-        return BookList.builder()
-                .books(books)
-                .numResults(total)
-                .startIndex(startIndex)
-                .skippedBooks(0)
-                .build();
+        return offsetPage(books, startIndex, total);
+    }
+
+    /**
+     * Retrieves the page of known books following the given cursor (keyset pagination).
+     * <p>
+     * Unlike {@link #getAllKnownBooks(int, int, User)}, the database seeks directly to the cursor position, so deep pages are
+     * as cheap as the first one.
+     * </p>
+     *
+     * @param cursor           the {@code nextCursor} of the previous page
+     * @param startIndex       index of the first book of this page as tracked by the client. It is only echoed back
+     * @param numResultsToGet  the number of results to return
+     * @param user             the user whose library and wishlist state is included, {@code null} for anonymous requests
+     * @return A {@link BookSummaryList} with the next books and the cursor for the page after
+     * @throws InvalidCursorException if the cursor is malformed
+     */
+    public BookSummaryList getAllKnownBooksAfter(String cursor, int startIndex, int numResultsToGet, User user) throws InvalidCursorException {
+        BookCursor position = BookCursor.decode(cursor);
+        log.debug("Fetching known books after cursor '{}', count={}", position.getTitle(), numResultsToGet);
+        List<BookSummary> books = bookRepository.findSummariesAfter(userId(user), position.getTitle(), position.getId(), PageRequest.of(0, numResultsToGet + 1));
+        return keysetPage(books, startIndex, numResultsToGet, (int) countBooks());
     }
 
     /**
-     * Retrieves a paginated list of books in a user's library.
+     * Returns all books stored in the internal database, sorted by title, as a lazily loaded stream.
+     * <p>
+     * The books are loaded in chunks of {@link #STREAM_CHUNK_SIZE} with keyset queries (like {@link #getAllKnownBooksAfter(String, int, int, User)}),
+     * each chunk only when the previous one has been consumed. So only one chunk is held in memory at a time, and no database
+     * connection is held while the consumer processes a chunk, however many books there are.
+     * </p>
+     *
+     * @param user the user whose library and wishlist state is included, {@code null} for anonymous requests
+     * @return the books, with their authors
+     */
+    public Stream<BookSummary> streamAllKnownBooks(User user) {
+        UUID userId = userId(user);
+        List<BookSummary> first = withAuthors(bookRepository.findSummaries(userId, 0, STREAM_CHUNK_SIZE));
+        return Stream.iterate(first, chunk -> !chunk.isEmpty(), chunk -> {
+            if (chunk.size() < STREAM_CHUNK_SIZE) {
+                return List.of(); // Last chunk, no need to ask the database
+            }
+            BookSummary last = chunk.getLast();
+            return withAuthors(bookRepository.findSummariesAfter(userId, last.getTitle(), last.getId(), PageRequest.ofSize(STREAM_CHUNK_SIZE)));
+        }).flatMap(List::stream);
+    }
+
+    /**
+     * Retrieves several known books as {@link BookSummary} projections, e.g. the books of a search result page.
+     *
+     * @param ids internal IDs of the books, in the order of the result
+     * @param user the user whose library and wishlist state is included, {@code null} for anonymous requests
+     * @return the books in the order of the IDs, with their authors. IDs of books that were deleted in the meantime are skipped
+     */
+    public List<BookSummary> getKnownBooksByIds(List<UUID> ids, User user) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<UUID, BookSummary> books = new HashMap<>();
+        bookRepository.findSummariesByIds(userId(user), ids).forEach(book -> books.put(book.getId(), book));
+        return withAuthors(ids.stream().map(books::get).filter(Objects::nonNull).toList());
+    }
+
+    /**
+     * Retrieves a paginated list of books in a user's library, sorted by title.
+     * <p>
+     * This is offset pagination. The result contains a cursor for continuing with {@link #getAllBooksInLibraryAfter(String, int, int, User)}.
+     * </p>
      *
      * @param startIndex starting index for pagination
      * @param numResultsToGet number of results to return
      * @param user the user whose library to query
-     * @return BookList of books in the user's library
+     * @return BookSummaryList of books in the user's library
      */
-    public BookList getAllBooksInLibrary(int startIndex, int numResultsToGet, User user) {
+    public BookSummaryList getAllBooksInLibrary(int startIndex, int numResultsToGet, User user) {
         log.debug("Fetching library books for user '{}' with pagination", user.getUsername());
-        List<LibraryBook> libraryBooks = libraryBookRepository.getLibraryBooksByUser(user, PageRequest.of(startIndex / numResultsToGet, numResultsToGet));
-        List<Book> books = libraryBooks.stream().map(LibraryBook::getBook).toList();
-        long totalCount = libraryBookRepository.countByUser(user);
+        List<BookSummary> books = libraryBookRepository.getLibrarySummaries(user.getId(), startIndex, numResultsToGet);
+        long totalCount = countLibraryBooks(user);
         log.info("User '{}' has {} books in library", user.getUsername(), totalCount);
-        return BookList.builder()
-                .books(books)
-                .numResults((int) totalCount)
-                .startIndex(startIndex)
-                .skippedBooks(0)
-                .build();
+        return offsetPage(books, startIndex, (int) totalCount);
     }
 
     /**
-     * Retrieves a paginated list of books on a user's wishlist.
+     * Retrieves the page of books in a user's library following the given cursor (keyset pagination).
+     *
+     * @param cursor the {@code nextCursor} of the previous page
+     * @param startIndex index of the first book of this page as tracked by the client. It is only echoed back
+     * @param numResultsToGet number of results to return
+     * @param user the user whose library to query
+     * @return BookSummaryList with the next books in the user's library and the cursor for the page after
+     * @throws InvalidCursorException if the cursor is malformed
+     */
+    public BookSummaryList getAllBooksInLibraryAfter(String cursor, int startIndex, int numResultsToGet, User user) throws InvalidCursorException {
+        BookCursor position = BookCursor.decode(cursor);
+        log.debug("Fetching library books for user '{}' after cursor '{}'", user.getUsername(), position.getTitle());
+        List<BookSummary> books = libraryBookRepository.getLibrarySummariesAfter(user.getId(), position.getTitle(), position.getId(), PageRequest.of(0, numResultsToGet + 1));
+        return keysetPage(books, startIndex, numResultsToGet, (int) countLibraryBooks(user));
+    }
+
+    /**
+     * Retrieves a paginated list of books on a user's wishlist, sorted by title.
+     * <p>
+     * Sorting and paging happen in the database, only the requested page is loaded. This is offset pagination. The result contains a cursor for continuing with {@link #getAllBooksOnWishlistAfter(String, int, int, User)}.
+     * </p>
      *
      * @param startIndex starting index for pagination
      * @param numResultsToGet number of results to return
      * @param user the user whose wishlist to query
-     * @return BookList of books currently on the wishlist
+     * @return BookSummaryList of books currently on the wishlist
      */
-    public BookList getAllBooksOnWishlist(int startIndex, int numResultsToGet, User user) {
+    public BookSummaryList getAllBooksOnWishlist(int startIndex, int numResultsToGet, User user) {
         log.debug("Fetching wishlist books for user '{}'", user.getUsername());
-        User refreshedUser = userRepository.getUserById(user.getId());
-        List<Book> wishlist = refreshedUser.getWishlistBooks().stream()
-                .sorted((b1, b2) -> b1.getTitle().compareTo(b2.getTitle()))
-                .toList();
+        List<BookSummary> page = userRepository.getWishlistSummaries(user.getId(), startIndex, numResultsToGet);
+        long totalCount = countWishlistBooks(user);
 
-        if (wishlist.isEmpty()) {
+        if (totalCount == 0) {
             log.info("User '{}' has an empty wishlist", user.getUsername());
         }
 
-        int toIndex = Math.min(startIndex + numResultsToGet, wishlist.size());
-        return BookList.builder()
-                .books(wishlist.subList(startIndex, toIndex))
-                .numResults(wishlist.size())
-                .startIndex(startIndex)
-                .skippedBooks(0)
-                .build();
+        return offsetPage(page, startIndex, (int) totalCount);
+    }
+
+    /**
+     * Retrieves the page of books on a user's wishlist following the given cursor (keyset pagination).
+     *
+     * @param cursor the {@code nextCursor} of the previous page
+     * @param startIndex index of the first book of this page as tracked by the client. It is only echoed back
+     * @param numResultsToGet number of results to return
+     * @param user the user whose wishlist to query
+     * @return BookSummaryList with the next books on the wishlist and the cursor for the page after
+     * @throws InvalidCursorException if the cursor is malformed
+     */
+    public BookSummaryList getAllBooksOnWishlistAfter(String cursor, int startIndex, int numResultsToGet, User user) throws InvalidCursorException {
+        BookCursor position = BookCursor.decode(cursor);
+        log.debug("Fetching wishlist books for user '{}' after cursor '{}'", user.getUsername(), position.getTitle());
+        List<BookSummary> books = userRepository.getWishlistSummariesAfter(user.getId(), position.getTitle(), position.getId(), PageRequest.of(0, numResultsToGet + 1));
+        return keysetPage(books, startIndex, numResultsToGet, (int) countWishlistBooks(user));
+    }
+
+    /**
+     * Number of books in the database, without counting the rows.
+     *
+     * @return the number of books
+     */
+    private long countBooks() {
+        return rowCounterService.getCount(RowCounterService.BOOKS, bookRepository::count);
+    }
+
+    /**
+     * Number of books in a user's library, without counting the rows.
+     *
+     * @param user the user
+     * @return the number of books in the library
+     */
+    private long countLibraryBooks(User user) {
+        return rowCounterService.getCount(RowCounterService.library(user), () -> libraryBookRepository.countByUser(user));
+    }
+
+    /**
+     * Number of books on a user's wishlist, without counting the rows.
+     *
+     * @param user the user
+     * @return the number of books on the wishlist
+     */
+    private long countWishlistBooks(User user) {
+        return rowCounterService.getCount(RowCounterService.wishlist(user), () -> userRepository.countWishlistBooks(user.getId()));
     }
 
     /**
@@ -190,16 +522,10 @@ public class BookService {
     public void addBookToLibrary(String bookID, User user) throws UnexpectedStatusException, IOException, BookNotFoundException {
         log.info("User '{}' adding book '{}' to library", user.getUsername(), bookID);
         Book book = getOrCreateBook(bookID);
-        LibraryBookKey key = new LibraryBookKey(book.getId(), user.getId());
-        if (libraryBookRepository.getLibraryBooksById(key).isEmpty()) {
-            LibraryBook libraryBook = LibraryBook.builder()
-                    .id(key)
-                    .book(book)
-                    .user(user)
-                    .rating(0)
-                    .readingStatus(ReadingStatus.UNREAD)
-                    .build();
-            libraryBookRepository.save(libraryBook);
+        if (libraryBookRepository.insertIfAbsent(book.getId(), user.getId(), ReadingStatus.UNREAD.ordinal()) == 1) {
+            bookRepository.insertRatingIfAbsent(book.getId());
+            rowCounterService.addToCount(RowCounterService.library(user), 1, () -> libraryBookRepository.countByUser(user));
+            libraryChanged(user);
             log.info("Library entry created for user '{}' and book '{}'", user.getUsername(), bookID);
         } else {
             log.debug("Book '{}' already exists in user '{}' library", bookID, user.getUsername());
@@ -210,6 +536,9 @@ public class BookService {
 
     /**
      * Adds a book to the user's wishlist if it is not already present.
+     * <p>
+     * Writes a single row into the wishlist join table, without loading the user's wishlist.
+     * </p>
      *
      * @param bookID the book's OpenLibrary ID
      * @param user the user
@@ -221,10 +550,9 @@ public class BookService {
     public void addBookToWishList(String bookID, User user) throws UnexpectedStatusException, IOException, BookNotFoundException {
         log.info("User '{}' adding book '{}' to wishlist", user.getUsername(), bookID);
         Book book = getOrCreateBook(bookID);
-        User refreshedUser = userRepository.getUserById(user.getId());
-        if (!refreshedUser.getWishlistBooks().contains(book)) {
-            refreshedUser.getWishlistBooks().add(book);
-            userRepository.save(refreshedUser);
+        if (userRepository.addToWishlist(user.getId(), book.getId()) == 1) {
+            rowCounterService.addToCount(RowCounterService.wishlist(user), 1, () -> userRepository.countWishlistBooks(user.getId()));
+            libraryChanged(user);
             log.info("Book '{}' added to wishlist for user '{}'", bookID, user.getUsername());
         } else {
             log.debug("Book '{}' already on wishlist for user '{}'", bookID, user.getUsername());
@@ -236,16 +564,23 @@ public class BookService {
      *
      * @param bookID the book's OpenLibrary ID
      * @param user the user
-     * @param rating new rating (typically between 1 and 5)
+     * @param rating new rating between 1 and 5, or 0 to remove the rating
      * @throws BookNotFoundException if the book doesn't exist
      * @throws BookNotInLibraryException if the book isn't in the user's library
+     * @throws InvalidRatingException if the rating is outside 0..5
      */
     @Transactional
-    public void rateBook(String bookID, User user, int rating) throws BookNotFoundException, BookNotInLibraryException {
+    public void rateBook(String bookID, User user, int rating) throws BookNotFoundException, BookNotInLibraryException, InvalidRatingException {
+        if (rating < 0 || rating > 5) {
+            throw new InvalidRatingException("Rating must be between 0 and 5, got " + rating);
+        }
         log.info("User '{}' rating book '{}' with {}", user.getUsername(), bookID, rating);
-        LibraryBook lb = getBookFromLibrary(bookID, user);
+        LibraryBook lb = getBookFromLibraryForUpdate(bookID, user);
+        int oldRating = lb.getRating();
         lb.setRating(rating);
         libraryBookRepository.save(lb);
+        updateRatingAggregates(lb.getBook().getId(), oldRating, rating);
+        libraryChanged(user);
     }
 
     /**
@@ -263,6 +598,7 @@ public class BookService {
         LibraryBook lb = getBookFromLibrary(bookID, user);
         lb.setReadingStatus(status);
         libraryBookRepository.save(lb);
+        libraryChanged(user);
     }
 
     /**
@@ -274,8 +610,11 @@ public class BookService {
     @Transactional
     public void removeBookFromLibrary(String bookID, User user) {
         try {
-            LibraryBook lb = getBookFromLibrary(bookID, user);
+            LibraryBook lb = getBookFromLibraryForUpdate(bookID, user);
+            updateRatingAggregates(lb.getBook().getId(), lb.getRating(), 0);
             libraryBookRepository.delete(lb);
+            rowCounterService.addToCount(RowCounterService.library(user), -1, () -> libraryBookRepository.countByUser(user));
+            libraryChanged(user);
             log.info("Book '{}' removed from user '{}' library", bookID, user.getUsername());
         } catch (BookNotFoundException | BookNotInLibraryException e) {
             log.debug("Attempted to remove book '{}' from library, but it wasn't there for user '{}'", bookID, user.getUsername());
@@ -285,22 +624,179 @@ public class BookService {
 
     /**
      * Removes a book from the user's wishlist if present.
+     * <p>
+     * Deletes the single row from the wishlist join table, without loading the user's wishlist.
+     * </p>
      *
      * @param bookID the book's OpenLibrary ID
      * @param user the user
      */
     @Transactional
     public void removeBookFromWishlist(String bookID, User user) {
-        Optional<Book> bookOptional = bookRepository.getBookByBookID(bookID);
-        if (bookOptional.isPresent()) {
-            User refreshedUser = userRepository.getUserById(user.getId());
-            if (refreshedUser.getWishlistBooks().remove(bookOptional.get())) {
-                userRepository.save(refreshedUser);
-                log.info("Book '{}' removed from wishlist for user '{}'", bookID, user.getUsername());
-            } else {
-                log.debug("Book '{}' not found in wishlist for user '{}'", bookID, user.getUsername());
+        if (userRepository.removeFromWishlist(user.getId(), bookID) == 1) {
+            rowCounterService.addToCount(RowCounterService.wishlist(user), -1, () -> userRepository.countWishlistBooks(user.getId()));
+            libraryChanged(user);
+            log.info("Book '{}' removed from wishlist for user '{}'", bookID, user.getUsername());
+        } else {
+            log.debug("Book '{}' not found in wishlist for user '{}'", bookID, user.getUsername());
+        }
+    }
+
+    /**
+     * Adds many books to the user's library in one transaction, e.g. when importing a shelf.
+     * <p>
+     * The books that are not stored yet are fetched from OpenLibrary concurrently before the transaction is opened, so no
+     * database connection is held while OpenLibrary answers. In the transaction, the stored books are loaded with one query,
+     * the library entries are inserted in JDBC batches, and the books are removed from the wishlist with a single statement.
+     * Books that are already in the library are left unchanged.
+     * </p>
+     *
+     * @param bookIDs OpenLibrary IDs of the books, duplicates are added once
+     * @param user the user
+     * @return one result per distinct book ID, in the order of the request
+     * @throws BulkLimitExceededException if more than {@link #MAX_BULK_BOOKS} books are sent
+     */
+    public List<BulkResult> addBooksToLibrary(List<String> bookIDs, User user) throws BulkLimitExceededException {
+        Map<String, BulkResultStatus> results = newBulkResults(bookIDs);
+        Map<String, Book> fetched = fetchMissingBooks(pending(results), results);
+        return transactionTemplate.execute(status -> addBooksToLibrary(pending(results), fetched, user, results));
+    }
+
+    /**
+     * Adds the resolved books to the user's library, see {@link #addBooksToLibrary(List, User)}. Must be called in a transaction.
+     *
+     * @param bookIDs OpenLibrary IDs of the books that were not rejected
+     * @param fetched the books fetched from OpenLibrary by book ID
+     * @param user the user
+     * @param results the result status by book ID
+     * @return one result per distinct book ID, in the order of the request
+     */
+    private List<BulkResult> addBooksToLibrary(List<String> bookIDs, Map<String, Book> fetched, User user, Map<String, BulkResultStatus> results) {
+        Map<String, Book> books = getOrStoreBooks(bookIDs, fetched, results);
+
+        Set<UUID> inLibrary = new HashSet<>();
+        if (!books.isEmpty()) {
+            inLibrary.addAll(libraryBookRepository.findBookIdsInLibrary(user.getId(), books.values().stream().map(Book::getId).toList()));
+        }
+        User owner = entityManager.getReference(User.class, user.getId());
+        List<UUID> added = new ArrayList<>();
+        for (Book book : books.values()) {
+            if (inLibrary.add(book.getId())) {
+                entityManager.persist(new LibraryBook(new LibraryBookKey(book.getId(), user.getId()), book, owner, 0, ReadingStatus.UNREAD));
+                added.add(book.getId());
             }
         }
+        // The following statements flush the new library entries in JDBC batches
+        if (!added.isEmpty()) {
+            bookRepository.insertRatingsIfAbsent(added);
+            rowCounterService.addToCount(RowCounterService.library(user), added.size(), () -> libraryBookRepository.countByUser(user));
+            libraryChanged(user);
+        }
+        removeBooksFromWishlist(books.values(), user);
+
+        books.keySet().forEach(bookID -> results.put(bookID, BulkResultStatus.DONE));
+        log.info("User '{}' added {} of {} books to the library", user.getUsername(), added.size(), results.size());
+        return toBulkResults(results);
+    }
+
+    /**
+     * Removes many books from the user's library in one transaction.
+     * <p>
+     * The library entries are loaded and locked with one query and deleted in JDBC batches.
+     * </p>
+     *
+     * @param bookIDs OpenLibrary IDs of the books, duplicates are removed once
+     * @param user the user
+     * @return one result per distinct book ID, in the order of the request
+     * @throws BulkLimitExceededException if more than {@link #MAX_BULK_BOOKS} books are sent
+     */
+    @Transactional
+    public List<BulkResult> removeBooksFromLibrary(List<String> bookIDs, User user) throws BulkLimitExceededException {
+        Map<String, BulkResultStatus> results = newBulkResults(bookIDs);
+        Map<String, LibraryBook> entries = getBooksFromLibraryForUpdate(pending(results), user, results);
+
+        for (LibraryBook lb : entries.values()) {
+            updateRatingAggregates(lb.getBook().getId(), lb.getRating(), 0);
+        }
+        libraryBookRepository.deleteAll(entries.values());
+        if (!entries.isEmpty()) {
+            rowCounterService.addToCount(RowCounterService.library(user), -entries.size(), () -> libraryBookRepository.countByUser(user));
+            libraryChanged(user);
+        }
+
+        entries.keySet().forEach(bookID -> results.put(bookID, BulkResultStatus.DONE));
+        log.info("User '{}' removed {} of {} books from the library", user.getUsername(), entries.size(), results.size());
+        return toBulkResults(results);
+    }
+
+    /**
+     * Updates the user's ratings of many books in their library in one transaction.
+     * <p>
+     * The library entries are loaded and locked with one query, and the changed ratings are written in JDBC batches.
+     * </p>
+     *
+     * @param ratings new ratings (between 1 and 5, or 0 to remove the rating) by OpenLibrary book ID
+     * @param user the user
+     * @return one result per book, in the order of the map
+     * @throws BulkLimitExceededException if more than {@link #MAX_BULK_BOOKS} books are sent
+     */
+    @Transactional
+    public List<BulkResult> rateBooks(Map<String, Integer> ratings, User user) throws BulkLimitExceededException {
+        Map<String, BulkResultStatus> results = newBulkResults(ratings.keySet());
+        ratings.forEach((bookID, rating) -> {
+            if (rating == null || rating < 0 || rating > 5) {
+                results.put(bookID, BulkResultStatus.INVALID);
+            }
+        });
+        Map<String, LibraryBook> entries = getBooksFromLibraryForUpdate(pending(results), user, results);
+
+        Map<String, Integer> oldRatings = new HashMap<>();
+        entries.forEach((bookID, lb) -> {
+            oldRatings.put(bookID, lb.getRating());
+            lb.setRating(ratings.get(bookID));
+            results.put(bookID, BulkResultStatus.DONE);
+        });
+        // The first aggregate update flushes the changed library entries in JDBC batches
+        entries.forEach((bookID, lb) -> updateRatingAggregates(lb.getBook().getId(), oldRatings.get(bookID), lb.getRating()));
+        if (!entries.isEmpty()) {
+            libraryChanged(user);
+        }
+
+        log.info("User '{}' rated {} of {} books", user.getUsername(), entries.size(), results.size());
+        return toBulkResults(results);
+    }
+
+    /**
+     * Updates the user's reading status of many books in their library in one transaction.
+     * <p>
+     * The library entries are loaded and locked with one query, and the changed statuses are written in JDBC batches.
+     * </p>
+     *
+     * @param statuses new reading statuses by OpenLibrary book ID
+     * @param user the user
+     * @return one result per book, in the order of the map
+     * @throws BulkLimitExceededException if more than {@link #MAX_BULK_BOOKS} books are sent
+     */
+    @Transactional
+    public List<BulkResult> updateReadingStatuses(Map<String, ReadingStatus> statuses, User user) throws BulkLimitExceededException {
+        Map<String, BulkResultStatus> results = newBulkResults(statuses.keySet());
+        statuses.forEach((bookID, status) -> {
+            if (status == null) {
+                results.put(bookID, BulkResultStatus.INVALID);
+            }
+        });
+        Map<String, LibraryBook> entries = getBooksFromLibraryForUpdate(pending(results), user, results);
+
+        entries.forEach((bookID, lb) -> {
+            lb.setReadingStatus(statuses.get(bookID));
+            results.put(bookID, BulkResultStatus.DONE);
+        });
+        if (!entries.isEmpty()) {
+            libraryChanged(user);
+        }
+
+        log.info("User '{}' updated the reading status of {} of {} books", user.getUsername(), entries.size(), results.size());
+        return toBulkResults(results);
     }
 
     /**
@@ -321,18 +817,16 @@ public class BookService {
 
     /**
      * Checks whether a book is currently on the user's wishlist.
+     * <p>
+     * Queries the join table directly instead of loading the whole wishlist.
+     * </p>
      *
      * @param bookID the book's OpenLibrary ID
      * @param user the user
      * @return {@code true} if on wishlist, {@code false} otherwise
      */
     public boolean isBookOnWishlist(String bookID, User user) {
-        Optional<Book> book = bookRepository.getBookByBookID(bookID);
-        if (book.isPresent()) {
-            User refreshedUser = userRepository.getUserById(user.getId());
-            return refreshedUser.getWishlistBooks().contains(book.get());
-        }
-        return false;
+        return userRepository.isBookOnWishlist(user.getId(), bookID);
     }
 
     /**
@@ -345,17 +839,300 @@ public class BookService {
      * @throws BookNotInLibraryException if the user does not own this book
      */
     private LibraryBook getBookFromLibrary(String bookID, User user) throws BookNotFoundException, BookNotInLibraryException {
+        return libraryBookRepository.getLibraryBooksById(getLibraryBookKey(bookID, user))
+                .orElseThrow(() -> new BookNotInLibraryException("Book not in library: " + bookID));
+    }
+
+    /**
+     * Retrieves a book from the user's library like {@link #getBookFromLibrary(String, User)}, and locks the entry until the
+     * end of the current transaction. Used before changing the rating, so the rating aggregates are updated from the
+     * rating that is actually replaced.
+     *
+     * @param bookID the book's OpenLibrary ID
+     * @param user the user
+     * @return the locked {@link LibraryBook} entry
+     * @throws BookNotFoundException if the book doesn't exist
+     * @throws BookNotInLibraryException if the user does not own this book
+     */
+    private LibraryBook getBookFromLibraryForUpdate(String bookID, User user) throws BookNotFoundException, BookNotInLibraryException {
+        return libraryBookRepository.findForUpdateById(getLibraryBookKey(bookID, user))
+                .orElseThrow(() -> new BookNotInLibraryException("Book not in library: " + bookID));
+    }
+
+    /**
+     * Builds the key of the user's library entry for a book.
+     *
+     * @param bookID the book's OpenLibrary ID
+     * @param user the user
+     * @return the key of the library entry (which does not necessarily exist)
+     * @throws BookNotFoundException if the book doesn't exist
+     */
+    private LibraryBookKey getLibraryBookKey(String bookID, User user) throws BookNotFoundException {
         Optional<Book> book = bookRepository.getBookByBookID(bookID);
         if (book.isEmpty()) {
             throw new BookNotFoundException("Book not found: " + bookID);
         }
-        LibraryBookKey key = new LibraryBookKey(book.get().getId(), user.getId());
-        return libraryBookRepository.getLibraryBooksById(key)
-                .orElseThrow(() -> new BookNotInLibraryException("Book not in library: " + bookID));
+        return new LibraryBookKey(book.get().getId(), user.getId());
+    }
+
+    /**
+     * Creates the results of a bulk library change, with the blank book IDs already marked as invalid.
+     *
+     * @param bookIDs the book IDs of the request
+     * @return the result status by distinct book ID in the order of the request, {@code null} for the books that are still to be processed
+     * @throws BulkLimitExceededException if more than {@link #MAX_BULK_BOOKS} books are sent
+     */
+    private static Map<String, BulkResultStatus> newBulkResults(Collection<String> bookIDs) throws BulkLimitExceededException {
+        if (bookIDs.size() > MAX_BULK_BOOKS) {
+            throw new BulkLimitExceededException("At most " + MAX_BULK_BOOKS + " books can be changed at once");
+        }
+        Map<String, BulkResultStatus> results = new LinkedHashMap<>();
+        for (String bookID : bookIDs) {
+            results.put(bookID, bookID == null || bookID.isBlank() ? BulkResultStatus.INVALID : null);
+        }
+        return results;
+    }
+
+    /**
+     * Returns the books of a bulk library change that have no result yet.
+     *
+     * @param results the result status by book ID
+     * @return the book IDs without result status
+     */
+    private static List<String> pending(Map<String, BulkResultStatus> results) {
+        return results.entrySet().stream().filter(result -> result.getValue() == null).map(Map.Entry::getKey).toList();
+    }
+
+    /**
+     * Converts the results of a bulk library change.
+     *
+     * @param results the result status by book ID, in the order of the request
+     * @return the results in the same order
+     */
+    private static List<BulkResult> toBulkResults(Map<String, BulkResultStatus> results) {
+        return results.entrySet().stream().map(result -> new BulkResult(result.getKey(), result.getValue())).toList();
+    }
+
+    /**
+     * Fetches the books that are not in the database from OpenLibrary concurrently, without saving them.
+     * Books that cannot be fetched get their result status ({@link BulkResultStatus#NOT_FOUND} or {@link BulkResultStatus#FAILED}).
+     *
+     * @param bookIDs the books' OpenLibrary IDs
+     * @param results the result status by book ID
+     * @return the fetched books by the requested book ID
+     */
+    private Map<String, Book> fetchMissingBooks(List<String> bookIDs, Map<String, BulkResultStatus> results) {
+        Map<String, Book> fetched = new LinkedHashMap<>();
+        if (bookIDs.isEmpty()) {
+            return fetched;
+        }
+        Set<String> known = getKnownBooksById(bookIDs).keySet();
+
+        Map<String, CompletableFuture<Optional<Book>>> external = new LinkedHashMap<>();
+        for (String bookID : bookIDs) {
+            if (!known.contains(bookID)) {
+                external.put(bookID, externalBookFlyweightFactory.getBookByIDAsync(bookID));
+            }
+        }
+        log.info("Resolving {} books: {} known, {} requested from OpenLibrary", bookIDs.size(), known.size(), external.size());
+
+        external.forEach((bookID, lookup) -> {
+            try {
+                lookup.join().ifPresentOrElse(book -> fetched.put(bookID, book), () -> results.put(bookID, BulkResultStatus.NOT_FOUND));
+            } catch (CompletionException e) {
+                log.warn("Lookup of book '{}' failed: {}", bookID, e.getCause().getMessage());
+                results.put(bookID, BulkResultStatus.FAILED);
+            }
+        });
+        return fetched;
+    }
+
+    /**
+     * Retrieves many books from the database and saves the ones fetched by {@link #fetchMissingBooks(List, Map)}.
+     * Books that are neither stored nor fetched get the result status {@link BulkResultStatus#NOT_FOUND}.
+     *
+     * @param bookIDs the books' OpenLibrary IDs, without the ones that could not be fetched
+     * @param fetched the books fetched from OpenLibrary by book ID
+     * @param results the result status by book ID
+     * @return the resolved books by the requested book ID
+     */
+    private Map<String, Book> getOrStoreBooks(List<String> bookIDs, Map<String, Book> fetched, Map<String, BulkResultStatus> results) {
+        Map<String, Book> books = new LinkedHashMap<>();
+        if (bookIDs.isEmpty()) {
+            return books;
+        }
+        bookRepository.findByBookIDIn(bookIDs).forEach(book -> books.put(book.getBookID(), book));
+
+        Map<String, Book> missing = new LinkedHashMap<>();
+        fetched.forEach((bookID, book) -> {
+            if (!books.containsKey(bookID)) {
+                missing.put(bookID, book);
+            }
+        });
+        books.putAll(storeBooks(missing));
+        bookIDs.stream().filter(bookID -> !books.containsKey(bookID)).forEach(bookID -> results.put(bookID, BulkResultStatus.NOT_FOUND));
+        return books;
+    }
+
+    /**
+     * Retrieves and locks the user's library entries of many books. Books that are not in the database or not in the
+     * library get their result status ({@link BulkResultStatus#NOT_FOUND} or {@link BulkResultStatus#NOT_IN_LIBRARY}).
+     *
+     * @param bookIDs the books' OpenLibrary IDs
+     * @param user the user
+     * @param results the result status by book ID
+     * @return the locked library entries by book ID
+     */
+    private Map<String, LibraryBook> getBooksFromLibraryForUpdate(List<String> bookIDs, User user, Map<String, BulkResultStatus> results) {
+        Map<String, LibraryBook> entries = new LinkedHashMap<>();
+        if (bookIDs.isEmpty()) {
+            return entries;
+        }
+        Map<UUID, String> bookIDsById = new HashMap<>();
+        bookRepository.findByBookIDIn(bookIDs).forEach(book -> bookIDsById.put(book.getId(), book.getBookID()));
+        if (!bookIDsById.isEmpty()) {
+            libraryBookRepository.findForUpdateByUserIdAndBookIds(user.getId(), bookIDsById.keySet())
+                    .forEach(lb -> entries.put(bookIDsById.get(lb.getBook().getId()), lb));
+        }
+        for (String bookID : bookIDs) {
+            if (!entries.containsKey(bookID)) {
+                results.put(bookID, bookIDsById.containsValue(bookID) ? BulkResultStatus.NOT_IN_LIBRARY : BulkResultStatus.NOT_FOUND);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Removes several books from the user's wishlist with a single statement.
+     *
+     * @param books the books to remove
+     * @param user the user
+     */
+    private void removeBooksFromWishlist(Collection<Book> books, User user) {
+        if (books.isEmpty()) {
+            return;
+        }
+        int removed = userRepository.removeAllFromWishlist(user.getId(), books.stream().map(Book::getId).toList());
+        if (removed > 0) {
+            rowCounterService.addToCount(RowCounterService.wishlist(user), -removed, () -> userRepository.countWishlistBooks(user.getId()));
+            libraryChanged(user);
+            log.info("{} books removed from wishlist for user '{}'", removed, user.getUsername());
+        }
+    }
+
+    /**
+     * Increments the version of a user's library and wishlist, so their cached pages are no longer used
+     * (see {@link LibrarySnapshotCache}). Must be called in the transaction that changed the library or wishlist.
+     *
+     * @param user owner of the library
+     */
+    private void libraryChanged(User user) {
+        rowCounterService.addToCount(RowCounterService.libraryVersion(user), 1, System::currentTimeMillis);
+    }
+
+    /**
+     * Replaces a rating in the rating aggregates of a book. Creates the aggregates first if they are missing,
+     * e.g. for library entries that were created before the aggregates existed.
+     *
+     * @param bookId internal ID of the book
+     * @param oldRating the replaced rating, 0 if there was none
+     * @param newRating the new rating, 0 if the rating is removed
+     */
+    private void updateRatingAggregates(UUID bookId, int oldRating, int newRating) {
+        if (oldRating == newRating) {
+            return;
+        }
+        bookRepository.insertRatingIfAbsent(bookId);
+        bookRepository.updateRating(bookId, oldRating, newRating);
+    }
+
+    /**
+     * Builds the result of an offset query.
+     *
+     * @param books the books of the page
+     * @param startIndex index of the first book of the page
+     * @param total total number of books in the listing
+     * @return the page with the cursor for continuing with keyset pagination
+     */
+    private BookSummaryList offsetPage(List<BookSummary> books, int startIndex, int total) {
+        return BookSummaryList.builder()
+                .books(withAuthors(books))
+                .numResults(total)
+                .startIndex(startIndex)
+                .nextCursor(BookCursor.nextCursor(books, startIndex + books.size() < total))
+                .build();
+    }
+
+    /**
+     * Builds the result of a keyset query that fetched one book more than requested, to find out whether there is a next page.
+     *
+     * @param books the fetched books, at most {@code numResultsToGet + 1}
+     * @param startIndex the start index echoed back to the client
+     * @param numResultsToGet the requested page size
+     * @param total total number of books in the listing
+     * @return the page with at most {@code numResultsToGet} books and the cursor for the next page
+     */
+    private BookSummaryList keysetPage(List<BookSummary> books, int startIndex, int numResultsToGet, int total) {
+        boolean hasMore = books.size() > numResultsToGet;
+        List<BookSummary> page = hasMore ? books.subList(0, numResultsToGet) : books;
+        return BookSummaryList.builder()
+                .books(withAuthors(page))
+                .numResults(total)
+                .startIndex(startIndex)
+                .nextCursor(BookCursor.nextCursor(page, hasMore))
+                .build();
+    }
+
+    /**
+     * Sets the authors and ISBNs of the books of a page, each loaded with a single query for the whole page.
+     *
+     * @param books the books of the page
+     * @return the same list
+     */
+    private List<BookSummary> withAuthors(List<BookSummary> books) {
+        if (books.isEmpty()) {
+            return books;
+        }
+        List<UUID> ids = books.stream().map(BookSummary::getId).toList();
+        Map<UUID, List<String>> authors = groupByBook(bookRepository.findAuthorNames(ids));
+        Map<UUID, List<String>> isbns = groupByBook(bookRepository.findIsbns(ids));
+        for (BookSummary book : books) {
+            book.setAuthors(authors.getOrDefault(book.getId(), List.of()));
+            book.setIsbns(isbns.getOrDefault(book.getId(), List.of()));
+        }
+        return books;
+    }
+
+    /**
+     * Groups the rows of a query for the collections of several books by book.
+     *
+     * @param rows pairs of book ID and value, sorted by book
+     * @return the values by book ID, in the order of the rows
+     */
+    private static Map<UUID, List<String>> groupByBook(List<Object[]> rows) {
+        Map<UUID, List<String>> values = new HashMap<>();
+        for (Object[] row : rows) {
+            values.computeIfAbsent((UUID) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+        return values;
+    }
+
+    /**
+     * ID of the user whose library and wishlist state is included in a listing.
+     *
+     * @param user the user, {@code null} for anonymous requests
+     * @return the user's ID, or {@code null} for anonymous requests (no book is in their library or on their wishlist)
+     */
+    private static UUID userId(User user) {
+        return user == null ? null : user.getId();
     }
 
     /**
      * Retrieves a book from the database or fetches and saves it from OpenLibrary if not present.
+     * <p>
+     * The book is saved with {@link #storeBooks(Map)}. If another request stored the same book in the meantime, that book
+     * is returned instead of creating a duplicate.
+     * </p>
      *
      * @param bookID the book's OpenLibrary ID
      * @return the resolved {@link Book}
@@ -363,7 +1140,6 @@ public class BookService {
      * @throws IOException if a communication error occurs
      * @throws BookNotFoundException if the book does not exist in either source
      */
-    @Transactional
     private Book getOrCreateBook(String bookID) throws UnexpectedStatusException, IOException, BookNotFoundException {
         Optional<Book> bookOpt = bookRepository.getBookByBookID(bookID);
         if (bookOpt.isPresent()) {
@@ -377,11 +1153,90 @@ public class BookService {
             throw new BookNotFoundException("Book not found: " + bookID);
         }
 
-        Book book = external.get();
-        book.setId(UUID.randomUUID());
-        bookRepository.save(book);
-        log.info("Book '{}' saved to database from external source", bookID);
-        return book;
+        Book stored = storeBooks(Map.of(bookID, external.get())).get(bookID);
+        if (stored == null) {
+            throw new BookNotFoundException("Book not found: " + bookID);
+        }
+        return stored;
+    }
+
+    /**
+     * Saves books fetched from OpenLibrary.
+     * <p>
+     * The book rows are created with {@code INSERT ... ON CONFLICT DO NOTHING}. If another request stored the same book
+     * in the meantime, that book is used instead of creating a duplicate. The authors of all books are resolved at once,
+     * and the ISBNs and author lists of all new books are written in JDBC batches when the transaction is flushed.
+     * A {@link BookStoredEvent} is published for every new book.
+     * </p>
+     *
+     * @param fetched the fetched books by the requested book ID
+     * @return the stored books by the requested book ID, without books that were stored concurrently and deleted again
+     */
+    private Map<String, Book> storeBooks(Map<String, Book> fetched) {
+        Map<String, Book> stored = new HashMap<>();
+        Map<String, Book> created = new LinkedHashMap<>();
+        fetched.forEach((bookID, book) -> {
+            UUID id = UUID.randomUUID();
+            int inserted = bookRepository.insertIfAbsent(id, book.getBookID(), book.getTitle(), book.getSubtitle(),
+                    book.getCoverURLSmall(), book.getCoverURLMedium(), book.getCoverURLLarge(), book.getPublishDate());
+            if (inserted == 0) {
+                log.debug("Book '{}' was stored concurrently, using the existing row", bookID);
+                bookRepository.getBookByBookID(book.getBookID()).ifPresent(existing -> stored.put(bookID, existing));
+            } else {
+                book.setId(id);
+                created.put(bookID, book);
+            }
+        });
+        if (created.isEmpty()) {
+            return stored;
+        }
+
+        rowCounterService.addToCount(RowCounterService.BOOKS, created.size(), bookRepository::count);
+        Map<String, Author> authors = getOrCreateAuthors(created.values().stream()
+                .filter(book -> book.getAuthors() != null)
+                .flatMap(book -> book.getAuthors().stream())
+                .map(Author::getName)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+        created.forEach((bookID, book) -> {
+            book.setAuthors(book.getAuthors() == null ? new ArrayList<>() : book.getAuthors().stream()
+                    .map(Author::getName)
+                    .filter(Objects::nonNull)
+                    .map(authors::get)
+                    .collect(Collectors.toCollection(ArrayList::new)));
+            // The upsert only covers the scalar columns. Authors, ISBNs and the description are written by the following update.
+            stored.put(bookID, bookRepository.save(book));
+            eventPublisher.publishEvent(new BookStoredEvent(book.getId(), book.getTitle(), book.getSubtitle(),
+                    book.getAuthors().stream().map(Author::getName).toList()));
+            log.info("Book '{}' saved to database from external source", bookID);
+        });
+        return stored;
+    }
+
+    /**
+     * Returns the stored authors with the given names, creating the missing ones.
+     * <p>
+     * Like the books, the authors are created with {@code INSERT ... ON CONFLICT DO NOTHING}, so an author that is stored
+     * concurrently is not duplicated.
+     * </p>
+     *
+     * @param names the author names
+     * @return the stored authors by name
+     */
+    private Map<String, Author> getOrCreateAuthors(Set<String> names) {
+        Map<String, Author> stored = new HashMap<>();
+        if (names.isEmpty()) {
+            return stored;
+        }
+        authorRepository.findByNameIn(names).forEach(author -> stored.put(author.getName(), author));
+        if (stored.size() < names.size()) {
+            List<String> missing = names.stream().filter(name -> !stored.containsKey(name)).toList();
+            for (String name : missing) {
+                authorRepository.insertIfAbsent(UUID.randomUUID(), name);
+            }
+            authorRepository.findByNameIn(missing).forEach(author -> stored.put(author.getName(), author));
+        }
+        return stored;
     }
 
 }
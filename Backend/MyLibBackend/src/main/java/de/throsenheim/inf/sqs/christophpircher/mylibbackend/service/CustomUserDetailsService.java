@@ -78,7 +78,8 @@ public class CustomUserDetailsService implements UserDetailsService {
     /**
      * Adds a new user to the system.
      * <p>
-     * This method first checks if the username is already taken and encodes the password with BCrypt.
+     * The password is encoded with BCrypt. The user is created with a single {@code INSERT ... ON CONFLICT DO NOTHING},
+     * so the uniqueness check on the username and the insert cannot race with a concurrent registration.
      * </p>
      *
      * @param username the new user's username
@@ -89,19 +90,12 @@ public class CustomUserDetailsService implements UserDetailsService {
     public void addUser(String username, String password) throws UsernameExistsException {
         log.info("Registering new user: '{}'", username);
 
-        User existingUser = userRepository.getUserByUsername(username);
-        if (existingUser != null) {
+        UUID id = UUID.randomUUID();
+        if (userRepository.insertIfAbsent(id, username, passwordEncoder.encode(password)) == 0) {
             log.warn("Registration failed: user '{}' already exists", username);
             throw new UsernameExistsException(String.format("User %s already exists!", username));
         }
 
-        User user = User.builder()
-                .id(UUID.randomUUID())
-                .username(username)
-                .passwordHash(passwordEncoder.encode(password))
-                .build();
-
-        userRepository.save(user);
-        log.info("User '{}' successfully created with ID '{}'", username, user.getId());
+        log.info("User '{}' successfully created with ID '{}'", username, id);
     }
 }
@@ -0,0 +1,133 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookSummary;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookSummaryList;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.User;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.BookRepository;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.search.BookSearchIndexer;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.search.IndexSearchResult;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Service class for keyword searches over the books stored in the internal database, without any request to OpenLibrary.
+ * <p>
+ * On PostgreSQL, the search is a ranked full-text search served by a GIN index (see {@link BookRepository#searchFullText(String, int, int)}).
+ * Other databases (H2 in dev and test) fall back to a case-insensitive substring search, sorted by title.
+ * </p>
+ * <p>
+ * With {@code search.internal.mode=memory}, the search uses the in-memory index of the {@link BookSearchIndexer} instead
+ * (typo tolerant, without a database query except for loading the found books), once the index is built.
+ * </p>
+ *
+ * @see SearchService
+ */
+@Service
+@Slf4j
+public class InternalSearchService {
+
+    private final BookRepository bookRepository;
+    private final BookService bookService;
+    private final DataSource dataSource;
+    private final Optional<BookSearchIndexer> bookSearchIndexer;
+
+    private boolean fullTextSearchSupported;
+
+    /**
+     * Constructor used by Spring Boot to inject the dependencies.
+     *
+     * @param bookRepository repository searched for the books
+     * @param bookService service loading the found books
+     * @param dataSource the datasource, to detect whether full-text search is available
+     * @param bookSearchIndexer the in-memory index, only present with {@code search.internal.mode=memory}
+     */
+    public InternalSearchService(BookRepository bookRepository, BookService bookService, DataSource dataSource, Optional<BookSearchIndexer> bookSearchIndexer) {
+        this.bookRepository = bookRepository;
+        this.bookService = bookService;
+        this.dataSource = dataSource;
+        this.bookSearchIndexer = bookSearchIndexer;
+    }
+
+    /**
+     * Checks once at startup whether the configured database supports the full-text search.
+     */
+    @PostConstruct
+    void detectFullTextSearchSupport() {
+        try (Connection connection = dataSource.getConnection()) {
+            String product = connection.getMetaData().getDatabaseProductName();
+            fullTextSearchSupported = "PostgreSQL".equalsIgnoreCase(product);
+            log.info("Database '{}' detected, internal search uses {}", product, fullTextSearchSupported ? "full-text search" : "substring matching");
+        } catch (SQLException e) {
+            log.warn("Could not detect database type, internal search uses substring matching: {}", e.getMessage());
+            fullTextSearchSupported = false;
+        }
+    }
+
+    /**
+     * Searches the known books for keywords.
+     *
+     * @param keywords the keywords to search for
+     * @param startIndex the starting index for pagination
+     * @param numResultsToGet the number of results to retrieve
+     * @param user the user whose library and wishlist state is included, {@code null} for anonymous requests
+     * @return one page of the matching books, best matches first, and the total number of matches
+     */
+    public BookSummaryList searchKeywordsInternal(String keywords, int startIndex, int numResultsToGet, User user) {
+        if (keywords == null || keywords.isBlank()) {
+            log.warn("Empty or blank keywords provided for internal search.");
+            return BookSummaryList.builder().books(List.of()).startIndex(startIndex).build();
+        }
+        List<UUID> ids;
+        long total;
+        if (bookSearchIndexer.isPresent() && bookSearchIndexer.get().isReady()) {
+            IndexSearchResult result = bookSearchIndexer.get().search(keywords, startIndex, numResultsToGet);
+            ids = result.getIds();
+            total = result.getNumResults();
+        } else if (fullTextSearchSupported) {
+            ids = bookRepository.searchFullText(keywords, startIndex, numResultsToGet);
+            total = isLastPage(ids, startIndex, numResultsToGet) ? startIndex + ids.size() : bookRepository.countFullText(keywords);
+        } else {
+            String pattern = toLikePattern(keywords);
+            ids = bookRepository.searchSubstring(pattern, startIndex, numResultsToGet);
+            total = isLastPage(ids, startIndex, numResultsToGet) ? startIndex + ids.size() : bookRepository.countSubstring(pattern);
+        }
+        List<BookSummary> books = bookService.getKnownBooksByIds(ids, user);
+        log.info("Internal keyword search completed for '{}'. Results returned: {} (total: {})", keywords, books.size(), total);
+        return BookSummaryList.builder()
+                .books(books)
+                .numResults((int) total)
+                .startIndex(startIndex)
+                .build();
+    }
+
+    /**
+     * Checks whether a page is known to be the last one, so the total follows from it without a count query.
+     * An empty page after the start cannot tell whether the start index is beyond the end, so it still needs the count.
+     */
+    private static boolean isLastPage(List<UUID> ids, int startIndex, int numResultsToGet) {
+        return ids.size() < numResultsToGet && (startIndex == 0 || !ids.isEmpty());
+    }
+
+    /**
+     * Turns keywords into a lower case {@code LIKE} pattern matching them anywhere, escaping the wildcards.
+     *
+     * @param keywords the keywords
+     * @return the pattern, with {@code !} as escape character
+     */
+    static String toLikePattern(String keywords) {
+        String escaped = keywords.trim().toLowerCase(Locale.ROOT)
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_");
+        return "%" + escaped + "%";
+    }
+}
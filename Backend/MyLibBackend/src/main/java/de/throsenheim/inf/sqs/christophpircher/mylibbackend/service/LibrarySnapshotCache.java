@@ -0,0 +1,173 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.User;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Cache of the serialized library and wishlist pages of the users.
+ * <p>
+ * A page is cached with the version of the user's library ({@link RowCounterService#libraryVersion(User)}), which every
+ * change of the user's library or wishlist increments in the same transaction. Reading the version is a single lookup by
+ * primary key, so a cached page saves the page and count queries and the serialization. As the version is stored in the
+ * database, a page is never served after a change, no matter which node made it. Pages also expire after
+ * {@code library.snapshot.ttlMillis}, because they contain the average ratings, which other users change.
+ * </p>
+ * <p>
+ * The pages of all users share a memory budget ({@code library.snapshot.maxBytes}). If it is exceeded, the least
+ * recently used pages are evicted.
+ * </p>
+ */
+@Service
+@Slf4j
+public class LibrarySnapshotCache {
+
+    /**
+     * Listing of the books in a user's library.
+     */
+    public static final String LIBRARY = "library";
+
+    /**
+     * Listing of the books on a user's wishlist.
+     */
+    public static final String WISHLIST = "wishlist";
+
+    /**
+     * Estimated memory of a cached page besides its bytes (key, entry and map node).
+     */
+    static final int ENTRY_OVERHEAD_BYTES = 200;
+
+    /**
+     * Creates the serialized page on a cache miss.
+     *
+     * @param <E> exception thrown while loading the page
+     */
+    @FunctionalInterface
+    public interface PageSerializer<E extends Exception> {
+        byte[] serialize() throws E;
+    }
+
+    private final RowCounterService rowCounterService;
+
+    /**
+     * Memory budget of all cached pages in bytes.
+     */
+    @Getter
+    private final long maxBytes;
+
+    /**
+     * Time a page is cached at most, in milliseconds.
+     */
+    @Getter
+    private final long ttlMillis;
+
+    /**
+     * The cached pages in access order, least recently used first. Guarded by {@code this}.
+     */
+    private final LinkedHashMap<SnapshotKey, Snapshot> snapshots = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Estimated memory of the cached pages in bytes. Guarded by {@code this}.
+     */
+    private long usedBytes;
+
+    public LibrarySnapshotCache(RowCounterService rowCounterService,
+                                @Value("${library.snapshot.maxBytes:16777216}") long maxBytes,
+                                @Value("${library.snapshot.ttlMillis:60000}") long ttlMillis) {
+        this.rowCounterService = rowCounterService;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Returns a serialized page of a user's library or wishlist, from the cache if the library did not change since it
+     * was cached.
+     *
+     * @param user owner of the library
+     * @param listing {@link #LIBRARY} or {@link #WISHLIST}
+     * @param startIndex start index of the page
+     * @param numResultsToGet size of the page
+     * @param cursor cursor of the page, {@code null} for offset pagination
+     * @param serializer loads and serializes the page, only called on a cache miss
+     * @param <E> exception thrown while loading the page
+     * @return the serialized page, shared by all callers (must not be modified)
+     * @throws E if the page could not be loaded
+     */
+    public <E extends Exception> byte[] getPage(User user, String listing, int startIndex, int numResultsToGet, String cursor, PageSerializer<E> serializer) throws E {
+        // The version is read before the page, so a page loaded during a change is cached with the old version
+        long version = rowCounterService.getCount(RowCounterService.libraryVersion(user), System::currentTimeMillis);
+        SnapshotKey key = new SnapshotKey(user.getId(), listing, startIndex, numResultsToGet, cursor);
+        synchronized (this) {
+            Snapshot snapshot = snapshots.get(key);
+            if (snapshot != null && snapshot.version() == version && System.currentTimeMillis() - snapshot.createdAt() < ttlMillis) {
+                log.debug("Snapshot hit for {} page of user '{}'", listing, user.getUsername());
+                return snapshot.json();
+            }
+        }
+        log.debug("Snapshot miss for {} page of user '{}', loading version {}", listing, user.getUsername(), version);
+        byte[] json = serializer.serialize();
+        put(key, new Snapshot(version, System.currentTimeMillis(), json));
+        return json;
+    }
+
+    /**
+     * Caches a page and evicts the least recently used pages until the cache fits into its memory budget again.
+     * Pages larger than the whole budget are not cached.
+     */
+    private synchronized void put(SnapshotKey key, Snapshot snapshot) {
+        Snapshot replaced = snapshots.remove(key);
+        if (replaced != null) {
+            usedBytes -= replaced.size();
+        }
+        if (snapshot.size() > maxBytes) {
+            return;
+        }
+        snapshots.put(key, snapshot);
+        usedBytes += snapshot.size();
+
+        Iterator<Map.Entry<SnapshotKey, Snapshot>> leastRecentlyUsed = snapshots.entrySet().iterator();
+        int evicted = 0;
+        while (usedBytes > maxBytes && leastRecentlyUsed.hasNext()) {
+            usedBytes -= leastRecentlyUsed.next().getValue().size();
+            leastRecentlyUsed.remove();
+            evicted++;
+        }
+        if (evicted > 0) {
+            log.debug("Evicted {} library snapshots ({} bytes of {} used)", evicted, usedBytes, maxBytes);
+        }
+    }
+
+    /**
+     * Estimated memory of the cached pages.
+     *
+     * @return the memory in bytes
+     */
+    synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Function for integration tests: Clear all cached pages
+     */
+    public synchronized void clear() {
+        snapshots.clear();
+        usedBytes = 0;
+    }
+
+    private record SnapshotKey(UUID userId, String listing, int startIndex, int numResultsToGet, String cursor) {
+    }
+
+    private record Snapshot(long version, long createdAt, byte[] json) {
+
+        long size() {
+            return json.length + ENTRY_OVERHEAD_BYTES;
+        }
+    }
+}
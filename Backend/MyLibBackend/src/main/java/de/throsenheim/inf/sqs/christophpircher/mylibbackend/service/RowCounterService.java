@@ -0,0 +1,147 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.RowCounter;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.User;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.RowCounterRepository;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Service class maintaining the total number of rows of the paginated listings.
+ * <p>
+ * Counting all rows of a listing on every page request is expensive for large tables, so the totals are stored as
+ * {@link RowCounter}s and changed in the same transaction as the counted rows. A missing counter (e.g. of a new user, or
+ * after the counters were cleared) is created from an actual count the first time it is needed.
+ * </p>
+ * <p>
+ * The same mechanism counts the changes of a user's library and wishlist ({@link #libraryVersion(User)}), which is the
+ * version of the cached library pages, see {@link LibrarySnapshotCache}.
+ * </p>
+ * <p>
+ * A counter row stays locked until the changing transaction commits. The counter of all books is changed by every
+ * transaction that stores a book, so it is split into {@link #SHARDS} rows: the counter row itself and {@code book#1}
+ * to {@code book#15}. A change is added to a random shard, and reads sum all shards.
+ * </p>
+ *
+ * @see RowCounter
+ */
+@Service
+@Slf4j
+@AllArgsConstructor
+public class RowCounterService {
+
+    /**
+     * Name of the counter of all books in the database.
+     */
+    public static final String BOOKS = "book";
+
+    /**
+     * Number of rows of a sharded counter, including the counter row itself.
+     */
+    static final int SHARDS = 16;
+
+    /**
+     * Counters that are changed by many concurrent transactions and therefore sharded.
+     */
+    private static final Set<String> SHARDED_COUNTERS = Set.of(BOOKS);
+
+    private RowCounterRepository rowCounterRepository;
+
+    /**
+     * Name of the counter of the books in a user's library.
+     *
+     * @param user owner of the library
+     * @return the counter name
+     */
+    public static String library(User user) {
+        return "library:" + user.getId();
+    }
+
+    /**
+     * Name of the counter of the books on a user's wishlist.
+     *
+     * @param user owner of the wishlist
+     * @return the counter name
+     */
+    public static String wishlist(User user) {
+        return "wishlist:" + user.getId();
+    }
+
+    /**
+     * Name of the counter of the changes of a user's library and wishlist.
+     * <p>
+     * A missing counter is created from the current time instead of a count, so it never repeats a version of a
+     * cleared counter.
+     * </p>
+     *
+     * @param user owner of the library
+     * @return the counter name
+     */
+    public static String libraryVersion(User user) {
+        return "libraryVersion:" + user.getId();
+    }
+
+    /**
+     * Returns the value of a counter, creating it from an actual count if it does not exist yet.
+     *
+     * @param name name of the counter
+     * @param recount counts the rows, only called if the counter does not exist
+     * @return the number of rows
+     */
+    public long getCount(String name, LongSupplier recount) {
+        Optional<Long> total = SHARDED_COUNTERS.contains(name) ? rowCounterRepository.getShardedTotal(name) : rowCounterRepository.getTotal(name);
+        if (total.isPresent()) {
+            return total.get();
+        }
+        long counted = recount.getAsLong();
+        log.debug("Creating counter '{}' with {} rows", name, counted);
+        rowCounterRepository.insertIfAbsent(name, counted);
+        return counted;
+    }
+
+    /**
+     * Adds rows to (or removes rows from) a counter. Must be called in the transaction that inserted or deleted the rows.
+     * <p>
+     * If the counter does not exist yet, it is created from an actual count, which already includes the change of the
+     * current transaction. If a concurrent transaction created it in the meantime, the change is added to that counter instead.
+     * </p>
+     *
+     * @param name name of the counter
+     * @param delta number of inserted rows, negative for deleted rows
+     * @param recount counts the rows, only called if the counter does not exist
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addToCount(String name, long delta, LongSupplier recount) {
+        addToCount(name, delta, recount, SHARDED_COUNTERS.contains(name) ? ThreadLocalRandom.current().nextInt(SHARDS) : 0);
+    }
+
+    /**
+     * Adds rows to a shard of a counter, see {@link #addToCount(String, long, LongSupplier)}.
+     * <p>
+     * Shard 0 is the counter row itself. The other shards start at 0 and are only used once the counter row exists,
+     * otherwise the count that creates the counter row would include rows that are already counted by a shard.
+     * </p>
+     *
+     * @param name name of the counter
+     * @param delta number of inserted rows, negative for deleted rows
+     * @param recount counts the rows, only called if the counter does not exist
+     * @param shard the shard to change
+     */
+    void addToCount(String name, long delta, LongSupplier recount, int shard) {
+        if (shard > 0 && rowCounterRepository.getTotal(name).isPresent()) {
+            rowCounterRepository.upsertAdd(name + "#" + shard, delta);
+            return;
+        }
+        if (rowCounterRepository.add(name, delta) == 0 && rowCounterRepository.insertIfAbsent(name, recount.getAsLong()) == 0) {
+            rowCounterRepository.add(name, delta);
+        }
+    }
+}
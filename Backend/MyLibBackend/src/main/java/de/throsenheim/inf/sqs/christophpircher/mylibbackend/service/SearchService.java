@@ -2,28 +2,65 @@ package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service;
 
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.api.OpenLibraryAPI;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.UnexpectedStatusException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Book;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookList;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookSummary;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookSummaryList;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.HybridSearchResult;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.SearchContinuation;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.User;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.flyweights.SearchResultFlyweightFactory;
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Service class for handling search-related functionality using the OpenLibrary API.
  * <p>
  * Acts as a thin wrapper around {@link OpenLibraryAPI} to decouple controller logic from API access logic.
  * </p>
+ * <p>
+ * The hybrid search queries the known books ({@link InternalSearchService}) and OpenLibrary concurrently, but waits for
+ * OpenLibrary only until the deadline {@code search.hybrid.deadlineMillis} (default 1.5 seconds) after the start of the
+ * request. A slow OpenLibrary then yields the local results and a {@link SearchContinuation} instead of a slow response.
+ * The hybrid search does not block the calling thread while it waits: its result is a future, completed when OpenLibrary
+ * answers or at the deadline, whichever comes first.
+ * </p>
  */
 @Service
 @Slf4j
-@AllArgsConstructor
 public class SearchService {
 
-    private OpenLibraryAPI openLibraryAPI;
-    private SearchResultFlyweightFactory searchResultFlyweightFactory;
+    private final OpenLibraryAPI openLibraryAPI;
+    private final SearchResultFlyweightFactory searchResultFlyweightFactory;
+    private final InternalSearchService internalSearchService;
+    private final long hybridDeadlineMillis;
+
+    /**
+     * Constructor used by Spring Boot to inject the dependencies.
+     *
+     * @param openLibraryAPI the OpenLibrary API
+     * @param searchResultFlyweightFactory cache of the OpenLibrary search results
+     * @param internalSearchService search over the known books, for the hybrid search
+     * @param hybridDeadlineMillis how long the hybrid search waits for OpenLibrary
+     */
+    public SearchService(OpenLibraryAPI openLibraryAPI, SearchResultFlyweightFactory searchResultFlyweightFactory, InternalSearchService internalSearchService,
+                         @Value("${search.hybrid.deadlineMillis:1500}") long hybridDeadlineMillis) {
+        this.openLibraryAPI = openLibraryAPI;
+        this.searchResultFlyweightFactory = searchResultFlyweightFactory;
+        this.internalSearchService = internalSearchService;
+        this.hybridDeadlineMillis = hybridDeadlineMillis;
+    }
 
     /**
      * Searches for books using the OpenLibrary API with the provided keyword string.
@@ -52,4 +89,160 @@ public class SearchService {
         return result;
     }
 
+    /**
+     * Searches for books using the OpenLibrary API like {@link #searchKeywordsExternal(String, int, int)}, but without
+     * blocking the calling thread. Cancelling the returned future (e.g. because the client disconnected) cancels the
+     * request to OpenLibrary, unless another request waits for the same search.
+     *
+     * @param keywords        the keywords to search for
+     * @param startIndex      the starting index for pagination
+     * @param numResultsToGet the number of results to retrieve
+     * @return a future with the {@link BookList}, or failed with an {@link UnexpectedStatusException} or {@link IOException}
+     */
+    public CompletableFuture<BookList> searchKeywordsExternalAsync(String keywords, int startIndex, int numResultsToGet) {
+        log.debug("Executing asynchronous external keyword search: keywords='{}', startIndex={}, numResultsToGet={}", keywords, startIndex, numResultsToGet);
+        CompletableFuture<BookList> result = searchResultFlyweightFactory.searchAsync(keywords, startIndex, numResultsToGet);
+        result.thenAccept(bookList -> log.info("Keyword search completed for '{}'. Results returned: {}", keywords, bookList.getBooks().size()));
+        return result;
+    }
+
+    /**
+     * Returns the serialized form of an OpenLibrary search result (e.g. the JSON of the anonymous HTTP response), kept
+     * next to its cache entry, see {@link SearchResultFlyweightFactory#getSerializedSearchResult(String, int, int, BookList, Supplier)}.
+     *
+     * @param keywords        the keywords of the search
+     * @param startIndex      the starting index of the search
+     * @param numResultsToGet the number of results of the search
+     * @param bookList        the result returned by {@link #searchKeywordsExternalAsync(String, int, int)}
+     * @param serializer      creates the serialized form of the result
+     * @return The serialized form (must not be modified).
+     */
+    public byte[] getSerializedSearchResult(String keywords, int startIndex, int numResultsToGet, BookList bookList, Supplier<byte[]> serializer) {
+        return searchResultFlyweightFactory.getSerializedSearchResult(keywords, startIndex, numResultsToGet, bookList, serializer);
+    }
+
+    /**
+     * Searches for books using the OpenLibrary API like {@link #searchKeywordsExternal(String, int, int)}, but hands every
+     * book to a consumer as soon as it is resolved, so it can be sent to the client before the whole page is complete.
+     *
+     * @param keywords        the keywords to search for
+     * @param startIndex      the starting index for pagination
+     * @param numResultsToGet the number of results to retrieve
+     * @param onBookResolved  called with every book of the page as soon as it is resolved
+     * @return {@link BookList} object containing a list of books and metadata
+     * @throws UnexpectedStatusException if the OpenLibrary API returns an unexpected status code
+     * @throws IOException               if a connection or read error occurs
+     */
+    public BookList searchKeywordsExternal(String keywords, int startIndex, int numResultsToGet, Consumer<Book> onBookResolved)
+            throws UnexpectedStatusException, IOException {
+        log.debug("Executing streamed external keyword search: keywords='{}', startIndex={}, numResultsToGet={}", keywords, startIndex, numResultsToGet);
+        BookList result = searchResultFlyweightFactory.search(keywords, startIndex, numResultsToGet, onBookResolved);
+        log.info("Streamed keyword search completed for '{}'. Results returned: {}", keywords, result.getBooks().size());
+        return result;
+    }
+
+    /**
+     * Searches the known books and OpenLibrary concurrently and merges the results, without blocking the calling thread
+     * while waiting for OpenLibrary.
+     * <p>
+     * The local matches are the best {@code numResultsToGet} known books, returned on the first page only.
+     * {@code startIndex} and {@code numResultsToGet} select the OpenLibrary page, from which the local matches are removed
+     * by their edition key. If OpenLibrary does not answer before the deadline (or fails), the result contains the local
+     * matches and a continuation for the OpenLibrary page instead. The OpenLibrary request keeps running in that case, so
+     * the continuation can pick up its result.
+     * </p>
+     *
+     * @param keywords        the keywords to search for
+     * @param startIndex      the starting index of the OpenLibrary page
+     * @param numResultsToGet the number of local and OpenLibrary results to retrieve
+     * @param user            the user whose library and wishlist state is included in the local matches, {@code null} for anonymous requests
+     * @return a future with the local matches and the OpenLibrary page or a continuation, completed at the deadline at the latest
+     */
+    public CompletableFuture<HybridSearchResult> searchKeywordsHybridAsync(String keywords, int startIndex, int numResultsToGet, User user) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(hybridDeadlineMillis);
+        SearchContinuation continuation = new SearchContinuation(keywords, startIndex, numResultsToGet);
+        CompletableFuture<BookList> external = searchResultFlyweightFactory.searchAsync(keywords, startIndex, numResultsToGet);
+        BookSummaryList local = internalSearchService.searchKeywordsInternal(keywords, 0, numResultsToGet, user);
+
+        return untilDeadline(external, deadline).handle((bookList, failure) -> {
+            HybridSearchResult.HybridSearchResultBuilder result = HybridSearchResult.builder()
+                    .localBooks(startIndex == 0 ? local.getBooks() : List.of())
+                    .numLocalResults(local.getNumResults());
+            Throwable cause = unwrap(failure);
+            if (cause == null && bookList != null) {
+                result.externalBooks(withoutLocalBooks(bookList, local.getBooks()));
+            } else if (cause == null) {
+                log.info("OpenLibrary did not answer the hybrid search for '{}' in time, returning local results and a continuation", keywords);
+                result.continuation(continuation.encode());
+            } else if (cause instanceof UnexpectedStatusException || cause instanceof IOException) {
+                log.warn("OpenLibrary failed for the hybrid search for '{}', returning local results and a continuation: {}", keywords, cause.getMessage());
+                result.continuation(continuation.encode());
+            } else {
+                throw new CompletionException(cause);
+            }
+            return result.build();
+        });
+    }
+
+    /**
+     * Fetches the OpenLibrary page of a hybrid search that did not answer in time, without the local matches.
+     * Waits for the running request again until the deadline, without blocking the calling thread.
+     *
+     * @param continuation the continuation returned by {@link #searchKeywordsHybridAsync(String, int, int, User)}
+     * @param user         the user of the request, {@code null} for anonymous requests
+     * @return a future with the OpenLibrary page, or the same continuation if OpenLibrary still did not answer, completed
+     *         at the deadline at the latest. Failed with an {@link UnexpectedStatusException} or {@link IOException} if
+     *         OpenLibrary failed
+     */
+    public CompletableFuture<HybridSearchResult> continueHybridSearchAsync(SearchContinuation continuation, User user) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(hybridDeadlineMillis);
+        String keywords = continuation.getKeywords();
+        CompletableFuture<BookList> external = searchResultFlyweightFactory.searchAsync(keywords, continuation.getStartIndex(), continuation.getNumResultsToGet());
+        BookSummaryList local = internalSearchService.searchKeywordsInternal(keywords, 0, continuation.getNumResultsToGet(), user);
+
+        return untilDeadline(external, deadline).thenApply(bookList -> {
+            HybridSearchResult.HybridSearchResultBuilder result = HybridSearchResult.builder()
+                    .localBooks(List.of())
+                    .numLocalResults(local.getNumResults());
+            if (bookList != null) {
+                result.externalBooks(withoutLocalBooks(bookList, local.getBooks()));
+            } else {
+                log.info("OpenLibrary still did not answer the hybrid search for '{}' in time", keywords);
+                result.continuation(continuation.encode());
+            }
+            return result.build();
+        });
+    }
+
+    /**
+     * Follows an OpenLibrary search until a deadline. The search itself is shared with other requests and keeps running
+     * after the deadline.
+     *
+     * @param search the running search
+     * @param deadline the deadline, as {@link System#nanoTime()}
+     * @return a future with the result of the search, or with {@code null} if the search did not finish before the deadline
+     */
+    private static CompletableFuture<BookList> untilDeadline(CompletableFuture<BookList> search, long deadline) {
+        return search.copy().completeOnTimeout(null, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the exception a future failed with, without the {@link CompletionException} wrapping it in dependent stages.
+     */
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    /**
+     * Copies an OpenLibrary page without the books that are local matches. The cached page itself is shared and stays unchanged.
+     */
+    private static BookList withoutLocalBooks(BookList external, List<BookSummary> localBooks) {
+        Set<String> localBookIDs = localBooks.stream().map(BookSummary::getBookID).collect(Collectors.toSet());
+        return BookList.builder()
+                .numResults(external.getNumResults())
+                .startIndex(external.getStartIndex())
+                .skippedBooks(external.getSkippedBooks())
+                .books(external.getBooks().stream().filter(book -> !localBookIDs.contains(book.getBookID())).toList())
+                .build();
+    }
 }
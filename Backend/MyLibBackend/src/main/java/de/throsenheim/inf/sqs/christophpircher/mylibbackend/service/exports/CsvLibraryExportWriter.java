@@ -0,0 +1,85 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.exports;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Writes a library export as UTF-8 encoded CSV (RFC 4180) with a header.
+ * <p>
+ * The column names and reading statuses are the ones recognized by the library import, so an export can be imported
+ * into another account.
+ * </p>
+ */
+class CsvLibraryExportWriter implements LibraryExportWriter {
+
+    /**
+     * Header of the file.
+     */
+    static final String HEADER = "bookID,ISBN13,Title,Subtitle,Authors,Publish Date,Rating,Reading Status";
+
+    private final Writer writer;
+
+    /**
+     * Creates the writer.
+     *
+     * @param out the export stream
+     */
+    CsvLibraryExportWriter(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void writeStart() throws IOException {
+        writer.write(HEADER);
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void writeBook(ExportedBook book) throws IOException {
+        writeField(book.getBookID());
+        writer.write(',');
+        writeField(book.getIsbn13());
+        writer.write(',');
+        writeField(book.getTitle());
+        writer.write(',');
+        writeField(book.getSubtitle());
+        writer.write(',');
+        writeField(String.join(", ", book.getAuthors()));
+        writer.write(',');
+        writeField(book.getPublishDate());
+        writer.write(',');
+        writer.write(Integer.toString(book.getRating()));
+        writer.write(',');
+        writeField(book.getReadingStatus() == null ? null : book.getReadingStatus().name().toLowerCase(Locale.ROOT));
+        writer.write("\r\n");
+    }
+
+    /**
+     * Writes a field, quoted if it contains a separator, a quote or a line break.
+     *
+     * @param value the value, {@code null} for an empty field
+     * @throws IOException if writing fails
+     */
+    private void writeField(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush(); // Not closed, the stream belongs to the caller
+    }
+}
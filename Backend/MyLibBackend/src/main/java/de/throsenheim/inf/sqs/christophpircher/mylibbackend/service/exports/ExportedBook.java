@@ -0,0 +1,67 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.exports;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.ReadingStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One book of a library export, with the library entry of the exporting user.
+ * <p>
+ * Only exists while the book is written: the export reads the library row by row and keeps one book at a time.
+ * </p>
+ *
+ * @see LibraryExportService
+ */
+@AllArgsConstructor
+@Getter
+class ExportedBook {
+
+    /**
+     * Internal ID of the book, to recognize the further rows of the same book (one row per author).
+     */
+    private final UUID id;
+
+    /**
+     * OpenLibrary book identifier.
+     */
+    private final String bookID;
+
+    /**
+     * Title of the book.
+     */
+    private final String title;
+
+    /**
+     * Subtitle of the book, if available.
+     */
+    private final String subtitle;
+
+    /**
+     * First ISBN-13 of the book, if available.
+     */
+    private final String isbn13;
+
+    /**
+     * Publish date of the book, as provided by OpenLibrary.
+     */
+    private final String publishDate;
+
+    /**
+     * The user's rating, 0 if the user has not rated the book.
+     */
+    private final int rating;
+
+    /**
+     * The user's reading status, may be {@code null}.
+     */
+    private final ReadingStatus readingStatus;
+
+    /**
+     * Names of the authors, in order. Filled from the rows of the book.
+     */
+    private final List<String> authors = new ArrayList<>();
+}
@@ -0,0 +1,63 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.exports;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Enumeration of the file formats a library can be exported as.
+ *
+ * @see LibraryExportService
+ */
+@AllArgsConstructor
+@Getter
+public enum LibraryExportFormat {
+    /**
+     * Newline-delimited JSON: one JSON object per book and line.
+     */
+    NDJSON("ndjson", "application/x-ndjson"),
+    /**
+     * CSV with a header. The columns are understood by the library import.
+     */
+    CSV("csv", "text/csv");
+
+    /**
+     * Name of the format in requests, also used as file extension.
+     */
+    private final String name;
+
+    /**
+     * Media type of the exported file.
+     */
+    private final String mediaType;
+
+    /**
+     * Finds a format by its name.
+     *
+     * @param name the name of the format, case-insensitive
+     * @return the format, empty if there is no format with that name
+     */
+    public static Optional<LibraryExportFormat> fromName(String name) {
+        return Arrays.stream(values()).filter(format -> format.name.equalsIgnoreCase(name)).findFirst();
+    }
+
+    /**
+     * Creates a writer for this format.
+     *
+     * @param out the stream the file is written to
+     * @param jsonFactory factory for the JSON generator of the NDJSON format
+     * @return the writer
+     * @throws IOException if the writer cannot be created
+     */
+    LibraryExportWriter createWriter(OutputStream out, JsonFactory jsonFactory) throws IOException {
+        return switch (this) {
+            case NDJSON -> new NdjsonLibraryExportWriter(jsonFactory.createGenerator(out));
+            case CSV -> new CsvLibraryExportWriter(out);
+        };
+    }
+}
@@ -0,0 +1,133 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.exports;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.ReadingStatus;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.User;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Service class for exporting the library of a user as a file.
+ * <p>
+ * The library is read with a single forward-only query and written book by book while the rows arrive, so the memory
+ * needed does not depend on the size of the library: neither the entities nor the whole result are ever held. The
+ * query joins the authors, so every book spans one row per author; the rows of a book are consecutive and merged
+ * before the book is written.
+ * </p>
+ *
+ * @see LibraryExportFormat
+ */
+@Service
+@Slf4j
+@AllArgsConstructor
+public class LibraryExportService {
+
+    /**
+     * Number of rows fetched from the database at a time. PostgreSQL only fetches the result in parts (instead of all at
+     * once) inside a transaction, which is why {@link #exportLibrary(User, LibraryExportFormat, OutputStream)} runs in one.
+     */
+    static final int FETCH_SIZE = 500;
+
+    /**
+     * The books of a library with their authors, sorted like the library listing. The ISBN-13 is the smallest one of the
+     * book, the same book therefore always exports the same ISBN.
+     */
+    static final String EXPORT_QUERY = "SELECT b.id, b.bookid, b.title, b.subtitle, b.publish_date, lb.rating, lb.reading_status, " +
+            "(SELECT MIN(i.isbn) FROM book_isbn i WHERE i.book_id = b.id AND LENGTH(i.isbn) = 13) AS isbn13, a.name AS author " +
+            "FROM library_book lb JOIN book b ON b.id = lb.book_id " +
+            "LEFT JOIN book_author ba ON ba.book_id = b.id LEFT JOIN author a ON a.id = ba.author_id " +
+            "WHERE lb.user_id = ? ORDER BY b.title, b.id, ba.position";
+
+    private JdbcTemplate jdbcTemplate;
+    private ObjectMapper objectMapper;
+
+    /**
+     * Writes all books in the library of a user, including the user's ratings and reading statuses.
+     * <p>
+     * Holds a database connection until the last book is written, i.e. as long as the client takes to receive the file.
+     * </p>
+     *
+     * @param user the owner of the library
+     * @param format the file format
+     * @param out the stream the file is written to. It is flushed, but not closed
+     * @throws IOException if writing fails, e.g. because the client went away
+     */
+    @Transactional(readOnly = true)
+    public void exportLibrary(User user, LibraryExportFormat format, OutputStream out) throws IOException {
+        try (LibraryExportWriter writer = format.createWriter(out, objectMapper.getFactory())) {
+            writer.writeStart();
+            LibraryRowHandler handler = new LibraryRowHandler(writer);
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(EXPORT_QUERY, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(FETCH_SIZE);
+                statement.setObject(1, user.getId());
+                return statement;
+            }, handler);
+            handler.finish();
+            log.info("User '{}' exported {} books as {}", user.getUsername(), handler.books, format);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Merges the consecutive rows of each book and writes the book once its last row was read.
+     */
+    private static class LibraryRowHandler implements RowCallbackHandler {
+
+        private final LibraryExportWriter writer;
+        private ExportedBook current;
+        private int books;
+
+        LibraryRowHandler(LibraryExportWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            UUID id = rs.getObject("id", UUID.class);
+            if (current == null || !current.getId().equals(id)) {
+                writeCurrent();
+                int readingStatus = rs.getInt("reading_status");
+                ReadingStatus status = rs.wasNull() ? null : ReadingStatus.values()[readingStatus];
+                current = new ExportedBook(id, rs.getString("bookid"), rs.getString("title"), rs.getString("subtitle"),
+                        rs.getString("isbn13"), rs.getString("publish_date"), rs.getInt("rating"), status);
+            }
+            String author = rs.getString("author");
+            if (author != null) {
+                current.getAuthors().add(author);
+            }
+        }
+
+        /**
+         * Writes the last book, after all rows were read.
+         */
+        void finish() {
+            writeCurrent();
+        }
+
+        private void writeCurrent() {
+            if (current == null) {
+                return;
+            }
+            try {
+                writer.writeBook(current);
+                books++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
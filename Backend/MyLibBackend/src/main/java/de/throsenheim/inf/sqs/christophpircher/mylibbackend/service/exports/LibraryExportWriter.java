@@ -0,0 +1,28 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.exports;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes the books of a library export in one {@link LibraryExportFormat}, one book at a time.
+ * <p>
+ * Closing the writer flushes the buffered output, but leaves the underlying stream open.
+ * </p>
+ */
+interface LibraryExportWriter extends Closeable {
+
+    /**
+     * Writes what comes before the first book (e.g. a header).
+     *
+     * @throws IOException if writing fails, e.g. because the client went away
+     */
+    void writeStart() throws IOException;
+
+    /**
+     * Writes one book.
+     *
+     * @param book the book
+     * @throws IOException if writing fails, e.g. because the client went away
+     */
+    void writeBook(ExportedBook book) throws IOException;
+}
@@ -0,0 +1,56 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.exports;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+
+/**
+ * Writes a library export as newline-delimited JSON, one object per book and line.
+ * <p>
+ * The objects are generated field by field with a streaming {@link JsonGenerator}, so no tree or DTO is built per book.
+ * </p>
+ */
+class NdjsonLibraryExportWriter implements LibraryExportWriter {
+
+    private final JsonGenerator generator;
+
+    /**
+     * Creates the writer.
+     *
+     * @param generator generator writing to the export stream
+     */
+    NdjsonLibraryExportWriter(JsonGenerator generator) {
+        this.generator = generator;
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null); // The lines are terminated explicitly
+    }
+
+    @Override
+    public void writeStart() {
+        // NDJSON has no header
+    }
+
+    @Override
+    public void writeBook(ExportedBook book) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("bookID", book.getBookID());
+        generator.writeStringField("title", book.getTitle());
+        generator.writeStringField("subtitle", book.getSubtitle());
+        generator.writeArrayFieldStart("authors");
+        for (String author : book.getAuthors()) {
+            generator.writeString(author);
+        }
+        generator.writeEndArray();
+        generator.writeStringField("isbn13", book.getIsbn13());
+        generator.writeStringField("publishDate", book.getPublishDate());
+        generator.writeNumberField("rating", book.getRating());
+        generator.writeStringField("readingStatus", book.getReadingStatus() == null ? null : book.getReadingStatus().name());
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+}
@@ -1,6 +1,7 @@
 package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.flyweights;
 
 import java.time.Clock;
+import java.util.function.Supplier;
 
 /**
  * A simple wrapper for cached values that includes a timestamp
@@ -25,6 +26,11 @@ class CacheEntry<T> {
      */
     private final Clock clock;
 
+    /**
+     * Serialized form of the value (e.g. the JSON of the anonymous HTTP response), created on first use.
+     */
+    private volatile byte[] serialized;
+
     /**
      * Creates a new CacheEntry and records the current timestamp.
      *
@@ -45,6 +51,22 @@ class CacheEntry<T> {
         this.timestamp = clock.millis();
     }
 
+    /**
+     * Returns the serialized form of the value, creating it on first use. Concurrent first uses may both serialize the
+     * value; as the value does not change, they create the same bytes.
+     *
+     * @param serializer creates the serialized form of the value
+     * @return The serialized form, shared by all callers (must not be modified).
+     */
+    byte[] serialized(Supplier<byte[]> serializer) {
+        byte[] bytes = serialized;
+        if (bytes == null) {
+            bytes = serializer.get();
+            serialized = bytes;
+        }
+        return bytes;
+    }
+
     /**
      * Determines whether this cache entry is still valid based on TTL.
      *
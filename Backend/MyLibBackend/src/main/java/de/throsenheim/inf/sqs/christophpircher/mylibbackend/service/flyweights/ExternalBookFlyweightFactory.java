@@ -1,16 +1,22 @@
 package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.flyweights;
 
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.AsyncConfig;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.api.OpenLibraryAPI;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.UnexpectedStatusException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Book;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Deadline;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
 
 /**
  * Caches book details from the OpenLibrary API to avoid redundant network calls.
@@ -27,6 +33,13 @@ public class ExternalBookFlyweightFactory {
     // Cache mapping bookID -> Optional<Book> wrapped in a timestamped entry
     private final ConcurrentHashMap<String, CacheEntry<Optional<Book>>> bookCache = new ConcurrentHashMap<>();
 
+    // Cache mapping ISBN-13 -> Optional<Book> wrapped in a timestamped entry
+    private final ConcurrentHashMap<String, CacheEntry<Optional<Book>>> isbnCache = new ConcurrentHashMap<>();
+
+    // ISBN lookups that are currently running. Concurrent lookups of the same ISBN wait for the running one instead of
+    // sending the same request to OpenLibrary again
+    private final ConcurrentHashMap<String, CompletableFuture<Optional<Book>>> runningIsbnLookups = new ConcurrentHashMap<>();
+
     // Time-to-live for cached entries (60 minutes)
     private static final long TTL_MILLIS = 60L * 60 * 1000;
 
@@ -58,7 +71,7 @@ public class ExternalBookFlyweightFactory {
         }
 
         Optional<Book> book = openLibraryAPI.getBookByBookID(bookID);
-        bookCache.put(bookID, new CacheEntry<>(book));
+        cacheBook(bookID, book);
 
         if (book.isPresent()) {
             log.info("Fetched and cached book '{}' from OpenLibrary", bookID);
@@ -69,17 +82,170 @@ public class ExternalBookFlyweightFactory {
         return book;
     }
 
+    /**
+     * Fetches a book by its OpenLibrary ID like {@link #getBookByID(String)}, but without blocking the calling thread
+     * (see {@link OpenLibraryAPI#getBookByBookIDAsync(String)}). Cached books are returned as a completed future.
+     * Used by the book lookup endpoint and to resolve the missing books of a bulk library change concurrently.
+     * Cancelling the returned future cancels the requests to OpenLibrary.
+     *
+     * @param bookID OpenLibrary book identifier (e.g., "OL1234567M")
+     * @return a future with the book (empty if the book doesn't exist), or failed with the exception of the lookup
+     */
+    public CompletableFuture<Optional<Book>> getBookByIDAsync(String bookID) {
+        return getBookByIDAsync(bookID, null);
+    }
+
+    /**
+     * Fetches a book by its OpenLibrary ID like {@link #getBookByIDAsync(String)}, within the time left until the given
+     * deadline (see {@link OpenLibraryAPI#getBookByBookIDAsync(String, Deadline)}).
+     * <p>
+     * A book that is {@link Book#isIncomplete() incomplete} because the deadline was hit is returned, but not cached, so
+     * the next lookup fetches the book again.
+     * </p>
+     *
+     * @param bookID OpenLibrary book identifier (e.g., "OL1234567M")
+     * @param deadline the deadline of the lookup, {@code null} for none
+     * @return a future with the book (empty if the book doesn't exist), or failed with the exception of the lookup
+     */
+    public CompletableFuture<Optional<Book>> getBookByIDAsync(String bookID, Deadline deadline) {
+        CacheEntry<Optional<Book>> cached = bookCache.get(bookID);
+        if (cached != null && cached.isNotExpired(TTL_MILLIS)) {
+            log.debug("Cache hit for book '{}'", bookID);
+            return CompletableFuture.completedFuture(cached.value);
+        }
+
+        log.debug("Cache miss for book '{}', fetching from OpenLibrary asynchronously", bookID);
+        CompletableFuture<Optional<Book>> lookup = openLibraryAPI.getBookByBookIDAsync(bookID, deadline);
+        CompletableFuture<Optional<Book>> result = lookup.thenApply(book -> {
+            if (book.isPresent() && book.get().isIncomplete()) {
+                log.warn("Fetched incomplete book '{}' from OpenLibrary before the deadline; not cached", bookID);
+                return book;
+            }
+            cacheBook(bookID, book);
+            if (book.isPresent()) {
+                log.info("Fetched and cached book '{}' from OpenLibrary", bookID);
+            } else {
+                log.warn("Book '{}' not found in OpenLibrary; cached empty result", bookID);
+            }
+            return book;
+        });
+        result.whenComplete((book, e) -> {
+            if (result.isCancelled()) {
+                lookup.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Fetches a book by its ISBN, either from cache or fresh via API.
+     * <p>
+     * Works like {@link #getBookByID(String)}. In addition, a lookup of an ISBN that is already being fetched by another
+     * thread waits for that request instead of starting a second one. Found books are also cached under their book ID,
+     * so adding a scanned book to the library does not fetch it again.
+     * </p>
+     *
+     * @param isbn ISBN-13 without separators (see {@link de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Isbn})
+     * @return an Optional<Book>, empty if no book with this ISBN exists
+     * @throws UnexpectedStatusException if the API returns an unexpected status code
+     * @throws IOException on network or parsing failures
+     */
+    public Optional<Book> getBookByIsbn(String isbn) throws UnexpectedStatusException, IOException {
+        CacheEntry<Optional<Book>> cached = isbnCache.get(isbn);
+        if (cached != null && cached.isNotExpired(TTL_MILLIS)) {
+            log.debug("Cache hit for ISBN '{}'", isbn);
+            return cached.value;
+        }
+
+        CompletableFuture<Optional<Book>> lookup = new CompletableFuture<>();
+        CompletableFuture<Optional<Book>> running = runningIsbnLookups.putIfAbsent(isbn, lookup);
+        if (running != null) {
+            log.debug("Waiting for running lookup of ISBN '{}'", isbn);
+            return await(running);
+        }
+
+        try {
+            log.debug("Cache miss for ISBN '{}', fetching from OpenLibrary", isbn);
+            Optional<Book> book = openLibraryAPI.getBookByIsbn(isbn);
+            isbnCache.put(isbn, new CacheEntry<>(book));
+            book.ifPresent(found -> cacheBook(found.getBookID(), book));
+            lookup.complete(book);
+            return book;
+        } catch (UnexpectedStatusException | IOException | RuntimeException e) {
+            lookup.completeExceptionally(e);
+            throw e;
+        } finally {
+            runningIsbnLookups.remove(isbn, lookup);
+        }
+    }
+
+    /**
+     * Caches a book (or the result that it does not exist) under its book ID and stamps the book with the version of the
+     * cache entry, which identifies the cached data (e.g. as entity tag of the HTTP responses).
+     *
+     * @param bookID OpenLibrary book identifier
+     * @param book the book, empty if it does not exist
+     */
+    private void cacheBook(String bookID, Optional<Book> book) {
+        CacheEntry<Optional<Book>> entry = new CacheEntry<>(book);
+        book.ifPresent(found -> found.setCacheVersion(entry.timestamp));
+        bookCache.put(bookID, entry);
+    }
+
+    /**
+     * Fetches a book by its ISBN like {@link #getBookByIsbn(String)}, but on the executor of the ISBN lookups
+     * ({@link AsyncConfig#ISBN_LOOKUP_EXECUTOR}). Used to resolve many ISBNs concurrently.
+     *
+     * @param isbn ISBN-13 without separators
+     * @return a future with the book (empty if no book with this ISBN exists), or failed with the exception of the lookup
+     */
+    @Async(AsyncConfig.ISBN_LOOKUP_EXECUTOR)
+    public CompletableFuture<Optional<Book>> getBookByIsbnAsync(String isbn) {
+        try {
+            return CompletableFuture.completedFuture(getBookByIsbn(isbn));
+        } catch (UnexpectedStatusException | IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Waits for a lookup started by another thread and rethrows its exception.
+     *
+     * @param lookup the running lookup
+     * @return the result of the lookup
+     * @throws UnexpectedStatusException if the lookup failed with an unexpected status code
+     * @throws IOException if the lookup failed due to a network or parsing error, or waiting was interrupted
+     */
+    private static Optional<Book> await(CompletableFuture<Optional<Book>> lookup) throws UnexpectedStatusException, IOException {
+        try {
+            return lookup.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for OpenLibrary", e);
+        } catch (ExecutionException e) {
+            switch (e.getCause()) {
+                case UnexpectedStatusException cause -> throw cause;
+                case IOException cause -> throw cause;
+                case RuntimeException cause -> throw cause;
+                default -> throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
     /**
      * Periodically clears expired cache entries based on TTL.
      *
      * This is scheduled to run every 10 minutes and prevents unbounded memory usage.
+     * It deliberately runs on every node rather than as a {@link de.throsenheim.inf.sqs.christophpircher.mylibbackend.scheduling.ClusterSingleton}, since each node owns its own cache.
+     * Package-private, because the factory is proxied for the asynchronous lookups and the scheduler calls it through the proxy.
      */
     @Scheduled(fixedDelay = 10 * 60 * 1000) // Every 10 minutes
-    private void cleanupCache() {
+    void cleanupCache() {
         long now = System.currentTimeMillis();
-        int before = bookCache.size();
+        int before = bookCache.size() + isbnCache.size();
         bookCache.entrySet().removeIf(entry -> entry.getValue().isExpired(now, TTL_MILLIS));
-        int after = bookCache.size();
+        isbnCache.entrySet().removeIf(entry -> entry.getValue().isExpired(now, TTL_MILLIS));
+        int after = bookCache.size() + isbnCache.size();
 
         int removed = before - after;
         if (removed > 0) {
@@ -89,11 +255,29 @@ public class ExternalBookFlyweightFactory {
         }
     }
 
+    /**
+     * Returns the serialized form of a book (e.g. the JSON of the anonymous HTTP response). It is created on first use
+     * and kept next to the cache entry of the book, so later requests for the cached book skip the mapping and the
+     * serialization. A book that is not (or no longer) the cached one is serialized every time.
+     *
+     * @param book a book returned by this factory
+     * @param serializer creates the serialized form of the book
+     * @return The serialized form (must not be modified).
+     */
+    public byte[] getSerializedBook(Book book, Supplier<byte[]> serializer) {
+        CacheEntry<Optional<Book>> entry = bookCache.get(book.getBookID());
+        if (entry == null || entry.value.orElse(null) != book) {
+            return serializer.get();
+        }
+        return entry.serialized(serializer);
+    }
+
     /**
      * Function for integration tests: Clear all entries from the cache
      */
     public void clearCache() {
         bookCache.clear();
+        isbnCache.clear();
     }
 
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.flyweights;
 
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.api.OpenLibraryAPI;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.UnexpectedStatusException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Book;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookList;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -9,7 +10,14 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Caches paginated keyword-based search results from the OpenLibrary API to improve performance.
@@ -26,6 +34,10 @@ public class SearchResultFlyweightFactory {
     // Thread-safe cache of keyword-based search results
     private final ConcurrentHashMap<SearchResultFlyweightKey, CacheEntry<BookList>> bookListCache = new ConcurrentHashMap<>();
 
+    // Searches that are currently running. The same search by another thread (e.g. the continuation of a hybrid search
+    // whose deadline passed) waits for the running request instead of sending it to OpenLibrary again
+    private final ConcurrentHashMap<SearchResultFlyweightKey, RunningSearch> runningSearches = new ConcurrentHashMap<>();
+
     private final OpenLibraryAPI openLibraryAPI;
 
     // Time-to-live for cache entries (60 minutes)
@@ -35,6 +47,7 @@ public class SearchResultFlyweightFactory {
      * Retrieves search results from cache or fetches them from the OpenLibrary API.
      *
      * If the same keyword + pagination combination is already cached and still valid, it is reused.
+     * If it is being fetched by another thread, that request is awaited.
      * Otherwise, a fresh API call is made and cached for future use.
      *
      * @param keywords   Search keywords
@@ -45,11 +58,33 @@ public class SearchResultFlyweightFactory {
      * @throws IOException on network failure
      */
     public BookList search(String keywords, int startIndex, int numToGet) throws UnexpectedStatusException, IOException {
+        return search(keywords, startIndex, numToGet, book -> { }, () -> openLibraryAPI.searchBooks(keywords, startIndex, numToGet));
+    }
+
+    /**
+     * Retrieves search results like {@link #search(String, int, int)}, but hands every book to a consumer as soon as it is
+     * available: cached or awaited results all at once, fetched results as OpenLibrary resolves them
+     * (see {@link OpenLibraryAPI#searchBooks(String, int, int, Consumer)}).
+     *
+     * @param keywords       Search keywords
+     * @param startIndex     Pagination start index
+     * @param numToGet       Number of books to retrieve
+     * @param onBookResolved Called with every book of the result as soon as it is available
+     * @return A {@link BookList} containing the search results
+     * @throws UnexpectedStatusException if the OpenLibrary API returns a bad response
+     * @throws IOException on network failure
+     */
+    public BookList search(String keywords, int startIndex, int numToGet, Consumer<Book> onBookResolved) throws UnexpectedStatusException, IOException {
+        return search(keywords, startIndex, numToGet, onBookResolved, () -> openLibraryAPI.searchBooks(keywords, startIndex, numToGet, onBookResolved));
+    }
+
+    private BookList search(String keywords, int startIndex, int numToGet, Consumer<Book> onBookResolved, OpenLibrarySearch openLibrarySearch) throws UnexpectedStatusException, IOException {
         SearchResultFlyweightKey key = new SearchResultFlyweightKey(keywords, startIndex, numToGet);
         CacheEntry<BookList> cachedEntry = bookListCache.get(key);
 
         if (cachedEntry != null && cachedEntry.isNotExpired(TTL_MILLIS)) {
             log.debug("Cache hit for search [keywords='{}', start={}, count={}]", keywords, startIndex, numToGet);
+            cachedEntry.value.getBooks().forEach(onBookResolved);
             return cachedEntry.value;
         }
 
@@ -59,20 +94,141 @@ public class SearchResultFlyweightFactory {
             log.debug("Cache miss for search [keywords='{}', start={}, count={}], fetching from OpenLibrary", keywords, startIndex, numToGet);
         }
 
-        BookList bookList = openLibraryAPI.searchBooks(keywords, startIndex, numToGet);
-        bookListCache.put(key, new CacheEntry<>(bookList));
+        RunningSearch search = new RunningSearch();
+        RunningSearch running = runningSearches.putIfAbsent(key, search);
+        if (running != null) {
+            log.debug("Waiting for running search [keywords='{}', start={}, count={}]", keywords, startIndex, numToGet);
+            running.waiters.incrementAndGet(); // Never cancelled, so a running asynchronous request is not cancelled while this thread waits for it
+            BookList bookList = await(running.result);
+            bookList.getBooks().forEach(onBookResolved);
+            return bookList;
+        }
+
+        try {
+            BookList bookList = openLibrarySearch.fetch();
+            cache(key, bookList);
+            search.result.complete(bookList);
+
+            log.info("Search result fetched and cached: [keywords='{}'] - {} books returned", keywords, bookList.getBooks().size());
+
+            return bookList;
+        } catch (UnexpectedStatusException | IOException | RuntimeException e) {
+            search.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            runningSearches.remove(key, search);
+        }
+    }
+
+    /**
+     * Retrieves search results like {@link #search(String, int, int)}, but without blocking the calling thread
+     * (see {@link OpenLibraryAPI#searchBooksAsync(String, int, int)}). Cached results are returned as a completed future.
+     * Used by the keyword search endpoint and the hybrid search, which only waits for OpenLibrary until its deadline.
+     * <p>
+     * Every caller gets its own future. Cancelling it (e.g. because the client disconnected) cancels the request to
+     * OpenLibrary only if no other caller waits for the same search.
+     * </p>
+     *
+     * @param keywords   Search keywords
+     * @param startIndex Pagination start index
+     * @param numToGet   Number of books to retrieve
+     * @return a future with the search results, or failed with the exception of the search
+     */
+    public CompletableFuture<BookList> searchAsync(String keywords, int startIndex, int numToGet) {
+        SearchResultFlyweightKey key = new SearchResultFlyweightKey(keywords, startIndex, numToGet);
+        CacheEntry<BookList> cachedEntry = bookListCache.get(key);
+        if (cachedEntry != null && cachedEntry.isNotExpired(TTL_MILLIS)) {
+            log.debug("Cache hit for search [keywords='{}', start={}, count={}]", keywords, startIndex, numToGet);
+            return CompletableFuture.completedFuture(cachedEntry.value);
+        }
 
-        log.info("Search result fetched and cached: [keywords='{}'] - {} books returned", keywords, bookList.getBooks().size());
+        RunningSearch search = new RunningSearch();
+        RunningSearch running = runningSearches.putIfAbsent(key, search);
+        if (running != null) {
+            log.debug("Joining running search [keywords='{}', start={}, count={}]", keywords, startIndex, numToGet);
+            return running.join();
+        }
 
-        return bookList;
+        log.debug("Cache miss for search [keywords='{}', start={}, count={}], fetching from OpenLibrary asynchronously", keywords, startIndex, numToGet);
+        CompletableFuture<BookList> waiter = search.join();
+        search.request = openLibraryAPI.searchBooksAsync(keywords, startIndex, numToGet);
+        search.request.whenComplete((bookList, e) -> {
+            if (e == null) {
+                cache(key, bookList);
+                log.info("Search result fetched and cached: [keywords='{}'] - {} books returned", keywords, bookList.getBooks().size());
+                search.result.complete(bookList);
+            } else {
+                search.result.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            }
+            runningSearches.remove(key, search);
+        });
+        return waiter;
+    }
+
+    /**
+     * Returns the serialized form of a search result (e.g. the JSON of the anonymous HTTP response). It is created on
+     * first use and kept next to the cache entry of the search, so later requests for the cached result skip the
+     * mapping and the serialization. A result that is not (or no longer) the cached one is serialized every time.
+     *
+     * @param keywords   Search keywords
+     * @param startIndex Pagination start index
+     * @param numToGet   Number of books to retrieve
+     * @param bookList   the result of the search, as returned by this factory
+     * @param serializer creates the serialized form of the result
+     * @return The serialized form (must not be modified).
+     */
+    public byte[] getSerializedSearchResult(String keywords, int startIndex, int numToGet, BookList bookList, Supplier<byte[]> serializer) {
+        CacheEntry<BookList> entry = bookListCache.get(new SearchResultFlyweightKey(keywords, startIndex, numToGet));
+        if (entry == null || entry.value != bookList) {
+            return serializer.get();
+        }
+        return entry.serialized(serializer);
+    }
+
+    /**
+     * Caches a search result and stamps it with the version of the cache entry, which identifies the cached data (e.g. as
+     * entity tag of the HTTP responses).
+     *
+     * @param key the search
+     * @param bookList the result of the search
+     */
+    private void cache(SearchResultFlyweightKey key, BookList bookList) {
+        CacheEntry<BookList> entry = new CacheEntry<>(bookList);
+        bookList.setCacheVersion(entry.timestamp);
+        bookListCache.put(key, entry);
+    }
+
+    /**
+     * Waits for a search started by another thread and rethrows its exception.
+     *
+     * @param search the running search
+     * @return the result of the search
+     * @throws UnexpectedStatusException if the search failed with an unexpected status code
+     * @throws IOException if the search failed due to a network or parsing error, or waiting was interrupted
+     */
+    private static BookList await(CompletableFuture<BookList> search) throws UnexpectedStatusException, IOException {
+        try {
+            return search.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for OpenLibrary", e);
+        } catch (ExecutionException e) {
+            switch (e.getCause()) {
+                case UnexpectedStatusException cause -> throw cause;
+                case IOException cause -> throw cause;
+                case RuntimeException cause -> throw cause;
+                default -> throw new IllegalStateException(e.getCause());
+            }
+        }
     }
 
     /**
      * Periodically cleans up expired entries from the cache to prevent memory leaks.
      * Runs every 10 minutes.
+     * It deliberately runs on every node rather than as a {@link de.throsenheim.inf.sqs.christophpircher.mylibbackend.scheduling.ClusterSingleton}, since each node owns its own cache.
      */
     @Scheduled(fixedDelay = 10 * 60 * 1000) // Every 10 minutes
-    private void cleanupCache() {
+    void cleanupCache() {
         long now = System.currentTimeMillis();
         int before = bookListCache.size();
         bookListCache.entrySet().removeIf(entry -> entry.getValue().isExpired(now, TTL_MILLIS));
@@ -87,6 +243,47 @@ public class SearchResultFlyweightFactory {
     }
 
 
+    /**
+     * A request to the OpenLibrary search.
+     */
+    @FunctionalInterface
+    private interface OpenLibrarySearch {
+        BookList fetch() throws UnexpectedStatusException, IOException;
+    }
+
+    /**
+     * A search that is currently running, with the callers waiting for it.
+     */
+    private static final class RunningSearch {
+
+        // Completed with the result of the search
+        private final CompletableFuture<BookList> result = new CompletableFuture<>();
+
+        // Callers that wait for the search and have not cancelled
+        private final AtomicInteger waiters = new AtomicInteger();
+
+        // The asynchronous request to OpenLibrary, null for a synchronous search, which cannot be cancelled
+        private volatile CompletableFuture<BookList> request;
+
+        /**
+         * Adds a caller that waits for the search.
+         *
+         * @return a future for this caller, which cancels the request when it is cancelled by the last waiting caller
+         */
+        CompletableFuture<BookList> join() {
+            waiters.incrementAndGet();
+            CompletableFuture<BookList> waiter = result.thenApply(Function.identity());
+            waiter.whenComplete((bookList, e) -> {
+                CompletableFuture<BookList> running = request;
+                if (waiter.isCancelled() && waiters.decrementAndGet() == 0 && running != null) {
+                    log.debug("All callers cancelled the search, cancelling the request to OpenLibrary");
+                    running.cancel(true);
+                }
+            });
+            return waiter;
+        }
+    }
+
     /**
      * Composite key representing a unique search query, based on keywords, start index, and result count.
      * Used for deduplication and lookup in the cache.
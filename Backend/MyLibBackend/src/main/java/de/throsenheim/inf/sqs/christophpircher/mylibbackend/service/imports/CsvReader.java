@@ -0,0 +1,141 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.imports;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidImportFileException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental reader for CSV files as described in RFC 4180.
+ * <p>
+ * Reads one record at a time, so only the current record is held in memory regardless of the size of the file.
+ * Fields may be quoted with double quotes, which allows commas, line breaks and (doubled) quotes within a field.
+ * Records are separated by LF or CRLF. A byte order mark at the start of the file is skipped, since spreadsheet
+ * applications like to write one.
+ * </p>
+ *
+ * @see LibraryCsvFormat
+ */
+public class CsvReader {
+
+    /**
+     * Maximum number of characters of one record. Longer records are rejected, so a file that is no CSV file
+     * (e.g. with an unterminated quote) cannot be read into memory as one huge field.
+     */
+    static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    private static final int BYTE_ORDER_MARK = '\uFEFF';
+
+    private final Reader reader;
+
+    /**
+     * Character that was read ahead after a CR, -2 if there is none.
+     */
+    private int lookahead = -2;
+
+    private int recordNumber = 0;
+
+    /**
+     * Creates a reader for the CSV data of a character stream.
+     *
+     * @param reader the CSV data, not buffered
+     */
+    public CsvReader(Reader reader) {
+        this.reader = new BufferedReader(reader);
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return the fields of the record, {@code null} at the end of the file
+     * @throws IOException if the data cannot be read
+     * @throws InvalidImportFileException if the record is longer than {@link #MAX_RECORD_LENGTH} characters
+     */
+    public List<String> readRecord() throws IOException, InvalidImportFileException {
+        int c = read();
+        if (recordNumber == 0 && c == BYTE_ORDER_MARK) {
+            c = read();
+        }
+        if (c == -1) {
+            return null;
+        }
+        recordNumber++;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int length = 0;
+        while (true) {
+            if (++length > MAX_RECORD_LENGTH) {
+                throw new InvalidImportFileException("Record " + recordNumber + " is longer than " + MAX_RECORD_LENGTH + " characters");
+            }
+            if (quoted) {
+                if (c == -1) {
+                    // Unterminated quote, the field extends to the end of the file
+                    fields.add(field.toString());
+                    return fields;
+                }
+                if (c == '"') {
+                    c = read();
+                    if (c != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                }
+                field.append((char) c);
+            } else if (c == -1 || c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    skipLineFeed();
+                }
+                fields.add(field.toString());
+                return fields;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * Number of the record that was read last, starting at 1 for the first record.
+     *
+     * @return the number of records read so far
+     */
+    public int getRecordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * Checks whether a record is an empty line.
+     *
+     * @param record the fields of the record
+     * @return {@code true} if the record consists of a single blank field
+     */
+    public static boolean isBlank(List<String> record) {
+        return record.size() == 1 && record.getFirst().isBlank();
+    }
+
+    private int read() throws IOException {
+        if (lookahead != -2) {
+            int c = lookahead;
+            lookahead = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private void skipLineFeed() throws IOException {
+        int c = reader.read();
+        if (c != '\n') {
+            lookahead = c;
+        }
+    }
+}
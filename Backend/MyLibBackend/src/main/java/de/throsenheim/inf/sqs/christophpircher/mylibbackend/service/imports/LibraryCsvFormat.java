@@ -0,0 +1,184 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.imports;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidImportFileException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidIsbnException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.ImportJobRow;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.ImportJobRowKey;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Isbn;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.ReadingStatus;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Column layout of a library CSV file, detected from its header.
+ * <p>
+ * Column names are compared case-insensitively and without spaces and punctuation, so both the Goodreads export
+ * ({@code ISBN}, {@code ISBN13}, {@code My Rating}, {@code Exclusive Shelf}) and simple hand-written files
+ * ({@code isbn}, {@code bookID}, {@code rating}, {@code status}) are understood. A file needs at least an ISBN or an
+ * OpenLibrary ID column; rating and reading status are optional.
+ * </p>
+ *
+ * @see CsvReader
+ * @see ImportJobRow
+ */
+public class LibraryCsvFormat {
+
+    private static final Set<String> ISBN13_COLUMNS = Set.of("isbn13");
+    private static final Set<String> ISBN_COLUMNS = Set.of("isbn", "isbn10");
+    private static final Set<String> BOOK_ID_COLUMNS = Set.of("bookid", "openlibraryid", "olid");
+    private static final Set<String> RATING_COLUMNS = Set.of("myrating", "rating");
+    private static final Set<String> STATUS_COLUMNS = Set.of("exclusiveshelf", "readingstatus", "status", "shelf");
+
+    /**
+     * OpenLibrary edition IDs. Other tools also have a "Book Id" column (e.g. the numeric Goodreads IDs), those are ignored.
+     */
+    private static final Pattern OPEN_LIBRARY_ID = Pattern.compile("OL\\d+M");
+
+    private final int isbn13Column;
+    private final int isbnColumn;
+    private final int bookIDColumn;
+    private final int ratingColumn;
+    private final int statusColumn;
+
+    private LibraryCsvFormat(List<String> columns) {
+        this.isbn13Column = indexOf(columns, ISBN13_COLUMNS);
+        this.isbnColumn = indexOf(columns, ISBN_COLUMNS);
+        this.bookIDColumn = indexOf(columns, BOOK_ID_COLUMNS);
+        this.ratingColumn = indexOf(columns, RATING_COLUMNS);
+        this.statusColumn = indexOf(columns, STATUS_COLUMNS);
+    }
+
+    /**
+     * Detects the column layout from the header of a file.
+     *
+     * @param header the first record of the file, {@code null} if the file is empty
+     * @return the column layout
+     * @throws InvalidImportFileException if the file is empty or has neither an ISBN nor an OpenLibrary ID column
+     */
+    public static LibraryCsvFormat fromHeader(List<String> header) throws InvalidImportFileException {
+        if (header == null) {
+            throw new InvalidImportFileException("The CSV file is empty");
+        }
+        LibraryCsvFormat format = new LibraryCsvFormat(header.stream().map(LibraryCsvFormat::normalizeColumnName).toList());
+        if (format.isbn13Column < 0 && format.isbnColumn < 0 && format.bookIDColumn < 0) {
+            throw new InvalidImportFileException("The CSV file has no ISBN or OpenLibrary ID column");
+        }
+        return format;
+    }
+
+    /**
+     * Converts a record of the file into a row of an import.
+     * <p>
+     * A valid OpenLibrary ID takes precedence over the ISBN. Invalid ISBNs, ratings and reading statuses are left out,
+     * so a row without any usable book identifier is stored without one (and counted as invalid when it is processed).
+     * </p>
+     *
+     * @param jobId ID of the import
+     * @param line number of the row within the import
+     * @param record the fields of the record
+     * @return the row
+     */
+    public ImportJobRow toRow(UUID jobId, int line, List<String> record) {
+        String bookID = value(record, bookIDColumn);
+        if (bookID != null && !OPEN_LIBRARY_ID.matcher(bookID).matches()) {
+            bookID = null;
+        }
+        String isbn = toIsbn13(value(record, isbn13Column));
+        if (isbn == null) {
+            isbn = toIsbn13(value(record, isbnColumn));
+        }
+        return ImportJobRow.builder()
+                .id(new ImportJobRowKey(jobId, line))
+                .bookID(bookID)
+                .isbn(isbn)
+                .rating(toRating(value(record, ratingColumn)))
+                .readingStatus(toReadingStatus(value(record, statusColumn)))
+                .build();
+    }
+
+    /**
+     * Reads a field of a record.
+     * <p>
+     * Goodreads wraps the ISBNs in a formula ({@code ="0345498526"}), so spreadsheet applications keep the leading zeros.
+     * The formula is removed.
+     * </p>
+     *
+     * @param record the fields of the record
+     * @param column index of the column, negative if the file has no such column
+     * @return the trimmed value, {@code null} if it is empty or missing
+     */
+    static String value(List<String> record, int column) {
+        if (column < 0 || column >= record.size()) {
+            return null;
+        }
+        String value = record.get(column).strip();
+        if (value.startsWith("=\"") && value.endsWith("\"") && value.length() >= 3) {
+            value = value.substring(2, value.length() - 1).strip();
+        }
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Converts a rating of the file. Goodreads uses 0 for books that are not rated.
+     *
+     * @param rating the rating as read from the file
+     * @return the rating between 1 and 5, or 0 if the value is missing or no such rating
+     */
+    static int toRating(String rating) {
+        if (rating == null) {
+            return 0;
+        }
+        try {
+            int stars = (int) Math.round(Double.parseDouble(rating));
+            return stars >= 1 && stars <= 5 ? stars : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Converts a reading status or Goodreads shelf of the file.
+     *
+     * @param status the status as read from the file, e.g. {@code READ} or {@code currently-reading}
+     * @return the reading status, {@code null} if the value is missing or unknown (e.g. a custom shelf)
+     */
+    static ReadingStatus toReadingStatus(String status) {
+        if (status == null) {
+            return null;
+        }
+        return switch (normalizeColumnName(status)) {
+            case "read" -> ReadingStatus.READ;
+            case "reading", "currentlyreading" -> ReadingStatus.READING;
+            case "unread", "toread" -> ReadingStatus.UNREAD;
+            default -> null;
+        };
+    }
+
+    private static String toIsbn13(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        try {
+            return Isbn.toIsbn13(isbn);
+        } catch (InvalidIsbnException e) {
+            return null;
+        }
+    }
+
+    private static String normalizeColumnName(String name) {
+        return name.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+    }
+
+    private static int indexOf(List<String> columns, Set<String> names) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (names.contains(columns.get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,221 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.imports;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.BulkLimitExceededException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidImportFileException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.*;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.ImportJobRepository;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.ImportJobRowRepository;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.BookService;
+import jakarta.persistence.EntityManager;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Service class for importing CSV files (e.g. a Goodreads export) into the library of a user.
+ * <p>
+ * An upload is only parsed and stored: the file is read record by record and its rows are inserted in JDBC batches as
+ * {@link ImportJobRow}s of a new {@link ImportJob}. The books are resolved and added to the library later by the
+ * {@link LibraryImportWorker}, one chunk of rows per transaction, so the request thread neither waits for OpenLibrary
+ * nor holds the file in memory.
+ * </p>
+ *
+ * @see LibraryImportWorker
+ * @see LibraryCsvFormat
+ */
+@Service
+@Slf4j
+@AllArgsConstructor
+public class LibraryImportService {
+
+    /**
+     * Maximum number of rows of one import.
+     */
+    public static final int MAX_IMPORT_ROWS = 50_000;
+
+    /**
+     * Number of rows that are processed in one transaction. At most {@link BookService#MAX_BULK_BOOKS}.
+     */
+    static final int CHUNK_SIZE = 50;
+
+    /**
+     * Number of rows that are inserted before the persistence context is flushed and cleared during an upload.
+     */
+    static final int STAGING_BATCH_SIZE = 500;
+
+    private static final List<ImportJobStatus> ACTIVE_STATUSES = List.of(ImportJobStatus.QUEUED, ImportJobStatus.RUNNING);
+
+    private ImportJobRepository importJobRepository;
+    private ImportJobRowRepository importJobRowRepository;
+    private BookService bookService;
+    private EntityManager entityManager;
+
+    /**
+     * Stores an uploaded CSV file as a new import, which is processed in the background.
+     * <p>
+     * Nothing is stored if the file cannot be imported.
+     * </p>
+     *
+     * @param csv the CSV file, UTF-8 encoded
+     * @param user the user whose library the books are imported into
+     * @return the queued import
+     * @throws IOException if the file cannot be read
+     * @throws InvalidImportFileException if the file is empty, has no ISBN or OpenLibrary ID column, or is no CSV file
+     * @throws BulkLimitExceededException if the file has more than {@link #MAX_IMPORT_ROWS} rows
+     */
+    @Transactional(rollbackFor = {IOException.class, InvalidImportFileException.class, BulkLimitExceededException.class})
+    public ImportJob createImport(InputStream csv, User user) throws IOException, InvalidImportFileException, BulkLimitExceededException {
+        CsvReader reader = new CsvReader(new InputStreamReader(csv, StandardCharsets.UTF_8));
+        LibraryCsvFormat format = LibraryCsvFormat.fromHeader(reader.readRecord());
+
+        ImportJob job = new ImportJob(UUID.randomUUID(), entityManager.getReference(User.class, user.getId()));
+        entityManager.persist(job);
+        entityManager.flush(); // The rows reference the job, but not as an association Hibernate would order the inserts by
+
+        int rows = 0;
+        List<String> record;
+        while ((record = reader.readRecord()) != null) {
+            if (CsvReader.isBlank(record)) {
+                continue;
+            }
+            if (++rows > MAX_IMPORT_ROWS) {
+                throw new BulkLimitExceededException("At most " + MAX_IMPORT_ROWS + " books can be imported at once");
+            }
+            entityManager.persist(format.toRow(job.getId(), rows, record));
+            if (rows % STAGING_BATCH_SIZE == 0) {
+                // Keeps the persistence context small, the rows are not needed after they are written
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        if (rows == 0) {
+            throw new InvalidImportFileException("The CSV file contains no books");
+        }
+
+        ImportJob stored = entityManager.find(ImportJob.class, job.getId());
+        stored.setTotalRows(rows);
+        log.info("User '{}' queued import {} with {} rows", user.getUsername(), stored.getId(), rows);
+        return stored;
+    }
+
+    /**
+     * Retrieves an import of a user, e.g. to show its progress.
+     *
+     * @param jobID ID of the import
+     * @param user the user
+     * @return the import, empty if it does not exist or belongs to another user
+     */
+    public Optional<ImportJob> getImport(UUID jobID, User user) {
+        return importJobRepository.findByIdAndUserId(jobID, user.getId());
+    }
+
+    /**
+     * Selects the import to work on next and marks it as running. Imports take turns chunk by chunk, the one that has
+     * made no progress for the longest time is next.
+     *
+     * @return the import, empty if no import is queued or running
+     */
+    @Transactional
+    public Optional<ImportJob> startNextImport() {
+        Optional<ImportJob> job = importJobRepository.findFirstByStatusInOrderByUpdatedAt(ACTIVE_STATUSES);
+        job.ifPresent(ImportJob::start);
+        return job;
+    }
+
+    /**
+     * Returns the next chunk of rows of an import that are still to be processed.
+     *
+     * @param job the import
+     * @return up to {@link #CHUNK_SIZE} rows in the order of the file
+     */
+    public List<ImportJobRow> getNextRows(ImportJob job) {
+        return importJobRowRepository.findRowsAfter(job.getId(), job.getProcessedRows(), PageRequest.ofSize(CHUNK_SIZE));
+    }
+
+    /**
+     * Adds the books of a chunk of rows to the user's library in one transaction, together with their ratings and
+     * reading statuses, and records the outcome of each row and the progress of the import.
+     * <p>
+     * The rows must have been resolved: they either have an OpenLibrary ID of a book that is in the database (or in the
+     * OpenLibrary cache), or already an outcome. The library entries, the row outcomes and the progress are written in
+     * JDBC batches. Later rows of the same book overwrite the rating and reading status of earlier ones.
+     * </p>
+     *
+     * <p>
+     * Nothing is changed if the import has made progress since the rows were read, i.e. the chunk was already imported
+     * by another worker.
+     * </p>
+     *
+     * @param started the import as returned by {@link #startNextImport()}
+     * @param resolved the resolved rows, as returned by {@link #getNextRows(ImportJob)}. Empty to complete an import without rows left
+     */
+    @Transactional
+    public void importRows(ImportJob started, List<ImportJobRow> resolved) {
+        UUID jobID = started.getId();
+        Optional<ImportJob> locked = importJobRepository.findForUpdateById(jobID);
+        if (locked.isEmpty() || locked.get().getStatus() != ImportJobStatus.RUNNING || locked.get().getProcessedRows() != started.getProcessedRows()) {
+            log.debug("Skipping chunk of import {} after row {}, it was processed concurrently", jobID, started.getProcessedRows());
+            return;
+        }
+        ImportJob job = locked.get();
+        User user = job.getUser();
+
+        List<String> bookIDs = resolved.stream().filter(row -> row.getStatus() == null).map(ImportJobRow::getBookID).distinct().toList();
+        Map<String, BulkResultStatus> added = new HashMap<>();
+        Map<String, Integer> ratings = new LinkedHashMap<>();
+        Map<String, ReadingStatus> statuses = new LinkedHashMap<>();
+        try {
+            bookService.addBooksToLibrary(bookIDs, user).forEach(result -> added.put(result.getBookID(), result.getStatus()));
+            for (ImportJobRow row : resolved) {
+                if (row.getStatus() == null && added.get(row.getBookID()) == BulkResultStatus.DONE) {
+                    if (row.getRating() > 0) {
+                        ratings.put(row.getBookID(), row.getRating());
+                    }
+                    if (row.getReadingStatus() != null) {
+                        statuses.put(row.getBookID(), row.getReadingStatus());
+                    }
+                }
+            }
+            bookService.rateBooks(ratings, user);
+            bookService.updateReadingStatuses(statuses, user);
+        } catch (BulkLimitExceededException e) {
+            throw new IllegalStateException("Import chunk exceeds the bulk limit", e);
+        }
+
+        Map<Integer, ImportJobRow> rows = new HashMap<>();
+        if (!resolved.isEmpty()) {
+            importJobRowRepository.findRowsAfter(jobID, job.getProcessedRows(), PageRequest.ofSize(resolved.size()))
+                    .forEach(row -> rows.put(row.getId().getLine(), row));
+        }
+        int lastLine = job.getProcessedRows();
+        for (ImportJobRow row : resolved) {
+            BulkResultStatus result = row.getStatus() != null ? row.getStatus() : added.get(row.getBookID());
+            ImportJobRow stored = rows.get(row.getId().getLine());
+            stored.setBookID(row.getBookID());
+            stored.setStatus(result);
+            job.countResult(result);
+            lastLine = Math.max(lastLine, row.getId().getLine());
+        }
+        job.advanceTo(lastLine);
+        log.info("Import {}: {} of {} rows processed", jobID, job.getProcessedRows(), job.getTotalRows());
+    }
+
+    /**
+     * Stops an import after an unexpected error.
+     *
+     * @param jobID ID of the import
+     * @param message message of the error
+     */
+    @Transactional
+    public void failImport(UUID jobID, String message) {
+        importJobRepository.findById(jobID).ifPresent(job -> job.fail(message));
+    }
+}
@@ -0,0 +1,200 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.imports;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.UnexpectedStatusException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Book;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BulkResult;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BulkResultStatus;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.ImportJob;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.ImportJobRow;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.scheduling.ClusterSingleton;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.BookService;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.flyweights.ExternalBookFlyweightFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background job that works on the queued library imports.
+ * <p>
+ * Every tick processes one chunk of rows of one import: the books are looked up in the database first, the missing
+ * ones are requested from OpenLibrary one after another, at most {@code import.openLibraryRequestsPerSecond} requests
+ * per second (default 3), so a large import neither gets the application rate limited by OpenLibrary nor starves the
+ * interactive requests. The resolved rows are then imported in one transaction by the {@link LibraryImportService}.
+ * No transaction is open while waiting for OpenLibrary.
+ * </p>
+ *
+ * <p>The job runs on one node of the cluster at a time, since the imports are shared through the database.
+ * It can be turned off with {@code import.enabled=false}, e.g. for nodes that should only serve requests.</p>
+ *
+ * @see LibraryImportService
+ * @see ClusterSingleton
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "import.enabled", havingValue = "true", matchIfMissing = true)
+public class LibraryImportWorker {
+
+    private final LibraryImportService libraryImportService;
+    private final BookService bookService;
+    private final ExternalBookFlyweightFactory externalBookFlyweightFactory;
+
+    /**
+     * Minimum time between two OpenLibrary requests in nanoseconds.
+     */
+    private final long requestIntervalNanos;
+
+    /**
+     * Earliest time of the next OpenLibrary request, as {@link System#nanoTime()}.
+     */
+    private long nextRequestNanos = System.nanoTime();
+
+    /**
+     * Constructor used by Spring Boot to inject the services and the configured request rate.
+     *
+     * @param libraryImportService service storing the imports
+     * @param bookService service for looking up stored books
+     * @param externalBookFlyweightFactory cached access to the OpenLibrary API
+     * @param environment Spring Boot environment object for accessing the request rate
+     */
+    public LibraryImportWorker(LibraryImportService libraryImportService, BookService bookService,
+                               ExternalBookFlyweightFactory externalBookFlyweightFactory, Environment environment) {
+        this.libraryImportService = libraryImportService;
+        this.bookService = bookService;
+        this.externalBookFlyweightFactory = externalBookFlyweightFactory;
+        double requestsPerSecond = environment.getProperty("import.openLibraryRequestsPerSecond", Double.class, 3.0);
+        this.requestIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+    }
+
+    /**
+     * Processes the next chunk of rows of the import that has made no progress for the longest time.
+     * <p>
+     * Errors while storing a chunk fail the import, so a broken row is not retried forever. Rows whose book cannot be
+     * requested from OpenLibrary only fail themselves. An interrupted chunk (e.g. on shutdown) is not committed and
+     * processed again later.
+     * </p>
+     */
+    @Scheduled(fixedDelayString = "${import.pollDelayMillis:1000}")
+    @ClusterSingleton("library-import")
+    public void importNextChunk() {
+        Optional<ImportJob> job = libraryImportService.startNextImport();
+        if (job.isEmpty()) {
+            return;
+        }
+        UUID jobID = job.get().getId();
+        try {
+            List<ImportJobRow> rows = libraryImportService.getNextRows(job.get());
+            resolveBooks(rows);
+            libraryImportService.importRows(job.get(), rows);
+        } catch (RuntimeException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                log.info("Import {} interrupted, it continues with the current chunk on the next tick", jobID);
+                return;
+            }
+            log.error("Import {} failed", jobID, e);
+            libraryImportService.failImport(jobID, e.getMessage());
+        }
+    }
+
+    /**
+     * Resolves the OpenLibrary ID of every row. Rows without a stored book ID are looked up by ISBN. Rows that cannot be
+     * resolved get their outcome ({@link BulkResultStatus#INVALID}, {@link BulkResultStatus#NOT_FOUND} or
+     * {@link BulkResultStatus#FAILED}).
+     * <p>
+     * Books fetched from OpenLibrary are kept in its cache, so adding them to the library afterward does not request them again.
+     * </p>
+     *
+     * @param rows the rows of the chunk
+     */
+    void resolveBooks(List<ImportJobRow> rows) {
+        Set<String> bookIDs = new HashSet<>();
+        Set<String> isbns = new HashSet<>();
+        for (ImportJobRow row : rows) {
+            if (row.getBookID() != null) {
+                bookIDs.add(row.getBookID());
+            } else if (row.getIsbn() != null) {
+                isbns.add(row.getIsbn());
+            } else {
+                row.setStatus(BulkResultStatus.INVALID);
+            }
+        }
+        Set<String> knownBookIDs = bookService.getKnownBooksById(bookIDs).keySet();
+        Map<String, Book> knownByIsbn = bookService.getKnownBooksByIsbn(isbns);
+
+        Map<String, BulkResultStatus> fetchedBookIDs = new HashMap<>();
+        Map<String, BulkResult> fetchedByIsbn = new HashMap<>();
+        for (ImportJobRow row : rows) {
+            if (row.getStatus() != null) {
+                continue;
+            }
+            if (row.getBookID() != null) {
+                if (!knownBookIDs.contains(row.getBookID())) {
+                    BulkResultStatus result = fetchedBookIDs.computeIfAbsent(row.getBookID(), this::fetchBookByID);
+                    row.setStatus(result == BulkResultStatus.DONE ? null : result);
+                }
+            } else if (knownByIsbn.containsKey(row.getIsbn())) {
+                row.setBookID(knownByIsbn.get(row.getIsbn()).getBookID());
+            } else {
+                BulkResult result = fetchedByIsbn.computeIfAbsent(row.getIsbn(), this::fetchBookByIsbn);
+                row.setBookID(result.getBookID());
+                row.setStatus(result.getStatus() == BulkResultStatus.DONE ? null : result.getStatus());
+            }
+        }
+    }
+
+    /**
+     * Requests a book by its OpenLibrary ID, so it is cached when it is added to the library.
+     *
+     * @param bookID the book's OpenLibrary ID
+     * @return {@link BulkResultStatus#DONE} if the book exists, {@link BulkResultStatus#NOT_FOUND} or {@link BulkResultStatus#FAILED} otherwise
+     */
+    private BulkResultStatus fetchBookByID(String bookID) {
+        awaitRequestSlot();
+        try {
+            return externalBookFlyweightFactory.getBookByID(bookID).isPresent() ? BulkResultStatus.DONE : BulkResultStatus.NOT_FOUND;
+        } catch (UnexpectedStatusException | IOException e) {
+            log.warn("Lookup of book '{}' failed: {}", bookID, e.getMessage());
+            return BulkResultStatus.FAILED;
+        }
+    }
+
+    /**
+     * Requests a book by its ISBN.
+     *
+     * @param isbn the normalized ISBN-13
+     * @return the OpenLibrary ID of the book with {@link BulkResultStatus#DONE}, or no ID with {@link BulkResultStatus#NOT_FOUND} or {@link BulkResultStatus#FAILED}
+     */
+    private BulkResult fetchBookByIsbn(String isbn) {
+        awaitRequestSlot();
+        try {
+            return externalBookFlyweightFactory.getBookByIsbn(isbn)
+                    .map(book -> new BulkResult(book.getBookID(), BulkResultStatus.DONE))
+                    .orElseGet(() -> new BulkResult(null, BulkResultStatus.NOT_FOUND));
+        } catch (UnexpectedStatusException | IOException e) {
+            log.warn("Lookup of ISBN '{}' failed: {}", isbn, e.getMessage());
+            return new BulkResult(null, BulkResultStatus.FAILED);
+        }
+    }
+
+    /**
+     * Waits until the next OpenLibrary request is allowed by the configured rate.
+     */
+    private void awaitRequestSlot() {
+        long now = System.nanoTime();
+        long waitNanos = nextRequestNanos - now;
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for OpenLibrary", e);
+            }
+        }
+        nextRequestNanos = Math.max(now, nextRequestNanos) + requestIntervalNanos;
+    }
+}
@@ -0,0 +1,458 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.search;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory full-text index over the titles, subtitles and authors of books.
+ * <p>
+ * An inverted index: every term maps to a {@link PostingList} of the documents (books) containing it, stored in primitive
+ * int arrays. Every term is also registered under its trigrams, so a misspelled query term still matches the indexed terms
+ * sharing most of its trigrams. The matches are ranked with BM25, the term frequencies weighted by field (a term in the
+ * title counts more than one in the authors or the subtitle).
+ * </p>
+ * <p>
+ * A search matches the books containing every query term (or a similar term), like the full-text search of the database.
+ * Books are only ever added, since stored books are not changed. Adding and searching are thread-safe: searches run in
+ * parallel, an addition blocks them for its (short) duration.
+ * </p>
+ *
+ * @see BookSearchIndexer
+ */
+public class BookSearchIndex {
+
+    /**
+     * BM25 parameter controlling how quickly repeated occurrences of a term stop adding to the score.
+     */
+    static final float K1 = 1.2f;
+
+    /**
+     * BM25 parameter controlling how much the score is normalized by the length of the book's text.
+     */
+    static final float B = 0.75f;
+
+    // Weights of the fields: an occurrence of a term adds the weight of its field to the term frequency (and the length)
+    static final int TITLE_WEIGHT = 3;
+    static final int SUBTITLE_WEIGHT = 2;
+    static final int AUTHOR_WEIGHT = 2;
+
+    /**
+     * Smallest trigram similarity (Dice coefficient) of an indexed term to a query term to count as a match.
+     */
+    static final float MIN_SIMILARITY = 0.5f;
+
+    /**
+     * Maximum number of similar terms a query term is expanded to, besides the term itself.
+     */
+    static final int MAX_EXPANSIONS = 5;
+
+    /**
+     * Maximum number of distinct terms of a query; the matched terms of a book are tracked as bits of an int.
+     */
+    static final int MAX_QUERY_TERMS = 16;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Documents by document number, which is the order they were added in
+    private final Map<UUID, Integer> documentNumbers = new HashMap<>();
+    private UUID[] documentIds = new UUID[16];
+    private int[] documentLengths = new int[16];
+    private int documentCount;
+    private long totalLength;
+
+    // Terms by term number
+    private final Map<String, Integer> termNumbers = new HashMap<>();
+    private PostingList[] postings = new PostingList[16];
+    private int[] trigramCounts = new int[16];
+    private int termCount;
+
+    // Term numbers by trigram, for the similar terms of a query term
+    private final Map<Long, IntList> termsByTrigram = new HashMap<>();
+
+    // Buffers of finished searches, reused by the following ones
+    private final Queue<Accumulator> accumulators = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Adds a book to the index, unless it is already indexed.
+     *
+     * @param id internal ID of the book
+     * @param title title of the book, may be {@code null}
+     * @param subtitle subtitle of the book, may be {@code null}
+     * @param authors names of the authors, may be {@code null}
+     * @return {@code true} if the book was added, {@code false} if it was already indexed
+     */
+    public boolean add(UUID id, String title, String subtitle, Collection<String> authors) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = addTerms(frequencies, title, TITLE_WEIGHT) + addTerms(frequencies, subtitle, SUBTITLE_WEIGHT);
+        if (authors != null) {
+            for (String author : authors) {
+                length += addTerms(frequencies, author, AUTHOR_WEIGHT);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (documentNumbers.containsKey(id)) {
+                return false;
+            }
+            int document = documentCount;
+            if (document == documentIds.length) {
+                documentIds = Arrays.copyOf(documentIds, document * 2);
+                documentLengths = Arrays.copyOf(documentLengths, document * 2);
+            }
+            documentIds[document] = id;
+            documentLengths[document] = length;
+            documentNumbers.put(id, document);
+            documentCount++;
+            totalLength += length;
+            frequencies.forEach((term, frequency) -> {
+                int number = termNumber(term); // may grow the postings array
+                postings[number].add(document, frequency);
+            });
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether a book is indexed.
+     *
+     * @param id internal ID of the book
+     * @return {@code true} if the book is indexed
+     */
+    public boolean contains(UUID id) {
+        lock.readLock().lock();
+        try {
+            return documentNumbers.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of indexed books
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Searches the books containing all terms of a query, allowing for misspelled terms.
+     *
+     * @param query the search keywords
+     * @param offset number of matches to skip
+     * @param limit maximum number of matches to return
+     * @return the page of matches, best match first (ties in the order the books were added), and the number of all matches
+     */
+    public IndexSearchResult search(String query, int offset, int limit) {
+        List<String> queryTerms = tokenize(query).stream().distinct().limit(MAX_QUERY_TERMS).toList();
+        if (queryTerms.isEmpty()) {
+            return IndexSearchResult.EMPTY;
+        }
+        lock.readLock().lock();
+        Accumulator accumulator = Objects.requireNonNullElseGet(accumulators.poll(), Accumulator::new);
+        try {
+            accumulator.ensureCapacity(documentCount, termCount);
+            return search(queryTerms, offset, limit, accumulator);
+        } finally {
+            accumulator.reset();
+            accumulators.offer(accumulator);
+            lock.readLock().unlock();
+        }
+    }
+
+    private IndexSearchResult search(List<String> queryTerms, int offset, int limit, Accumulator accumulator) {
+        List<List<Expansion>> expandedTerms = new ArrayList<>();
+        for (String term : queryTerms) {
+            List<Expansion> expansions = expand(term, accumulator);
+            if (expansions.isEmpty()) {
+                return IndexSearchResult.EMPTY;
+            }
+            expandedTerms.add(expansions);
+        }
+        // The rarest term first: only its documents can match all terms, the other terms only add to their scores
+        expandedTerms.sort(Comparator.comparingLong(this::documentFrequency));
+
+        float[] scores = accumulator.scores;
+        int[] masks = accumulator.masks;
+        float averageLength = (float) totalLength / documentCount;
+        int required = 0;
+        for (int i = 0; i < expandedTerms.size(); i++) {
+            int bit = 1 << i;
+            for (Expansion expansion : expandedTerms.get(i)) {
+                PostingList postingList = postings[expansion.term];
+                float idf = (float) Math.log(1 + (documentCount - postingList.size() + 0.5) / (postingList.size() + 0.5));
+                for (int j = 0; j < postingList.size(); j++) {
+                    int document = postingList.document(j);
+                    if ((masks[document] & required) != required) {
+                        continue;
+                    }
+                    if (masks[document] == 0) {
+                        accumulator.documents.add(document);
+                    }
+                    int frequency = postingList.frequency(j);
+                    float norm = K1 * (1 - B + B * documentLengths[document] / averageLength);
+                    scores[document] += expansion.weight * idf * frequency * (K1 + 1) / (frequency + norm);
+                    masks[document] |= bit;
+                }
+            }
+            required |= bit;
+        }
+
+        IntList matches = accumulator.matches;
+        for (int i = 0; i < accumulator.documents.size(); i++) {
+            int document = accumulator.documents.get(i);
+            if (masks[document] == required) {
+                matches.add(document);
+            }
+        }
+        if (offset >= matches.size()) {
+            return new IndexSearchResult(List.of(), matches.size());
+        }
+        int[] top = topDocuments(matches, scores, (int) Math.min((long) offset + limit, matches.size()));
+        List<UUID> ids = new ArrayList<>(top.length - offset);
+        for (int i = offset; i < top.length; i++) {
+            ids.add(documentIds[top[i]]);
+        }
+        return new IndexSearchResult(ids, matches.size());
+    }
+
+    /**
+     * Finds the indexed terms matching a query term: the term itself (weight 1) and the most similar terms by trigrams
+     * (weighted by their similarity).
+     */
+    private List<Expansion> expand(String term, Accumulator accumulator) {
+        List<Expansion> expansions = new ArrayList<>();
+        Integer exact = termNumbers.get(term);
+        if (exact != null) {
+            expansions.add(new Expansion(exact, 1f));
+        }
+
+        long[] trigrams = trigrams(term);
+        int[] shared = accumulator.sharedTrigrams;
+        IntList candidates = accumulator.candidateTerms;
+        for (long trigram : trigrams) {
+            IntList terms = termsByTrigram.get(trigram);
+            if (terms == null) {
+                continue;
+            }
+            for (int i = 0; i < terms.size(); i++) {
+                int candidate = terms.get(i);
+                if (shared[candidate]++ == 0) {
+                    candidates.add(candidate);
+                }
+            }
+        }
+        List<Expansion> similar = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            int candidate = candidates.get(i);
+            float similarity = 2f * shared[candidate] / (trigrams.length + trigramCounts[candidate]);
+            shared[candidate] = 0;
+            if (similarity >= MIN_SIMILARITY && (exact == null || candidate != exact)) {
+                similar.add(new Expansion(candidate, similarity));
+            }
+        }
+        candidates.clear();
+
+        similar.sort((a, b) -> Float.compare(b.weight, a.weight));
+        expansions.addAll(similar.subList(0, Math.min(MAX_EXPANSIONS, similar.size())));
+        return expansions;
+    }
+
+    private long documentFrequency(List<Expansion> expansions) {
+        long frequency = 0;
+        for (Expansion expansion : expansions) {
+            frequency += postings[expansion.term].size();
+        }
+        return frequency;
+    }
+
+    /**
+     * Returns the number of a term, registering the term (and its trigrams) if it is new. Only called with the write lock.
+     */
+    private int termNumber(String term) {
+        Integer number = termNumbers.get(term);
+        if (number != null) {
+            return number;
+        }
+        int created = termCount++;
+        if (created == postings.length) {
+            postings = Arrays.copyOf(postings, created * 2);
+            trigramCounts = Arrays.copyOf(trigramCounts, created * 2);
+        }
+        postings[created] = new PostingList();
+        long[] trigrams = trigrams(term);
+        trigramCounts[created] = trigrams.length;
+        for (long trigram : trigrams) {
+            termsByTrigram.computeIfAbsent(trigram, key -> new IntList()).add(created);
+        }
+        termNumbers.put(term, created);
+        return created;
+    }
+
+    private static int addTerms(Map<String, Integer> frequencies, String text, int weight) {
+        List<String> terms = tokenize(text);
+        for (String term : terms) {
+            frequencies.merge(term, weight, Integer::sum);
+        }
+        return terms.size() * weight;
+    }
+
+    /**
+     * Splits a text into terms: lower case letters and digits without diacritics.
+     *
+     * @param text the text, may be {@code null}
+     * @return the terms in the order of the text
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+        List<String> terms = new ArrayList<>();
+        for (String term : SEPARATORS.split(normalized)) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Returns the distinct trigrams of a term, padded so the beginning of the term weighs more than its end. Every trigram
+     * is encoded as the three chars in one long.
+     *
+     * @param term the term
+     * @return the sorted distinct trigrams
+     */
+    static long[] trigrams(String term) {
+        String padded = "  " + term + " ";
+        long[] trigrams = new long[padded.length() - 2];
+        for (int i = 0; i < trigrams.length; i++) {
+            trigrams[i] = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+        }
+        return Arrays.stream(trigrams).sorted().distinct().toArray();
+    }
+
+    /**
+     * Selects the best {@code k} documents with a bounded heap (the worst of them at its root) and sorts them.
+     */
+    private static int[] topDocuments(IntList documents, float[] scores, int k) {
+        int[] heap = new int[k];
+        int size = 0;
+        for (int i = 0; i < documents.size(); i++) {
+            int document = documents.get(i);
+            if (size < k) {
+                heap[size] = document;
+                siftUp(heap, size++, scores);
+            } else if (isWorse(heap[0], document, scores)) {
+                heap[0] = document;
+                siftDown(heap, size, scores);
+            }
+        }
+        // Moving the worst document to the end of the heap until it is empty sorts the documents best first
+        for (int end = size - 1; end > 0; end--) {
+            swap(heap, 0, end);
+            siftDown(heap, end, scores);
+        }
+        return heap;
+    }
+
+    private static boolean isWorse(int document, int other, float[] scores) {
+        return scores[document] < scores[other] || (scores[document] == scores[other] && document > other);
+    }
+
+    private static void siftUp(int[] heap, int index, float[] scores) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!isWorse(heap[index], heap[parent], scores)) {
+                return;
+            }
+            swap(heap, index, parent);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, float[] scores) {
+        int index = 0;
+        while (2 * index + 1 < size) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && isWorse(heap[child + 1], heap[child], scores)) {
+                child++;
+            }
+            if (!isWorse(heap[child], heap[index], scores)) {
+                return;
+            }
+            swap(heap, index, child);
+            index = child;
+        }
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        int value = array[i];
+        array[i] = array[j];
+        array[j] = value;
+    }
+
+    /**
+     * An indexed term matching a query term, with the weight of its scores.
+     */
+    private static final class Expansion {
+        private final int term;
+        private final float weight;
+
+        private Expansion(int term, float weight) {
+            this.term = term;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Per search buffers, indexed by document and term number. Only the touched entries are cleared after a search, so
+     * their size (the number of indexed documents) does not add to the cost of a search.
+     */
+    private static final class Accumulator {
+        private float[] scores = new float[0];
+        private int[] masks = new int[0];
+        private int[] sharedTrigrams = new int[0];
+        private final IntList documents = new IntList();
+        private final IntList matches = new IntList();
+        private final IntList candidateTerms = new IntList();
+
+        void ensureCapacity(int documentCount, int termCount) {
+            if (scores.length < documentCount) {
+                scores = Arrays.copyOf(scores, documentCount);
+                masks = Arrays.copyOf(masks, documentCount);
+            }
+            if (sharedTrigrams.length < termCount) {
+                sharedTrigrams = Arrays.copyOf(sharedTrigrams, termCount);
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < documents.size(); i++) {
+                scores[documents.get(i)] = 0;
+                masks[documents.get(i)] = 0;
+            }
+            for (int i = 0; i < candidateTerms.size(); i++) {
+                sharedTrigrams[candidateTerms.get(i)] = 0;
+            }
+            documents.clear();
+            matches.clear();
+            candidateTerms.clear();
+        }
+    }
+}
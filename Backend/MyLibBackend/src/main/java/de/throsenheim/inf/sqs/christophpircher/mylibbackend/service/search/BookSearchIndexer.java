@@ -0,0 +1,194 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Keeps the {@link BookSearchIndex} of this node in sync with the book table.
+ * <p>
+ * The index is built from the database when the application is ready; until then, {@link #isReady()} is {@code false}
+ * and the internal search uses the database. Books stored by this node are added when their transaction is committed
+ * ({@link BookStoredEvent}). Books stored by other nodes of the cluster are picked up by a periodic check, every
+ * {@code search.index.refreshDelayMillis} (default 5 minutes). The check only loads the books created after the newest
+ * book loaded so far, less {@code search.index.refreshOverlapMillis} (default 10 minutes): a book is stamped with the
+ * start of the transaction storing it, so a book committed after the check may be older than the newest one loaded by it.
+ * </p>
+ *
+ * <p>Only active with {@code search.internal.mode=memory}, since every node holds the index of all books in memory.</p>
+ *
+ * @see BookSearchIndex
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "search.internal.mode", havingValue = "memory")
+public class BookSearchIndexer {
+
+    /**
+     * Number of rows fetched from the database at a time. PostgreSQL only fetches the result in parts inside a transaction.
+     */
+    static final int FETCH_SIZE = 500;
+
+    /**
+     * The indexed columns of the books created after the given time, one row per author. The rows of a book are consecutive.
+     */
+    static final String LOAD_QUERY = "SELECT b.id, b.title, b.subtitle, b.created_at, a.name AS author FROM book b " +
+            "LEFT JOIN book_author ba ON ba.book_id = b.id LEFT JOIN author a ON a.id = ba.author_id " +
+            "WHERE b.created_at > ? ORDER BY b.id, ba.position";
+
+    private final BookSearchIndex index = new BookSearchIndex();
+    private final JdbcTemplate jdbcTemplate;
+    private final long refreshOverlapMillis;
+
+    private volatile boolean ready;
+
+    /**
+     * Creation time of the newest book loaded from the database so far.
+     */
+    private volatile Instant newestLoaded = Instant.EPOCH;
+
+    /**
+     * Constructor used by Spring Boot to inject the dependencies.
+     *
+     * @param jdbcTemplate used to read the books while building the index
+     * @param refreshOverlapMillis how far a refresh looks back before the newest book loaded so far
+     */
+    public BookSearchIndexer(JdbcTemplate jdbcTemplate, @Value("${search.index.refreshOverlapMillis:600000}") long refreshOverlapMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.refreshOverlapMillis = refreshOverlapMillis;
+    }
+
+    /**
+     * Builds the index from all books in the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void build() {
+        long start = System.currentTimeMillis();
+        int added = loadBooks(Instant.EPOCH);
+        ready = true;
+        log.info("Search index built with {} books in {} ms", added, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Adds the books stored by other nodes since the last refresh. Only the recently created books are read.
+     */
+    @Scheduled(initialDelayString = "${search.index.refreshDelayMillis:300000}", fixedDelayString = "${search.index.refreshDelayMillis:300000}")
+    @Transactional(readOnly = true)
+    public void refresh() {
+        if (!ready) {
+            return;
+        }
+        int added = loadBooks(newestLoaded.minusMillis(refreshOverlapMillis));
+        if (added > 0) {
+            log.info("Search index refreshed, {} books added", added);
+        }
+    }
+
+    /**
+     * Adds a book stored by this node once the transaction storing it is committed.
+     *
+     * @param event the stored book
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookStored(BookStoredEvent event) {
+        index.add(event.getId(), event.getTitle(), event.getSubtitle(), event.getAuthors());
+    }
+
+    /**
+     * @return {@code true} once the index contains all books that were stored at startup
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Searches the index, see {@link BookSearchIndex#search(String, int, int)}.
+     *
+     * @param keywords the search keywords
+     * @param offset number of matches to skip
+     * @param limit maximum number of matches to return
+     * @return one page of the matches and the total number of matches
+     */
+    public IndexSearchResult search(String keywords, int offset, int limit) {
+        return index.search(keywords, offset, limit);
+    }
+
+    /**
+     * Adds the books created after the given time, and moves {@link #newestLoaded} to the newest of them.
+     *
+     * @param createdAfter the creation time after which books are read
+     * @return the number of books added to the index, without the books that were already in it
+     */
+    private int loadBooks(Instant createdAfter) {
+        BookRowHandler handler = new BookRowHandler();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(LOAD_QUERY, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setTimestamp(1, Timestamp.from(createdAfter));
+            return statement;
+        }, handler);
+        handler.addCurrent();
+        if (handler.newest.isAfter(newestLoaded)) {
+            newestLoaded = handler.newest;
+        }
+        return handler.added;
+    }
+
+    /**
+     * Merges the consecutive rows of each book and adds the book once its last row was read.
+     */
+    private class BookRowHandler implements RowCallbackHandler {
+
+        private UUID id;
+        private String title;
+        private String subtitle;
+        private List<String> authors = new ArrayList<>();
+        private int added;
+        private Instant newest = Instant.EPOCH;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            UUID rowId = rs.getObject("id", UUID.class);
+            if (!rowId.equals(id)) {
+                addCurrent();
+                id = rowId;
+                title = rs.getString("title");
+                subtitle = rs.getString("subtitle");
+                authors = new ArrayList<>();
+                Instant createdAt = rs.getTimestamp("created_at").toInstant();
+                if (createdAt.isAfter(newest)) {
+                    newest = createdAt;
+                }
+            }
+            String author = rs.getString("author");
+            if (author != null) {
+                authors.add(author);
+            }
+        }
+
+        void addCurrent() {
+            // Checked first, so a refresh does not tokenize the books that are already indexed
+            if (id != null && !index.contains(id) && index.add(id, title, subtitle, authors)) {
+                added++;
+            }
+        }
+    }
+}
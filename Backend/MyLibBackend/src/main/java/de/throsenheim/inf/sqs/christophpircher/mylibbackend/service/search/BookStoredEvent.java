@@ -0,0 +1,39 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Published by the {@link de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.BookService} when a book fetched
+ * from OpenLibrary is stored, so the {@link BookSearchIndexer} can add it to the index once the transaction is committed.
+ * <p>
+ * Carries the indexed text instead of the entity, which must not be used after its transaction.
+ * </p>
+ */
+@Getter
+@AllArgsConstructor
+public class BookStoredEvent {
+
+    /**
+     * Internal ID of the book.
+     */
+    private final UUID id;
+
+    /**
+     * Title of the book.
+     */
+    private final String title;
+
+    /**
+     * Subtitle of the book, may be {@code null}.
+     */
+    private final String subtitle;
+
+    /**
+     * Names of the authors.
+     */
+    private final List<String> authors;
+}
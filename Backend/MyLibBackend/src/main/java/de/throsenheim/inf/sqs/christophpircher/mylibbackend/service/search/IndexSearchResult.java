@@ -0,0 +1,27 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One page of the matches of a {@link BookSearchIndex} search.
+ */
+@Getter
+@AllArgsConstructor
+public class IndexSearchResult {
+
+    static final IndexSearchResult EMPTY = new IndexSearchResult(List.of(), 0);
+
+    /**
+     * Internal IDs of the books of the page, best match first.
+     */
+    private final List<UUID> ids;
+
+    /**
+     * Total number of matching books.
+     */
+    private final int numResults;
+}
@@ -0,0 +1,39 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.search;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints, without the boxing of a {@code List<Integer>}.
+ */
+class IntList {
+
+    private int[] values;
+    private int size;
+
+    IntList() {
+        this(4);
+    }
+
+    IntList(int capacity) {
+        values = new int[capacity];
+    }
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length + (values.length >> 1) + 1);
+        }
+        values[size++] = value;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
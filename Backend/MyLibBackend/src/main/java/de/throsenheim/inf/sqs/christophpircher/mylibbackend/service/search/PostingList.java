@@ -0,0 +1,43 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.search;
+
+import java.util.Arrays;
+
+/**
+ * The documents containing one term of a {@link BookSearchIndex}, with the (field weighted) frequency of the term in each.
+ * <p>
+ * Stored as two parallel int arrays. Documents are appended in the order they are added to the index, so the document
+ * numbers are sorted.
+ * </p>
+ */
+class PostingList {
+
+    private int[] documents = new int[2];
+    private int[] frequencies = new int[2];
+    private int size;
+
+    void add(int document, int frequency) {
+        if (size == documents.length) {
+            int capacity = documents.length + (documents.length >> 1) + 1;
+            documents = Arrays.copyOf(documents, capacity);
+            frequencies = Arrays.copyOf(frequencies, capacity);
+        }
+        documents[size] = document;
+        frequencies[size] = frequency;
+        size++;
+    }
+
+    int document(int index) {
+        return documents[index];
+    }
+
+    int frequency(int index) {
+        return frequencies[index];
+    }
+
+    /**
+     * @return the number of documents containing the term (the document frequency)
+     */
+    int size() {
+        return size;
+    }
+}
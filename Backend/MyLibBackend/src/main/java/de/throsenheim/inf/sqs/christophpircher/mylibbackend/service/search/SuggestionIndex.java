@@ -0,0 +1,245 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.search;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Suggestion;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.SuggestionType;
+
+import java.util.*;
+
+/**
+ * Immutable prefix index for the typeahead suggestions.
+ * <p>
+ * Every suggestion is stored once as normalized text (lower case terms without diacritics, separated by single spaces).
+ * The index keys are the starts of the words of these texts (so "effect" suggests "Mass effect"), stored as a sorted
+ * array of (suggestion, offset) pairs instead of strings. The keys starting with a prefix are a range of this array,
+ * found by binary search. A segment tree over the popularity of the keys returns the most popular key of any range, so the
+ * top {@code k} suggestions of a prefix are found in {@code O(k log n)}, however many keys share the prefix.
+ * </p>
+ *
+ * <p>Created with a {@link Builder}; changes need a new index.</p>
+ *
+ * @see SuggestionService
+ */
+public class SuggestionIndex {
+
+    /**
+     * Number of words of a suggestion whose start is indexed. Later words of long titles are not suggested.
+     */
+    static final int MAX_WORD_STARTS = 8;
+
+    static final SuggestionIndex EMPTY = new Builder().build();
+
+    private final Suggestion[] suggestions;
+    private final String[] texts;
+    private final int[] keySuggestions;
+    private final int[] keyOffsets;
+
+    // Segment tree: the leaves (from index keyCount) are the keys, every inner node holds the most popular key of its children
+    private final int[] tree;
+
+    private SuggestionIndex(Suggestion[] suggestions, String[] texts, int[] keySuggestions, int[] keyOffsets) {
+        this.suggestions = suggestions;
+        this.texts = texts;
+        this.keySuggestions = keySuggestions;
+        this.keyOffsets = keyOffsets;
+        int keyCount = keySuggestions.length;
+        tree = new int[2 * keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            tree[keyCount + i] = i;
+        }
+        for (int node = keyCount - 1; node > 0; node--) {
+            tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Returns the most popular suggestions with a word starting with a prefix.
+     *
+     * @param prefix the typed text, normalized like the suggestions
+     * @param limit maximum number of suggestions
+     * @return the suggestions, most popular first (ties in alphabetical order)
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        int from = firstKeyNotBefore(normalized, false);
+        int to = firstKeyNotBefore(normalized, true);
+
+        // Best first search over the key range: taking the best key splits its range into the keys before and after it
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> a[2] == b[2] ? 0 : better(a[2], b[2]) == a[2] ? -1 : 1);
+        addRange(ranges, from, to);
+        List<Suggestion> result = new ArrayList<>(limit);
+        Set<Integer> seen = new HashSet<>();
+        while (result.size() < limit && !ranges.isEmpty()) {
+            int[] range = ranges.poll();
+            int key = range[2];
+            if (seen.add(keySuggestions[key])) {
+                result.add(suggestions[keySuggestions[key]]);
+            }
+            addRange(ranges, range[0], key);
+            addRange(ranges, key + 1, range[1]);
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of suggestions
+     */
+    public int size() {
+        return suggestions.length;
+    }
+
+    private void addRange(PriorityQueue<int[]> ranges, int from, int to) {
+        if (from < to) {
+            ranges.add(new int[]{from, to, bestKey(from, to)});
+        }
+    }
+
+    /**
+     * Returns the most popular key in {@code [from, to)}.
+     */
+    private int bestKey(int from, int to) {
+        int best = -1;
+        for (int left = from + keySuggestions.length, right = to + keySuggestions.length; left < right; left >>= 1, right >>= 1) {
+            if ((left & 1) == 1) {
+                best = better(best, tree[left++]);
+            }
+            if ((right & 1) == 1) {
+                best = better(best, tree[--right]);
+            }
+        }
+        return best;
+    }
+
+    private int better(int key, int other) {
+        if (key < 0 || other < 0) {
+            return Math.max(key, other);
+        }
+        int popularity = suggestions[keySuggestions[key]].getPopularity();
+        int otherPopularity = suggestions[keySuggestions[other]].getPopularity();
+        return popularity > otherPopularity || (popularity == otherPopularity && key < other) ? key : other;
+    }
+
+    /**
+     * Binary search for the first key that starts with the prefix ({@code afterPrefix == false}) or for the first key after
+     * the keys starting with it ({@code afterPrefix == true}).
+     */
+    private int firstKeyNotBefore(String prefix, boolean afterPrefix) {
+        int low = 0;
+        int high = keySuggestions.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = comparePrefix(middle, prefix);
+            if (comparison < 0 || (afterPrefix && comparison == 0)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares the start of a key to a prefix: 0 if the key starts with the prefix.
+     */
+    private int comparePrefix(int key, String prefix) {
+        String text = texts[keySuggestions[key]];
+        int offset = keyOffsets[key];
+        int length = Math.min(prefix.length(), text.length() - offset);
+        for (int i = 0; i < length; i++) {
+            int difference = text.charAt(offset + i) - prefix.charAt(i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return text.length() - offset < prefix.length() ? -1 : 0;
+    }
+
+    /**
+     * Normalizes a text like the indexed suggestions.
+     *
+     * @param text the text
+     * @return the lower case terms without diacritics, separated by single spaces
+     */
+    static String normalize(String text) {
+        return String.join(" ", BookSearchIndex.tokenize(text));
+    }
+
+    /**
+     * Collects the suggestions of a new {@link SuggestionIndex}. Suggestions with the same normalized text are merged: their
+     * popularity is summed up, the text and type of the first one are kept.
+     */
+    public static class Builder {
+
+        private final Map<String, Suggestion> suggestions = new HashMap<>();
+
+        /**
+         * Adds a suggestion.
+         *
+         * @param text the suggested text, ignored if it contains no letters or digits
+         * @param type where the suggestion comes from
+         * @param popularity the popularity of the suggestion
+         * @return this builder
+         */
+        public Builder add(String text, SuggestionType type, int popularity) {
+            String normalized = normalize(text);
+            if (!normalized.isEmpty()) {
+                suggestions.merge(normalized, new Suggestion(text.strip(), type, popularity),
+                        (existing, added) -> new Suggestion(existing.getText(), existing.getType(), existing.getPopularity() + added.getPopularity()));
+            }
+            return this;
+        }
+
+        /**
+         * Creates the index. Sorting the keys takes {@code O(n log n)} for {@code n} word starts.
+         *
+         * @return the new index
+         */
+        public SuggestionIndex build() {
+            String[] texts = suggestions.keySet().toArray(String[]::new);
+            Suggestion[] values = new Suggestion[texts.length];
+            IntList keySuggestionList = new IntList(texts.length);
+            IntList keyOffsetList = new IntList(texts.length);
+            for (int i = 0; i < texts.length; i++) {
+                values[i] = suggestions.get(texts[i]);
+                String text = texts[i];
+                int words = 0;
+                for (int offset = 0; offset >= 0 && words < MAX_WORD_STARTS; offset = nextWord(text, offset), words++) {
+                    keySuggestionList.add(i);
+                    keyOffsetList.add(offset);
+                }
+            }
+
+            Integer[] order = new Integer[keySuggestionList.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> compareKeys(texts[keySuggestionList.get(a)], keyOffsetList.get(a), texts[keySuggestionList.get(b)], keyOffsetList.get(b)));
+            int[] keySuggestions = new int[order.length];
+            int[] keyOffsets = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                keySuggestions[i] = keySuggestionList.get(order[i]);
+                keyOffsets[i] = keyOffsetList.get(order[i]);
+            }
+            return new SuggestionIndex(values, texts, keySuggestions, keyOffsets);
+        }
+
+        private static int nextWord(String text, int offset) {
+            int space = text.indexOf(' ', offset);
+            return space < 0 ? -1 : space + 1;
+        }
+
+        private static int compareKeys(String text, int offset, String otherText, int otherOffset) {
+            int length = text.length() - offset;
+            int otherLength = otherText.length() - otherOffset;
+            for (int i = 0; i < Math.min(length, otherLength); i++) {
+                int difference = text.charAt(offset + i) - otherText.charAt(otherOffset + i);
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+            return length - otherLength;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.search;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Suggestion;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.SuggestionType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service class for the typeahead suggestions of the keyword search.
+ * <p>
+ * Suggests the titles and authors of the known books, ranked by the number of libraries containing them, and keywords
+ * searched by at least {@link #MIN_SEARCHERS} different users or clients on this node, ranked by their number. The suggestions are served from a {@link SuggestionIndex}
+ * in memory, so typing never causes a database query or an OpenLibrary request. The index is rebuilt from the database
+ * when the application is ready and every {@code search.suggest.rebuildDelayMillis} (default 10 minutes), which picks
+ * up new books, changed libraries and the recorded searches.
+ * </p>
+ *
+ * @see SuggestionIndex
+ */
+@Service
+@Slf4j
+public class SuggestionService {
+
+    /**
+     * Maximum number of suggestions of one request.
+     */
+    public static final int MAX_SUGGESTIONS = 20;
+
+    /**
+     * Keywords are only suggested after this many different searchers searched them, so the keywords of a single user
+     * are never shown to others, however often they are searched.
+     */
+    static final int MIN_SEARCHERS = 2;
+
+    /**
+     * Maximum number of searchers remembered per keyword. The popularity of searched keywords is capped at this number.
+     */
+    static final int MAX_SEARCHERS_PER_KEYWORD = 64;
+
+    /**
+     * Maximum number of distinct keywords counted. Keywords of a single searcher are dropped on rebuilds when the limit is near.
+     */
+    static final int MAX_TRACKED_SEARCHES = 10_000;
+
+    /**
+     * Keywords longer than this are not counted.
+     */
+    static final int MAX_SEARCH_LENGTH = 100;
+
+    static final int FETCH_SIZE = 500;
+
+    static final String TITLE_QUERY = "SELECT b.title AS text, COUNT(lb.user_id) AS readers FROM book b " +
+            "LEFT JOIN library_book lb ON lb.book_id = b.id GROUP BY b.id, b.title";
+
+    static final String AUTHOR_QUERY = "SELECT a.name AS text, COUNT(lb.user_id) AS readers FROM author a " +
+            "JOIN book_author ba ON ba.author_id = a.id LEFT JOIN library_book lb ON lb.book_id = ba.book_id GROUP BY a.id, a.name";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Searchers by normalized keywords, with the keywords as first searched
+    private final ConcurrentHashMap<String, SearchCount> searches = new ConcurrentHashMap<>();
+
+    // Salt of the searcher hashes, so the remembered hashes cannot be matched against known user names or addresses
+    private final byte[] searcherSalt = new byte[16];
+
+    private volatile SuggestionIndex index = SuggestionIndex.EMPTY;
+
+    /**
+     * Constructor used by Spring Boot to inject the dependencies.
+     *
+     * @param jdbcTemplate used to read the titles and authors
+     */
+    public SuggestionService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        new SecureRandom().nextBytes(searcherSalt);
+    }
+
+    /**
+     * Returns the most popular suggestions for a typed prefix. Any word of a suggestion can start with the prefix.
+     *
+     * @param prefix the typed text
+     * @param limit maximum number of suggestions
+     * @return the suggestions, most popular first
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        return index.suggest(prefix, limit);
+    }
+
+    /**
+     * Counts a keyword search, for the suggestions of popular searches. Repeated searches of the same searcher count once.
+     *
+     * @param keywords the searched keywords
+     * @param searcher identifies who searched, e.g. the ID of the user or the address of an anonymous client. Only a
+     *                 hash of it is kept
+     */
+    public void recordSearch(String keywords, String searcher) {
+        String normalized = SuggestionIndex.normalize(keywords);
+        if (normalized.isEmpty() || normalized.length() > MAX_SEARCH_LENGTH) {
+            return;
+        }
+        SearchCount count = searches.get(normalized);
+        if (count == null) {
+            if (searches.size() >= MAX_TRACKED_SEARCHES) {
+                return;
+            }
+            count = searches.computeIfAbsent(normalized, key -> new SearchCount(keywords.strip()));
+        }
+        count.add(hash(searcher));
+    }
+
+    /**
+     * Builds a new index from the titles and authors in the database and the recorded searches, and replaces the current
+     * one. Suggestions are served from the current index in the meantime.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${search.suggest.rebuildDelayMillis:600000}", fixedDelayString = "${search.suggest.rebuildDelayMillis:600000}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        SuggestionIndex.Builder builder = new SuggestionIndex.Builder();
+        addRows(builder, TITLE_QUERY, SuggestionType.TITLE);
+        addRows(builder, AUTHOR_QUERY, SuggestionType.AUTHOR);
+        if (searches.size() > MAX_TRACKED_SEARCHES / 2) {
+            searches.values().removeIf(count -> count.size() < MIN_SEARCHERS);
+        }
+        searches.values().stream()
+                .filter(count -> count.size() >= MIN_SEARCHERS)
+                .forEach(count -> builder.add(count.keywords, SuggestionType.SEARCH, count.size()));
+        index = builder.build();
+        log.info("Suggestion index rebuilt with {} suggestions in {} ms", index.size(), System.currentTimeMillis() - start);
+    }
+
+    private void addRows(SuggestionIndex.Builder builder, String query, SuggestionType type) {
+        RowCallbackHandler handler = rs -> builder.add(rs.getString("text"), type, rs.getInt("readers") + 1);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, handler);
+    }
+
+    private long hash(String searcher) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(searcherSalt);
+            return ByteBuffer.wrap(digest.digest(searcher.getBytes(StandardCharsets.UTF_8))).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Distinct searchers of some keywords, as hashes.
+     */
+    private static class SearchCount {
+        private final String keywords;
+        private final Set<Long> searchers = ConcurrentHashMap.newKeySet();
+
+        SearchCount(String keywords) {
+            this.keywords = keywords;
+        }
+
+        void add(long searcher) {
+            if (searchers.size() < MAX_SEARCHERS_PER_KEYWORD) {
+                searchers.add(searcher);
+            }
+        }
+
+        int size() {
+            return searchers.size();
+        }
+    }
+}
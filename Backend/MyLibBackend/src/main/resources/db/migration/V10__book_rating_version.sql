@@ -0,0 +1,4 @@
+-- Version of a book, incremented with every change of its rating aggregates. The other columns of a book do not change
+-- after it is stored, so the version identifies the book as shown to anonymous users and is used as entity tag (ETag)
+-- of the HTTP responses.
+ALTER TABLE book_rating ADD COLUMN version bigint NOT NULL DEFAULT 0;
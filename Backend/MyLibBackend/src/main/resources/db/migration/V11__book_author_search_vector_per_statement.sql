@@ -0,0 +1,36 @@
+-- The search vector of a book was rebuilt once per written book_author row, i.e. once per author of a new book. The
+-- author triggers now run once per statement and rebuild every affected book once, using the changed rows as transition
+-- tables. PostgreSQL allows transition tables only on triggers with a single event, hence one trigger per event.
+DROP TRIGGER trg_book_author_search_vector ON book_author;
+DROP FUNCTION book_search_vector_on_author();
+
+CREATE FUNCTION book_search_vector_on_authors() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        UPDATE book SET search_vector = book_search_vector(id, title, subtitle, description)
+        WHERE id IN (SELECT book_id FROM new_authors);
+    ELSIF TG_OP = 'DELETE' THEN
+        UPDATE book SET search_vector = book_search_vector(id, title, subtitle, description)
+        WHERE id IN (SELECT book_id FROM old_authors);
+    ELSE
+        UPDATE book SET search_vector = book_search_vector(id, title, subtitle, description)
+        WHERE id IN (SELECT book_id FROM old_authors UNION SELECT book_id FROM new_authors);
+    END IF;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_book_author_search_vector_insert
+    AFTER INSERT ON book_author
+    REFERENCING NEW TABLE AS new_authors
+    FOR EACH STATEMENT EXECUTE FUNCTION book_search_vector_on_authors();
+
+CREATE TRIGGER trg_book_author_search_vector_update
+    AFTER UPDATE ON book_author
+    REFERENCING OLD TABLE AS old_authors NEW TABLE AS new_authors
+    FOR EACH STATEMENT EXECUTE FUNCTION book_search_vector_on_authors();
+
+CREATE TRIGGER trg_book_author_search_vector_delete
+    AFTER DELETE ON book_author
+    REFERENCING OLD TABLE AS old_authors
+    FOR EACH STATEMENT EXECUTE FUNCTION book_search_vector_on_authors();
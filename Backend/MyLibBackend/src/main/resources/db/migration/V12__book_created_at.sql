@@ -0,0 +1,5 @@
+-- Time a book was stored. The in-memory search index of every node loads only the books created since its last refresh
+-- instead of reading the whole table. The existing books get the time of the migration.
+ALTER TABLE book ADD COLUMN created_at timestamp(6) with time zone NOT NULL DEFAULT now();
+
+CREATE INDEX idx_book_created_at ON book (created_at);
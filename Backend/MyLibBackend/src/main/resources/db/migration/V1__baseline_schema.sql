@@ -0,0 +1,42 @@
+-- Baseline schema as it was created by Hibernate (spring.jpa.generate-ddl=true) before the schema was versioned.
+-- Every statement is idempotent, so this migration is a no-op on databases that were created by Hibernate.
+
+CREATE TABLE IF NOT EXISTS book (
+    id             uuid NOT NULL,
+    bookid         varchar(255),
+    coverurllarge  varchar(255),
+    coverurlmedium varchar(255),
+    coverurlsmall  varchar(255),
+    publish_date   varchar(255),
+    subtitle       varchar(255),
+    title          varchar(255),
+    authors        varchar(255) ARRAY,
+    description    oid,
+    isbns          varchar(255) ARRAY,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS usertable (
+    id            uuid NOT NULL,
+    password_hash varchar(255),
+    username      varchar(255),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS library_book (
+    rating         integer NOT NULL,
+    reading_status smallint CHECK (reading_status BETWEEN 0 AND 2),
+    book_id        uuid NOT NULL,
+    user_id        uuid NOT NULL,
+    PRIMARY KEY (book_id, user_id),
+    CONSTRAINT fkerhvjx4mc7sf21kx85tjcnjlx FOREIGN KEY (book_id) REFERENCES book,
+    CONSTRAINT fkp7eodl9j5xjqnpn817xsuy354 FOREIGN KEY (user_id) REFERENCES usertable
+);
+
+CREATE TABLE IF NOT EXISTS usertable_wishlist_books (
+    user_id           uuid NOT NULL,
+    wishlist_books_id uuid NOT NULL,
+    PRIMARY KEY (user_id, wishlist_books_id),
+    CONSTRAINT fki3ijhgh89om54b2pwlembxsk3 FOREIGN KEY (wishlist_books_id) REFERENCES book,
+    CONSTRAINT fktkmw8spxkl4f0ot08dewa8nr7 FOREIGN KEY (user_id) REFERENCES usertable
+);
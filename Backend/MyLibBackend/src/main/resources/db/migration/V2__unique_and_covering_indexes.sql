@@ -0,0 +1,48 @@
+-- Unique keys for the natural identifiers, so lookups by OpenLibrary book ID and username use an index
+-- and the get-or-create paths can use INSERT ... ON CONFLICT DO NOTHING instead of check-then-insert.
+
+-- The old check-then-insert could create duplicate books under concurrency. Merge them into the oldest row
+-- (lowest UUID, so the result is deterministic) before the unique constraint is added.
+CREATE TEMPORARY TABLE book_duplicate ON COMMIT DROP AS
+SELECT id, keep_id
+FROM (SELECT id, first_value(id) OVER (PARTITION BY bookid ORDER BY id) AS keep_id
+      FROM book
+      WHERE bookid IS NOT NULL) ranked
+WHERE id <> keep_id;
+
+INSERT INTO library_book (book_id, user_id, rating, reading_status)
+SELECT DISTINCT ON (d.keep_id, lb.user_id) d.keep_id, lb.user_id, lb.rating, lb.reading_status
+FROM library_book lb
+         JOIN book_duplicate d ON d.id = lb.book_id
+ORDER BY d.keep_id, lb.user_id, lb.rating DESC
+ON CONFLICT (book_id, user_id) DO NOTHING;
+
+DELETE FROM library_book lb USING book_duplicate d WHERE lb.book_id = d.id;
+
+INSERT INTO usertable_wishlist_books (user_id, wishlist_books_id)
+SELECT DISTINCT w.user_id, d.keep_id
+FROM usertable_wishlist_books w
+         JOIN book_duplicate d ON d.id = w.wishlist_books_id
+ON CONFLICT (user_id, wishlist_books_id) DO NOTHING;
+
+DELETE FROM usertable_wishlist_books w USING book_duplicate d WHERE w.wishlist_books_id = d.id;
+
+DELETE FROM book b USING book_duplicate d WHERE b.id = d.id;
+
+ALTER TABLE book ADD CONSTRAINT uk_book_bookid UNIQUE (bookid);
+
+-- Duplicate usernames cannot be merged (different passwords and libraries). Keep the oldest account under its
+-- name and rename the others, so the affected users are not silently deleted.
+UPDATE usertable u
+SET username = u.username || '#' || u.id
+FROM (SELECT id, first_value(id) OVER (PARTITION BY username ORDER BY id) AS keep_id
+      FROM usertable
+      WHERE username IS NOT NULL) ranked
+WHERE u.id = ranked.id
+  AND ranked.id <> ranked.keep_id;
+
+ALTER TABLE usertable ADD CONSTRAINT uk_usertable_username UNIQUE (username);
+
+-- The primary key of library_book starts with book_id, so it does not help the per-user library queries.
+-- This index serves them including rating and reading status (index-only scans).
+CREATE INDEX idx_library_book_user ON library_book (user_id, book_id) INCLUDE (rating, reading_status);
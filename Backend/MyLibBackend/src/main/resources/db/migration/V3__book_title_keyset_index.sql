@@ -0,0 +1,9 @@
+-- The book listings are paginated with a keyset on (title, id). NULL titles would not be reachable with the
+-- "after (title, id)" condition, so titles are made mandatory (OpenLibrary editions always have one).
+UPDATE book SET title = '' WHERE title IS NULL;
+
+ALTER TABLE book ALTER COLUMN title SET NOT NULL;
+
+-- Lets every page of /get/all seek directly to the cursor position. The library and wishlist pages also use it as
+-- the outer side of the join and probe the primary keys of library_book and usertable_wishlist_books.
+CREATE INDEX idx_book_title_id ON book (title, id);
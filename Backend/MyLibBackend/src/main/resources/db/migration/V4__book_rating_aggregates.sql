@@ -0,0 +1,27 @@
+-- Rating aggregates per book, maintained incrementally whenever a rating changes. The average rating used to be computed
+-- by loading all library entries of a book.
+CREATE TABLE book_rating (
+    book_id      uuid    NOT NULL,
+    rating_sum   bigint  NOT NULL DEFAULT 0,
+    rating_count integer NOT NULL DEFAULT 0,
+    stars_1      integer NOT NULL DEFAULT 0,
+    stars_2      integer NOT NULL DEFAULT 0,
+    stars_3      integer NOT NULL DEFAULT 0,
+    stars_4      integer NOT NULL DEFAULT 0,
+    stars_5      integer NOT NULL DEFAULT 0,
+    CONSTRAINT book_rating_pkey PRIMARY KEY (book_id),
+    CONSTRAINT fk_book_rating_book FOREIGN KEY (book_id) REFERENCES book (id) ON DELETE CASCADE
+);
+
+-- A rating of 0 means "not rated".
+INSERT INTO book_rating (book_id, rating_sum, rating_count, stars_1, stars_2, stars_3, stars_4, stars_5)
+SELECT book_id,
+       COALESCE(SUM(rating) FILTER (WHERE rating > 0), 0),
+       COUNT(*) FILTER (WHERE rating > 0),
+       COUNT(*) FILTER (WHERE rating = 1),
+       COUNT(*) FILTER (WHERE rating = 2),
+       COUNT(*) FILTER (WHERE rating = 3),
+       COUNT(*) FILTER (WHERE rating = 4),
+       COUNT(*) FILTER (WHERE rating = 5)
+FROM library_book
+GROUP BY book_id;
@@ -0,0 +1,16 @@
+-- Totals of the paginated listings, changed in the same transaction as the counted rows so that the listings do not
+-- count all rows on every page request.
+CREATE TABLE row_counter (
+    name  varchar(64) NOT NULL,
+    total bigint      NOT NULL,
+    CONSTRAINT row_counter_pkey PRIMARY KEY (name)
+);
+
+INSERT INTO row_counter (name, total)
+SELECT 'book', COUNT(*) FROM book;
+
+INSERT INTO row_counter (name, total)
+SELECT 'library:' || user_id, COUNT(*) FROM library_book GROUP BY user_id;
+
+INSERT INTO row_counter (name, total)
+SELECT 'wishlist:' || user_id, COUNT(*) FROM usertable_wishlist_books GROUP BY user_id;
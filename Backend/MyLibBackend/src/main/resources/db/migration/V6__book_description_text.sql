@@ -0,0 +1,13 @@
+-- Book descriptions were mapped as @Lob, which Hibernate stores as PostgreSQL large object (oid column). Every read needed
+-- an extra round trip within a transaction, which is why Hikari auto-commit had to be disabled globally. A text column is
+-- stored inline, and long values are compressed and moved out of the row by TOAST, so queries that do not select the
+-- description never read it.
+ALTER TABLE book ADD COLUMN description_text text;
+
+UPDATE book SET description_text = convert_from(lo_get(description), 'UTF8') WHERE description IS NOT NULL;
+
+-- Large objects are not deleted together with the row referencing them
+SELECT lo_unlink(description) FROM book WHERE description IS NOT NULL;
+
+ALTER TABLE book DROP COLUMN description;
+ALTER TABLE book RENAME COLUMN description_text TO description;
@@ -0,0 +1,50 @@
+-- Authors and ISBNs were stored as array columns of the book table, so finding a book by ISBN or the books of an author
+-- had to scan and unpack every book row. They are moved into child tables with an index on the looked-up value.
+CREATE TABLE author (
+    id   uuid         NOT NULL,
+    name varchar(255) NOT NULL,
+    CONSTRAINT author_pkey PRIMARY KEY (id),
+    CONSTRAINT uk_author_name UNIQUE (name)
+);
+
+CREATE TABLE book_author (
+    book_id   uuid    NOT NULL,
+    position  integer NOT NULL,
+    author_id uuid    NOT NULL,
+    CONSTRAINT book_author_pkey PRIMARY KEY (book_id, position),
+    CONSTRAINT fk_book_author_book FOREIGN KEY (book_id) REFERENCES book (id) ON DELETE CASCADE,
+    CONSTRAINT fk_book_author_author FOREIGN KEY (author_id) REFERENCES author (id)
+);
+
+CREATE INDEX idx_book_author_author ON book_author (author_id);
+
+CREATE TABLE book_isbn (
+    book_id  uuid         NOT NULL,
+    position integer      NOT NULL,
+    isbn     varchar(255) NOT NULL,
+    CONSTRAINT book_isbn_pkey PRIMARY KEY (book_id, position),
+    CONSTRAINT fk_book_isbn_book FOREIGN KEY (book_id) REFERENCES book (id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_book_isbn_isbn ON book_isbn (isbn);
+
+INSERT INTO author (id, name)
+SELECT gen_random_uuid(), name
+FROM (SELECT DISTINCT unnest(authors) AS name FROM book) names
+WHERE name IS NOT NULL;
+
+-- Positions are renumbered without gaps (skipping null entries), as the list index of the mapped collections
+INSERT INTO book_author (book_id, position, author_id)
+SELECT b.id, row_number() OVER (PARTITION BY b.id ORDER BY a.ord) - 1, au.id
+FROM book b
+         CROSS JOIN LATERAL unnest(b.authors) WITH ORDINALITY AS a(name, ord)
+         JOIN author au ON au.name = a.name;
+
+INSERT INTO book_isbn (book_id, position, isbn)
+SELECT b.id, row_number() OVER (PARTITION BY b.id ORDER BY i.ord) - 1, i.isbn
+FROM book b
+         CROSS JOIN LATERAL unnest(b.isbns) WITH ORDINALITY AS i(isbn, ord)
+WHERE i.isbn IS NOT NULL;
+
+ALTER TABLE book DROP COLUMN authors;
+ALTER TABLE book DROP COLUMN isbns;
@@ -0,0 +1,32 @@
+-- Library imports run in the background: the rows of an uploaded CSV file are stored first and imported chunk by chunk.
+CREATE TABLE import_job (
+    id             uuid                        NOT NULL,
+    user_id        uuid                        NOT NULL,
+    status         smallint                    NOT NULL CHECK (status BETWEEN 0 AND 3),
+    total_rows     integer                     NOT NULL,
+    processed_rows integer                     NOT NULL,
+    imported_rows  integer                     NOT NULL,
+    not_found_rows integer                     NOT NULL,
+    invalid_rows   integer                     NOT NULL,
+    failed_rows    integer                     NOT NULL,
+    error          varchar(1000),
+    created_at     timestamp(6) with time zone NOT NULL,
+    updated_at     timestamp(6) with time zone NOT NULL,
+    CONSTRAINT import_job_pkey PRIMARY KEY (id),
+    CONSTRAINT fk_import_job_user FOREIGN KEY (user_id) REFERENCES usertable (id)
+);
+
+CREATE INDEX idx_import_job_status_updated ON import_job (status, updated_at);
+CREATE INDEX idx_import_job_user ON import_job (user_id);
+
+CREATE TABLE import_job_row (
+    job_id         uuid     NOT NULL,
+    line           integer  NOT NULL,
+    isbn           varchar(13),
+    bookid         varchar(255),
+    rating         integer  NOT NULL,
+    reading_status smallint CHECK (reading_status BETWEEN 0 AND 2),
+    status         smallint CHECK (status BETWEEN 0 AND 4),
+    CONSTRAINT import_job_row_pkey PRIMARY KEY (job_id, line),
+    CONSTRAINT fk_import_job_row_job FOREIGN KEY (job_id) REFERENCES import_job (id) ON DELETE CASCADE
+);
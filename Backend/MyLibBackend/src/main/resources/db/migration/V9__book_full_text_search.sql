@@ -0,0 +1,43 @@
+-- Full-text search over the known books. The search vector combines title, subtitle, authors and description (weighted
+-- in that order for the ranking). The authors live in another table, so the vector cannot be a generated column; it is
+-- maintained by triggers on the book and on its author list instead. The column is not mapped by the entity.
+ALTER TABLE book ADD COLUMN search_vector tsvector;
+
+-- Arguments: book ID, title, subtitle, description
+CREATE FUNCTION book_search_vector(uuid, varchar, varchar, text) RETURNS tsvector AS $$
+SELECT setweight(to_tsvector('english', coalesce($2, '')), 'A')
+           || setweight(to_tsvector('english', coalesce($3, '')), 'B')
+           || setweight(to_tsvector('english', coalesce((SELECT string_agg(a.name, ' ')
+                                                         FROM book_author ba
+                                                                  JOIN author a ON a.id = ba.author_id
+                                                         WHERE ba.book_id = $1), '')), 'B')
+           || setweight(to_tsvector('english', coalesce($4, '')), 'D')
+$$ LANGUAGE sql STABLE;
+
+CREATE FUNCTION book_search_vector_on_book() RETURNS trigger AS $$
+BEGIN
+    NEW.search_vector := book_search_vector(NEW.id, NEW.title, NEW.subtitle, NEW.description);
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_book_search_vector
+    BEFORE INSERT OR UPDATE OF title, subtitle, description ON book
+    FOR EACH ROW EXECUTE FUNCTION book_search_vector_on_book();
+
+CREATE FUNCTION book_search_vector_on_author() RETURNS trigger AS $$
+DECLARE
+    changed uuid := CASE WHEN TG_OP = 'DELETE' THEN OLD.book_id ELSE NEW.book_id END;
+BEGIN
+    UPDATE book SET search_vector = book_search_vector(id, title, subtitle, description) WHERE id = changed;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_book_author_search_vector
+    AFTER INSERT OR UPDATE OR DELETE ON book_author
+    FOR EACH ROW EXECUTE FUNCTION book_search_vector_on_author();
+
+UPDATE book SET search_vector = book_search_vector(id, title, subtitle, description);
+
+CREATE INDEX idx_book_search_vector ON book USING gin (search_vector);
@@ -4,9 +4,11 @@ import com.github.tomakehurst.wiremock.http.Fault;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.api.dto.OpenLibraryAPIAuthor;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.api.dto.OpenLibraryAPIEditions;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.api.dto.OpenLibraryAPIWork;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.DeadlineExceededException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.UnexpectedStatusException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Book;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookList;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Deadline;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,8 +20,13 @@ import java.io.IOException;
 import java.lang.reflect.InaccessibleObjectException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -39,6 +46,8 @@ class OpenLibraryAPIWireMockTest {
     private static final String GENERIC_WORK_URL = "/works/OL123456W.json";
     private static final String GENERIC_AUTHOR_URL = "/authors/OL123456A.json";
     private static final String GENERIC_EDITION_URL = "/works/OL123456W/editions.json";
+    private static final String GENERIC_ISBN = "9780441569595";
+    private static final String GENERIC_ISBN_URL = "/isbn/9780441569595.json";
 
     private WireMockServer wireMockServer;
 
@@ -86,7 +95,7 @@ class OpenLibraryAPIWireMockTest {
         assertEquals(GENERIC_BOOK_ID, result.getBooks().getFirst().getBookID());
         assertEquals("Space Odyssey", result.getBooks().getFirst().getTitle());
         assertEquals("A Journey Beyond", result.getBooks().getFirst().getSubtitle());
-        assertEquals("Arthur C. Clarke", result.getBooks().getFirst().getAuthors().getFirst());
+        assertEquals("Arthur C. Clarke", result.getBooks().getFirst().getAuthorNames().getFirst());
         assertEquals("1968", result.getBooks().getFirst().getPublishDate());
     }
 
@@ -133,7 +142,141 @@ class OpenLibraryAPIWireMockTest {
         var book = result.getBooks().getFirst();
         assertEquals(GENERIC_BOOK_ID, book.getBookID()); // fallback edition used
         assertEquals("Dune", book.getTitle());
-        assertEquals("Frank Herbert", book.getAuthors().getFirst());
+        assertEquals("Frank Herbert", book.getAuthorNames().getFirst());
+    }
+
+    @Test
+    void searchBooksShouldPassBooksWithCoverEditionOnBeforeFallbackLookups() throws Exception {
+        wireMockServer.stubFor(get(urlPathEqualTo(SEARCH_PATH))
+                .withQueryParam("q", equalTo("dune"))
+                .withQueryParam(OFFSET, equalTo("0"))
+                .withQueryParam(LIMIT, equalTo("2"))
+                .willReturn(okJson("""
+                {
+                  "numFound": 2,
+                  "start": 0,
+                  "docs": [
+                    {
+                      "title": "Dune",
+                      "cover_i": 101,
+                      "first_publish_year": 1965,
+                      "key": "/works/OL123456W"
+                    },
+                    {
+                      "title": "Dune Messiah",
+                      "cover_edition_key": "OL2M",
+                      "cover_i": 102,
+                      "first_publish_year": 1969
+                    }
+                  ]
+                }
+                """)));
+        wireMockServer.stubFor(get(urlPathEqualTo(GENERIC_EDITION_URL))
+                .willReturn(okJson("""
+                {
+                  "entries": [
+                    { "key": "/books/OL123456M" }
+                  ]
+                }
+                """)));
+        List<String> resolved = new ArrayList<>();
+
+        BookList result = api.searchBooks("dune", 0, 2, book -> resolved.add(book.getBookID()));
+
+        assertEquals(List.of("OL2M", GENERIC_BOOK_ID), resolved);
+        assertEquals(List.of(GENERIC_BOOK_ID, "OL2M"), result.getBooks().stream().map(Book::getBookID).toList());
+    }
+
+    @Test
+    void searchBooksAsyncShouldResolveFallbackEditionsAndKeepSearchOrder() throws Exception {
+        wireMockServer.stubFor(get(urlPathEqualTo(SEARCH_PATH))
+                .withQueryParam("q", equalTo("dune"))
+                .withQueryParam(OFFSET, equalTo("0"))
+                .withQueryParam(LIMIT, equalTo("3"))
+                .willReturn(okJson("""
+                {
+                  "numFound": 3,
+                  "start": 0,
+                  "docs": [
+                    {
+                      "title": "Dune",
+                      "cover_i": 101,
+                      "first_publish_year": 1965,
+                      "key": "/works/OL123456W"
+                    },
+                    {
+                      "title": "Dune Messiah",
+                      "cover_edition_key": "OL2M",
+                      "cover_i": 102,
+                      "first_publish_year": 1969
+                    },
+                    {
+                      "title": "Lost Dune",
+                      "cover_i": 103,
+                      "first_publish_year": 1970,
+                      "key": "/works/OL3W"
+                    }
+                  ]
+                }
+                """)));
+        wireMockServer.stubFor(get(urlPathEqualTo(GENERIC_EDITION_URL))
+                .willReturn(okJson("""
+                {
+                  "entries": [
+                    { "key": "/books/OL123456M" }
+                  ]
+                }
+                """)));
+        wireMockServer.stubFor(get(urlPathEqualTo("/works/OL3W/editions.json"))
+                .willReturn(okJson("""
+                {
+                  "entries": []
+                }
+                """)));
+
+        BookList result = api.searchBooksAsync("dune", 0, 3).get(5, TimeUnit.SECONDS);
+
+        assertEquals(3, result.getNumResults());
+        assertEquals(List.of(GENERIC_BOOK_ID, "OL2M"), result.getBooks().stream().map(Book::getBookID).toList());
+        assertEquals(1, result.getSkippedBooks());
+    }
+
+    @Test
+    void searchBooksAsyncShouldFailWithUnexpectedStatusException() {
+        wireMockServer.stubFor(get(urlPathEqualTo(SEARCH_PATH)).willReturn(aResponse().withStatus(500)));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> api.searchBooksAsync("fail", 0, 1).get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(UnexpectedStatusException.class, e.getCause());
+        assertTrue(e.getCause().getMessage().contains("Unexpected status code: 500"));
+    }
+
+    @Test
+    void searchBooksAsyncShouldFailWithIOExceptionWhenConnectionFails() {
+        wireMockServer.stop(); // Forcing an IO error
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> api.searchBooksAsync("timeout", 0, 1).get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(IOException.class, e.getCause());
+        assertTrue(e.getCause().getMessage().startsWith("OpenLibraryAPI: "));
+    }
+
+    @Test
+    void searchBooksAsyncShouldNotSendFurtherRequestsWhenCancelled() throws Exception {
+        wireMockServer.stubFor(get(urlPathEqualTo(SEARCH_PATH))
+                .willReturn(okJson("""
+                {
+                  "numFound": 1,
+                  "start": 0,
+                  "docs": [ { "title": "Dune", "key": "/works/OL123456W" } ]
+                }
+                """).withFixedDelay(500)));
+
+        CompletableFuture<BookList> result = api.searchBooksAsync("dune", 0, 1);
+        assertTrue(result.cancel(true));
+        Thread.sleep(1000); // Longer than the delayed search response
+
+        wireMockServer.verify(0, getRequestedFor(urlPathEqualTo(GENERIC_EDITION_URL)));
     }
 
     @Test
@@ -251,7 +394,7 @@ class OpenLibraryAPIWireMockTest {
         assertEquals("1984", book.getPublishDate());
         assertEquals(GENERIC_BOOK_ID, book.getBookID());
         assertEquals("A classic of the cyberpunk genre.", book.getDescription());
-        assertEquals(List.of("William Gibson"), book.getAuthors());
+        assertEquals(List.of("William Gibson"), book.getAuthorNames());
         assertEquals(List.of("0441569595", "9780441569595"), book.getIsbns());
 
         assertTrue(book.getCoverURLSmall().contains("5555-S.jpg"));
@@ -294,7 +437,7 @@ class OpenLibraryAPIWireMockTest {
 
         assertEquals(GENERIC_BOOK_ID, book.getBookID());
         assertEquals("No cover but still good.", book.getDescription());
-        assertEquals("Author Without Cover", book.getAuthors().getFirst());
+        assertEquals("Author Without Cover", book.getAuthorNames().getFirst());
         assertNull(book.getCoverURLSmall());  // No cover_i means no cover URLs
     }
 
@@ -347,6 +490,209 @@ class OpenLibraryAPIWireMockTest {
         assertTrue(result.isEmpty(), "Expected empty Optional when book is not found");
     }
 
+    @Test
+    void getBookByBookIDAsyncShouldResolveWorkAndAllAuthors() throws Exception {
+        wireMockServer.stubFor(get(urlPathEqualTo(GENERIC_BOOK_URL))
+                .willReturn(okJson("""
+                {
+                  "title": "The Difference Engine",
+                  "publish_date": "1990",
+                  "key": "/books/OL123456M",
+                  "covers": [5555],
+                  "isbn_13": ["9780553291520"],
+                  "works": [ { "key": "/works/OL123456W" } ]
+                }
+                """)));
+        wireMockServer.stubFor(get(urlPathEqualTo(GENERIC_WORK_URL))
+                .willReturn(okJson("""
+                {
+                  "description": { "value": "Steampunk." },
+                  "authors": [
+                    { "author": { "key": "/authors/OL123456A" } },
+                    { "author": { "key": "/authors/OL2A" } }
+                  ]
+                }
+                """)));
+        wireMockServer.stubFor(get(urlPathEqualTo(GENERIC_AUTHOR_URL))
+                .willReturn(okJson("""
+                { "name": "William Gibson" }
+                """).withFixedDelay(200)));
+        wireMockServer.stubFor(get(urlPathEqualTo("/authors/OL2A.json"))
+                .willReturn(okJson("""
+                { "name": "Bruce Sterling" }
+                """)));
+
+        Optional<Book> result = api.getBookByBookIDAsync(GENERIC_BOOK_ID).get(5, TimeUnit.SECONDS);
+
+        assertTrue(result.isPresent());
+        assertEquals(GENERIC_BOOK_ID, result.get().getBookID());
+        assertEquals("The Difference Engine", result.get().getTitle());
+        assertEquals(List.of("William Gibson", "Bruce Sterling"), result.get().getAuthorNames());
+        assertEquals("Steampunk.", result.get().getDescription());
+        assertEquals(List.of("9780553291520"), result.get().getIsbns());
+        assertTrue(result.get().getCoverURLSmall().contains("5555-S.jpg"));
+    }
+
+    @Test
+    void getBookByBookIDAsyncShouldReturnEmptyWhenNotFound() throws Exception {
+        wireMockServer.stubFor(get(urlPathEqualTo(GENERIC_BOOK_URL))
+                .willReturn(aResponse().withStatus(404)));
+
+        assertTrue(api.getBookByBookIDAsync(GENERIC_BOOK_ID).get(5, TimeUnit.SECONDS).isEmpty());
+    }
+
+    @Test
+    void getBookByBookIDAsyncShouldFailWithUnexpectedStatusExceptionWhenWorkFetchIs500() {
+        wireMockServer.stubFor(get(urlEqualTo(GENERIC_BOOK_URL))
+                .willReturn(okJson("""
+                    {
+                      "title": "Test Book",
+                      "key": "/books/OL123456M",
+                      "works": [{ "key": "/works/OL123456W" }]
+                    }
+                """)));
+        wireMockServer.stubFor(get(urlEqualTo(GENERIC_WORK_URL))
+                .willReturn(aResponse().withStatus(500)));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> api.getBookByBookIDAsync(GENERIC_BOOK_ID).get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(UnexpectedStatusException.class, e.getCause());
+    }
+
+    @Test
+    void getBookByBookIDAsyncShouldFailWithIOExceptionWhenConnectionFails() {
+        wireMockServer.stop(); //Force IO error
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> api.getBookByBookIDAsync(GENERIC_BOOK_ID).get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(IOException.class, e.getCause());
+    }
+
+    @Test
+    void getBookByBookIDAsyncShouldLeaveOutAuthorsNotFetchedBeforeDeadline() throws Exception {
+        wireMockServer.stubFor(get(urlPathEqualTo(GENERIC_BOOK_URL))
+                .willReturn(okJson("""
+                {
+                  "title": "The Difference Engine",
+                  "key": "/books/OL123456M",
+                  "works": [ { "key": "/works/OL123456W" } ]
+                }
+                """)));
+        wireMockServer.stubFor(get(urlPathEqualTo(GENERIC_WORK_URL))
+                .willReturn(okJson("""
+                {
+                  "description": { "value": "Steampunk." },
+                  "authors": [
+                    { "author": { "key": "/authors/OL123456A" } },
+                    { "author": { "key": "/authors/OL2A" } }
+                  ]
+                }
+                """)));
+        wireMockServer.stubFor(get(urlPathEqualTo(GENERIC_AUTHOR_URL))
+                .willReturn(okJson("""
+                { "name": "William Gibson" }
+                """).withFixedDelay(2000)));
+        wireMockServer.stubFor(get(urlPathEqualTo("/authors/OL2A.json"))
+                .willReturn(okJson("""
+                { "name": "Bruce Sterling" }
+                """)));
+
+        Optional<Book> result = api.getBookByBookIDAsync(GENERIC_BOOK_ID, Deadline.after(Duration.ofMillis(800))).get(5, TimeUnit.SECONDS);
+
+        assertTrue(result.isPresent());
+        assertTrue(result.get().isIncomplete());
+        assertEquals(List.of("Bruce Sterling"), result.get().getAuthorNames());
+        assertEquals("Steampunk.", result.get().getDescription());
+    }
+
+    @Test
+    void getBookByBookIDAsyncShouldLeaveOutWorkNotFetchedBeforeDeadline() throws Exception {
+        wireMockServer.stubFor(get(urlPathEqualTo(GENERIC_BOOK_URL))
+                .willReturn(okJson("""
+                {
+                  "title": "The Difference Engine",
+                  "key": "/books/OL123456M",
+                  "works": [ { "key": "/works/OL123456W" } ]
+                }
+                """)));
+        wireMockServer.stubFor(get(urlPathEqualTo(GENERIC_WORK_URL))
+                .willReturn(okJson("{}").withFixedDelay(2000)));
+
+        Optional<Book> result = api.getBookByBookIDAsync(GENERIC_BOOK_ID, Deadline.after(Duration.ofMillis(800))).get(5, TimeUnit.SECONDS);
+
+        assertTrue(result.isPresent());
+        assertTrue(result.get().isIncomplete());
+        assertEquals("The Difference Engine", result.get().getTitle());
+        assertNull(result.get().getDescription());
+        assertEquals(List.of(), result.get().getAuthorNames());
+    }
+
+    @Test
+    void getBookByBookIDAsyncShouldFailWithDeadlineExceededExceptionWhenEditionIsTooSlow() {
+        wireMockServer.stubFor(get(urlPathEqualTo(GENERIC_BOOK_URL))
+                .willReturn(okJson("{}").withFixedDelay(2000)));
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> api.getBookByBookIDAsync(GENERIC_BOOK_ID, Deadline.after(Duration.ofMillis(300))).get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(DeadlineExceededException.class, e.getCause());
+    }
+
+    @Test
+    void getBookByBookIDAsyncShouldNotSendRequestsAfterDeadline() {
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> api.getBookByBookIDAsync(GENERIC_BOOK_ID, Deadline.after(Duration.ZERO)).get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(DeadlineExceededException.class, e.getCause());
+        wireMockServer.verify(0, getRequestedFor(urlPathEqualTo(GENERIC_BOOK_URL)));
+    }
+
+    @Test
+    void getBookByIsbnShouldFollowRedirectToEdition() throws Exception {
+        wireMockServer.stubFor(get(urlPathEqualTo(GENERIC_ISBN_URL))
+                .willReturn(aResponse().withStatus(302).withHeader("Location", GENERIC_BOOK_URL)));
+
+        wireMockServer.stubFor(get(urlPathEqualTo(GENERIC_BOOK_URL))
+                .willReturn(okJson("""
+                {
+                  "title": "Neuromancer",
+                  "key": "/books/OL123456M",
+                  "isbn_13": ["9780441569595"],
+                  "works": [ { "key": "/works/OL123456W" } ]
+                }
+                """)));
+
+        wireMockServer.stubFor(get(urlPathEqualTo(GENERIC_WORK_URL))
+                .willReturn(okJson("""
+                {
+                  "description": { "value": "A classic of the cyberpunk genre." },
+                  "authors": [
+                    { "author": { "key": "/authors/OL123456A" } }
+                  ]
+                }
+                """)));
+
+        wireMockServer.stubFor(get(urlPathEqualTo(GENERIC_AUTHOR_URL))
+                .willReturn(okJson("""
+                { "name": "William Gibson" }
+                """)));
+
+        Optional<Book> result = api.getBookByIsbn(GENERIC_ISBN);
+
+        assertTrue(result.isPresent());
+        assertEquals(GENERIC_BOOK_ID, result.get().getBookID());
+        assertEquals(List.of(GENERIC_ISBN), result.get().getIsbns());
+        assertEquals(List.of("William Gibson"), result.get().getAuthorNames());
+    }
+
+    @Test
+    void getBookByIsbnShouldReturnEmptyWhenIsbnIsUnknown() throws Exception {
+        wireMockServer.stubFor(get(urlPathEqualTo(GENERIC_ISBN_URL))
+                .willReturn(aResponse().withStatus(404)));
+
+        assertTrue(api.getBookByIsbn(GENERIC_ISBN).isEmpty());
+    }
+
     @Test
     void getBookByBookIDShouldThrowUnexpectedStatusExceptionWhenBodyIsNull() {
         wireMockServer.stubFor(get(urlPathEqualTo(GENERIC_BOOK_URL))
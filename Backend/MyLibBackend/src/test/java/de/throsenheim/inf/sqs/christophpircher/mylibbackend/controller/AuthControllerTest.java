@@ -14,7 +14,7 @@ import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@SpringBootTest
+@SpringBootTest(properties = "import.enabled=false") // This context must not pick up the imports of the integration tests, which share the in-memory database
 @AutoConfigureMockMvc
 class AuthControllerTest {
 
@@ -3,13 +3,18 @@ package de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
+import com.jayway.jsonpath.JsonPath;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto.*;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.UsernameExistsException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.*;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.BookRepository;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.ImportJobRepository;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.ImportJobRowRepository;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.LibraryBookRepository;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.RowCounterRepository;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.UserRepository;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.flyweights.ExternalBookFlyweightFactory;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.search.SuggestionService;
 import jakarta.transaction.Transactional;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
@@ -18,23 +23,39 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -54,12 +75,24 @@ class BookControllerIntegrationTest {
     @Autowired
     private LibraryBookRepository  libraryBookRepository;
 
+    @Autowired
+    private RowCounterRepository rowCounterRepository;
+
+    @Autowired
+    private ImportJobRepository importJobRepository;
+
+    @Autowired
+    private ImportJobRowRepository importJobRowRepository;
+
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
     private AuthController authController;
 
+    @Autowired
+    private SuggestionService suggestionService;
+
     @Autowired
     private ExternalBookFlyweightFactory externalBookFlyweightFactory;
 
@@ -70,17 +103,33 @@ class BookControllerIntegrationTest {
     private static final String PASSWORD = "testpassword";
     private static final String BOOKID = "OL23106658M";
     private static final String GET_BOOK_BY_ID_URL = "/api/v1/books/get/byID/OL23106658M";
+    private static final String GET_BOOKS_BY_ISBNS_URL = "/api/v1/books/get/byISBN";
+    private static final String GET_BOOK_BY_ISBN_URL = GET_BOOKS_BY_ISBNS_URL + "/";
     private static final String ADD_BOOK_TO_LIBRARY_URL = "/api/v1/books/add/library";
     private static final String ADD_BOOK_TO_WISHLIST_URL = "/api/v1/books/add/wishlist";
+    private static final String BULK_ADD_BOOKS_TO_LIBRARY_URL = "/api/v1/books/bulk/add/library";
+    private static final String BULK_DELETE_BOOKS_FROM_LIBRARY_URL = "/api/v1/books/bulk/delete/library";
+    private static final String BULK_UPDATE_RATING_URL = "/api/v1/books/bulk/update/rating";
+    private static final String BULK_UPDATE_STATUS_URL = "/api/v1/books/bulk/update/status";
+    private static final String IMPORT_LIBRARY_URL = "/api/v1/books/import/library";
+    private static final String EXPORT_LIBRARY_URL = "/api/v1/books/export/library";
     private static final String GET_LIBRARY_URL = "/api/v1/books/get/library";
     private static final String GET_WISHLIST_URL = "/api/v1/books/get/wishlist";
     private static final String UPDATE_RATING_URL = "/api/v1/books/update/rating";
+    private static final String GET_RATINGS_URL = "/api/v1/books/get/ratings/" + BOOKID;
     private static final String UPDATE_STATUS_URL = "/api/v1/books/update/status";
     private static final String GET_ALL_BOOKS_URL = "/api/v1/books/get/all";
+    private static final String INTERNAL_SEARCH_URL = "/api/v1/search/internal/keyword";
+    private static final String SUGGEST_URL = "/api/v1/search/suggest";
+    private static final String STREAM_SEARCH_URL = "/api/v1/search/external/keyword/stream";
+    private static final String HYBRID_SEARCH_URL = "/api/v1/search/hybrid/keyword";
+    private static final String HYBRID_CONTINUATION_URL = "/api/v1/search/hybrid/continuation";
+    private static final String EXTERNAL_SEARCH_URL = "/search.json";
     private static final String DELETE_BOOK_FROM_LIBRARY_URL = "/api/v1/books/delete/library/OL23106658M";
     private static final String DELETE_BOOK_FROM_WISHLIST_URL = "/api/v1/books/delete/wishlist/OL23106658M";
 
     private static final String EXTERNAL_GET_BOOK_URL = "/books/OL23106658M.json";
+    private static final String EXTERNAL_GET_BOOK_BY_ISBN_URL = "/isbn/9780345498526.json";
     private static final String EXTERNAL_GET_WORK_URL = "/works/OL5684854W.json";
     private static final String EXTERNAL_GET_AUTHOR_URL = "/authors/OL1385539A.json";
 
@@ -145,9 +194,12 @@ class BookControllerIntegrationTest {
         wireMockServer.resetAll();
         wireMockServer.stop();
 
+        importJobRowRepository.deleteAll(); // this must be deleted first due to foreign key constraint
+        importJobRepository.deleteAll();
         libraryBookRepository.deleteAll(); // this must be deleted first due to foreign key constraint
         userRepository.deleteAll();
         bookRepository.deleteAll();
+        rowCounterRepository.deleteAll(); // the counters are created again from the actual counts
 
         externalBookFlyweightFactory.clearCache(); //Otherwise some 404 test do not work
 
@@ -157,7 +209,7 @@ class BookControllerIntegrationTest {
     @Test
     void getBookByIdShouldReturnBookWithUserInfo() throws Exception {
         addBookToUserLibraryAndChangeRatingAndStatus();
-        MvcResult result = mockMvc.perform(get(GET_BOOK_BY_ID_URL).header(AUTHORIZATION, BEARER + jwtToken)).andExpect(status().isOk()).andReturn();
+        MvcResult result = performAsync(get(GET_BOOK_BY_ID_URL).header(AUTHORIZATION, BEARER + jwtToken)).andExpect(status().isOk()).andReturn();
         assertEquals(objectMapper.writeValueAsString(bookInLibrary), result.getResponse().getContentAsString());
     }
 
@@ -165,7 +217,7 @@ class BookControllerIntegrationTest {
     @Test
     void getBookByIdShouldReturnBookWithoutUserInfoWhenUnauthenticated() throws Exception {
         addBookToUserLibraryAndChangeRatingAndStatus();
-        MvcResult result = mockMvc.perform(get(GET_BOOK_BY_ID_URL)).andExpect(status().isOk()).andReturn();
+        MvcResult result = performAsync(get(GET_BOOK_BY_ID_URL)).andExpect(status().isOk()).andReturn();
         assertEquals(objectMapper.writeValueAsString(bookUnauthenticated), result.getResponse().getContentAsString());
     }
 
@@ -173,15 +225,170 @@ class BookControllerIntegrationTest {
     @Test
     void getBookByIdShouldReturnNotFoundWhenBookIsMissing() throws Exception {
         wireMockServer.resetAll();
-        mockMvc.perform(get(GET_BOOK_BY_ID_URL)).andExpect(status().isNotFound()).andReturn();
+        performAsync(get(GET_BOOK_BY_ID_URL)).andExpect(status().isNotFound()).andReturn();
+    }
+
+
+    @Test
+    void getBookByIdShouldReturnBadGatewayWhenOpenLibraryFails() throws Exception {
+        wireMockServer.resetAll();
+        wireMockServer.stubFor(WireMock.get(urlPathEqualTo("/books/" + BOOKID + ".json")).willReturn(aResponse().withStatus(500)));
+        performAsync(get(GET_BOOK_BY_ID_URL)).andExpect(status().isBadGateway());
+    }
+
+
+    @Test
+    void getBookByIdShouldReturnIncompleteBookWhenAuthorIsTooSlow() throws Exception {
+        wireMockServer.stubFor(WireMock.get(urlPathEqualTo(EXTERNAL_GET_AUTHOR_URL))
+                .willReturn(aResponse().withHeader(CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE).withBodyFile("OL1385539A.json").withFixedDelay(2000)));
+
+        performAsync(get(GET_BOOK_BY_ID_URL).header(RequestDeadlines.TIMEOUT_HEADER, 800))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value(BOOK_TITLE))
+                .andExpect(jsonPath("$.description").value(DESCRIPTION))
+                .andExpect(jsonPath("$.authors").isEmpty())
+                .andExpect(jsonPath("$.incomplete").value(true));
+
+        // The incomplete book is not cached, the next request gets the authors again
+        wireMockServer.stubFor(WireMock.get(urlPathEqualTo(EXTERNAL_GET_AUTHOR_URL))
+                .willReturn(aResponse().withHeader(CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE).withBodyFile("OL1385539A.json")));
+        performAsync(get(GET_BOOK_BY_ID_URL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.authors[0]").value(AUTHOR))
+                .andExpect(jsonPath("$.incomplete").doesNotExist());
+    }
+
+
+    @Test
+    void getBookByIdShouldReturnGatewayTimeoutWhenEditionIsTooSlow() throws Exception {
+        wireMockServer.stubFor(WireMock.get(urlPathEqualTo(EXTERNAL_GET_BOOK_URL))
+                .willReturn(aResponse().withHeader(CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE).withBodyFile("OL23106658M.json").withFixedDelay(2000)));
+
+        performAsync(get(GET_BOOK_BY_ID_URL).header(RequestDeadlines.TIMEOUT_HEADER, 300)).andExpect(status().isGatewayTimeout());
+    }
+
+
+    @Test
+    void getBookByIdShouldReturnNotModifiedForCurrentETag() throws Exception {
+        MvcResult result = performAsync(get(GET_BOOK_BY_ID_URL))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60, public"))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(AUTHORIZATION)))
+                .andReturn();
+        String eTag = result.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+
+        performAsync(get(GET_BOOK_BY_ID_URL).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+        performAsync(get(GET_BOOK_BY_ID_URL).header(HttpHeaders.IF_NONE_MATCH, "\"outdated\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value(BOOK_TITLE));
+    }
+
+
+    @Test
+    void getBookByIdShouldServeCachedJsonOfCachedBook() throws Exception {
+        String first = performAsync(get(GET_BOOK_BY_ID_URL)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+        MvcResult result = performAsync(get(GET_BOOK_BY_ID_URL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+        assertEquals(first, result.getResponse().getContentAsString());
+        assertEquals(BOOK_TITLE, JsonPath.read(first, "$.title"));
+        assertEquals(AUTHOR, JsonPath.read(first, "$.authors[0]"));
+    }
+
+
+    @Test
+    void getBookByIdShouldChangeETagWhenBookIsRated() throws Exception {
+        addBookToLibrary();
+        String eTag = performAsync(get(GET_BOOK_BY_ID_URL)).andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+
+        mockMvc.perform(put(UPDATE_RATING_URL).header(AUTHORIZATION, BEARER + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ChangeBookRatingDTO(BOOKID, 5))))
+                .andExpect(status().isOk());
+
+        MvcResult result = performAsync(get(GET_BOOK_BY_ID_URL).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.averageRating").value(5))
+                .andReturn();
+        assertNotEquals(eTag, result.getResponse().getHeader(HttpHeaders.ETAG));
     }
 
 
+    @Test
+    void getBookByIdShouldNotBeCacheableWhenAuthenticated() throws Exception {
+        String eTag = performAsync(get(GET_BOOK_BY_ID_URL)).andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        performAsync(get(GET_BOOK_BY_ID_URL).header(AUTHORIZATION, BEARER + jwtToken).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-store"))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(AUTHORIZATION)))
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+
+    @Test
+    void getBookByIdShouldNotBeCacheableWhenIncomplete() throws Exception {
+        wireMockServer.stubFor(WireMock.get(urlPathEqualTo(EXTERNAL_GET_AUTHOR_URL))
+                .willReturn(aResponse().withHeader(CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE).withBodyFile("OL1385539A.json").withFixedDelay(2000)));
+
+        performAsync(get(GET_BOOK_BY_ID_URL).header(RequestDeadlines.TIMEOUT_HEADER, 800))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.incomplete").value(true))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-store"))
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+
+    @Test
+    void getBookByIsbnShouldReturnBookFromOpenLibrary() throws Exception {
+        wireMockServer.stubFor(WireMock.get(urlPathEqualTo(EXTERNAL_GET_BOOK_BY_ISBN_URL))
+                .willReturn(aResponse().withHeader(CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE).withBodyFile("OL23106658M.json")));
+
+        MvcResult result = mockMvc.perform(get(GET_BOOK_BY_ISBN_URL + "0-345-49852-6")).andExpect(status().isOk()).andReturn();
+        assertEquals(BOOKID, JsonPath.read(result.getResponse().getContentAsString(), "$.bookID"));
+    }
+
+    @Test
+    void getBookByIsbnShouldReturnKnownBookWithoutOpenLibrary() throws Exception {
+        addBookToUserLibraryAndChangeRatingAndStatus();
+        wireMockServer.resetAll();
+
+        MvcResult result = mockMvc.perform(get(GET_BOOK_BY_ISBN_URL + ISBN).header(AUTHORIZATION, BEARER + jwtToken)).andExpect(status().isOk()).andReturn();
+        assertEquals(objectMapper.writeValueAsString(bookInLibrary), result.getResponse().getContentAsString());
+    }
+
+    @Test
+    void getBookByIsbnShouldReturnBadRequestForInvalidIsbn() throws Exception {
+        mockMvc.perform(get(GET_BOOK_BY_ISBN_URL + "9780345498520")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getBooksByIsbnsShouldReturnResultPerIsbn() throws Exception {
+        addBookToLibrary();
+        wireMockServer.resetAll();
+        IsbnLookupRequestDTO dto = new IsbnLookupRequestDTO(List.of("0345498526", "not an isbn", "9780306406157"));
+
+        mockMvc.perform(post(GET_BOOKS_BY_ISBNS_URL).contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].normalizedIsbn").value(ISBN))
+                .andExpect(jsonPath("$[0].status").value("FOUND"))
+                .andExpect(jsonPath("$[0].book.bookID").value(BOOKID))
+                .andExpect(jsonPath("$[1].status").value("INVALID"))
+                .andExpect(jsonPath("$[2].status").value("NOT_FOUND"));
+    }
+
     @Test
     void getAllBooksShouldReturnBookList() throws Exception {
         addBookToUserLibraryAndChangeRatingAndStatus();
         MvcResult result = mockMvc.perform(get(GET_ALL_BOOKS_URL)).andExpect(status().isOk()).andReturn();
-        BookListDTO expectedList = BookListDTO.builder().numResults(1).startIndex(0).skippedBooks(0).books(List.of(bookUnauthenticated)).build();
+        BookListDTO expectedList = BookListDTO.builder().numResults(1).startIndex(0).skippedBooks(0).books(List.of(listEntry(bookUnauthenticated))).build();
         assertEquals(objectMapper.writeValueAsString(expectedList), result.getResponse().getContentAsString());
     }
 
@@ -189,10 +396,188 @@ class BookControllerIntegrationTest {
     void getAllBooksShouldReturnBookListAuthenticated() throws Exception {
         addBookToUserLibraryAndChangeRatingAndStatus();
         MvcResult result = mockMvc.perform(get(GET_ALL_BOOKS_URL).header(AUTHORIZATION, BEARER + jwtToken)).andExpect(status().isOk()).andReturn();
-        BookListDTO expectedList = BookListDTO.builder().numResults(1).startIndex(0).skippedBooks(0).books(List.of(bookInLibrary)).build();
+        BookListDTO expectedList = BookListDTO.builder().numResults(1).startIndex(0).skippedBooks(0).books(List.of(listEntry(bookInLibrary))).build();
         assertEquals(objectMapper.writeValueAsString(expectedList), result.getResponse().getContentAsString());
     }
 
+    @Test
+    void getAllBooksShouldReturnNotModifiedUntilListingChanges() throws Exception {
+        addBookToLibrary();
+        MvcResult result = mockMvc.perform(get(GET_ALL_BOOKS_URL))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60, public"))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(AUTHORIZATION)))
+                .andReturn();
+        String eTag = result.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+
+        mockMvc.perform(get(GET_ALL_BOOKS_URL).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        bookRepository.save(Book.builder().id(UUID.randomUUID()).bookID("OL1M").title("Another").build());
+        mockMvc.perform(get(GET_ALL_BOOKS_URL).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books", hasSize(2)));
+    }
+
+    @Test
+    void getAllBooksShouldNotBeCacheableWhenAuthenticated() throws Exception {
+        addBookToLibrary();
+        mockMvc.perform(get(GET_ALL_BOOKS_URL).header(AUTHORIZATION, BEARER + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-store"))
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+
+    @Test
+    void getAllBooksShouldPageWithCursor() throws Exception {
+        bookRepository.save(Book.builder().id(UUID.randomUUID()).bookID("OL1M").title("Second").build());
+        bookRepository.save(Book.builder().id(UUID.randomUUID()).bookID("OL2M").title("First").build());
+
+        MvcResult firstPage = mockMvc.perform(get(GET_ALL_BOOKS_URL).param("numResultsToGet", "1")).andExpect(status().isOk()).andReturn();
+        String firstPageJson = firstPage.getResponse().getContentAsString();
+        assertEquals("First", JsonPath.read(firstPageJson, "$.books[0].title"));
+        String cursor = JsonPath.read(firstPageJson, "$.nextCursor");
+
+        MvcResult secondPage = mockMvc.perform(get(GET_ALL_BOOKS_URL).param("numResultsToGet", "1").param("cursor", cursor)).andExpect(status().isOk()).andReturn();
+        String secondPageJson = secondPage.getResponse().getContentAsString();
+        assertEquals("Second", JsonPath.read(secondPageJson, "$.books[0].title"));
+        assertEquals(2, (int) JsonPath.read(secondPageJson, "$.numResults"));
+        assertNull(JsonPath.read(secondPageJson, "$.nextCursor"));
+    }
+
+    @Test
+    void searchInternalKeywordShouldFindBooksByAuthorWithUserSpecificInfo() throws Exception {
+        addBookToUserLibraryAndChangeRatingAndStatus();
+        bookRepository.save(Book.builder().id(UUID.randomUUID()).bookID("OL1M").title("Unrelated").build());
+
+        MvcResult result = mockMvc.perform(get(INTERNAL_SEARCH_URL).param("keywords", "karpyshyn").header(AUTHORIZATION, BEARER + jwtToken)).andExpect(status().isOk()).andReturn();
+        String json = result.getResponse().getContentAsString();
+
+        assertEquals(1, (int) JsonPath.read(json, "$.numResults"));
+        assertEquals("OL23106658M", JsonPath.read(json, "$.books[0].bookID"));
+        assertEquals(true, JsonPath.read(json, "$.books[0].bookIsInLibrary"));
+    }
+
+    @Test
+    void searchInternalKeywordShouldPageAndEscapeWildcards() throws Exception {
+        bookRepository.save(Book.builder().id(UUID.randomUUID()).bookID("OL1M").title("Effect 100%").build());
+        bookRepository.save(Book.builder().id(UUID.randomUUID()).bookID("OL2M").title("Effect 1000").build());
+
+        MvcResult secondPage = mockMvc.perform(get(INTERNAL_SEARCH_URL).param("keywords", "effect").param("startIndex", "1").param("numResultsToGet", "1")).andExpect(status().isOk()).andReturn();
+        String secondPageJson = secondPage.getResponse().getContentAsString();
+        assertEquals(2, (int) JsonPath.read(secondPageJson, "$.numResults"));
+        assertEquals("OL2M", JsonPath.read(secondPageJson, "$.books[0].bookID"));
+
+        MvcResult escaped = mockMvc.perform(get(INTERNAL_SEARCH_URL).param("keywords", "100%")).andExpect(status().isOk()).andReturn();
+        String escapedJson = escaped.getResponse().getContentAsString();
+        assertEquals(1, (int) JsonPath.read(escapedJson, "$.numResults"));
+        assertEquals("OL1M", JsonPath.read(escapedJson, "$.books[0].bookID"));
+    }
+
+    @Test
+    void streamExternalKeywordShouldSendBooksWithUserSpecificInfo() throws Exception {
+        addBookToUserLibraryAndChangeRatingAndStatus();
+        wireMockServer.stubFor(WireMock.get(urlPathEqualTo(EXTERNAL_SEARCH_URL)).withQueryParam("q", equalTo("drew"))
+                .willReturn(aResponse().withHeader(CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE).withBodyFile("search.json")));
+
+        MvcResult result = mockMvc.perform(get(STREAM_SEARCH_URL).param("keywords", "drew").header(AUTHORIZATION, BEARER + jwtToken)).andReturn();
+        String events = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = events.split("\n");
+        assertEquals("event: book", lines[0]);
+        String book = lines[1].substring("data: ".length());
+        assertEquals(BOOKID, JsonPath.read(book, "$.bookID"));
+        assertEquals(true, JsonPath.read(book, "$.bookIsInLibrary"));
+        assertEquals(4, (int) JsonPath.read(book, "$.individualRating"));
+        assertEquals("event: summary", lines[3]);
+        assertEquals(1, (int) JsonPath.read(lines[4].substring("data: ".length()), "$.numResults"));
+    }
+
+    @Test
+    void searchHybridKeywordShouldListKnownBooksFirstWithoutDuplicates() throws Exception {
+        addBookToUserLibraryAndChangeRatingAndStatus();
+        wireMockServer.stubFor(WireMock.get(urlPathEqualTo(EXTERNAL_SEARCH_URL)).withQueryParam("q", equalTo("karpyshyn"))
+                .willReturn(aResponse().withHeader(CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE).withBodyFile("search.json")));
+
+        MvcResult result = mockMvc.perform(get(HYBRID_SEARCH_URL).param("keywords", "karpyshyn").header(AUTHORIZATION, BEARER + jwtToken)).andExpect(status().isOk()).andReturn();
+        String json = result.getResponse().getContentAsString();
+
+        assertEquals(1, (int) JsonPath.read(json, "$.books.length()"));
+        assertEquals(BOOKID, JsonPath.read(json, "$.books[0].bookID"));
+        assertEquals(true, JsonPath.read(json, "$.books[0].bookIsInLibrary"));
+        assertEquals(1, (int) JsonPath.read(json, "$.numLocalResults"));
+        assertEquals(1, (int) JsonPath.read(json, "$.numExternalResults"));
+        assertNull(JsonPath.read(json, "$.continuation"));
+    }
+
+    @Test
+    void searchHybridKeywordShouldReturnContinuationWhenOpenLibraryIsSlow() throws Exception {
+        // Slower than the deadline of the first request (1.5 seconds), but faster than the deadline of the continuation
+        wireMockServer.stubFor(WireMock.get(urlPathEqualTo(EXTERNAL_SEARCH_URL)).withQueryParam("q", equalTo("ascension"))
+                .willReturn(aResponse().withHeader(CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE).withBodyFile("search.json").withFixedDelay(2200)));
+        bookRepository.save(Book.builder().id(UUID.randomUUID()).bookID("OL1M").title("Ascension").build());
+
+        MvcResult result = mockMvc.perform(get(HYBRID_SEARCH_URL).param("keywords", "ascension")).andExpect(status().isOk()).andReturn();
+        String json = result.getResponse().getContentAsString();
+        assertEquals("OL1M", JsonPath.read(json, "$.books[0].bookID"));
+        assertNull(JsonPath.read(json, "$.numExternalResults"));
+        String continuation = JsonPath.read(json, "$.continuation");
+
+        MvcResult continued = mockMvc.perform(get(HYBRID_CONTINUATION_URL).param("continuation", continuation)).andExpect(status().isOk()).andReturn();
+        String continuedJson = continued.getResponse().getContentAsString();
+        assertEquals(BOOKID, JsonPath.read(continuedJson, "$.books[0].bookID"));
+        assertEquals(1, (int) JsonPath.read(continuedJson, "$.books.length()"));
+        assertNull(JsonPath.read(continuedJson, "$.continuation"));
+        wireMockServer.verify(1, getRequestedFor(urlPathEqualTo(EXTERNAL_SEARCH_URL)));
+
+        mockMvc.perform(get(HYBRID_CONTINUATION_URL).param("continuation", "not a token!")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void suggestShouldSuggestTitlesAndAuthorsOfKnownBooks() throws Exception {
+        addBookToUserLibraryAndChangeRatingAndStatus();
+        suggestionService.rebuild();
+
+        MvcResult author = mockMvc.perform(get(SUGGEST_URL).param("prefix", "karp")).andExpect(status().isOk()).andReturn();
+        String authorJson = author.getResponse().getContentAsString();
+        assertEquals("Drew Karpyshyn", JsonPath.read(authorJson, "$[0].text"));
+        assertEquals("AUTHOR", JsonPath.read(authorJson, "$[0].type"));
+
+        MvcResult title = mockMvc.perform(get(SUGGEST_URL).param("prefix", "eff")).andExpect(status().isOk()).andReturn();
+        String titleJson = title.getResponse().getContentAsString();
+        assertEquals("Mass effect", JsonPath.read(titleJson, "$[0].text"));
+        assertEquals("TITLE", JsonPath.read(titleJson, "$[0].type"));
+    }
+
+    @Test
+    void streamAllBooksShouldReturnAllBooksAsArray() throws Exception {
+        addBookToUserLibraryAndChangeRatingAndStatus();
+        bookRepository.save(Book.builder().id(UUID.randomUUID()).bookID("OL1M").title("A first book").build());
+
+        MvcResult result = mockMvc.perform(get(GET_ALL_BOOKS_URL + "/stream").header(AUTHORIZATION, BEARER + jwtToken)).andReturn();
+        String json = mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+        assertEquals(2, (int) JsonPath.read(json, "$.length()"));
+        assertEquals("OL1M", JsonPath.read(json, "$[0].bookID"));
+        assertEquals("UNREAD", JsonPath.read(json, "$[0].readingStatus"));
+        assertEquals(objectMapper.writeValueAsString(listEntry(bookInLibrary)), objectMapper.writeValueAsString(objectMapper.readValue(json, BookDTO[].class)[1]));
+    }
+
+    @Test
+    void getAllBooksShouldReturnBadRequestForPageAboveMaximum() throws Exception {
+        mockMvc.perform(get(GET_ALL_BOOKS_URL).param("numResultsToGet", "501")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getAllBooksShouldReturnBadRequestForInvalidCursor() throws Exception {
+        mockMvc.perform(get(GET_ALL_BOOKS_URL).param("cursor", "garbage")).andExpect(status().isBadRequest());
+    }
 
     @Test
     void addBookToLibraryShouldReturnCreated() throws Exception {
@@ -303,6 +688,218 @@ class BookControllerIntegrationTest {
         assertEquals(0, libraryBooks.size());
     }
 
+    @Test
+    void deleteBookFromLibraryShouldRemoveRatingFromHistogram() throws Exception {
+        addBookToUserLibraryAndChangeRatingAndStatus();
+        mockMvc.perform(delete(DELETE_BOOK_FROM_LIBRARY_URL).header(AUTHORIZATION, BEARER + jwtToken)).andExpect(status().isOk());
+
+        mockMvc.perform(get(GET_RATINGS_URL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.averageRating").value(0))
+                .andExpect(jsonPath("$.numRatings").value(0))
+                .andExpect(jsonPath("$.histogram.4").value(0));
+    }
+
+    @Test
+    void bulkAddBooksToLibraryShouldReturnResultPerBook() throws Exception {
+        addBookToWishlist();
+        BulkBookRequestDTO dto = new BulkBookRequestDTO(List.of(BOOKID, "OL0M", BOOKID));
+
+        mockMvc.perform(post(BULK_ADD_BOOKS_TO_LIBRARY_URL).header(AUTHORIZATION, BEARER + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].bookID").value(BOOKID))
+                .andExpect(jsonPath("$[0].status").value("DONE"))
+                .andExpect(jsonPath("$[1].status").value("NOT_FOUND"));
+
+        mockMvc.perform(get(GET_LIBRARY_URL).header(AUTHORIZATION, BEARER + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numResults").value(1))
+                .andExpect(jsonPath("$.books[0].bookID").value(BOOKID))
+                .andExpect(jsonPath("$.books[0].readingStatus").value("UNREAD"));
+        mockMvc.perform(get(GET_WISHLIST_URL).header(AUTHORIZATION, BEARER + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numResults").value(0));
+    }
+
+    @Test
+    void importLibraryShouldImportGoodreadsExportInBackground() throws Exception {
+        wireMockServer.stubFor(WireMock.get(urlPathEqualTo(EXTERNAL_GET_BOOK_BY_ISBN_URL))
+                .willReturn(aResponse().withHeader(CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE).withBodyFile("OL23106658M.json")));
+        String csv = "Book Id,Title,Author,ISBN,ISBN13,My Rating,Exclusive Shelf\r\n" +
+                "3,\"Mass Effect: Ascension\",Drew Karpyshyn,\"=\"\"0345498526\"\"\",\"=\"\"9780345498526\"\"\",4,read\r\n" +
+                "5,\"No ISBN, no import\",Someone,\"=\"\"\"\"\",\"=\"\"\"\"\",0,to-read\r\n" +
+                "8,Unknown,Someone,,9780306406157,0,currently-reading\r\n";
+
+        MvcResult result = mockMvc.perform(multipart(IMPORT_LIBRARY_URL).file(new MockMultipartFile("file", "goodreads_library_export.csv", "text/csv", csv.getBytes()))
+                        .header(AUTHORIZATION, BEARER + jwtToken))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.totalRows").value(3))
+                .andReturn();
+        String jobID = JsonPath.read(result.getResponse().getContentAsString(), "$.jobID");
+
+        String status = "QUEUED";
+        for (int i = 0; i < 100 && (status.equals("QUEUED") || status.equals("RUNNING")); i++) {
+            Thread.sleep(100);
+            MvcResult progress = mockMvc.perform(get(IMPORT_LIBRARY_URL + "/" + jobID).header(AUTHORIZATION, BEARER + jwtToken)).andExpect(status().isOk()).andReturn();
+            status = JsonPath.read(progress.getResponse().getContentAsString(), "$.status");
+        }
+        mockMvc.perform(get(IMPORT_LIBRARY_URL + "/" + jobID).header(AUTHORIZATION, BEARER + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.processedRows").value(3))
+                .andExpect(jsonPath("$.importedRows").value(1))
+                .andExpect(jsonPath("$.invalidRows").value(1))
+                .andExpect(jsonPath("$.notFoundRows").value(1));
+        performAsync(get(GET_BOOK_BY_ID_URL).header(AUTHORIZATION, BEARER + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bookIsInLibrary").value(true))
+                .andExpect(jsonPath("$.individualRating").value(4))
+                .andExpect(jsonPath("$.readingStatus").value("READ"));
+    }
+
+    @Test
+    void importLibraryShouldRejectFileWithoutBookColumn() throws Exception {
+        mockMvc.perform(multipart(IMPORT_LIBRARY_URL).file(new MockMultipartFile("file", "books.csv", "text/csv", "Title,Author\nMass effect,Drew Karpyshyn\n".getBytes()))
+                        .header(AUTHORIZATION, BEARER + jwtToken))
+                .andExpect(status().isBadRequest());
+        assertEquals(0, importJobRepository.count());
+    }
+
+    @Test
+    void getImportShouldReturnNotFoundForUnknownImport() throws Exception {
+        mockMvc.perform(get(IMPORT_LIBRARY_URL + "/" + UUID.randomUUID()).header(AUTHORIZATION, BEARER + jwtToken))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void exportLibraryShouldStreamCsvFile() throws Exception {
+        addBookToLibrary();
+        mockMvc.perform(put(UPDATE_RATING_URL).header(AUTHORIZATION, BEARER + jwtToken)
+                .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(new ChangeBookRatingDTO(BOOKID, 4))));
+
+        MvcResult result = mockMvc.perform(get(EXPORT_LIBRARY_URL).param("format", "csv").header(AUTHORIZATION, BEARER + jwtToken)).andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CONTENT_TYPE, "text/csv"))
+                .andExpect(content().string("bookID,ISBN13,Title,Subtitle,Authors,Publish Date,Rating,Reading Status\r\n" +
+                        BOOKID + "," + ISBN + "," + BOOK_TITLE + "," + SUBTITLE + "," + AUTHOR + "," + RELEASE_DATE + ",4,unread\r\n"));
+    }
+
+    @Test
+    void exportLibraryShouldStreamOneJsonObjectPerLine() throws Exception {
+        addBookToLibrary();
+
+        MvcResult result = mockMvc.perform(get(EXPORT_LIBRARY_URL).header(AUTHORIZATION, BEARER + jwtToken)).andReturn();
+        String ndjson = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CONTENT_TYPE, "application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = ndjson.split("\n");
+        assertEquals(1, lines.length);
+        assertTrue(ndjson.endsWith("\n"));
+        assertEquals(BOOKID, JsonPath.read(lines[0], "$.bookID"));
+        assertEquals(List.of(AUTHOR), JsonPath.read(lines[0], "$.authors"));
+        assertEquals(ISBN, JsonPath.read(lines[0], "$.isbn13"));
+        assertEquals("UNREAD", JsonPath.read(lines[0], "$.readingStatus"));
+    }
+
+    @Test
+    void exportLibraryShouldReturnForbiddenWhenUnauthenticated() throws Exception {
+        mockMvc.perform(get(EXPORT_LIBRARY_URL)).andExpect(status().isForbidden());
+    }
+
+    @Test
+    void bulkUpdateRatingsAndStatusesShouldChangeLibrary() throws Exception {
+        addBookToLibrary();
+        BulkRatingRequestDTO ratings = new BulkRatingRequestDTO(List.of(new ChangeBookRatingDTO(BOOKID, 5), new ChangeBookRatingDTO("OL0M", 3)));
+        BulkReadingStatusRequestDTO statuses = new BulkReadingStatusRequestDTO(List.of(new ChangeBookReadingStatusRequestDTO(BOOKID, ReadingStatus.READING)));
+
+        mockMvc.perform(put(BULK_UPDATE_RATING_URL).header(AUTHORIZATION, BEARER + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(ratings)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("DONE"))
+                .andExpect(jsonPath("$[1].status").value("NOT_FOUND"));
+        mockMvc.perform(put(BULK_UPDATE_STATUS_URL).header(AUTHORIZATION, BEARER + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(statuses)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("DONE"));
+
+        performAsync(get(GET_BOOK_BY_ID_URL).header(AUTHORIZATION, BEARER + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.individualRating").value(5))
+                .andExpect(jsonPath("$.readingStatus").value("READING"));
+        mockMvc.perform(get(GET_RATINGS_URL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numRatings").value(1))
+                .andExpect(jsonPath("$.histogram.5").value(1));
+    }
+
+    @Test
+    void bulkDeleteBooksFromLibraryShouldRemoveBooksAndRatings() throws Exception {
+        addBookToUserLibraryAndChangeRatingAndStatus();
+        BulkBookRequestDTO dto = new BulkBookRequestDTO(List.of(BOOKID));
+
+        mockMvc.perform(post(BULK_DELETE_BOOKS_FROM_LIBRARY_URL).header(AUTHORIZATION, BEARER + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("DONE"));
+        mockMvc.perform(post(BULK_DELETE_BOOKS_FROM_LIBRARY_URL).header(AUTHORIZATION, BEARER + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("NOT_IN_LIBRARY"));
+
+        mockMvc.perform(get(GET_LIBRARY_URL).header(AUTHORIZATION, BEARER + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numResults").value(0));
+        mockMvc.perform(get(GET_RATINGS_URL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numRatings").value(0));
+    }
+
+    @Test
+    void bulkAddBooksToLibraryUnauthenticated() throws Exception {
+        mockMvc.perform(post(BULK_ADD_BOOKS_TO_LIBRARY_URL).contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new BulkBookRequestDTO(List.of(BOOKID)))))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void getRatingHistogramShouldReturnAggregates() throws Exception {
+        addBookToUserLibraryAndChangeRatingAndStatus();
+
+        mockMvc.perform(get(GET_RATINGS_URL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bookID").value(BOOKID))
+                .andExpect(jsonPath("$.averageRating").value(4))
+                .andExpect(jsonPath("$.numRatings").value(1))
+                .andExpect(jsonPath("$.histogram.3").value(0))
+                .andExpect(jsonPath("$.histogram.4").value(1));
+    }
+
+    @Test
+    void getRatingHistogramShouldCountChangedRatingOnce() throws Exception {
+        addBookToUserLibraryAndChangeRatingAndStatus();
+        mockMvc.perform(put(UPDATE_RATING_URL).header(AUTHORIZATION, BEARER + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ChangeBookRatingDTO(BOOKID, 2))))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(GET_RATINGS_URL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.averageRating").value(2))
+                .andExpect(jsonPath("$.numRatings").value(1))
+                .andExpect(jsonPath("$.histogram.2").value(1))
+                .andExpect(jsonPath("$.histogram.4").value(0));
+    }
+
+    @Test
+    void getRatingHistogramShouldReturnNotFoundForUnknownBook() throws Exception {
+        mockMvc.perform(get(GET_RATINGS_URL)).andExpect(status().isNotFound());
+    }
+
     @Test
     void deleteBookFromLibraryUnauthorized() throws Exception {
         mockMvc.perform(delete(DELETE_BOOK_FROM_LIBRARY_URL)).andExpect(status().isForbidden()).andReturn();
@@ -385,11 +982,47 @@ class BookControllerIntegrationTest {
         addBookToUserLibraryAndChangeRatingAndStatus();
         MvcResult result = mockMvc.perform(get(GET_LIBRARY_URL).header(AUTHORIZATION, BEARER + jwtToken)).andExpect(status().isOk()).andReturn();
 
-        BookListDTO  expected = BookListDTO.builder().numResults(1).startIndex(0).skippedBooks(0).books(List.of(bookInLibrary)).build();
+        BookListDTO  expected = BookListDTO.builder().numResults(1).startIndex(0).skippedBooks(0).books(List.of(listEntry(bookInLibrary))).build();
 
         assertEquals(expected, objectMapper.readValue(result.getResponse().getContentAsString(), BookListDTO.class));
     }
 
+    @Test
+    void getAllBooksInLibraryShouldNotServeCachedPageAfterChange() throws Exception {
+        addBookToUserLibraryAndChangeRatingAndStatus();
+        String first = mockMvc.perform(get(GET_LIBRARY_URL).header(AUTHORIZATION, BEARER + jwtToken)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        mockMvc.perform(get(GET_LIBRARY_URL).header(AUTHORIZATION, BEARER + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().string(first));
+
+        mockMvc.perform(put(UPDATE_RATING_URL).header(AUTHORIZATION, BEARER + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ChangeBookRatingDTO(BOOKID, 2))))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get(GET_LIBRARY_URL).header(AUTHORIZATION, BEARER + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[0].individualRating").value(2));
+    }
+
+    @Test
+    void getAllBooksOnWishlistShouldNotServeCachedPageAfterChange() throws Exception {
+        mockMvc.perform(get(GET_WISHLIST_URL).header(AUTHORIZATION, BEARER + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numResults").value(0));
+
+        mockMvc.perform(post(ADD_BOOK_TO_WISHLIST_URL).header(AUTHORIZATION, BEARER + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AddBookRequestDTO(BOOKID))))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get(GET_WISHLIST_URL).header(AUTHORIZATION, BEARER + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numResults").value(1))
+                .andExpect(jsonPath("$.books[0].bookID").value(BOOKID));
+    }
+
     @Test
     void getAllBooksInLibraryUnauthenticated() throws Exception {
         mockMvc.perform(get(GET_LIBRARY_URL)).andExpect(status().isForbidden()).andReturn();
@@ -406,7 +1039,7 @@ class BookControllerIntegrationTest {
 
         MvcResult result = mockMvc.perform(get(GET_WISHLIST_URL).header(AUTHORIZATION, BEARER + jwtToken)).andExpect(status().isOk()).andReturn();
 
-        BookListDTO  expected = BookListDTO.builder().numResults(1).startIndex(0).skippedBooks(0).books(List.of(bookOnWishlist)).build();
+        BookListDTO  expected = BookListDTO.builder().numResults(1).startIndex(0).skippedBooks(0).books(List.of(listEntry(bookOnWishlist))).build();
 
         assertEquals(expected, objectMapper.readValue(result.getResponse().getContentAsString(), BookListDTO.class));
     }
@@ -416,6 +1049,14 @@ class BookControllerIntegrationTest {
         mockMvc.perform(get(GET_WISHLIST_URL)).andExpect(status().isForbidden()).andReturn();
     }
 
+    /**
+     * Performs a request to an endpoint that answers asynchronously and dispatches its result.
+     */
+    private ResultActions performAsync(MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        MvcResult result = mockMvc.perform(requestBuilder).andExpect(request().asyncStarted()).andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
     private void addBookToUserLibraryAndChangeRatingAndStatus() throws Exception {
         addBookToLibrary();
 
@@ -443,4 +1084,20 @@ class BookControllerIntegrationTest {
                 .content(json)).andReturn();
     }
 
-}
\ No newline at end of file
+    private void addBookToWishlist() throws Exception {
+        mockMvc.perform(post(ADD_BOOK_TO_WISHLIST_URL)
+                .header(AUTHORIZATION, BEARER + jwtToken)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new AddBookRequestDTO(BOOKID)))).andReturn();
+    }
+
+    /**
+     * List views only contain the summary of a book, without description.
+     */
+    private static BookDTO listEntry(BookDTO book) {
+        return BookDTO.builder().bookID(book.getBookID()).title(book.getTitle()).subtitle(book.getSubtitle()).authors(book.getAuthors()).isbns(book.getIsbns())
+                .publishDate(book.getPublishDate()).coverURLLarge(book.getCoverURLLarge()).coverURLMedium(book.getCoverURLMedium()).coverURLSmall(book.getCoverURLSmall())
+                .bookIsInLibrary(book.isBookIsInLibrary()).bookIsOnWishlist(book.isBookIsOnWishlist()).averageRating(book.getAverageRating())
+                .individualRating(book.getIndividualRating()).readingStatus(book.getReadingStatus()).build();
+    }
+}
@@ -2,26 +2,52 @@ package de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto.*;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.BulkLimitExceededException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.DeadlineExceededException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidCursorException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidImportFileException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidIsbnException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidRatingException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.TooManyExportsException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.UnexpectedStatusException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.*;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.BookService;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.UserPrincipal;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.exports.LibraryExportFormat;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.exports.LibraryExportService;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.imports.LibraryImportService;
+import jakarta.servlet.AsyncListener;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -39,9 +65,20 @@ class BookControllerTest {
     @MockitoBean
     private BookService bookService;
 
+    @MockitoBean
+    private LibraryImportService libraryImportService;
+
+    @MockitoBean
+    private LibraryExportService libraryExportService;
+
+    @MockitoBean
+    private StreamingLimits streamingLimits;
+
     private static final String BOOK_ID = "OL123456M";
     private static final String BASE_URL = "/api/v1/books/";
     private static final String GETBOOK_URL = BASE_URL + "get/byID/" + BOOK_ID;
+    private static final String ISBN = "9780345498526";
+    private static final String GETBOOK_BY_ISBN_URL = BASE_URL + "get/byISBN/";
     private static final String GETALLBOOKS_URL = BASE_URL + "/get/all";
     private static final String USERNAME = "testuser";
     private static final String TEST_TITLE = "Test Book";
@@ -72,13 +109,14 @@ class BookControllerTest {
     void getBookByIdShouldReturnBookWithUserInfo() throws Exception {
         injectCustomUserPrincipal(userPrincipal);
         Book book = Book.builder().bookID(BOOK_ID).title(TEST_TITLE).build();
-        when(bookService.getBookById(BOOK_ID)).thenReturn(Optional.of(book));
+        when(bookService.getBookByIdAsync(eq(BOOK_ID), any())).thenReturn(CompletableFuture.completedFuture(Optional.of(book)));
         when(bookService.getIndividualRating(any(), any())).thenReturn(4);
         when(bookService.getReadingStatus(any(), any())).thenReturn(ReadingStatus.READING);
         when(bookService.isBookInLibrary(any(), any())).thenReturn(true);
         when(bookService.isBookOnWishlist(any(), any())).thenReturn(false);
 
-        mockMvc.perform(get(GETBOOK_URL))
+        MvcResult result = mockMvc.perform(get(GETBOOK_URL)).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.title").value(TEST_TITLE))
                 .andExpect(jsonPath("$.individualRating").value(4))
@@ -90,9 +128,10 @@ class BookControllerTest {
     @Test
     void getBookByIdShouldReturnBookWithoutUserInfoWhenUnauthenticated() throws Exception {
         Book book = Book.builder().bookID(BOOK_ID).title(TEST_TITLE).build();
-        when(bookService.getBookById(BOOK_ID)).thenReturn(Optional.of(book));
+        when(bookService.getBookByIdAsync(eq(BOOK_ID), any())).thenReturn(CompletableFuture.completedFuture(Optional.of(book)));
 
-        mockMvc.perform(get(GETBOOK_URL))
+        MvcResult result = mockMvc.perform(get(GETBOOK_URL)).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.bookID").value(BOOK_ID))
                 .andExpect(jsonPath("$.individualRating").value(0));
@@ -100,22 +139,164 @@ class BookControllerTest {
 
     @Test
     void getBookByIdShouldReturnNotFoundWhenBookIsMissing() throws Exception {
-        when(bookService.getBookById(BOOK_ID)).thenReturn(Optional.empty());
+        when(bookService.getBookByIdAsync(eq(BOOK_ID), any())).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
 
-        mockMvc.perform(get(GETBOOK_URL))
+        MvcResult result = mockMvc.perform(get(GETBOOK_URL)).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isNotFound());
     }
 
     @Test
-    void getAllBooksShouldReturnBookList() throws Exception {
+    void getBookByIdShouldReturnBadGatewayWhenOpenLibraryFails() throws Exception {
+        when(bookService.getBookByIdAsync(eq(BOOK_ID), any())).thenReturn(CompletableFuture.failedFuture(new UnexpectedStatusException("Unexpected status code: 500")));
+
+        MvcResult result = mockMvc.perform(get(GETBOOK_URL)).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadGateway())
+                .andExpect(jsonPath("$.message").value("Unexpected status code: 500"));
+    }
+
+    @Test
+    void getBookByIdShouldReturnGatewayTimeoutWhenDeadlineIsExceeded() throws Exception {
+        when(bookService.getBookByIdAsync(eq(BOOK_ID), any())).thenReturn(CompletableFuture.failedFuture(new DeadlineExceededException("Deadline exceeded")));
+
+        MvcResult result = mockMvc.perform(get(GETBOOK_URL).header(RequestDeadlines.TIMEOUT_HEADER, 100)).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isGatewayTimeout())
+                .andExpect(jsonPath("$.message").value("Deadline exceeded"));
+    }
+
+    @Test
+    void getBookByIdShouldReturnGatewayTimeoutAndCancelRequestWhenResponseTimesOut() throws Exception {
+        CompletableFuture<Optional<Book>> pending = new CompletableFuture<>();
+        when(bookService.getBookByIdAsync(eq(BOOK_ID), any())).thenReturn(pending);
+
+        MvcResult result = mockMvc.perform(get(GETBOOK_URL).header(RequestDeadlines.TIMEOUT_HEADER, 100)).andExpect(request().asyncStarted()).andReturn();
+        MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(null);
+        }
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isGatewayTimeout())
+                .andExpect(jsonPath("$.message").value("Request did not complete before its deadline"));
+        assertTrue(pending.isCancelled());
+    }
+
+    @Test
+    void getBookByIsbnShouldReturnBook() throws Exception {
         Book book = Book.builder().bookID(BOOK_ID).title(TEST_TITLE).build();
-        BookList list = BookList.builder().books(Collections.singletonList(book)).startIndex(DEFAULT_START_INDEX).numResults(1).skippedBooks(0).build();
-        when(bookService.getAllKnownBooks(DEFAULT_START_INDEX, DEFAULT_NUM_RESULTS)).thenReturn(list);
+        when(bookService.getBookByIsbn(ISBN)).thenReturn(Optional.of(book));
+
+        mockMvc.perform(get(GETBOOK_BY_ISBN_URL + ISBN))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bookID").value(BOOK_ID));
+    }
+
+    @Test
+    void getBookByIsbnShouldReturnNotFoundWhenBookIsMissing() throws Exception {
+        when(bookService.getBookByIsbn(ISBN)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get(GETBOOK_BY_ISBN_URL + ISBN))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getBookByIsbnShouldReturnBadRequestWhenIsbnIsInvalid() throws Exception {
+        when(bookService.getBookByIsbn("123")).thenThrow(new InvalidIsbnException("Invalid ISBN: 123"));
+
+        mockMvc.perform(get(GETBOOK_BY_ISBN_URL + "123"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getBooksByIsbnsShouldReturnResultPerIsbn() throws Exception {
+        Book book = Book.builder().bookID(BOOK_ID).title(TEST_TITLE).build();
+        when(bookService.getBooksByIsbns(List.of(ISBN, "123"))).thenReturn(List.of(
+                new IsbnLookup(ISBN, ISBN, IsbnLookupStatus.FOUND, book),
+                new IsbnLookup("123", null, IsbnLookupStatus.INVALID, null)));
+
+        mockMvc.perform(post(BASE_URL + "get/byISBN")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new IsbnLookupRequestDTO(List.of(ISBN, "123")))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("FOUND"))
+                .andExpect(jsonPath("$[0].book.bookID").value(BOOK_ID))
+                .andExpect(jsonPath("$[1].isbn").value("123"))
+                .andExpect(jsonPath("$[1].status").value("INVALID"));
+    }
+
+    @Test
+    void getBooksByIsbnsShouldReturnBadRequestWhenIsbnListIsMissing() throws Exception {
+        mockMvc.perform(post(BASE_URL + "get/byISBN")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"isbns\": null}"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(bookService);
+    }
+
+    @Test
+    void getBooksByIsbnsShouldReturnBadRequestWhenLimitIsExceeded() throws Exception {
+        when(bookService.getBooksByIsbns(any())).thenThrow(new BulkLimitExceededException("Too many ISBNs"));
+
+        mockMvc.perform(post(BASE_URL + "get/byISBN")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new IsbnLookupRequestDTO(List.of(ISBN)))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getRatingHistogramShouldReturnAggregates() throws Exception {
+        Book book = Book.builder().bookID(BOOK_ID).title(TEST_TITLE).ratingSum(9L).ratingCount(2).stars4(1).stars5(1).build();
+        when(bookService.getKnownBookById(BOOK_ID)).thenReturn(Optional.of(book));
+
+        mockMvc.perform(get("/api/v1/books/get/ratings/" + BOOK_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bookID").value(BOOK_ID))
+                .andExpect(jsonPath("$.averageRating").value(4.5))
+                .andExpect(jsonPath("$.numRatings").value(2))
+                .andExpect(jsonPath("$.histogram.1").value(0))
+                .andExpect(jsonPath("$.histogram.4").value(1))
+                .andExpect(jsonPath("$.histogram.5").value(1));
+    }
+
+    @Test
+    void getRatingHistogramShouldReturnNotFoundWhenBookIsNotKnown() throws Exception {
+        when(bookService.getKnownBookById(BOOK_ID)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/v1/books/get/ratings/" + BOOK_ID))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getAllBooksShouldReturnBookList() throws Exception {
+        BookSummaryList list = BookSummaryList.builder().books(Collections.singletonList(summary(false, null, false))).startIndex(DEFAULT_START_INDEX).numResults(1).build();
+        when(bookService.getAllKnownBooks(eq(DEFAULT_START_INDEX), eq(DEFAULT_NUM_RESULTS), any())).thenReturn(list);
 
         mockMvc.perform(get(GETALLBOOKS_URL))
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void getAllBooksWithCursorShouldUseKeysetPagination() throws Exception {
+        BookSummaryList list = BookSummaryList.builder().books(Collections.singletonList(summary(false, null, false))).startIndex(100).numResults(101).nextCursor("next").build();
+        when(bookService.getAllKnownBooksAfter(eq("abc"), eq(100), eq(DEFAULT_NUM_RESULTS), any())).thenReturn(list);
+
+        mockMvc.perform(get(GETALLBOOKS_URL).param("cursor", "abc").param("startIndex", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.startIndex").value(100))
+                .andExpect(jsonPath("$.nextCursor").value("next"))
+                .andExpect(jsonPath("$.books[0].title").value(TEST_TITLE));
+    }
+
+    @Test
+    void getAllBooksWithInvalidCursorShouldReturnBadRequest() throws Exception {
+        when(bookService.getAllKnownBooksAfter(eq("abc"), eq(DEFAULT_START_INDEX), eq(DEFAULT_NUM_RESULTS), any())).thenThrow(new InvalidCursorException("Invalid cursor: abc"));
+
+        mockMvc.perform(get(GETALLBOOKS_URL).param("cursor", "abc"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void addBookToLibraryShouldReturnCreated() throws Exception {
         injectCustomUserPrincipal(userPrincipal);
@@ -163,6 +344,165 @@ class BookControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void updateBookRatingShouldReturnBadRequestWhenRatingIsOutOfRange() throws Exception {
+        injectCustomUserPrincipal(userPrincipal);
+        doThrow(new InvalidRatingException("Rating must be between 0 and 5, got 7")).when(bookService).rateBook(eq(BOOK_ID), any(), eq(7));
+
+        mockMvc.perform(put(BASE_URL + "update/rating")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ChangeBookRatingDTO(BOOK_ID, 7))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Rating must be between 0 and 5, got 7"));
+    }
+
+    @Test
+    void addBooksToLibraryShouldReturnResultPerBook() throws Exception {
+        injectCustomUserPrincipal(userPrincipal);
+        when(bookService.addBooksToLibrary(eq(List.of(BOOK_ID, "OL0M")), any())).thenReturn(List.of(
+                new BulkResult(BOOK_ID, BulkResultStatus.DONE), new BulkResult("OL0M", BulkResultStatus.NOT_FOUND)));
+
+        mockMvc.perform(post(BASE_URL + "bulk/add/library")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new BulkBookRequestDTO(List.of(BOOK_ID, "OL0M")))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].bookID").value(BOOK_ID))
+                .andExpect(jsonPath("$[0].status").value("DONE"))
+                .andExpect(jsonPath("$[1].status").value("NOT_FOUND"));
+    }
+
+    @Test
+    void updateBookRatingsShouldPassRatingsInRequestOrder() throws Exception {
+        injectCustomUserPrincipal(userPrincipal);
+        Map<String, Integer> ratings = new LinkedHashMap<>();
+        ratings.put(BOOK_ID, 5);
+        ratings.put("OL0M", 2);
+        when(bookService.rateBooks(eq(ratings), any())).thenReturn(List.of(
+                new BulkResult(BOOK_ID, BulkResultStatus.DONE), new BulkResult("OL0M", BulkResultStatus.NOT_IN_LIBRARY)));
+        BulkRatingRequestDTO dto = new BulkRatingRequestDTO(List.of(new ChangeBookRatingDTO(BOOK_ID, 5), new ChangeBookRatingDTO("OL0M", 2)));
+
+        mockMvc.perform(put(BASE_URL + "bulk/update/rating")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].status").value("NOT_IN_LIBRARY"));
+    }
+
+    @Test
+    void deleteBooksFromLibraryShouldReturnBadRequestWhenLimitIsExceeded() throws Exception {
+        injectCustomUserPrincipal(userPrincipal);
+        when(bookService.removeBooksFromLibrary(any(), any())).thenThrow(new BulkLimitExceededException("Too many books"));
+
+        mockMvc.perform(post(BASE_URL + "bulk/delete/library")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new BulkBookRequestDTO(List.of(BOOK_ID)))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void importLibraryShouldQueueImport() throws Exception {
+        injectCustomUserPrincipal(userPrincipal);
+        ImportJob job = new ImportJob(UUID.randomUUID(), testUser);
+        job.setTotalRows(2);
+        when(libraryImportService.createImport(any(), eq(testUser))).thenReturn(job);
+
+        mockMvc.perform(multipart(BASE_URL + "import/library")
+                        .file(new MockMultipartFile("file", "books.csv", "text/csv", "ISBN13\n9780345498526\n9780000000002\n".getBytes())))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.jobID").value(job.getId().toString()))
+                .andExpect(jsonPath("$.status").value("QUEUED"))
+                .andExpect(jsonPath("$.totalRows").value(2));
+    }
+
+    @Test
+    void importLibraryShouldReturnBadRequestForInvalidFile() throws Exception {
+        injectCustomUserPrincipal(userPrincipal);
+        when(libraryImportService.createImport(any(), any())).thenThrow(new InvalidImportFileException("The CSV file is empty"));
+
+        mockMvc.perform(multipart(BASE_URL + "import/library")
+                        .file(new MockMultipartFile("file", "books.csv", "text/csv", new byte[0])))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getImportShouldReturnNotFoundForUnknownImport() throws Exception {
+        injectCustomUserPrincipal(userPrincipal);
+        UUID jobID = UUID.randomUUID();
+        when(libraryImportService.getImport(jobID, testUser)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get(BASE_URL + "import/library/" + jobID))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void exportLibraryShouldStreamCsvFile() throws Exception {
+        injectCustomUserPrincipal(userPrincipal);
+        doAnswer(invocation -> {
+            invocation.getArgument(2, OutputStream.class).write("bookID\r\nOL123456M\r\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(libraryExportService).exportLibrary(eq(testUser), eq(LibraryExportFormat.CSV), any());
+
+        MvcResult result = mockMvc.perform(get(BASE_URL + "export/library").param("format", "CSV"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"library.csv\""))
+                .andExpect(content().string("bookID\r\nOL123456M\r\n"));
+    }
+
+    @Test
+    void exportLibraryShouldReturnServiceUnavailableWhenTooManyExportsRun() throws Exception {
+        injectCustomUserPrincipal(userPrincipal);
+        doThrow(new TooManyExportsException("At most 4 library exports can run at the same time, try again later")).when(streamingLimits).startExport(any());
+
+        mockMvc.perform(get(BASE_URL + "export/library").param("format", "csv"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().exists("Retry-After"))
+                .andExpect(jsonPath("$.message").value("At most 4 library exports can run at the same time, try again later"));
+        verifyNoInteractions(libraryExportService);
+    }
+
+    @Test
+    void exportLibraryShouldReturnBadRequestForUnknownFormat() throws Exception {
+        injectCustomUserPrincipal(userPrincipal);
+
+        mockMvc.perform(get(BASE_URL + "export/library").param("format", "xlsx"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getAllBooksShouldReturnBadRequestForPageAboveMaximum() throws Exception {
+        mockMvc.perform(get(GETALLBOOKS_URL).param("numResultsToGet", "1000000"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("numResultsToGet must be between 1 and 500"));
+    }
+
+    @Test
+    void getAllBooksInLibraryShouldReturnBadRequestForNegativeStartIndex() throws Exception {
+        injectCustomUserPrincipal(userPrincipal);
+
+        mockMvc.perform(get(BASE_URL + "get/library").param("startIndex", "-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamAllBooksShouldWriteJsonArray() throws Exception {
+        injectCustomUserPrincipal(userPrincipal);
+        when(bookService.streamAllKnownBooks(testUser)).thenReturn(Stream.of(summary(true, 5, false), summary(false, null, true)));
+
+        MvcResult result = mockMvc.perform(get(BASE_URL + "get/all/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].individualRating").value(5))
+                .andExpect(jsonPath("$[1].bookIsOnWishlist").value(true))
+                .andExpect(jsonPath("$[1].readingStatus").value("UNREAD"));
+    }
+
     @Test
     void updateReadingStatusShouldReturnOk() throws Exception {
         injectCustomUserPrincipal(userPrincipal);
@@ -176,14 +516,9 @@ class BookControllerTest {
 
     @Test
     void getAllBooksInLibraryShouldReturnPaginatedListWithUserData() throws Exception {
-        Book book = Book.builder().bookID(BOOK_ID).title(TEST_TITLE).build();
-        BookList mockList = new BookList(1, 0, List.of(book), 0);
+        BookSummaryList mockList = new BookSummaryList(1, 0, List.of(summary(true, 5, false)), null);
 
         when(bookService.getAllBooksInLibrary(0, 100, testUser)).thenReturn(mockList);
-        when(bookService.getIndividualRating(BOOK_ID, testUser)).thenReturn(5);
-        when(bookService.getReadingStatus(BOOK_ID, testUser)).thenReturn(ReadingStatus.UNREAD);
-        when(bookService.isBookInLibrary(BOOK_ID, testUser)).thenReturn(true);
-        when(bookService.isBookOnWishlist(BOOK_ID, testUser)).thenReturn(false);
 
         injectCustomUserPrincipal(userPrincipal); // helper to simulate auth context
 
@@ -192,15 +527,15 @@ class BookControllerTest {
                 .andExpect(jsonPath("$.books.length()").value(1))
                 .andExpect(jsonPath("$.books[0].title").value(TEST_TITLE))
                 .andExpect(jsonPath("$.books[0].individualRating").value(5))
-                .andExpect(jsonPath("$.books[0].readingStatus").value("UNREAD"))
+                .andExpect(jsonPath("$.books[0].readingStatus").value("READING"))
+                .andExpect(jsonPath("$.books[0].averageRating").value(4.5))
                 .andExpect(jsonPath("$.books[0].bookIsInLibrary").value(true))
                 .andExpect(jsonPath("$.books[0].bookIsOnWishlist").value(false));
     }
 
     @Test
     void getAllBooksOnWishlistShouldReturnPaginatedWishlistBooks() throws Exception {
-        Book book = Book.builder().bookID(BOOK_ID).title(TEST_TITLE).build();
-        BookList mockList = new BookList(1, 0, List.of(book), 0);
+        BookSummaryList mockList = new BookSummaryList(1, 0, List.of(summary(false, null, true)), null);
 
         when(bookService.getAllBooksOnWishlist(0, 100, testUser)).thenReturn(mockList);
 
@@ -209,8 +544,39 @@ class BookControllerTest {
         mockMvc.perform(get(BASE_URL + "get/wishlist"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.books.length()").value(1))
+                .andExpect(jsonPath("$.books[0].title").value(TEST_TITLE))
+                .andExpect(jsonPath("$.books[0].readingStatus").value("UNREAD"))
+                .andExpect(jsonPath("$.books[0].bookIsInLibrary").value(false))
+                .andExpect(jsonPath("$.books[0].bookIsOnWishlist").value(true))
+                .andExpect(jsonPath("$.books[0].description").doesNotExist());
+    }
+
+    @Test
+    void getAllBooksInLibraryWithCursorShouldUseKeysetPagination() throws Exception {
+        BookSummaryList mockList = new BookSummaryList(1, 0, List.of(summary(true, 0, false)), null);
+        when(bookService.getAllBooksInLibraryAfter("abc", 0, 100, testUser)).thenReturn(mockList);
+
+        injectCustomUserPrincipal(userPrincipal);
+
+        mockMvc.perform(get(BASE_URL + "get/library").param("cursor", "abc"))
+                .andExpect(status().isOk())
                 .andExpect(jsonPath("$.books[0].title").value(TEST_TITLE));
     }
 
+    @Test
+    void getAllBooksOnWishlistWithCursorShouldUseKeysetPagination() throws Exception {
+        BookSummaryList mockList = new BookSummaryList(1, 0, List.of(summary(false, null, true)), null);
+        when(bookService.getAllBooksOnWishlistAfter("abc", 0, 100, testUser)).thenReturn(mockList);
+
+        injectCustomUserPrincipal(userPrincipal);
+
+        mockMvc.perform(get(BASE_URL + "get/wishlist").param("cursor", "abc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[0].title").value(TEST_TITLE));
+    }
 
-}
\ No newline at end of file
+    private static BookSummary summary(boolean inLibrary, Integer rating, boolean onWishlist) {
+        return new BookSummary(UUID.randomUUID(), BOOK_ID, TEST_TITLE, null, null, null, null, null, 9L, 2, 1L,
+                inLibrary ? rating : null, inLibrary ? ReadingStatus.READING : null, onWishlist);
+    }
+}
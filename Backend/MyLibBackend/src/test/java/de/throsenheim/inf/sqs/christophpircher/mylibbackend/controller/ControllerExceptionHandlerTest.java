@@ -33,6 +33,13 @@ class ControllerExceptionHandlerTest {
                 .andExpect(jsonPath(JSON_MESSAGE_FIELD ).value("Could not connect to external API: Downstream API error"));
     }
 
+    @Test
+    void handleDeadlineExceededExceptionShouldReturn504() throws Exception {
+        mockMvc.perform(get("/dummy/deadline"))
+                .andExpect(status().isGatewayTimeout())
+                .andExpect(jsonPath(JSON_MESSAGE_FIELD).value("Deadline exceeded while fetching book OL1M"));
+    }
+
     @Test
     void handleUnexpectedStatusExceptionShouldReturn502() throws Exception {
         mockMvc.perform(get("/dummy/unexpected"))
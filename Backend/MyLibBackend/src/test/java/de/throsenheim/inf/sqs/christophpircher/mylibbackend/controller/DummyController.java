@@ -2,6 +2,7 @@ package de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller;
 
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.BookNotFoundException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.BookNotInLibraryException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.DeadlineExceededException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.UnexpectedStatusException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.UsernameExistsException;
 import jakarta.validation.Valid;
@@ -18,6 +19,11 @@ class DummyController {
         throw new IOException("Downstream API error");
     }
 
+    @GetMapping("/deadline")
+    public void throwDeadlineExceededException() throws DeadlineExceededException {
+        throw new DeadlineExceededException("Deadline exceeded while fetching book OL1M");
+    }
+
     @GetMapping("/unexpected")
     public void throwUnexpectedStatusException() throws UnexpectedStatusException {
         throw new UnexpectedStatusException("Unexpected status");
@@ -13,6 +13,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
@@ -22,8 +23,14 @@ import java.util.List;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static org.hamcrest.Matchers.hasItem;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
@@ -80,12 +87,13 @@ class SearchControllerIntegrationTest {
                 .withQueryParam("limit", equalTo("1"))
                 .willReturn(aResponse().withBodyFile("search.json")));
 
-            MvcResult result = mockMvc.perform(get(SEARCH_URL)
+            MvcResult asyncResult = mockMvc.perform(get(SEARCH_URL)
                             .param(KEYWORDS, KEYWORD_SEARCH)
                             .param(START_INDEX, "0")
                             .param(NUM_TO_GET, "1")
                             .accept(MediaType.APPLICATION_JSON))
-                    .andExpect(status().isOk()).andReturn();
+                    .andExpect(request().asyncStarted()).andReturn();
+            MvcResult result = mockMvc.perform(asyncDispatch(asyncResult)).andExpect(status().isOk()).andReturn();
 
 
             BookListDTO expectedBookListDTO = BookListDTO.builder().numResults(1).numResults(1).skippedBooks(0).books(List.of(bookSearch)).build();
@@ -99,11 +107,75 @@ class SearchControllerIntegrationTest {
     void searchExternalKeywordBadGateway() throws Exception {
 
         wireMockServer.stop();
-        mockMvc.perform(get(SEARCH_URL)
+        MvcResult result = mockMvc.perform(get(SEARCH_URL)
                         .param(KEYWORDS, KEYWORD_SEARCH)
                         .param(START_INDEX, "0")
                         .param(NUM_TO_GET, "1")
                         .accept(MediaType.APPLICATION_JSON))
-                .andExpect(status().isBadGateway());
+                .andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isBadGateway());
+    }
+
+
+    @Test
+    void searchExternalKeywordShouldReturnNotModifiedForCachedResult() throws Exception {
+
+        wireMockServer.stubFor(WireMock.get(SEARCH_URL)
+                .withQueryParam("q", equalTo(KEYWORD_SEARCH))
+                .withQueryParam("offset", equalTo("0"))
+                .withQueryParam("limit", equalTo("2"))
+                .willReturn(aResponse().withBodyFile("search.json")));
+
+        MvcResult asyncResult = mockMvc.perform(get(SEARCH_URL)
+                        .param(KEYWORDS, KEYWORD_SEARCH)
+                        .param(START_INDEX, "0")
+                        .param(NUM_TO_GET, "2")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted()).andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60, public"))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.AUTHORIZATION)))
+                .andReturn();
+        String eTag = result.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+
+        asyncResult = mockMvc.perform(get(SEARCH_URL)
+                        .param(KEYWORDS, KEYWORD_SEARCH)
+                        .param(START_INDEX, "0")
+                        .param(NUM_TO_GET, "2")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag));
+    }
+
+
+    @Test
+    void searchExternalKeywordShouldServeCachedJsonOfCachedResult() throws Exception {
+
+        wireMockServer.stubFor(WireMock.get(SEARCH_URL)
+                .withQueryParam("q", equalTo(KEYWORD_SEARCH))
+                .withQueryParam("offset", equalTo("0"))
+                .withQueryParam("limit", equalTo("3"))
+                .willReturn(aResponse().withBodyFile("search.json")));
+
+        BookListDTO expectedBookListDTO = BookListDTO.builder().numResults(1).skippedBooks(0).books(List.of(bookSearch)).build();
+        for (int i = 0; i < 2; i++) {
+            MvcResult asyncResult = mockMvc.perform(get(SEARCH_URL)
+                            .param(KEYWORDS, KEYWORD_SEARCH)
+                            .param(START_INDEX, "0")
+                            .param(NUM_TO_GET, "3")
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(request().asyncStarted()).andReturn();
+            MvcResult result = mockMvc.perform(asyncDispatch(asyncResult))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                    .andReturn();
+
+            assertEquals(expectedBookListDTO, objectMapper.readValue(result.getResponse().getContentAsString(), BookListDTO.class));
+        }
     }
 }
@@ -3,8 +3,15 @@ package de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.UnexpectedStatusException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Book;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookList;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookSummaryList;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.HybridSearchResult;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.SearchContinuation;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Suggestion;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.SuggestionType;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.BookService;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.InternalSearchService;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.SearchService;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.search.SuggestionService;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,19 +21,38 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@SpringBootTest
+@SpringBootTest(properties = "import.enabled=false") // This context must not pick up the imports of the integration tests, which share the in-memory database
 @AutoConfigureMockMvc
 class SearchControllerTest {
 
     private static final String SEARCH_URL = "/api/v1/search/external/keyword";
+    private static final String STREAM_SEARCH_URL = "/api/v1/search/external/keyword/stream";
+    private static final String INTERNAL_SEARCH_URL = "/api/v1/search/internal/keyword";
+    private static final String SUGGEST_URL = "/api/v1/search/suggest";
+    private static final String HYBRID_SEARCH_URL = "/api/v1/search/hybrid/keyword";
+    private static final String HYBRID_CONTINUATION_URL = "/api/v1/search/hybrid/continuation";
     private static final String KEYWORDS = "keywords";
     private static final String START_INDEX = "startIndex";
     private static final String NUM_TO_GET = "numResultsToGet";
@@ -40,44 +66,217 @@ class SearchControllerTest {
     @MockitoBean
     private BookService bookService;
 
+    @MockitoBean
+    private InternalSearchService internalSearchService;
+
+    @MockitoBean
+    private SuggestionService suggestionService;
+
     @Test
     void searchExternalKeywordShouldReturnOk() throws Exception {
         BookList bookList = new BookList();
         Book book = Book.builder().title("java").build();
         bookList.setBooks(List.of(book));
 
-        when(searchService.searchKeywordsExternal("java", 0, 100)).thenReturn(bookList);
+        when(searchService.searchKeywordsExternalAsync("java", 0, 100)).thenReturn(CompletableFuture.completedFuture(bookList));
 
-        mockMvc.perform(get(SEARCH_URL)
+        MvcResult result = mockMvc.perform(get(SEARCH_URL)
                         .param(KEYWORDS, "java")
                         .param(START_INDEX, "0")
                         .param(NUM_TO_GET, "100")
                         .accept(MediaType.APPLICATION_JSON))
-                .andExpect(status().isOk());
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[0].title").value("java"));
+        verify(suggestionService).recordSearch("java", "address:127.0.0.1");
+    }
+
+    @Test
+    void searchExternalKeywordShouldCompleteWhenOpenLibraryAnswers() throws Exception {
+        CompletableFuture<BookList> search = new CompletableFuture<>();
+        when(searchService.searchKeywordsExternalAsync("java", 0, 100)).thenReturn(search);
+
+        MvcResult result = mockMvc.perform(get(SEARCH_URL)
+                        .param(KEYWORDS, "java")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertThrows(IllegalStateException.class, () -> result.getAsyncResult(100), "The response must wait for OpenLibrary");
+
+        search.complete(BookList.builder().books(List.of(Book.builder().title("java").build())).numResults(1).build());
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.numResults").value(1));
     }
 
 
     @Test
     void searchExternalKeywordShouldHandleIOException() throws Exception {
-        when(searchService.searchKeywordsExternal("java", 0, 100)).thenThrow(new IOException("Downstream error"));
+        when(searchService.searchKeywordsExternalAsync("java", 0, 100)).thenReturn(CompletableFuture.failedFuture(new IOException("Downstream error")));
 
-        mockMvc.perform(get(SEARCH_URL)
+        MvcResult result = mockMvc.perform(get(SEARCH_URL)
                         .param(KEYWORDS, "java")
                         .param(START_INDEX, "0")
                         .param(NUM_TO_GET, "100")
                         .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isBadGateway());
+        verify(suggestionService, never()).recordSearch(any(), any());
     }
 
     @Test
     void searchExternalKeywordShouldHandleUnexpectedStatus() throws Exception {
-        when(searchService.searchKeywordsExternal("java", 0, 100)).thenThrow(new UnexpectedStatusException("Unexpected status"));
+        when(searchService.searchKeywordsExternalAsync("java", 0, 100)).thenReturn(CompletableFuture.failedFuture(new UnexpectedStatusException("Unexpected status")));
 
-        mockMvc.perform(get(SEARCH_URL)
+        MvcResult result = mockMvc.perform(get(SEARCH_URL)
                         .param(KEYWORDS, "java")
                         .param(START_INDEX, "0")
                         .param(NUM_TO_GET, "100")
                         .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isBadGateway());
+    }
+
+    @Test
+    void searchExternalKeywordShouldReturnBadRequestForPageAboveMaximum() throws Exception {
+        mockMvc.perform(get(SEARCH_URL)
+                        .param(KEYWORDS, "java")
+                        .param(START_INDEX, "0")
+                        .param(NUM_TO_GET, "501")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(searchService);
+    }
+
+    @Test
+    void streamExternalKeywordShouldSendBooksAndSummaryEvents() throws Exception {
+        Book book = Book.builder().bookID("OL1M").title("java").build();
+        doAnswer(invocation -> {
+            invocation.<Consumer<Book>>getArgument(3).accept(book);
+            return BookList.builder().books(List.of(book)).numResults(7).skippedBooks(1).build();
+        }).when(searchService).searchKeywordsExternal(eq("java"), eq(0), eq(100), any());
+
+        MvcResult result = mockMvc.perform(get(STREAM_SEARCH_URL)
+                        .param(KEYWORDS, "java")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andReturn();
+        String events = mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+        assertTrue(events.startsWith("event: book\ndata: {"));
+        assertTrue(events.contains("\"bookID\":\"OL1M\""));
+        assertTrue(events.endsWith("event: summary\ndata: {\"numResults\":7,\"startIndex\":0,\"skippedBooks\":1}\n\n"));
+    }
+
+    @Test
+    void streamExternalKeywordShouldSendErrorEventWhenOpenLibraryFails() throws Exception {
+        when(searchService.searchKeywordsExternal(eq("java"), eq(0), eq(100), any())).thenThrow(new IOException("Downstream error"));
+
+        MvcResult result = mockMvc.perform(get(STREAM_SEARCH_URL)
+                        .param(KEYWORDS, "java")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andReturn();
+        String events = mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+        assertTrue(events.startsWith("event: error\ndata: {\"status\":\"BAD_GATEWAY\""));
+    }
+
+    @Test
+    void searchInternalKeywordShouldReturnOk() throws Exception {
+        when(internalSearchService.searchKeywordsInternal("java", 0, 100, null)).thenReturn(BookSummaryList.builder().books(List.of()).numResults(0).build());
+
+        mockMvc.perform(get(INTERNAL_SEARCH_URL)
+                        .param(KEYWORDS, "java")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void searchInternalKeywordShouldReturnBadRequestForNegativeStartIndex() throws Exception {
+        mockMvc.perform(get(INTERNAL_SEARCH_URL)
+                        .param(KEYWORDS, "java")
+                        .param(START_INDEX, "-1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(internalSearchService);
+    }
+
+    @Test
+    void searchInternalKeywordShouldNotRecordLaterPages() throws Exception {
+        when(internalSearchService.searchKeywordsInternal("java", 10, 10, null)).thenReturn(BookSummaryList.builder().books(List.of()).numResults(0).build());
+
+        mockMvc.perform(get(INTERNAL_SEARCH_URL)
+                        .param(KEYWORDS, "java")
+                        .param(START_INDEX, "10")
+                        .param(NUM_TO_GET, "10")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        verify(suggestionService, never()).recordSearch(eq("java"), any());
+    }
+
+    @Test
+    void suggestShouldReturnOk() throws Exception {
+        when(suggestionService.suggest("mas", 10)).thenReturn(List.of(new Suggestion("Mass effect", SuggestionType.TITLE, 3)));
+
+        mockMvc.perform(get(SUGGEST_URL)
+                        .param("prefix", "mas")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].text").value("Mass effect"))
+                .andExpect(jsonPath("$[0].type").value("TITLE"));
+    }
+
+    @Test
+    void suggestShouldReturnBadRequestForLimitAboveMaximum() throws Exception {
+        mockMvc.perform(get(SUGGEST_URL)
+                        .param("prefix", "mas")
+                        .param("limit", "21")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(suggestionService);
+    }
+
+    @Test
+    void searchHybridKeywordShouldReturnOkWithContinuation() throws Exception {
+        when(searchService.searchKeywordsHybridAsync("java", 0, 100, null)).thenReturn(CompletableFuture.completedFuture(HybridSearchResult.builder().localBooks(List.of()).continuation("token").build()));
+
+        MvcResult result = mockMvc.perform(get(HYBRID_SEARCH_URL)
+                        .param(KEYWORDS, "java")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.continuation").value("token"))
+                .andExpect(jsonPath("$.numExternalResults").doesNotExist());
+        verify(suggestionService).recordSearch("java", "address:127.0.0.1");
+    }
+
+    @Test
+    void continueHybridSearchShouldReturnBadGatewayWhenOpenLibraryFails() throws Exception {
+        SearchContinuation continuation = new SearchContinuation("java", 0, 100);
+        when(searchService.continueHybridSearchAsync(continuation, null)).thenReturn(CompletableFuture.failedFuture(new IOException("Downstream error")));
+
+        MvcResult result = mockMvc.perform(get(HYBRID_CONTINUATION_URL)
+                        .param("continuation", continuation.encode())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isBadGateway());
     }
+
+    @Test
+    void continueHybridSearchShouldReturnBadRequestForMalformedContinuation() throws Exception {
+        mockMvc.perform(get(HYBRID_CONTINUATION_URL)
+                        .param("continuation", "not a token!")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(searchService);
+    }
 }
@@ -0,0 +1,55 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.controller;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.TooManyExportsException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class StreamingLimitsTest {
+
+    private final StreamingLimits streamingLimits = new StreamingLimits(1, 600000, 300000);
+
+    private static CallableProcessingInterceptor interceptorOf(MockHttpServletRequest request) {
+        return WebAsyncUtils.getAsyncManager(request).getCallableInterceptor(StreamingLimits.class.getName());
+    }
+
+    @Test
+    void startExportShouldRejectExportsAboveTheLimitUntilOneCompletes() throws Exception {
+        MockHttpServletRequest first = new MockHttpServletRequest();
+        streamingLimits.startExport(first);
+
+        assertThrows(TooManyExportsException.class, () -> streamingLimits.startExport(new MockHttpServletRequest()));
+
+        interceptorOf(first).afterCompletion(null, null);
+        assertDoesNotThrow(() -> streamingLimits.startExport(new MockHttpServletRequest()));
+    }
+
+    @Test
+    void startExportShouldSetTheExportTimeout() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        AsyncWebRequest asyncWebRequest = mock(AsyncWebRequest.class);
+
+        streamingLimits.startExport(request);
+        interceptorOf(request).beforeConcurrentHandling(asyncWebRequest, null);
+
+        verify(asyncWebRequest).setTimeout(600000L);
+    }
+
+    @Test
+    void startBookStreamShouldSetTheStreamTimeout() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        AsyncWebRequest asyncWebRequest = mock(AsyncWebRequest.class);
+
+        streamingLimits.startBookStream(request);
+        interceptorOf(request).beforeConcurrentHandling(asyncWebRequest, null);
+
+        verify(asyncWebRequest).setTimeout(300000L);
+    }
+}
@@ -1,5 +1,6 @@
 package de.throsenheim.inf.sqs.christophpircher.mylibbackend.dto;
 
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Author;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Book;
 import org.junit.jupiter.api.Test;
 
@@ -13,7 +14,7 @@ class BookDTOTest {
     void testFromBookMapsAllFieldsCorrectly() {
 
         Book.BookBuilder builder = Book.builder();
-        builder.bookID("OL1234M").title("Test Title").subtitle("Test Subtitle").authors(List.of("Author A", "Author B")).description("A great book").isbns(List.of("9781234567890")).publishDate("2020-01-01").coverURLSmall("small.jpg").coverURLMedium("medium.jpg").coverURLLarge("large.jpg");
+        builder.bookID("OL1234M").title("Test Title").subtitle("Test Subtitle").authors(Author.fromNames(List.of("Author A", "Author B"))).description("A great book").isbns(List.of("9781234567890")).publishDate("2020-01-01").coverURLSmall("small.jpg").coverURLMedium("medium.jpg").coverURLLarge("large.jpg");
 
         Book book = builder.build();
         BookDTO dto = BookDTO.fromBook(book);
@@ -0,0 +1,76 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookCursorTest {
+
+    private static final UUID ID = UUID.fromString("e46b628c-1a76-4f36-b99b-972b3f44ae0a");
+
+    @Test
+    void encodeAndDecodeRoundTrip() throws InvalidCursorException {
+        BookCursor cursor = new BookCursor("Mass effect: Ascension / Ümlaut?&=", ID);
+
+        BookCursor decoded = BookCursor.decode(cursor.encode());
+
+        assertEquals(cursor, decoded);
+    }
+
+    @Test
+    void encodedCursorIsUrlSafe() {
+        String token = new BookCursor("???>>>~~~", ID).encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    void decodeShouldHandleEmptyTitle() throws InvalidCursorException {
+        BookCursor decoded = BookCursor.decode(new BookCursor("", ID).encode());
+
+        assertEquals("", decoded.getTitle());
+        assertEquals(ID, decoded.getId());
+    }
+
+    @Test
+    void decodeShouldThrowOnMalformedBase64() {
+        assertThrows(InvalidCursorException.class, () -> BookCursor.decode("not base64!"));
+    }
+
+    @Test
+    void decodeShouldThrowOnTooShortToken() {
+        assertThrows(InvalidCursorException.class, () -> BookCursor.decode("YWJj"));
+    }
+
+    @Test
+    void decodeShouldThrowOnInvalidUuid() {
+        String token = java.util.Base64.getUrlEncoder().encodeToString("x".repeat(40).getBytes());
+        assertThrows(InvalidCursorException.class, () -> BookCursor.decode(token));
+    }
+
+    @Test
+    void nextCursorPointsAfterLastBook() throws InvalidCursorException {
+        BookSummary first = summary(UUID.randomUUID(), "A");
+        BookSummary last = summary(ID, "B");
+
+        String token = BookCursor.nextCursor(List.of(first, last), true);
+
+        assertEquals(new BookCursor("B", ID), BookCursor.decode(token));
+    }
+
+    @Test
+    void nextCursorIsNullOnLastPage() {
+        BookSummary book = summary(ID, "A");
+
+        assertNull(BookCursor.nextCursor(List.of(book), false));
+        assertNull(BookCursor.nextCursor(List.of(), true));
+    }
+
+    private static BookSummary summary(UUID id, String title) {
+        return new BookSummary(id, "OL1M", title, null, null, null, null, null, null, null, null, null, null, false);
+    }
+}
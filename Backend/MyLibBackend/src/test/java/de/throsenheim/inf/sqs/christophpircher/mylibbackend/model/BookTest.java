@@ -2,63 +2,50 @@ package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
 
 import org.junit.jupiter.api.Test;
 
-import java.util.Set;
-import java.util.UUID;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class BookTest {
 
     @Test
-    void testGetAverageRatingWithNoLibraryBooks() {
-        Book book = Book.builder().libraryBooks(null).build();
+    void testGetAverageRatingWithoutAggregates() {
+        Book book = Book.builder().build();
 
         assertEquals(0.0f, book.getAverageRating());
-        assertEquals(0.0f, book.getAverageRating());
+        assertEquals(0, book.getNumRatings());
     }
 
     @Test
     void testGetAverageRatingWithValidRatings() {
-        LibraryBook lb1 = new LibraryBook();
-        lb1.setRating(4);
-
-        LibraryBook lb2 = new LibraryBook();
-        lb2.setRating(5);
-
-        Book book = Book.builder().libraryBooks(Set.of(lb1, lb2)).build();
+        Book book = Book.builder().ratingSum(9L).ratingCount(2).build();
 
         assertEquals(4.5f, book.getAverageRating(), 0.01f);
+        assertEquals(2, book.getNumRatings());
     }
 
     @Test
-    void testGetAverageRatingSkipsZeroRatings() {
-        LibraryBook lb1 = new LibraryBook();
-        lb1.setRating(0);
-
-        LibraryBook lb2 = new LibraryBook();
-        lb2.setRating(3);
-
-        Book book = Book.builder().libraryBooks(Set.of(lb1, lb2)).build();
+    void testGetAverageRatingAllRatingsRemoved() {
+        Book book = Book.builder().ratingSum(0L).ratingCount(0).build();
 
-        assertEquals(3.0f, book.getAverageRating(), 0.01f);
+        assertEquals(0.0f, book.getAverageRating(), 0.01f);
     }
 
     @Test
-    void testGetAverageRatingAllZeroRatings() {
-
-        LibraryBookKey keyb1 = new LibraryBookKey(UUID.randomUUID(), UUID.randomUUID());
-        LibraryBookKey keyb2 = new LibraryBookKey(UUID.randomUUID(), UUID.randomUUID());
+    void testGetRatingHistogram() {
+        Book book = Book.builder().stars1(1).stars2(0).stars3(2).stars4(0).stars5(7).build();
 
-        LibraryBook lb1 = new LibraryBook();
-        lb1.setId(keyb1);
-        lb1.setRating(0);
+        Map<Integer, Integer> histogram = book.getRatingHistogram();
 
-        LibraryBook lb2 = new LibraryBook();
-        lb2.setRating(0);
-        lb2.setId(keyb2);
+        assertEquals(List.of(1, 2, 3, 4, 5), List.copyOf(histogram.keySet()));
+        assertEquals(List.of(1, 0, 2, 0, 7), List.copyOf(histogram.values()));
+    }
 
-        Book book = Book.builder().libraryBooks(Set.of(lb1, lb2)).build();
+    @Test
+    void testGetRatingHistogramWithoutAggregates() {
+        Book book = Book.builder().build();
 
-        assertEquals(0.0f, book.getAverageRating(), 0.01f);
+        assertEquals(Map.of(1, 0, 2, 0, 3, 0, 4, 0, 5, 0), book.getRatingHistogram());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,36 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlineTest {
+
+    @Test
+    void deadlineInTheFutureShouldHaveTimeLeft() {
+        Deadline deadline = Deadline.after(Duration.ofMinutes(1));
+
+        assertFalse(deadline.isExpired());
+        assertTrue(deadline.hasRemaining(1000));
+        assertTrue(deadline.remainingMillis() > 59_000);
+        assertTrue(deadline.remainingMillis() <= 60_000);
+    }
+
+    @Test
+    void passedDeadlineShouldHaveNoTimeLeft() {
+        Deadline deadline = Deadline.after(Duration.ofMillis(-10));
+
+        assertTrue(deadline.isExpired());
+        assertFalse(deadline.hasRemaining(0));
+        assertEquals(0, deadline.remainingMillis());
+    }
+
+    @Test
+    void hasRemainingShouldBeFalseIfLessTimeIsLeft() {
+        Deadline deadline = Deadline.after(Duration.ofSeconds(1));
+
+        assertFalse(deadline.hasRemaining(2000));
+    }
+}
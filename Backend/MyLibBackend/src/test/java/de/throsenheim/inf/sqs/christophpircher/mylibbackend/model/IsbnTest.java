@@ -0,0 +1,58 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidIsbnException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IsbnTest {
+
+    @Test
+    void toIsbn13ShouldKeepValidIsbn13() throws InvalidIsbnException {
+        assertEquals("9780345498526", Isbn.toIsbn13("9780345498526"));
+    }
+
+    @Test
+    void toIsbn13ShouldRemoveHyphensAndSpaces() throws InvalidIsbnException {
+        assertEquals("9780345498526", Isbn.toIsbn13("978-0-345 49852-6"));
+    }
+
+    @Test
+    void toIsbn13ShouldConvertIsbn10() throws InvalidIsbnException {
+        assertEquals("9780345498526", Isbn.toIsbn13("0-345-49852-6"));
+    }
+
+    @Test
+    void toIsbn13ShouldAcceptIsbn10WithCheckDigitX() throws InvalidIsbnException {
+        assertEquals("9780439420891", Isbn.toIsbn13("043942089x"));
+    }
+
+    @Test
+    void toIsbn13ShouldRejectWrongIsbn13CheckDigit() {
+        assertThrows(InvalidIsbnException.class, () -> Isbn.toIsbn13("9780345498527"));
+    }
+
+    @Test
+    void toIsbn13ShouldRejectWrongIsbn10CheckDigit() {
+        assertThrows(InvalidIsbnException.class, () -> Isbn.toIsbn13("0345498522"));
+    }
+
+    @Test
+    void toIsbn13ShouldRejectMalformedInput() {
+        assertThrows(InvalidIsbnException.class, () -> Isbn.toIsbn13("OL23106658M"));
+        assertThrows(InvalidIsbnException.class, () -> Isbn.toIsbn13("97803454985"));
+        assertThrows(InvalidIsbnException.class, () -> Isbn.toIsbn13(null));
+    }
+
+    @Test
+    void lookupFormsShouldContainIsbn10ForBooklandPrefix() {
+        assertEquals(List.of("9780345498526", "0345498526"), Isbn.lookupForms("9780345498526"));
+    }
+
+    @Test
+    void lookupFormsShouldOnlyContainIsbn13WithoutIsbn10Equivalent() {
+        assertEquals(List.of("9791032305690"), Isbn.lookupForms("9791032305690"));
+    }
+}
@@ -0,0 +1,34 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.model;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchContinuationTest {
+
+    @Test
+    void encodeAndDecodeRoundTrip() throws InvalidCursorException {
+        SearchContinuation continuation = new SearchContinuation("mass effect: ascension / Ümlaut?&=", 20, 10);
+
+        String token = continuation.encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"));
+        assertEquals(continuation, SearchContinuation.decode(token));
+    }
+
+    @Test
+    void decodeShouldThrowOnMalformedBase64() {
+        assertThrows(InvalidCursorException.class, () -> SearchContinuation.decode("not base64!"));
+    }
+
+    @Test
+    void decodeShouldThrowOnMissingParts() {
+        assertThrows(InvalidCursorException.class, () -> SearchContinuation.decode("MTA6amF2YQ"));
+    }
+
+    @Test
+    void decodeShouldThrowOnInvalidNumbers() {
+        assertThrows(InvalidCursorException.class, () -> SearchContinuation.decode("YToxMDpqYXZh"));
+    }
+}
@@ -0,0 +1,136 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.scheduling;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClusterLockServiceTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private DatabaseMetaData metaData;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private ClusterLockService clusterLockService;
+
+    private static final String JOB_NAME = "testJob";
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        clusterLockService = new ClusterLockService(dataSource);
+        lenient().when(dataSource.getConnection()).thenReturn(connection);
+        lenient().when(connection.getMetaData()).thenReturn(metaData);
+    }
+
+    @Test
+    void runIfLeaderShouldAlwaysRunWithoutAdvisoryLockSupport() throws SQLException {
+        when(metaData.getDatabaseProductName()).thenReturn("H2");
+        clusterLockService.detectAdvisoryLockSupport();
+
+        AtomicInteger runs = new AtomicInteger();
+        assertTrue(clusterLockService.runIfLeader(JOB_NAME, runs::incrementAndGet));
+        assertEquals(1, runs.get());
+        verify(connection, never()).prepareStatement(anyString());
+    }
+
+    @Test
+    void runIfLeaderShouldRunAndUnlockWhenLockAcquired() throws SQLException {
+        enablePostgres();
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getBoolean(1)).thenReturn(true);
+
+        AtomicInteger runs = new AtomicInteger();
+        assertTrue(clusterLockService.runIfLeader(JOB_NAME, runs::incrementAndGet));
+
+        assertEquals(1, runs.get());
+        verify(connection).prepareStatement("SELECT pg_try_advisory_lock(?, ?)");
+        verify(connection).prepareStatement("SELECT pg_advisory_unlock(?, ?)");
+        verify(statement, times(2)).setInt(1, ClusterLockService.LOCK_NAMESPACE);
+        verify(statement, times(2)).setInt(2, ClusterLockService.lockKeyFor(JOB_NAME));
+        verify(connection, times(2)).close(); // once for the detection, once for the job
+    }
+
+    @Test
+    void runIfLeaderShouldSkipWhenLockHeldByAnotherNode() throws SQLException {
+        enablePostgres();
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getBoolean(1)).thenReturn(false);
+
+        AtomicInteger runs = new AtomicInteger();
+        assertFalse(clusterLockService.runIfLeader(JOB_NAME, runs::incrementAndGet));
+
+        assertEquals(0, runs.get());
+        verify(connection, never()).prepareStatement("SELECT pg_advisory_unlock(?, ?)");
+    }
+
+    @Test
+    void runIfLeaderShouldUnlockWhenJobThrows() throws SQLException {
+        enablePostgres();
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getBoolean(1)).thenReturn(true);
+
+        assertThrows(IllegalStateException.class, () -> clusterLockService.runIfLeader(JOB_NAME, () -> {
+            throw new IllegalStateException("job failed");
+        }));
+
+        verify(connection).prepareStatement("SELECT pg_advisory_unlock(?, ?)");
+        verify(connection, times(2)).close(); // once for the detection, once for the job
+    }
+
+    @Test
+    void runIfLeaderShouldSkipWhenDatabaseIsUnavailable() throws SQLException {
+        enablePostgres();
+        when(dataSource.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        AtomicInteger runs = new AtomicInteger();
+        assertFalse(clusterLockService.runIfLeader(JOB_NAME, runs::incrementAndGet));
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void runIfLeaderShouldCommitWhenAutoCommitDisabled() throws SQLException {
+        enablePostgres();
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getBoolean(1)).thenReturn(true);
+        when(connection.getAutoCommit()).thenReturn(false);
+
+        clusterLockService.runIfLeader(JOB_NAME, () -> { });
+
+        verify(connection).commit();
+    }
+
+    @Test
+    void lockKeyForShouldBeStableForSameName() {
+        assertEquals(ClusterLockService.lockKeyFor(JOB_NAME), ClusterLockService.lockKeyFor(new String(JOB_NAME.toCharArray())));
+        assertNotEquals(ClusterLockService.lockKeyFor(JOB_NAME), ClusterLockService.lockKeyFor("otherJob"));
+    }
+
+    private void enablePostgres() throws SQLException {
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        clusterLockService.detectAdvisoryLockSupport();
+        lenient().when(connection.prepareStatement(anyString())).thenReturn(statement);
+        lenient().when(statement.executeQuery()).thenReturn(resultSet);
+        lenient().when(connection.getAutoCommit()).thenReturn(true);
+    }
+}
@@ -0,0 +1,65 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.scheduling;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClusterSingletonAspectTest {
+
+    @Mock
+    private ClusterLockService clusterLockService;
+
+    @Mock
+    private ProceedingJoinPoint joinPoint;
+
+    @Mock
+    private ClusterSingleton clusterSingleton;
+
+    @InjectMocks
+    private ClusterSingletonAspect aspect;
+
+    @Test
+    void runIfLeaderShouldProceedWhenLockAcquired() throws Throwable {
+        when(clusterSingleton.value()).thenReturn("job");
+        when(clusterLockService.runIfLeader(eq("job"), any())).thenAnswer(invocation -> {
+            invocation.getArgument(1, Runnable.class).run();
+            return true;
+        });
+
+        assertNull(aspect.runIfLeader(joinPoint, clusterSingleton));
+        verify(joinPoint).proceed();
+    }
+
+    @Test
+    void runIfLeaderShouldNotProceedWhenLockNotAcquired() throws Throwable {
+        when(clusterSingleton.value()).thenReturn("job");
+        when(clusterLockService.runIfLeader(eq("job"), any())).thenReturn(false);
+
+        aspect.runIfLeader(joinPoint, clusterSingleton);
+        verify(joinPoint, never()).proceed();
+    }
+
+    @Test
+    void runIfLeaderShouldRethrowJobException() throws Throwable {
+        when(clusterSingleton.value()).thenReturn("job");
+        when(joinPoint.proceed()).thenThrow(new IOException("failure"));
+        when(clusterLockService.runIfLeader(eq("job"), any())).thenAnswer(invocation -> {
+            invocation.getArgument(1, Runnable.class).run();
+            return true;
+        });
+
+        assertThrows(IOException.class, () -> aspect.runIfLeader(joinPoint, clusterSingleton));
+    }
+}
@@ -2,21 +2,34 @@ package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service;
 
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.*;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.*;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.AuthorRepository;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.BookRepository;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.LibraryBookRepository;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.UserRepository;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.flyweights.ExternalBookFlyweightFactory;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.search.BookStoredEvent;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -27,6 +40,9 @@ class BookServiceTest {
     @Mock
     private BookRepository bookRepository;
 
+    @Mock
+    private AuthorRepository authorRepository;
+
     @Mock
     private LibraryBookRepository libraryBookRepository;
 
@@ -36,6 +52,18 @@ class BookServiceTest {
     @Mock
     private ExternalBookFlyweightFactory externalBookFlyweightFactory;
 
+    @Mock
+    private RowCounterService rowCounterService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
     @InjectMocks
     private BookService bookService;
 
@@ -65,41 +93,266 @@ class BookServiceTest {
         assertTrue(result.isPresent());
     }
 
+    @Test
+    void getBookByIdAsyncShouldPassDeadlineToRepositoryAndExternal() throws Exception {
+        Deadline deadline = Deadline.after(Duration.ofSeconds(5));
+        when(bookRepository.getBookByBookID(BOOK_ID, deadline)).thenReturn(Optional.empty());
+        when(externalBookFlyweightFactory.getBookByIDAsync(BOOK_ID, deadline)).thenReturn(CompletableFuture.completedFuture(Optional.of(book)));
+
+        assertEquals(Optional.of(book), bookService.getBookByIdAsync(BOOK_ID, deadline).get());
+    }
+
+    @Test
+    void getBookByIdAsyncShouldFailWithDeadlineExceededWhenQueryTimesOut() {
+        Deadline deadline = Deadline.after(Duration.ofSeconds(1));
+        when(bookRepository.getBookByBookID(BOOK_ID, deadline)).thenThrow(new QueryTimeoutException("timeout"));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> bookService.getBookByIdAsync(BOOK_ID, deadline).get());
+
+        assertInstanceOf(DeadlineExceededException.class, e.getCause());
+        verifyNoInteractions(externalBookFlyweightFactory);
+    }
+
+    @Test
+    void getBookByIsbnShouldFindBookStoredWithIsbn10() throws Exception {
+        when(bookRepository.findBooksByIsbnIn(Set.of("9780345498526", "0345498526"))).thenReturn(List.<Object[]>of(new Object[]{"0345498526", book}));
+
+        Optional<Book> result = bookService.getBookByIsbn("978-0-345-49852-6");
+
+        assertEquals(Optional.of(book), result);
+        verify(externalBookFlyweightFactory, never()).getBookByIsbn(anyString());
+    }
+
+    @Test
+    void getBookByIsbnShouldFallBackToExternalWithNormalizedIsbn() throws Exception {
+        when(externalBookFlyweightFactory.getBookByIsbn("9780345498526")).thenReturn(Optional.of(book));
+
+        Optional<Book> result = bookService.getBookByIsbn("0345498526");
+
+        assertEquals(Optional.of(book), result);
+    }
+
+    @Test
+    void getBookByIsbnShouldThrowOnInvalidIsbn() {
+        assertThrows(InvalidIsbnException.class, () -> bookService.getBookByIsbn("0345498520"));
+        verifyNoInteractions(bookRepository, externalBookFlyweightFactory);
+    }
+
+    @Test
+    void getBooksByIsbnsShouldReturnResultPerRequestedIsbn() throws BulkLimitExceededException {
+        Book external = Book.builder().bookID("OL2M").title("External").build();
+        when(bookRepository.findBooksByIsbnIn(any())).thenReturn(List.<Object[]>of(new Object[]{"9780345498526", book}));
+        when(externalBookFlyweightFactory.getBookByIsbnAsync("9780439420891")).thenReturn(CompletableFuture.completedFuture(Optional.of(external)));
+        when(externalBookFlyweightFactory.getBookByIsbnAsync("9780306406157")).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+        when(externalBookFlyweightFactory.getBookByIsbnAsync("9781861972712")).thenReturn(CompletableFuture.failedFuture(new IOException("timeout")));
+
+        List<IsbnLookup> results = bookService.getBooksByIsbns(List.of("9780345498526", "043942089X", "9780306406157", "1861972717", "invalid", "0345498526"));
+
+        assertEquals(6, results.size());
+        assertEquals(List.of(IsbnLookupStatus.FOUND, IsbnLookupStatus.FOUND, IsbnLookupStatus.NOT_FOUND, IsbnLookupStatus.FAILED,
+                IsbnLookupStatus.INVALID, IsbnLookupStatus.FOUND), results.stream().map(IsbnLookup::getStatus).toList());
+        assertSame(book, results.get(0).getBook());
+        assertSame(external, results.get(1).getBook());
+        assertEquals("9780439420891", results.get(1).getNormalizedIsbn());
+        assertEquals("invalid", results.get(4).getIsbn());
+        assertNull(results.get(4).getNormalizedIsbn());
+        assertSame(book, results.get(5).getBook());
+        verify(bookRepository, times(1)).findBooksByIsbnIn(any());
+        verify(externalBookFlyweightFactory, times(3)).getBookByIsbnAsync(anyString());
+    }
+
+    @Test
+    void getBooksByIsbnsShouldRejectTooManyIsbns() {
+        List<String> isbns = Collections.nCopies(BookService.MAX_BULK_ISBNS + 1, "9780345498526");
+
+        assertThrows(BulkLimitExceededException.class, () -> bookService.getBooksByIsbns(isbns));
+        verifyNoInteractions(bookRepository, externalBookFlyweightFactory);
+    }
+
+    @Test
+    void getKnownBookByIdDoesNotQueryOpenLibrary() throws UnexpectedStatusException, IOException {
+        when(bookRepository.getBookByBookID(BOOK_ID)).thenReturn(Optional.empty());
+        assertTrue(bookService.getKnownBookById(BOOK_ID).isEmpty());
+        verify(externalBookFlyweightFactory, never()).getBookByID(any());
+    }
+
     @Test
     void getAllKnownBooksReturnsPaginatedBooks() {
-        when(bookRepository.findAll(any(PageRequest.class))).thenReturn(new PageImpl<>(List.of(book)));
-        when(bookRepository.count()).thenReturn(1L);
-        BookList result = bookService.getAllKnownBooks(0, 10);
+        BookSummary summary = summaryOf(book);
+        when(bookRepository.findSummaries(user.getId(), 0, 10)).thenReturn(List.of(summary));
+        when(rowCounterService.getCount(eq(RowCounterService.BOOKS), any())).thenReturn(1L);
+        BookSummaryList result = bookService.getAllKnownBooks(0, 10, user);
+        assertEquals(List.of(summary), result.getBooks());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void getAllKnownBooksLoadsAuthorsOfWholePageAtOnce() {
+        Book other = Book.builder().bookID("OL2M").title("Other Book").id(UUID.randomUUID()).build();
+        when(bookRepository.findSummaries(user.getId(), 0, 10)).thenReturn(List.of(summaryOf(book), summaryOf(other)));
+        when(bookRepository.findAuthorNames(List.of(book.getId(), other.getId()))).thenReturn(List.of(
+                new Object[]{book.getId(), "Author A"}, new Object[]{book.getId(), "Author B"}));
+        when(rowCounterService.getCount(eq(RowCounterService.BOOKS), any())).thenReturn(2L);
+
+        BookSummaryList result = bookService.getAllKnownBooks(0, 10, user);
+
+        assertEquals(List.of("Author A", "Author B"), result.getBooks().get(0).getAuthors());
+        assertEquals(List.of(), result.getBooks().get(1).getAuthors());
+        verify(bookRepository, times(1)).findAuthorNames(any());
+    }
+
+    @Test
+    void getAllKnownBooksLoadsIsbnsOfWholePageAtOnce() {
+        Book other = Book.builder().bookID("OL2M").title("Other Book").id(UUID.randomUUID()).build();
+        when(bookRepository.findSummaries(user.getId(), 0, 10)).thenReturn(List.of(summaryOf(book), summaryOf(other)));
+        when(bookRepository.findIsbns(List.of(book.getId(), other.getId()))).thenReturn(List.of(
+                new Object[]{other.getId(), "9780345498526"}, new Object[]{other.getId(), "0345498526"}));
+        when(rowCounterService.getCount(eq(RowCounterService.BOOKS), any())).thenReturn(2L);
+
+        BookSummaryList result = bookService.getAllKnownBooks(0, 10, user);
+
+        assertEquals(List.of(), result.getBooks().get(0).getIsbns());
+        assertEquals(List.of("9780345498526", "0345498526"), result.getBooks().get(1).getIsbns());
+        verify(bookRepository, times(1)).findIsbns(any());
+    }
+
+    @Test
+    void getAllKnownBooksWithoutUserQueriesWithoutUserId() {
+        when(bookRepository.findSummaries(null, 0, 10)).thenReturn(List.of(summaryOf(book)));
+        when(rowCounterService.getCount(eq(RowCounterService.BOOKS), any())).thenReturn(1L);
+        BookSummaryList result = bookService.getAllKnownBooks(0, 10, null);
         assertEquals(1, result.getBooks().size());
     }
 
+    @Test
+    void getAllKnownBooksReturnsCursorWhenMoreBooksExist() throws InvalidCursorException {
+        when(bookRepository.findSummaries(user.getId(), 0, 1)).thenReturn(List.of(summaryOf(book)));
+        when(rowCounterService.getCount(eq(RowCounterService.BOOKS), any())).thenReturn(2L);
+        BookSummaryList result = bookService.getAllKnownBooks(0, 1, user);
+        assertEquals(new BookCursor(book.getTitle(), book.getId()), BookCursor.decode(result.getNextCursor()));
+    }
+
+    @Test
+    void streamAllKnownBooksLoadsNextChunkOnlyWhenConsumed() {
+        List<BookSummary> firstChunk = IntStream.range(0, BookService.STREAM_CHUNK_SIZE)
+                .mapToObj(i -> summaryOf(Book.builder().bookID("OL" + i + "M").title("Book " + i).id(UUID.randomUUID()).build())).toList();
+        BookSummary last = firstChunk.getLast();
+        BookSummary next = summaryOf(Book.builder().bookID("OL2M").title("Zebra").id(UUID.randomUUID()).build());
+        when(bookRepository.findSummaries(user.getId(), 0, BookService.STREAM_CHUNK_SIZE)).thenReturn(firstChunk);
+        when(bookRepository.findSummariesAfter(user.getId(), last.getTitle(), last.getId(), PageRequest.ofSize(BookService.STREAM_CHUNK_SIZE))).thenReturn(List.of(next));
+
+        Stream<BookSummary> books = bookService.streamAllKnownBooks(user);
+        verify(bookRepository, never()).findSummariesAfter(any(), any(), any(), any());
+
+        List<BookSummary> all = books.toList();
+        assertEquals(BookService.STREAM_CHUNK_SIZE + 1, all.size());
+        assertEquals(next, all.getLast());
+        verify(bookRepository, times(1)).findSummariesAfter(any(), any(), any(), any()); // The short second chunk is the last one
+        verify(bookRepository, times(2)).findAuthorNames(any());
+    }
+
+    @Test
+    void getAllKnownBooksAfterSeeksToCursorAndDetectsNextPage() throws InvalidCursorException {
+        UUID lastId = UUID.randomUUID();
+        BookSummary first = summaryOf(book);
+        BookSummary second = summaryOf(Book.builder().bookID("OL2M").title("Zebra").id(UUID.randomUUID()).build());
+        when(bookRepository.findSummariesAfter(eq(user.getId()), eq("Alpha"), eq(lastId), any())).thenReturn(List.of(first, second));
+        when(rowCounterService.getCount(eq(RowCounterService.BOOKS), any())).thenReturn(5L);
+
+        BookSummaryList result = bookService.getAllKnownBooksAfter(new BookCursor("Alpha", lastId).encode(), 3, 1, user);
+
+        assertEquals(List.of(first), result.getBooks());
+        assertEquals(5, result.getNumResults());
+        assertEquals(3, result.getStartIndex());
+        assertEquals(new BookCursor(book.getTitle(), book.getId()), BookCursor.decode(result.getNextCursor()));
+        verify(bookRepository).findSummariesAfter(user.getId(), "Alpha", lastId, PageRequest.of(0, 2));
+    }
+
+    @Test
+    void getAllKnownBooksAfterReturnsNoCursorOnLastPage() throws InvalidCursorException {
+        when(bookRepository.findSummariesAfter(any(), any(), any(), any())).thenReturn(List.of(summaryOf(book)));
+
+        BookSummaryList result = bookService.getAllKnownBooksAfter(new BookCursor("Alpha", UUID.randomUUID()).encode(), 0, 10, null);
+
+        assertEquals(1, result.getBooks().size());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void getAllKnownBooksAfterShouldThrowOnInvalidCursor() {
+        assertThrows(InvalidCursorException.class, () -> bookService.getAllKnownBooksAfter("garbage", 0, 10, user));
+        verify(bookRepository, never()).findSummariesAfter(any(), any(), any(), any());
+    }
+
+    @Test
+    void getAllBooksInLibraryAfterReturnsBooksAfterCursor() throws InvalidCursorException {
+        UUID lastId = UUID.randomUUID();
+        BookSummary summary = summaryOf(book);
+        when(libraryBookRepository.getLibrarySummariesAfter(eq(user.getId()), eq("Alpha"), eq(lastId), any())).thenReturn(List.of(summary));
+        when(rowCounterService.getCount(eq(RowCounterService.library(user)), any())).thenReturn(2L);
+
+        BookSummaryList result = bookService.getAllBooksInLibraryAfter(new BookCursor("Alpha", lastId).encode(), 1, 10, user);
+
+        assertEquals(List.of(summary), result.getBooks());
+        assertEquals(2, result.getNumResults());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void getAllBooksOnWishlistAfterReturnsBooksAfterCursor() throws InvalidCursorException {
+        UUID lastId = UUID.randomUUID();
+        BookSummary summary = summaryOf(book);
+        when(userRepository.getWishlistSummariesAfter(eq(user.getId()), eq("Alpha"), eq(lastId), any())).thenReturn(List.of(summary));
+        when(rowCounterService.getCount(eq(RowCounterService.wishlist(user)), any())).thenReturn(2L);
+
+        BookSummaryList result = bookService.getAllBooksOnWishlistAfter(new BookCursor("Alpha", lastId).encode(), 1, 10, user);
+
+        assertEquals(List.of(summary), result.getBooks());
+        assertEquals(2, result.getNumResults());
+        assertNull(result.getNextCursor());
+    }
+
     @Test
     void getAllBooksInLibraryReturnsUserBooks() {
-        LibraryBook libraryBook = LibraryBook.builder().book(book).user(user).build();
-        when(libraryBookRepository.getLibraryBooksByUser(eq(user), any())).thenReturn(List.of(libraryBook));
-        when(libraryBookRepository.countByUser(user)).thenReturn(1L);
-        BookList result = bookService.getAllBooksInLibrary(0, 10, user);
+        when(libraryBookRepository.getLibrarySummaries(user.getId(), 0, 10)).thenReturn(List.of(summaryOf(book)));
+        when(rowCounterService.getCount(eq(RowCounterService.library(user)), any())).thenReturn(1L);
+        BookSummaryList result = bookService.getAllBooksInLibrary(0, 10, user);
         assertEquals(1, result.getBooks().size());
     }
 
     @Test
-    void getAllBooksOnWishlistReturnsSortedWishlist() {
-        user.getWishlistBooks().add(book);
-        when(userRepository.getUserById(user.getId())).thenReturn(user);
-        BookList result = bookService.getAllBooksOnWishlist(0, 10, user);
+    void getAllBooksOnWishlistReturnsPageFromDatabase() {
+        when(userRepository.getWishlistSummaries(user.getId(), 0, 10)).thenReturn(List.of(summaryOf(book)));
+        when(rowCounterService.getCount(eq(RowCounterService.wishlist(user)), any())).thenReturn(1L);
+        BookSummaryList result = bookService.getAllBooksOnWishlist(0, 10, user);
         assertEquals(1, result.getBooks().size());
+        assertNull(result.getNextCursor());
+        verify(userRepository, never()).getUserById(any());
+    }
+
+    @Test
+    void getAllBooksOnWishlistUsesExactOffsetAndReturnsCursor() throws InvalidCursorException {
+        BookSummary summary = summaryOf(book);
+        when(userRepository.getWishlistSummaries(user.getId(), 3, 2)).thenReturn(List.of(summary));
+        when(rowCounterService.getCount(eq(RowCounterService.wishlist(user)), any())).thenReturn(10L);
+
+        BookSummaryList result = bookService.getAllBooksOnWishlist(3, 2, user);
+
+        assertEquals(List.of(summary), result.getBooks());
+        assertEquals(10, result.getNumResults());
+        assertEquals(3, result.getStartIndex());
+        assertEquals(new BookCursor(book.getTitle(), book.getId()), BookCursor.decode(result.getNextCursor()));
     }
 
     @Test
     void getAllBooksOnWishlistShouldReturnEmptyListWhenWishlistIsEmpty() {
-        when(userRepository.getUserById(user.getId())).thenReturn(user);
+        when(userRepository.getWishlistSummaries(user.getId(), 0, 5)).thenReturn(List.of());
 
-        BookList result = bookService.getAllBooksOnWishlist(0, 5, user);
+        BookSummaryList result = bookService.getAllBooksOnWishlist(0, 5, user);
         assertNotNull(result);
         assertEquals(0, result.getBooks().size());
         assertEquals(0, result.getNumResults());
         assertEquals(0, result.getStartIndex());
-        assertEquals(0, result.getSkippedBooks());
     }
 
     @Test
@@ -142,63 +395,222 @@ class BookServiceTest {
     void addBookToLibraryAddsAndRemovesFromWishlist() throws UnexpectedStatusException, IOException, BookNotFoundException {
         when(bookRepository.getBookByBookID(BOOK_ID)).thenReturn(Optional.empty());
         when(externalBookFlyweightFactory.getBookByID(BOOK_ID)).thenReturn(Optional.of(book));
-        when(libraryBookRepository.getLibraryBooksById(any())).thenReturn(Optional.empty());
+        when(bookRepository.insertIfAbsent(any(), eq(BOOK_ID), any(), any(), any(), any(), any(), any())).thenReturn(1);
+        when(bookRepository.save(book)).thenReturn(book);
+        when(libraryBookRepository.insertIfAbsent(any(), eq(user.getId()), eq(ReadingStatus.UNREAD.ordinal()))).thenReturn(1);
         bookService.addBookToLibrary(BOOK_ID, user);
-        verify(libraryBookRepository).save(any());
+        verify(bookRepository).save(book);
+        verify(libraryBookRepository).insertIfAbsent(book.getId(), user.getId(), ReadingStatus.UNREAD.ordinal());
+        verify(bookRepository).insertRatingIfAbsent(book.getId());
+        verify(userRepository).removeFromWishlist(user.getId(), BOOK_ID);
+        verify(rowCounterService).addToCount(eq(RowCounterService.BOOKS), eq(1L), any());
+        verify(rowCounterService).addToCount(eq(RowCounterService.library(user)), eq(1L), any());
     }
 
     @Test
-    void addBookToWishListAddsIfNotExists() throws UnexpectedStatusException, IOException, BookNotFoundException {
+    void addBookToLibraryShouldReuseStoredAuthorsAndCreateMissingOnes() throws Exception {
+        Author stored = new Author(UUID.randomUUID(), "Author A");
+        Author created = new Author(UUID.randomUUID(), "Author B");
+        book.setAuthors(Author.fromNames(List.of("Author A", "Author B", "Author A")));
         when(bookRepository.getBookByBookID(BOOK_ID)).thenReturn(Optional.empty());
         when(externalBookFlyweightFactory.getBookByID(BOOK_ID)).thenReturn(Optional.of(book));
-        when(userRepository.getUserById(user.getId())).thenReturn(user);
-        bookService.addBookToWishList(BOOK_ID, user);
-        assertTrue(user.getWishlistBooks().contains(book));
+        when(bookRepository.insertIfAbsent(any(), eq(BOOK_ID), any(), any(), any(), any(), any(), any())).thenReturn(1);
+        when(authorRepository.findByNameIn(Set.of("Author A", "Author B"))).thenReturn(List.of(stored));
+        when(authorRepository.findByNameIn(List.of("Author B"))).thenReturn(List.of(created));
+        when(bookRepository.save(book)).thenReturn(book);
+
+        bookService.addBookToLibrary(BOOK_ID, user);
+
+        verify(authorRepository).insertIfAbsent(any(), eq("Author B"));
+        verify(authorRepository, never()).insertIfAbsent(any(), eq("Author A"));
+        assertEquals(List.of(stored, created, stored), book.getAuthors());
+        ArgumentCaptor<BookStoredEvent> event = ArgumentCaptor.forClass(BookStoredEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(book.getId(), event.getValue().getId());
+        assertEquals(List.of("Author A", "Author B", "Author A"), event.getValue().getAuthors());
     }
 
     @Test
-    void addBookToLibraryShouldSaveLibraryBookWhenNotAlreadyInLibrary() throws Exception {
+    void addBookToLibraryShouldReuseBookStoredConcurrently() throws Exception {
+        Book concurrentlyStored = Book.builder().bookID(BOOK_ID).title("Test Book").id(UUID.randomUUID()).build();
+        when(bookRepository.getBookByBookID(BOOK_ID)).thenReturn(Optional.empty()).thenReturn(Optional.of(concurrentlyStored));
+        when(externalBookFlyweightFactory.getBookByID(BOOK_ID)).thenReturn(Optional.of(book));
+        when(bookRepository.insertIfAbsent(any(), eq(BOOK_ID), any(), any(), any(), any(), any(), any())).thenReturn(0);
+        when(libraryBookRepository.insertIfAbsent(concurrentlyStored.getId(), user.getId(), ReadingStatus.UNREAD.ordinal())).thenReturn(1);
 
-        LibraryBookKey key = new LibraryBookKey(book.getId(), user.getId());
-        LibraryBook existingLibraryBook = LibraryBook.builder()
-                .id(key)
-                .book(book)
-                .user(user)
-                .rating(3)
-                .readingStatus(ReadingStatus.READING)
-                .build();
+        bookService.addBookToLibrary(BOOK_ID, user);
+
+        verify(bookRepository, never()).save(any());
+        verify(rowCounterService, never()).addToCount(eq(RowCounterService.BOOKS), anyLong(), any());
+        verifyNoInteractions(eventPublisher);
+        verify(libraryBookRepository).insertIfAbsent(concurrentlyStored.getId(), user.getId(), ReadingStatus.UNREAD.ordinal());
+    }
 
+    @Test
+    void addBooksToLibraryShouldResolveBooksAndReportResultPerBook() throws Exception {
+        Book fetched = Book.builder().bookID("OL2M").title("Fetched").build();
+        Book inLibrary = Book.builder().bookID("OL5M").title("In library").id(UUID.randomUUID()).build();
+        when(bookRepository.findByBookIDIn(List.of(BOOK_ID, "OL2M", "OL3M", "OL4M", "OL5M"))).thenReturn(List.of(book, inLibrary));
+        when(bookRepository.findByBookIDIn(List.of(BOOK_ID, "OL2M", "OL5M"))).thenReturn(List.of(book, inLibrary));
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(externalBookFlyweightFactory.getBookByIDAsync("OL2M")).thenReturn(CompletableFuture.completedFuture(Optional.of(fetched)));
+        when(externalBookFlyweightFactory.getBookByIDAsync("OL3M")).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+        when(externalBookFlyweightFactory.getBookByIDAsync("OL4M")).thenReturn(CompletableFuture.failedFuture(new IOException("timeout")));
+        when(bookRepository.insertIfAbsent(any(), eq("OL2M"), any(), any(), any(), any(), any(), any())).thenReturn(1);
+        when(bookRepository.save(fetched)).thenReturn(fetched);
+        when(libraryBookRepository.findBookIdsInLibrary(eq(user.getId()), any())).thenReturn(List.of(inLibrary.getId()));
+        when(entityManager.getReference(User.class, user.getId())).thenReturn(user);
+
+        List<BulkResult> results = bookService.addBooksToLibrary(List.of(BOOK_ID, "OL2M", "OL3M", "OL4M", "OL5M", " ", BOOK_ID), user);
+
+        assertEquals(List.of(BOOK_ID, "OL2M", "OL3M", "OL4M", "OL5M", " "), results.stream().map(BulkResult::getBookID).toList());
+        assertEquals(List.of(BulkResultStatus.DONE, BulkResultStatus.DONE, BulkResultStatus.NOT_FOUND, BulkResultStatus.FAILED,
+                BulkResultStatus.DONE, BulkResultStatus.INVALID), results.stream().map(BulkResult::getStatus).toList());
+        ArgumentCaptor<LibraryBook> persisted = ArgumentCaptor.forClass(LibraryBook.class);
+        verify(entityManager, times(2)).persist(persisted.capture());
+        assertEquals(List.of(book, fetched), persisted.getAllValues().stream().map(LibraryBook::getBook).toList());
+        verify(bookRepository).insertRatingsIfAbsent(List.of(book.getId(), fetched.getId()));
+        verify(rowCounterService).addToCount(eq(RowCounterService.BOOKS), eq(1L), any());
+        verify(rowCounterService).addToCount(eq(RowCounterService.library(user)), eq(2L), any());
+        verify(userRepository).removeAllFromWishlist(user.getId(), List.of(book.getId(), inLibrary.getId(), fetched.getId()));
+        verify(libraryBookRepository, never()).insertIfAbsent(any(), any(), anyInt());
+        InOrder inOrder = inOrder(externalBookFlyweightFactory, transactionTemplate, bookRepository);
+        inOrder.verify(externalBookFlyweightFactory).getBookByIDAsync("OL4M");
+        inOrder.verify(transactionTemplate).execute(any());
+        inOrder.verify(bookRepository).insertIfAbsent(any(), eq("OL2M"), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void addBooksToLibraryShouldRejectTooManyBooks() {
+        List<String> bookIDs = Collections.nCopies(BookService.MAX_BULK_BOOKS + 1, BOOK_ID);
+
+        assertThrows(BulkLimitExceededException.class, () -> bookService.addBooksToLibrary(bookIDs, user));
+        verifyNoInteractions(bookRepository, libraryBookRepository, externalBookFlyweightFactory);
+    }
+
+    @Test
+    void removeBooksFromLibraryShouldDeleteEntriesAndRemoveRatings() throws BulkLimitExceededException {
+        Book unowned = Book.builder().bookID("OL2M").title("Unowned").id(UUID.randomUUID()).build();
+        LibraryBook lb = LibraryBook.builder().book(book).user(user).rating(4).build();
+        when(bookRepository.findByBookIDIn(List.of(BOOK_ID, "OL2M", "OL3M"))).thenReturn(List.of(book, unowned));
+        when(libraryBookRepository.findForUpdateByUserIdAndBookIds(eq(user.getId()), any())).thenReturn(List.of(lb));
+
+        List<BulkResult> results = bookService.removeBooksFromLibrary(List.of(BOOK_ID, "OL2M", "OL3M"), user);
+
+        assertEquals(List.of(BulkResultStatus.DONE, BulkResultStatus.NOT_IN_LIBRARY, BulkResultStatus.NOT_FOUND),
+                results.stream().map(BulkResult::getStatus).toList());
+        verify(libraryBookRepository).deleteAll(argThat((Iterable<LibraryBook> deleted) -> List.of(lb).equals(new ArrayList<>((Collection<LibraryBook>) deleted))));
+        verify(bookRepository).updateRating(book.getId(), 4, 0);
+        verify(rowCounterService).addToCount(eq(RowCounterService.library(user)), eq(-1L), any());
+    }
+
+    @Test
+    void rateBooksShouldUpdateRatingsAndAggregates() throws BulkLimitExceededException {
+        Book other = Book.builder().bookID("OL2M").title("Other").id(UUID.randomUUID()).build();
+        LibraryBook lb = LibraryBook.builder().book(book).user(user).rating(2).build();
+        LibraryBook otherLb = LibraryBook.builder().book(other).user(user).rating(3).build();
+        when(bookRepository.findByBookIDIn(List.of(BOOK_ID, "OL2M"))).thenReturn(List.of(book, other));
+        when(libraryBookRepository.findForUpdateByUserIdAndBookIds(eq(user.getId()), any())).thenReturn(List.of(lb, otherLb));
+        Map<String, Integer> ratings = new LinkedHashMap<>();
+        ratings.put(BOOK_ID, 5);
+        ratings.put("OL2M", 3);
+        ratings.put("OL3M", 6);
+
+        List<BulkResult> results = bookService.rateBooks(ratings, user);
+
+        assertEquals(List.of(BulkResultStatus.DONE, BulkResultStatus.DONE, BulkResultStatus.INVALID), results.stream().map(BulkResult::getStatus).toList());
+        assertEquals(5, lb.getRating());
+        verify(bookRepository).updateRating(book.getId(), 2, 5);
+        verify(bookRepository, never()).updateRating(eq(other.getId()), anyInt(), anyInt());
+    }
+
+    @Test
+    void rateBooksShouldClearRatingWithZero() throws BulkLimitExceededException {
+        LibraryBook lb = LibraryBook.builder().book(book).user(user).rating(4).build();
+        when(bookRepository.findByBookIDIn(List.of(BOOK_ID))).thenReturn(List.of(book));
+        when(libraryBookRepository.findForUpdateByUserIdAndBookIds(eq(user.getId()), any())).thenReturn(List.of(lb));
+        Map<String, Integer> ratings = new LinkedHashMap<>();
+        ratings.put(BOOK_ID, 0);
+        ratings.put("OL2M", -1);
+
+        List<BulkResult> results = bookService.rateBooks(ratings, user);
+
+        assertEquals(List.of(BulkResultStatus.DONE, BulkResultStatus.INVALID), results.stream().map(BulkResult::getStatus).toList());
+        assertEquals(0, lb.getRating());
+        verify(bookRepository).updateRating(book.getId(), 4, 0);
+    }
+
+    @Test
+    void updateReadingStatusesShouldUpdateEntriesInLibrary() throws BulkLimitExceededException {
+        LibraryBook lb = LibraryBook.builder().book(book).user(user).readingStatus(ReadingStatus.UNREAD).build();
+        when(bookRepository.findByBookIDIn(List.of(BOOK_ID))).thenReturn(List.of(book));
+        when(libraryBookRepository.findForUpdateByUserIdAndBookIds(eq(user.getId()), any())).thenReturn(List.of(lb));
+        Map<String, ReadingStatus> statuses = new LinkedHashMap<>();
+        statuses.put(BOOK_ID, ReadingStatus.READ);
+        statuses.put("OL2M", null);
+
+        List<BulkResult> results = bookService.updateReadingStatuses(statuses, user);
+
+        assertEquals(List.of(BulkResultStatus.DONE, BulkResultStatus.INVALID), results.stream().map(BulkResult::getStatus).toList());
+        assertEquals(ReadingStatus.READ, lb.getReadingStatus());
+        verify(rowCounterService).addToCount(eq(RowCounterService.libraryVersion(user)), eq(1L), any());
+    }
+
+    @Test
+    void addBookToWishListAddsIfNotExists() throws UnexpectedStatusException, IOException, BookNotFoundException {
+        when(bookRepository.getBookByBookID(BOOK_ID)).thenReturn(Optional.empty());
+        when(externalBookFlyweightFactory.getBookByID(BOOK_ID)).thenReturn(Optional.of(book));
+        when(bookRepository.insertIfAbsent(any(), eq(BOOK_ID), any(), any(), any(), any(), any(), any())).thenReturn(1);
+        when(bookRepository.save(book)).thenReturn(book);
+        when(userRepository.addToWishlist(eq(user.getId()), any())).thenReturn(1);
+        bookService.addBookToWishList(BOOK_ID, user);
+        verify(userRepository).addToWishlist(user.getId(), book.getId()); // the book got its ID when it was stored
+        verify(rowCounterService).addToCount(eq(RowCounterService.wishlist(user)), eq(1L), any());
+        verify(rowCounterService).addToCount(eq(RowCounterService.libraryVersion(user)), eq(1L), any());
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void addBookToLibraryShouldNotInsertTwiceWhenAlreadyInLibrary() throws Exception {
         when(bookRepository.getBookByBookID(BOOK_ID)).thenReturn(Optional.of(book));
-        when(libraryBookRepository.getLibraryBooksById(any())).thenReturn(Optional.of(existingLibraryBook));
-        when(userRepository.getUserById(user.getId())).thenReturn(user); // for removeBookFromWishlist()
+        when(libraryBookRepository.insertIfAbsent(book.getId(), user.getId(), ReadingStatus.UNREAD.ordinal())).thenReturn(0);
 
         bookService.addBookToLibrary(BOOK_ID, user);
 
         verify(libraryBookRepository, never()).save(any());
-        verify(libraryBookRepository).getLibraryBooksById(any());
+        verify(libraryBookRepository).insertIfAbsent(book.getId(), user.getId(), ReadingStatus.UNREAD.ordinal());
+        verify(bookRepository, never()).insertRatingIfAbsent(any());
+        verify(rowCounterService, never()).addToCount(any(), anyLong(), any());
     }
 
     @Test
     void addBookToWishListShouldNotAddWhenAlreadyOnWishlist() throws Exception {
-        User userWithWishlist = User.builder()
-                .id(user.getId())
-                .username(user.getUsername())
-                .wishlistBooks(new HashSet<>(List.of(book)))
-                .build();
-
         when(bookRepository.getBookByBookID(BOOK_ID)).thenReturn(Optional.of(book));
-        when(userRepository.getUserById(user.getId())).thenReturn(userWithWishlist);
+        when(userRepository.addToWishlist(user.getId(), book.getId())).thenReturn(0);
         bookService.addBookToWishList(BOOK_ID, user);
         verify(userRepository, never()).save(any());
+        verify(rowCounterService, never()).addToCount(eq(RowCounterService.libraryVersion(user)), anyLong(), any());
     }
 
     @Test
     void removeBookFromLibraryRemovesIfExists(){
         LibraryBook libraryBook = LibraryBook.builder().book(book).user(user).build();
         when(bookRepository.getBookByBookID(BOOK_ID)).thenReturn(Optional.of(book));
-        when(libraryBookRepository.getLibraryBooksById(any())).thenReturn(Optional.of(libraryBook));
+        when(libraryBookRepository.findForUpdateById(any())).thenReturn(Optional.of(libraryBook));
         bookService.removeBookFromLibrary(BOOK_ID, user);
         verify(libraryBookRepository).delete(libraryBook);
+        verify(bookRepository, never()).updateRating(any(), anyInt(), anyInt()); // the book was not rated
+    }
+
+    @Test
+    void removeBookFromLibraryShouldRemoveRatingFromAggregates() {
+        LibraryBook libraryBook = LibraryBook.builder().book(book).user(user).rating(4).build();
+        when(bookRepository.getBookByBookID(BOOK_ID)).thenReturn(Optional.of(book));
+        when(libraryBookRepository.findForUpdateById(any())).thenReturn(Optional.of(libraryBook));
+        bookService.removeBookFromLibrary(BOOK_ID, user);
+        verify(bookRepository).updateRating(book.getId(), 4, 0);
+        verify(libraryBookRepository).delete(libraryBook);
+        verify(rowCounterService).addToCount(eq(RowCounterService.library(user)), eq(-1L), any());
     }
 
     @Test
@@ -213,7 +625,7 @@ class BookServiceTest {
     @Test
     void removeBookFromLibraryShouldLogDebugWhenBookNotInLibrary() {
         when(bookRepository.getBookByBookID(BOOK_ID)).thenReturn(Optional.of(book));
-        when(libraryBookRepository.getLibraryBooksById(any())).thenReturn(Optional.empty());
+        when(libraryBookRepository.findForUpdateById(any())).thenReturn(Optional.empty());
 
         assertDoesNotThrow(() -> bookService.removeBookFromLibrary(BOOK_ID, user));
 
@@ -223,11 +635,19 @@ class BookServiceTest {
 
     @Test
     void removeBookFromWishlistRemovesIfPresent() {
-        user.getWishlistBooks().add(book);
-        when(bookRepository.getBookByBookID(BOOK_ID)).thenReturn(Optional.of(book));
-        when(userRepository.getUserById(user.getId())).thenReturn(user);
+        when(userRepository.removeFromWishlist(user.getId(), BOOK_ID)).thenReturn(1);
+        bookService.removeBookFromWishlist(BOOK_ID, user);
+        verify(userRepository).removeFromWishlist(user.getId(), BOOK_ID);
+        verify(userRepository, never()).getUserById(any());
+        verify(rowCounterService).addToCount(eq(RowCounterService.wishlist(user)), eq(-1L), any());
+    }
+
+    @Test
+    void removeBookFromWishlistShouldDoNothingWhenNotOnWishlist() {
+        when(userRepository.removeFromWishlist(user.getId(), BOOK_ID)).thenReturn(0);
         bookService.removeBookFromWishlist(BOOK_ID, user);
-        assertFalse(user.getWishlistBooks().contains(book));
+        verify(userRepository, never()).save(any());
+        verify(rowCounterService, never()).addToCount(any(), anyLong(), any());
     }
 
     @Test
@@ -259,15 +679,14 @@ class BookServiceTest {
 
     @Test
     void isBookOnWishlistReturnsTrueIfPresent() {
-        user.getWishlistBooks().add(book);
-        when(bookRepository.getBookByBookID(BOOK_ID)).thenReturn(Optional.of(book));
-        when(userRepository.getUserById(user.getId())).thenReturn(user);
+        when(userRepository.isBookOnWishlist(user.getId(), BOOK_ID)).thenReturn(true);
         assertTrue(bookService.isBookOnWishlist(BOOK_ID, user));
+        verify(userRepository, never()).getUserById(any());
     }
 
     @Test
     void isBookOnWishlistShouldReturnFalseWhenBookNotFound() {
-        when(bookRepository.getBookByBookID(BOOK_ID)).thenReturn(Optional.empty());
+        when(userRepository.isBookOnWishlist(user.getId(), BOOK_ID)).thenReturn(false);
 
         boolean result = bookService.isBookOnWishlist(BOOK_ID, user);
 
@@ -276,12 +695,40 @@ class BookServiceTest {
 
 
     @Test
-    void rateBookShouldUpdateRating() throws BookNotInLibraryException, BookNotFoundException {
+    void rateBookShouldUpdateRating() throws BookNotInLibraryException, BookNotFoundException, InvalidRatingException {
         LibraryBook libraryBook = LibraryBook.builder().book(book).user(user).build();
         when(bookRepository.getBookByBookID(BOOK_ID)).thenReturn(Optional.of(book));
-        when(libraryBookRepository.getLibraryBooksById(any())).thenReturn(Optional.of(libraryBook));
+        when(libraryBookRepository.findForUpdateById(any())).thenReturn(Optional.of(libraryBook));
         bookService.rateBook(BOOK_ID, user, 5);
         assertEquals(5, libraryBook.getRating());
+        verify(bookRepository).insertRatingIfAbsent(book.getId());
+        verify(bookRepository).updateRating(book.getId(), 0, 5);
+    }
+
+    @Test
+    void rateBookShouldReplacePreviousRatingInAggregates() throws BookNotInLibraryException, BookNotFoundException, InvalidRatingException {
+        LibraryBook libraryBook = LibraryBook.builder().book(book).user(user).rating(2).build();
+        when(bookRepository.getBookByBookID(BOOK_ID)).thenReturn(Optional.of(book));
+        when(libraryBookRepository.findForUpdateById(any())).thenReturn(Optional.of(libraryBook));
+        bookService.rateBook(BOOK_ID, user, 4);
+        verify(bookRepository).updateRating(book.getId(), 2, 4);
+    }
+
+    @Test
+    void rateBookShouldNotTouchAggregatesWhenRatingIsUnchanged() throws BookNotInLibraryException, BookNotFoundException, InvalidRatingException {
+        LibraryBook libraryBook = LibraryBook.builder().book(book).user(user).rating(3).build();
+        when(bookRepository.getBookByBookID(BOOK_ID)).thenReturn(Optional.of(book));
+        when(libraryBookRepository.findForUpdateById(any())).thenReturn(Optional.of(libraryBook));
+        bookService.rateBook(BOOK_ID, user, 3);
+        verify(bookRepository, never()).updateRating(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void rateBookShouldRejectRatingOutsideRange() {
+        assertThrows(InvalidRatingException.class, () -> bookService.rateBook(BOOK_ID, user, 6));
+        assertThrows(InvalidRatingException.class, () -> bookService.rateBook(BOOK_ID, user, -1));
+        verify(libraryBookRepository, never()).findForUpdateById(any());
+        verify(bookRepository, never()).updateRating(any(), anyInt(), anyInt());
     }
 
     @Test
@@ -333,4 +780,9 @@ class BookServiceTest {
         verify(userRepository, never()).save(any());
     }
 
-}
\ No newline at end of file
+
+    private static BookSummary summaryOf(Book book) {
+        return new BookSummary(book.getId(), book.getBookID(), book.getTitle(), null, null, null, null, null,
+                null, null, null, null, null, false);
+    }
+}
@@ -78,26 +78,23 @@ class CustomUserDetailsServiceTest {
         String rawPassword = "secure123";
         String encodedPassword = "encodedPassword";
 
-        when(userRepository.getUserByUsername(USERNAME)).thenReturn(null);
         when(passwordEncoder.encode(rawPassword)).thenReturn(encodedPassword);
+        when(userRepository.insertIfAbsent(any(), eq(USERNAME), eq(encodedPassword))).thenReturn(1);
 
         userDetailsService.addUser(USERNAME, rawPassword);
 
-        ArgumentCaptor<User> captor = ArgumentCaptor.forClass(User.class);
-        verify(userRepository).save(captor.capture());
-
-        User savedUser = captor.getValue();
-        assertEquals(USERNAME, savedUser.getUsername());
-        assertEquals(encodedPassword, savedUser.getPasswordHash());
-        assertNotNull(savedUser.getId());
+        ArgumentCaptor<UUID> captor = ArgumentCaptor.forClass(UUID.class);
+        verify(userRepository).insertIfAbsent(captor.capture(), eq(USERNAME), eq(encodedPassword));
+        assertNotNull(captor.getValue());
     }
 
     @Test
     void addUserShouldThrowWhenUsernameExists() {
-        when(userRepository.getUserByUsername(USERNAME)).thenReturn(user);
+        when(passwordEncoder.encode("any")).thenReturn("encoded");
+        when(userRepository.insertIfAbsent(any(), eq(USERNAME), eq("encoded"))).thenReturn(0);
 
         assertThrows(UsernameExistsException.class, () -> userDetailsService.addUser(USERNAME, "any"));
 
         verify(userRepository, never()).save(any());
     }
-}
\ No newline at end of file
+}
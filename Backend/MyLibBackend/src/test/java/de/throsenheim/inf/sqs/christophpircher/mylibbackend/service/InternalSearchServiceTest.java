@@ -0,0 +1,128 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookSummary;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookSummaryList;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.BookRepository;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.search.BookSearchIndexer;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.search.IndexSearchResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InternalSearchServiceTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private BookService bookService;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private DatabaseMetaData metaData;
+
+    private InternalSearchService internalSearchService;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        internalSearchService = new InternalSearchService(bookRepository, bookService, dataSource, Optional.empty());
+        lenient().when(dataSource.getConnection()).thenReturn(connection);
+        lenient().when(connection.getMetaData()).thenReturn(metaData);
+    }
+
+    @Test
+    void searchShouldUseFullTextSearchOnPostgres() throws SQLException {
+        when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        internalSearchService.detectFullTextSearchSupport();
+        List<UUID> ids = List.of(UUID.randomUUID(), UUID.randomUUID());
+        List<BookSummary> books = List.of(summary("OL1M"), summary("OL2M"));
+        when(bookRepository.searchFullText("mass effect", 0, 2)).thenReturn(ids);
+        when(bookRepository.countFullText("mass effect")).thenReturn(5L);
+        when(bookService.getKnownBooksByIds(ids, null)).thenReturn(books);
+
+        BookSummaryList result = internalSearchService.searchKeywordsInternal("mass effect", 0, 2, null);
+
+        assertEquals(books, result.getBooks());
+        assertEquals(5, result.getNumResults());
+        verify(bookRepository, never()).searchSubstring(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void searchShouldSkipCountOnLastPage() throws SQLException {
+        when(metaData.getDatabaseProductName()).thenReturn("H2");
+        internalSearchService.detectFullTextSearchSupport();
+        List<UUID> ids = List.of(UUID.randomUUID());
+        when(bookRepository.searchSubstring("%effect%", 10, 5)).thenReturn(ids);
+        when(bookService.getKnownBooksByIds(ids, null)).thenReturn(List.of(summary("OL1M")));
+
+        BookSummaryList result = internalSearchService.searchKeywordsInternal(" Effect ", 10, 5, null);
+
+        assertEquals(11, result.getNumResults());
+        assertEquals(10, result.getStartIndex());
+        verify(bookRepository, never()).countSubstring(anyString());
+    }
+
+    @Test
+    void searchShouldUseIndexOnceBuilt() {
+        BookSearchIndexer indexer = mock(BookSearchIndexer.class);
+        InternalSearchService indexed = new InternalSearchService(bookRepository, bookService, dataSource, Optional.of(indexer));
+        List<UUID> ids = List.of(UUID.randomUUID());
+        when(indexer.isReady()).thenReturn(true);
+        when(indexer.search("hobit", 0, 10)).thenReturn(new IndexSearchResult(ids, 1));
+        when(bookService.getKnownBooksByIds(ids, null)).thenReturn(List.of(summary("OL1M")));
+
+        BookSummaryList result = indexed.searchKeywordsInternal("hobit", 0, 10, null);
+
+        assertEquals(1, result.getNumResults());
+        assertEquals("OL1M", result.getBooks().getFirst().getBookID());
+        verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    void searchShouldUseDatabaseWhileIndexIsBuilt() {
+        BookSearchIndexer indexer = mock(BookSearchIndexer.class);
+        InternalSearchService indexed = new InternalSearchService(bookRepository, bookService, dataSource, Optional.of(indexer));
+        when(bookRepository.searchSubstring("%hobbit%", 0, 10)).thenReturn(List.of());
+
+        assertEquals(0, indexed.searchKeywordsInternal("hobbit", 0, 10, null).getNumResults());
+        verify(indexer, never()).search(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void searchShouldReturnEmptyListForBlankKeywords() {
+        BookSummaryList result = internalSearchService.searchKeywordsInternal("  ", 0, 10, null);
+
+        assertTrue(result.getBooks().isEmpty());
+        assertEquals(0, result.getNumResults());
+        verifyNoInteractions(bookRepository, bookService);
+    }
+
+    @Test
+    void toLikePatternShouldEscapeWildcards() {
+        assertEquals("%100!% !_a!!%", InternalSearchService.toLikePattern("100% _A!"));
+    }
+
+    private static BookSummary summary(String bookID) {
+        return new BookSummary(UUID.randomUUID(), bookID, "Title", null, null, null, null, null, null, null, null, null, null, false);
+    }
+}
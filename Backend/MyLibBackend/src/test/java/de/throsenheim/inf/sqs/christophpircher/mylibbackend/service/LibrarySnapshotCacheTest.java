@@ -0,0 +1,134 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidCursorException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LibrarySnapshotCacheTest {
+
+    private static final int PAGE_BYTES = 100;
+    private static final long TTL_MILLIS = 60_000;
+
+    @Mock
+    private RowCounterService rowCounterService;
+
+    private LibrarySnapshotCache cache;
+    private User user;
+    private final AtomicInteger serializations = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        cache = new LibrarySnapshotCache(rowCounterService, 1_000_000, TTL_MILLIS);
+        user = User.builder().id(UUID.randomUUID()).username("user").build();
+    }
+
+    @Test
+    void getPageShouldReturnCachedPageWhileVersionIsUnchanged() {
+        when(rowCounterService.getCount(any(), any())).thenReturn(1L);
+
+        byte[] first = getPage(cache, user, 0);
+
+        assertSame(first, getPage(cache, user, 0));
+        assertEquals(1, serializations.get());
+    }
+
+    @Test
+    void getPageShouldReloadPageAfterLibraryChanged() {
+        when(rowCounterService.getCount(eq(RowCounterService.libraryVersion(user)), any())).thenReturn(1L, 2L);
+
+        getPage(cache, user, 0);
+        getPage(cache, user, 0);
+
+        assertEquals(2, serializations.get());
+    }
+
+    @Test
+    void getPageShouldCachePagesPerUserListingAndPosition() {
+        when(rowCounterService.getCount(anyString(), any())).thenReturn(1L);
+        User otherUser = User.builder().id(UUID.randomUUID()).username("other").build();
+
+        getPage(cache, user, 0);
+        getPage(cache, user, 1);
+        getPage(cache, otherUser, 0);
+        cache.getPage(user, LibrarySnapshotCache.WISHLIST, 0, 10, null, this::serialize);
+
+        assertEquals(4, serializations.get());
+    }
+
+    @Test
+    void getPageShouldReloadExpiredPage() {
+        LibrarySnapshotCache expiringCache = new LibrarySnapshotCache(rowCounterService, 1_000_000, 0);
+        when(rowCounterService.getCount(any(), any())).thenReturn(1L);
+
+        getPage(expiringCache, user, 0);
+        getPage(expiringCache, user, 0);
+
+        assertEquals(2, serializations.get());
+    }
+
+    @Test
+    void getPageShouldEvictLeastRecentlyUsedPageWhenBudgetIsExceeded() {
+        long pageSize = PAGE_BYTES + LibrarySnapshotCache.ENTRY_OVERHEAD_BYTES;
+        LibrarySnapshotCache smallCache = new LibrarySnapshotCache(rowCounterService, 2 * pageSize, TTL_MILLIS);
+        when(rowCounterService.getCount(any(), any())).thenReturn(1L);
+
+        getPage(smallCache, user, 0);
+        getPage(smallCache, user, 1);
+        getPage(smallCache, user, 0); // page 1 is now the least recently used one
+        getPage(smallCache, user, 2);
+        assertEquals(3, serializations.get());
+        assertEquals(2 * pageSize, smallCache.getUsedBytes());
+
+        getPage(smallCache, user, 0);
+        assertEquals(3, serializations.get());
+        getPage(smallCache, user, 1);
+        assertEquals(4, serializations.get());
+    }
+
+    @Test
+    void getPageShouldNotCachePageLargerThanBudget() {
+        LibrarySnapshotCache tinyCache = new LibrarySnapshotCache(rowCounterService, PAGE_BYTES, TTL_MILLIS);
+        when(rowCounterService.getCount(any(), any())).thenReturn(1L);
+
+        getPage(tinyCache, user, 0);
+        getPage(tinyCache, user, 0);
+
+        assertEquals(2, serializations.get());
+        assertEquals(0, tinyCache.getUsedBytes());
+    }
+
+    @Test
+    void getPageShouldNotCacheFailedPage() throws InvalidCursorException {
+        when(rowCounterService.getCount(any(), any())).thenReturn(1L);
+
+        assertThrows(InvalidCursorException.class, () -> cache.getPage(user, LibrarySnapshotCache.LIBRARY, 0, 10, "broken", () -> {
+            throw new InvalidCursorException("Malformed cursor");
+        }));
+
+        cache.getPage(user, LibrarySnapshotCache.LIBRARY, 0, 10, "broken", this::serialize);
+        assertEquals(1, serializations.get());
+    }
+
+    private byte[] getPage(LibrarySnapshotCache snapshotCache, User owner, int startIndex) {
+        return snapshotCache.getPage(owner, LibrarySnapshotCache.LIBRARY, startIndex, 10, null, this::serialize);
+    }
+
+    private byte[] serialize() {
+        serializations.incrementAndGet();
+        return new byte[PAGE_BYTES];
+    }
+}
@@ -0,0 +1,131 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.User;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.RowCounterRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RowCounterServiceTest {
+
+    @Mock
+    private RowCounterRepository rowCounterRepository;
+
+    @Mock
+    private LongSupplier recount;
+
+    @InjectMocks
+    private RowCounterService rowCounterService;
+
+    private static final String LIBRARY = "library:" + UUID.randomUUID();
+
+    @Test
+    void getCountShouldReturnStoredTotalWithoutCounting() {
+        when(rowCounterRepository.getTotal(LIBRARY)).thenReturn(Optional.of(42L));
+
+        assertEquals(42L, rowCounterService.getCount(LIBRARY, recount));
+        verifyNoInteractions(recount);
+    }
+
+    @Test
+    void getCountShouldSumShardsOfBookCounter() {
+        when(rowCounterRepository.getShardedTotal(RowCounterService.BOOKS)).thenReturn(Optional.of(42L));
+
+        assertEquals(42L, rowCounterService.getCount(RowCounterService.BOOKS, recount));
+        verifyNoInteractions(recount);
+    }
+
+    @Test
+    void getCountShouldCreateMissingCounterFromCount() {
+        when(rowCounterRepository.getShardedTotal(RowCounterService.BOOKS)).thenReturn(Optional.empty());
+        when(recount.getAsLong()).thenReturn(7L);
+
+        assertEquals(7L, rowCounterService.getCount(RowCounterService.BOOKS, recount));
+        verify(rowCounterRepository).insertIfAbsent(RowCounterService.BOOKS, 7L);
+    }
+
+    @Test
+    void addToCountShouldUpdateExistingCounter() {
+        when(rowCounterRepository.add(RowCounterService.BOOKS, 1L)).thenReturn(1);
+
+        rowCounterService.addToCount(RowCounterService.BOOKS, 1, recount, 0);
+
+        verify(rowCounterRepository, never()).insertIfAbsent(any(), anyLong());
+        verifyNoInteractions(recount);
+    }
+
+    @Test
+    void addToCountShouldCreateMissingCounterFromCount() {
+        when(rowCounterRepository.add(RowCounterService.BOOKS, 1L)).thenReturn(0);
+        when(recount.getAsLong()).thenReturn(3L);
+        when(rowCounterRepository.insertIfAbsent(RowCounterService.BOOKS, 3L)).thenReturn(1);
+
+        rowCounterService.addToCount(RowCounterService.BOOKS, 1, recount, 0);
+
+        verify(rowCounterRepository, times(1)).add(RowCounterService.BOOKS, 1L);
+    }
+
+    @Test
+    void addToCountShouldAddToCounterCreatedConcurrently() {
+        when(rowCounterRepository.add(RowCounterService.BOOKS, -1L)).thenReturn(0).thenReturn(1);
+        when(recount.getAsLong()).thenReturn(3L);
+        when(rowCounterRepository.insertIfAbsent(RowCounterService.BOOKS, 3L)).thenReturn(0);
+
+        rowCounterService.addToCount(RowCounterService.BOOKS, -1, recount, 0);
+
+        verify(rowCounterRepository, times(2)).add(RowCounterService.BOOKS, -1L);
+    }
+
+    @Test
+    void addToCountShouldAddToShardWhenCounterExists() {
+        when(rowCounterRepository.getTotal(RowCounterService.BOOKS)).thenReturn(Optional.of(10L));
+
+        rowCounterService.addToCount(RowCounterService.BOOKS, 2, recount, 3);
+
+        verify(rowCounterRepository).upsertAdd(RowCounterService.BOOKS + "#3", 2L);
+        verify(rowCounterRepository, never()).add(any(), anyLong());
+        verifyNoInteractions(recount);
+    }
+
+    @Test
+    void addToCountShouldCreateCounterInsteadOfShardWhenCounterIsMissing() {
+        when(rowCounterRepository.getTotal(RowCounterService.BOOKS)).thenReturn(Optional.empty());
+        when(rowCounterRepository.add(RowCounterService.BOOKS, 2L)).thenReturn(0);
+        when(recount.getAsLong()).thenReturn(5L);
+        when(rowCounterRepository.insertIfAbsent(RowCounterService.BOOKS, 5L)).thenReturn(1);
+
+        rowCounterService.addToCount(RowCounterService.BOOKS, 2, recount, 3);
+
+        verify(rowCounterRepository, never()).upsertAdd(any(), anyLong());
+    }
+
+    @Test
+    void addToCountShouldNotShardPerUserCounters() {
+        when(rowCounterRepository.add(LIBRARY, 1L)).thenReturn(1);
+
+        for (int i = 0; i < 20; i++) {
+            rowCounterService.addToCount(LIBRARY, 1, recount);
+        }
+
+        verify(rowCounterRepository, times(20)).add(LIBRARY, 1L);
+        verify(rowCounterRepository, never()).upsertAdd(any(), anyLong());
+    }
+
+    @Test
+    void counterNamesShouldBePerUser() {
+        User user = User.builder().id(UUID.randomUUID()).build();
+
+        assertEquals("library:" + user.getId(), RowCounterService.library(user));
+        assertEquals("wishlist:" + user.getId(), RowCounterService.wishlist(user));
+    }
+}
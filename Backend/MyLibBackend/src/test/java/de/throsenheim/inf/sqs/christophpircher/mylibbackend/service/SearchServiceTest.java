@@ -4,16 +4,24 @@ import de.throsenheim.inf.sqs.christophpircher.mylibbackend.api.OpenLibraryAPI;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.UnexpectedStatusException;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Book;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookList;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookSummary;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.BookSummaryList;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.HybridSearchResult;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.SearchContinuation;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.flyweights.SearchResultFlyweightFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
-import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -27,18 +35,22 @@ class SearchServiceTest {
     @Mock
     private SearchResultFlyweightFactory flyweightFactory;
 
-    @InjectMocks
+    @Mock
+    private InternalSearchService internalSearchService;
+
     private SearchService searchService;
 
     private static final String VALID_KEYWORDS = "java";
     private static final String EMPTY_KEYWORDS = "   ";
     private static final int START_INDEX = 0;
     private static final int NUM_RESULTS = 5;
+    private static final long DEADLINE_MILLIS = 50;
 
     private BookList mockBookList;
 
     @BeforeEach
     void setUp() {
+        searchService = new SearchService(openLibraryAPI, flyweightFactory, internalSearchService, DEADLINE_MILLIS);
         mockBookList = BookList.builder()
                 .books(List.of(Book.builder().bookID("OL123").title("Effective Java").build()))
                 .numResults(1)
@@ -94,4 +106,128 @@ class SearchServiceTest {
         assertThrows(UnexpectedStatusException.class, () ->
                 searchService.searchKeywordsExternal(VALID_KEYWORDS, START_INDEX, NUM_RESULTS));
     }
+
+    @Test
+    void searchKeywordsExternalShouldPassResolvedBooksToConsumer() throws UnexpectedStatusException, IOException {
+        Consumer<Book> onBookResolved = book -> { };
+        when(flyweightFactory.search(VALID_KEYWORDS, START_INDEX, NUM_RESULTS, onBookResolved)).thenReturn(mockBookList);
+
+        BookList result = searchService.searchKeywordsExternal(VALID_KEYWORDS, START_INDEX, NUM_RESULTS, onBookResolved);
+
+        assertEquals(mockBookList, result);
+        verify(flyweightFactory).search(VALID_KEYWORDS, START_INDEX, NUM_RESULTS, onBookResolved);
+    }
+
+    @Test
+    void searchKeywordsHybridShouldMergeLocalAndExternalResultsWithoutDuplicates() {
+        BookList external = BookList.builder()
+                .books(List.of(Book.builder().bookID("OL123").build(), Book.builder().bookID("OL456").build()))
+                .numResults(2)
+                .build();
+        when(flyweightFactory.searchAsync(VALID_KEYWORDS, START_INDEX, NUM_RESULTS)).thenReturn(CompletableFuture.completedFuture(external));
+        when(internalSearchService.searchKeywordsInternal(VALID_KEYWORDS, 0, NUM_RESULTS, null)).thenReturn(localResults("OL123"));
+
+        HybridSearchResult result = searchService.searchKeywordsHybridAsync(VALID_KEYWORDS, START_INDEX, NUM_RESULTS, null).join();
+
+        assertEquals(List.of("OL123"), result.getLocalBooks().stream().map(BookSummary::getBookID).toList());
+        assertEquals(1, result.getNumLocalResults());
+        assertEquals(List.of("OL456"), result.getExternalBooks().getBooks().stream().map(Book::getBookID).toList());
+        assertEquals(2, result.getExternalBooks().getNumResults());
+        assertEquals(2, external.getBooks().size());
+        assertNull(result.getContinuation());
+    }
+
+    @Test
+    void searchKeywordsHybridShouldReturnContinuationWhenExternalSearchMissesDeadline() throws Exception {
+        when(flyweightFactory.searchAsync(VALID_KEYWORDS, START_INDEX, NUM_RESULTS)).thenReturn(new CompletableFuture<>());
+        when(internalSearchService.searchKeywordsInternal(VALID_KEYWORDS, 0, NUM_RESULTS, null)).thenReturn(localResults("OL123"));
+
+        HybridSearchResult result = searchService.searchKeywordsHybridAsync(VALID_KEYWORDS, START_INDEX, NUM_RESULTS, null).join();
+
+        assertEquals(1, result.getLocalBooks().size());
+        assertNull(result.getExternalBooks());
+        assertEquals(new SearchContinuation(VALID_KEYWORDS, START_INDEX, NUM_RESULTS), SearchContinuation.decode(result.getContinuation()));
+    }
+
+    @Test
+    void searchKeywordsHybridShouldNotWaitForOpenLibraryOnTheCallingThread() {
+        CompletableFuture<BookList> external = new CompletableFuture<>();
+        when(flyweightFactory.searchAsync(VALID_KEYWORDS, START_INDEX, NUM_RESULTS)).thenReturn(external);
+        when(internalSearchService.searchKeywordsInternal(VALID_KEYWORDS, 0, NUM_RESULTS, null)).thenReturn(localResults("OL123"));
+
+        SearchService patientSearchService = new SearchService(openLibraryAPI, flyweightFactory, internalSearchService, 60_000);
+
+        CompletableFuture<HybridSearchResult> result = patientSearchService.searchKeywordsHybridAsync(VALID_KEYWORDS, START_INDEX, NUM_RESULTS, null);
+
+        assertFalse(result.isDone());
+        external.complete(mockBookList);
+        assertTrue(result.join().getExternalBooks().getBooks().isEmpty());
+        assertFalse(external.isCancelled());
+    }
+
+    @Test
+    void searchKeywordsHybridShouldReturnContinuationWhenExternalSearchFails() {
+        when(flyweightFactory.searchAsync(VALID_KEYWORDS, START_INDEX, NUM_RESULTS)).thenReturn(CompletableFuture.failedFuture(new IOException("Connection failed")));
+        when(internalSearchService.searchKeywordsInternal(VALID_KEYWORDS, 0, NUM_RESULTS, null)).thenReturn(localResults("OL123"));
+
+        HybridSearchResult result = searchService.searchKeywordsHybridAsync(VALID_KEYWORDS, START_INDEX, NUM_RESULTS, null).join();
+
+        assertEquals(1, result.getLocalBooks().size());
+        assertNull(result.getExternalBooks());
+        assertNotNull(result.getContinuation());
+    }
+
+    @Test
+    void searchKeywordsHybridShouldOnlyReturnLocalResultsOnFirstPage() {
+        when(flyweightFactory.searchAsync(VALID_KEYWORDS, NUM_RESULTS, NUM_RESULTS)).thenReturn(CompletableFuture.completedFuture(mockBookList));
+        when(internalSearchService.searchKeywordsInternal(VALID_KEYWORDS, 0, NUM_RESULTS, null)).thenReturn(localResults("OL123"));
+
+        HybridSearchResult result = searchService.searchKeywordsHybridAsync(VALID_KEYWORDS, NUM_RESULTS, NUM_RESULTS, null).join();
+
+        assertTrue(result.getLocalBooks().isEmpty());
+        assertEquals(1, result.getNumLocalResults());
+        assertTrue(result.getExternalBooks().getBooks().isEmpty());
+    }
+
+    @Test
+    void continueHybridSearchShouldReturnExternalResultsWithoutLocalResults() {
+        BookList external = BookList.builder().books(List.of(Book.builder().bookID("OL456").build())).numResults(1).build();
+        when(flyweightFactory.searchAsync(VALID_KEYWORDS, START_INDEX, NUM_RESULTS)).thenReturn(CompletableFuture.completedFuture(external));
+        when(internalSearchService.searchKeywordsInternal(VALID_KEYWORDS, 0, NUM_RESULTS, null)).thenReturn(localResults("OL123"));
+
+        HybridSearchResult result = searchService.continueHybridSearchAsync(new SearchContinuation(VALID_KEYWORDS, START_INDEX, NUM_RESULTS), null).join();
+
+        assertTrue(result.getLocalBooks().isEmpty());
+        assertEquals(List.of("OL456"), result.getExternalBooks().getBooks().stream().map(Book::getBookID).toList());
+        assertNull(result.getContinuation());
+    }
+
+    @Test
+    void continueHybridSearchShouldReturnSameContinuationWhenExternalSearchMissesDeadlineAgain() {
+        SearchContinuation continuation = new SearchContinuation(VALID_KEYWORDS, START_INDEX, NUM_RESULTS);
+        when(flyweightFactory.searchAsync(VALID_KEYWORDS, START_INDEX, NUM_RESULTS)).thenReturn(new CompletableFuture<>());
+        when(internalSearchService.searchKeywordsInternal(VALID_KEYWORDS, 0, NUM_RESULTS, null)).thenReturn(localResults());
+
+        HybridSearchResult result = searchService.continueHybridSearchAsync(continuation, null).join();
+
+        assertNull(result.getExternalBooks());
+        assertEquals(continuation.encode(), result.getContinuation());
+    }
+
+    @Test
+    void continueHybridSearchShouldFailWhenExternalSearchFails() {
+        when(flyweightFactory.searchAsync(VALID_KEYWORDS, START_INDEX, NUM_RESULTS)).thenReturn(CompletableFuture.failedFuture(new UnexpectedStatusException("Unexpected response")));
+        when(internalSearchService.searchKeywordsInternal(VALID_KEYWORDS, 0, NUM_RESULTS, null)).thenReturn(localResults());
+        SearchContinuation continuation = new SearchContinuation(VALID_KEYWORDS, START_INDEX, NUM_RESULTS);
+
+        CompletionException e = assertThrows(CompletionException.class, () -> searchService.continueHybridSearchAsync(continuation, null).join());
+        assertInstanceOf(UnexpectedStatusException.class, e.getCause());
+    }
+
+    private static BookSummaryList localResults(String... bookIDs) {
+        List<BookSummary> books = Arrays.stream(bookIDs)
+                .map(bookID -> new BookSummary(UUID.randomUUID(), bookID, "Title", null, null, null, null, null, null, null, null, null, null, false))
+                .toList();
+        return BookSummaryList.builder().books(books).numResults(books.size()).build();
+    }
 }
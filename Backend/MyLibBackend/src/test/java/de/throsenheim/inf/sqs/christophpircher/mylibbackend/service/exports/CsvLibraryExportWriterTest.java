@@ -0,0 +1,54 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.exports;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidImportFileException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.ImportJobRow;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.ReadingStatus;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.imports.CsvReader;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.imports.LibraryCsvFormat;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvLibraryExportWriterTest {
+
+    @Test
+    void writeBookShouldQuoteFieldsWithSeparatorsAndQuotes() throws IOException {
+        ExportedBook book = new ExportedBook(UUID.randomUUID(), "OL1M", "Title, with comma", "The \"subtitle\"", null, "2008", 0, null);
+        book.getAuthors().add("First Author");
+        book.getAuthors().add("Second Author");
+
+        assertEquals(CsvLibraryExportWriter.HEADER + "\r\n" +
+                "OL1M,,\"Title, with comma\",\"The \"\"subtitle\"\"\",\"First Author, Second Author\",2008,0,\r\n", write(book));
+    }
+
+    @Test
+    void exportShouldBeReadableByLibraryImport() throws IOException, InvalidImportFileException {
+        ExportedBook book = new ExportedBook(UUID.randomUUID(), "OL23106658M", "Mass effect", "Ascension", "9780345498526", "2008", 4, ReadingStatus.READING);
+
+        CsvReader reader = new CsvReader(new StringReader(write(book)));
+        LibraryCsvFormat format = LibraryCsvFormat.fromHeader(reader.readRecord());
+        ImportJobRow row = format.toRow(UUID.randomUUID(), 1, reader.readRecord());
+
+        assertEquals("OL23106658M", row.getBookID());
+        assertEquals("9780345498526", row.getIsbn());
+        assertEquals(4, row.getRating());
+        assertEquals(ReadingStatus.READING, row.getReadingStatus());
+        assertNull(reader.readRecord());
+    }
+
+    private static String write(ExportedBook book) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CsvLibraryExportWriter writer = new CsvLibraryExportWriter(out)) {
+            writer.writeStart();
+            writer.writeBook(book);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -2,7 +2,10 @@ package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.flyweights;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Clock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.mock;
@@ -60,4 +63,19 @@ class CacheEntryTest {
         long now = System.currentTimeMillis();
         assertTrue(entry.timestamp <= now);
     }
-}
\ No newline at end of file
+
+    @Test
+    void serializedShouldSerializeValueOnlyOnce() {
+        CacheEntry<String> entry = new CacheEntry<>("test");
+        AtomicInteger serializations = new AtomicInteger();
+        Supplier<byte[]> serializer = () -> {
+            serializations.incrementAndGet();
+            return "\"test\"".getBytes(StandardCharsets.UTF_8);
+        };
+
+        byte[] first = entry.serialized(serializer);
+
+        assertSame(first, entry.serialized(serializer));
+        assertEquals(1, serializations.get());
+    }
+}
@@ -2,7 +2,9 @@ package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.flyweights;
 
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.api.OpenLibraryAPI;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.UnexpectedStatusException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Author;
 import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Book;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Deadline;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,9 +16,15 @@ import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -31,10 +39,11 @@ class ExternalBookFlyweightFactoryTest {
     private ExternalBookFlyweightFactory flyweightFactory;
 
     private static final String BOOK_ID = "OL1234567M";
+    private static final String ISBN = "9780345498526";
     private static final Book DUMMY_BOOK = Book.builder()
             .bookID(BOOK_ID)
             .title("Title")
-            .authors(List.of("Author"))
+            .authors(List.of(Author.of("Author")))
             .publishDate("2023")
             .build();
 
@@ -88,6 +97,40 @@ class ExternalBookFlyweightFactoryTest {
         assertEquals(DUMMY_BOOK, result.get());
     }
 
+    @Test
+    void getBookByIDShouldStampBookWithCacheVersion() throws UnexpectedStatusException, IOException, IllegalAccessException {
+        Book book = Book.builder().bookID(BOOK_ID).title("Title").build();
+        when(openLibraryAPI.getBookByBookID(BOOK_ID)).thenReturn(Optional.of(book));
+
+        flyweightFactory.getBookByID(BOOK_ID);
+
+        assertTrue(book.getCacheVersion() > 0);
+        assertEquals(getCache().get(BOOK_ID).timestamp, book.getCacheVersion());
+    }
+
+    @Test
+    void getSerializedBookShouldSerializeCachedBookOnlyOnce() throws UnexpectedStatusException, IOException {
+        when(openLibraryAPI.getBookByBookID(BOOK_ID)).thenReturn(Optional.of(DUMMY_BOOK));
+        Book book = flyweightFactory.getBookByID(BOOK_ID).orElseThrow();
+        AtomicInteger serializations = new AtomicInteger();
+
+        byte[] first = flyweightFactory.getSerializedBook(book, () -> serialize(serializations));
+
+        assertSame(first, flyweightFactory.getSerializedBook(book, () -> serialize(serializations)));
+        assertEquals(1, serializations.get());
+    }
+
+    @Test
+    void getSerializedBookShouldSerializeUncachedBookEveryTime() {
+        Book book = Book.builder().bookID(BOOK_ID).title("Not cached").build();
+        AtomicInteger serializations = new AtomicInteger();
+
+        flyweightFactory.getSerializedBook(book, () -> serialize(serializations));
+        flyweightFactory.getSerializedBook(book, () -> serialize(serializations));
+
+        assertEquals(2, serializations.get());
+    }
+
     @Test
     void getBookByIDShouldReturnEmptyOptionalAndCacheItWhenBookNotFound() throws UnexpectedStatusException, IOException {
         when(openLibraryAPI.getBookByBookID(BOOK_ID)).thenReturn(Optional.empty());
@@ -97,6 +140,97 @@ class ExternalBookFlyweightFactoryTest {
         assertTrue(result.isEmpty());
     }
 
+    @Test
+    void getBookByIDAsyncShouldFetchAndCache() throws Exception {
+        when(openLibraryAPI.getBookByBookIDAsync(BOOK_ID, null)).thenReturn(CompletableFuture.completedFuture(Optional.of(DUMMY_BOOK)));
+
+        assertEquals(Optional.of(DUMMY_BOOK), flyweightFactory.getBookByIDAsync(BOOK_ID).get());
+        assertEquals(Optional.of(DUMMY_BOOK), flyweightFactory.getBookByID(BOOK_ID));
+        assertTrue(flyweightFactory.getBookByIDAsync(BOOK_ID).isDone());
+        verify(openLibraryAPI, times(1)).getBookByBookIDAsync(BOOK_ID, null);
+        verify(openLibraryAPI, never()).getBookByBookID(anyString());
+    }
+
+    @Test
+    void getBookByIDAsyncShouldNotCacheFailures() throws Exception {
+        when(openLibraryAPI.getBookByBookIDAsync(BOOK_ID, null)).thenReturn(CompletableFuture.failedFuture(new IOException("timeout")));
+
+        CompletableFuture<Optional<Book>> result = flyweightFactory.getBookByIDAsync(BOOK_ID);
+
+        assertTrue(result.isCompletedExceptionally());
+        assertFalse(getCache().containsKey(BOOK_ID));
+    }
+
+    @Test
+    void getBookByIDAsyncShouldNotCacheIncompleteBooks() throws Exception {
+        Deadline deadline = Deadline.after(Duration.ofSeconds(1));
+        Book incomplete = Book.builder().bookID(BOOK_ID).title("Incomplete").incomplete(true).build();
+        when(openLibraryAPI.getBookByBookIDAsync(BOOK_ID, deadline)).thenReturn(CompletableFuture.completedFuture(Optional.of(incomplete)));
+
+        assertEquals(Optional.of(incomplete), flyweightFactory.getBookByIDAsync(BOOK_ID, deadline).get());
+        assertFalse(getCache().containsKey(BOOK_ID));
+    }
+
+    @Test
+    void getBookByIDAsyncShouldCancelLookupWhenCancelled() {
+        CompletableFuture<Optional<Book>> lookup = new CompletableFuture<>();
+        when(openLibraryAPI.getBookByBookIDAsync(BOOK_ID, null)).thenReturn(lookup);
+
+        flyweightFactory.getBookByIDAsync(BOOK_ID).cancel(true);
+
+        assertTrue(lookup.isCancelled());
+    }
+
+    @Test
+    void getBookByIsbnShouldCacheBookUnderIsbnAndBookID() throws UnexpectedStatusException, IOException {
+        when(openLibraryAPI.getBookByIsbn(ISBN)).thenReturn(Optional.of(DUMMY_BOOK));
+
+        assertEquals(Optional.of(DUMMY_BOOK), flyweightFactory.getBookByIsbn(ISBN));
+        assertEquals(Optional.of(DUMMY_BOOK), flyweightFactory.getBookByIsbn(ISBN));
+        assertEquals(Optional.of(DUMMY_BOOK), flyweightFactory.getBookByID(BOOK_ID));
+
+        verify(openLibraryAPI, times(1)).getBookByIsbn(ISBN);
+        verify(openLibraryAPI, never()).getBookByBookID(anyString());
+    }
+
+    @Test
+    void getBookByIsbnShouldNotSendConcurrentRequestsForSameIsbn() throws Exception {
+        CountDownLatch requestStarted = new CountDownLatch(1);
+        CountDownLatch releaseRequest = new CountDownLatch(1);
+        when(openLibraryAPI.getBookByIsbn(ISBN)).thenAnswer(invocation -> {
+            requestStarted.countDown();
+            releaseRequest.await();
+            return Optional.of(DUMMY_BOOK);
+        });
+
+        CompletableFuture<Optional<Book>> first = CompletableFuture.supplyAsync(() -> lookUp(ISBN));
+        assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Optional<Book>> second = CompletableFuture.supplyAsync(() -> lookUp(ISBN));
+        releaseRequest.countDown();
+
+        assertEquals(Optional.of(DUMMY_BOOK), first.get(5, TimeUnit.SECONDS));
+        assertEquals(Optional.of(DUMMY_BOOK), second.get(5, TimeUnit.SECONDS));
+        verify(openLibraryAPI, times(1)).getBookByIsbn(ISBN);
+    }
+
+    @Test
+    void getBookByIsbnShouldNotCacheFailures() throws UnexpectedStatusException, IOException {
+        when(openLibraryAPI.getBookByIsbn(ISBN)).thenThrow(new IOException("timeout")).thenReturn(Optional.empty());
+
+        assertThrows(IOException.class, () -> flyweightFactory.getBookByIsbn(ISBN));
+        assertTrue(flyweightFactory.getBookByIsbn(ISBN).isEmpty());
+        verify(openLibraryAPI, times(2)).getBookByIsbn(ISBN);
+    }
+
+    @Test
+    void getBookByIsbnAsyncShouldReturnFailedFutureOnError() throws UnexpectedStatusException, IOException {
+        when(openLibraryAPI.getBookByIsbn(ISBN)).thenThrow(new UnexpectedStatusException("500"));
+
+        CompletableFuture<Optional<Book>> result = flyweightFactory.getBookByIsbnAsync(ISBN);
+
+        assertTrue(result.isCompletedExceptionally());
+    }
+
     @Test
     void cleanupCacheShouldRemoveOnlyExpiredEntries() throws NoSuchFieldException, IllegalAccessException, InvocationTargetException, NoSuchMethodException {
         long now = System.currentTimeMillis();
@@ -120,6 +254,19 @@ class ExternalBookFlyweightFactoryTest {
         assertTrue(map.containsKey("valid"));
     }
 
+    private static byte[] serialize(AtomicInteger serializations) {
+        serializations.incrementAndGet();
+        return "{}".getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Optional<Book> lookUp(String isbn) {
+        try {
+            return flyweightFactory.getBookByIsbn(isbn);
+        } catch (UnexpectedStatusException | IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private ConcurrentHashMap<String, CacheEntry<Optional<Book>>> getCache() throws IllegalAccessException {
         return (ConcurrentHashMap<String, CacheEntry<Optional<Book>>>) cacheField.get(flyweightFactory);
@@ -14,8 +14,16 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -92,6 +100,153 @@ class SearchResultFlyweightFactoryTest {
         assertEquals(MOCK_BOOKLIST, result);
     }
 
+    @Test
+    void searchShouldStampResultWithCacheVersion() throws Exception {
+        SearchResultFlyweightFactory.SearchResultFlyweightKey key =
+                new SearchResultFlyweightFactory.SearchResultFlyweightKey(KEYWORDS, START, COUNT);
+        BookList bookList = BookList.builder().books(List.of()).build();
+        when(openLibraryAPI.searchBooks(KEYWORDS, START, COUNT)).thenReturn(bookList);
+
+        flyweightFactory.search(KEYWORDS, START, COUNT);
+
+        assertTrue(bookList.getCacheVersion() > 0);
+        assertEquals(getCache().get(key).timestamp, bookList.getCacheVersion());
+    }
+
+    @Test
+    void getSerializedSearchResultShouldSerializeCachedResultOnlyOnce() throws Exception {
+        when(openLibraryAPI.searchBooks(KEYWORDS, START, COUNT)).thenReturn(MOCK_BOOKLIST);
+        BookList bookList = flyweightFactory.search(KEYWORDS, START, COUNT);
+        AtomicInteger serializations = new AtomicInteger();
+
+        byte[] first = flyweightFactory.getSerializedSearchResult(KEYWORDS, START, COUNT, bookList, () -> serialize(serializations));
+
+        assertSame(first, flyweightFactory.getSerializedSearchResult(KEYWORDS, START, COUNT, bookList, () -> serialize(serializations)));
+        assertEquals(1, serializations.get());
+    }
+
+    @Test
+    void getSerializedSearchResultShouldSerializeUncachedResultEveryTime() {
+        BookList bookList = BookList.builder().books(List.of()).build();
+        AtomicInteger serializations = new AtomicInteger();
+
+        flyweightFactory.getSerializedSearchResult(KEYWORDS, START, COUNT, bookList, () -> serialize(serializations));
+        flyweightFactory.getSerializedSearchResult(KEYWORDS, START, COUNT, bookList, () -> serialize(serializations));
+
+        assertEquals(2, serializations.get());
+    }
+
+    @Test
+    void searchShouldPassCachedBooksToConsumer() throws IllegalAccessException, UnexpectedStatusException, IOException {
+        getCache().put(new SearchResultFlyweightFactory.SearchResultFlyweightKey(KEYWORDS, START, COUNT), new CacheEntry<>(MOCK_BOOKLIST));
+        List<Book> resolved = new ArrayList<>();
+
+        BookList result = flyweightFactory.search(KEYWORDS, START, COUNT, resolved::add);
+
+        assertEquals(MOCK_BOOKLIST, result);
+        assertEquals(MOCK_BOOKLIST.getBooks(), resolved);
+        verifyNoInteractions(openLibraryAPI);
+    }
+
+    @Test
+    void searchWithConsumerShouldStreamFromAPIAndCacheResult() throws IllegalAccessException, UnexpectedStatusException, IOException {
+        List<Book> resolved = new ArrayList<>();
+        when(openLibraryAPI.searchBooks(eq(KEYWORDS), eq(START), eq(COUNT), any())).thenAnswer(invocation -> {
+            MOCK_BOOKLIST.getBooks().forEach(invocation.<Consumer<Book>>getArgument(3));
+            return MOCK_BOOKLIST;
+        });
+
+        BookList result = flyweightFactory.search(KEYWORDS, START, COUNT, resolved::add);
+
+        assertEquals(MOCK_BOOKLIST, result);
+        assertEquals(MOCK_BOOKLIST.getBooks(), resolved);
+        assertTrue(getCache().containsKey(new SearchResultFlyweightFactory.SearchResultFlyweightKey(KEYWORDS, START, COUNT)));
+    }
+
+    @Test
+    void searchShouldNotSendConcurrentRequestsForSameSearch() throws Exception {
+        CountDownLatch requestStarted = new CountDownLatch(1);
+        CountDownLatch releaseRequest = new CountDownLatch(1);
+        when(openLibraryAPI.searchBooks(KEYWORDS, START, COUNT)).thenAnswer(invocation -> {
+            requestStarted.countDown();
+            releaseRequest.await();
+            return MOCK_BOOKLIST;
+        });
+
+        CompletableFuture<BookList> first = CompletableFuture.supplyAsync(this::searchKeywords);
+        assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<BookList> second = CompletableFuture.supplyAsync(this::searchKeywords);
+        releaseRequest.countDown();
+
+        assertEquals(MOCK_BOOKLIST, first.get(5, TimeUnit.SECONDS));
+        assertEquals(MOCK_BOOKLIST, second.get(5, TimeUnit.SECONDS));
+        verify(openLibraryAPI, times(1)).searchBooks(KEYWORDS, START, COUNT);
+    }
+
+    @Test
+    void searchShouldNotCacheFailures() throws UnexpectedStatusException, IOException {
+        when(openLibraryAPI.searchBooks(KEYWORDS, START, COUNT)).thenThrow(new IOException("timeout")).thenReturn(MOCK_BOOKLIST);
+
+        assertThrows(IOException.class, () -> flyweightFactory.search(KEYWORDS, START, COUNT));
+        assertEquals(MOCK_BOOKLIST, flyweightFactory.search(KEYWORDS, START, COUNT));
+        verify(openLibraryAPI, times(2)).searchBooks(KEYWORDS, START, COUNT);
+    }
+
+    @Test
+    void searchAsyncShouldReturnFailedFutureOnError() {
+        when(openLibraryAPI.searchBooksAsync(KEYWORDS, START, COUNT)).thenReturn(CompletableFuture.failedFuture(new UnexpectedStatusException("500")));
+
+        CompletableFuture<BookList> result = flyweightFactory.searchAsync(KEYWORDS, START, COUNT);
+
+        assertTrue(result.isCompletedExceptionally());
+        ExecutionException e = assertThrows(ExecutionException.class, result::get);
+        assertInstanceOf(UnexpectedStatusException.class, e.getCause());
+    }
+
+    @Test
+    void searchAsyncShouldCacheResult() throws Exception {
+        when(openLibraryAPI.searchBooksAsync(KEYWORDS, START, COUNT)).thenReturn(CompletableFuture.completedFuture(MOCK_BOOKLIST));
+
+        assertEquals(MOCK_BOOKLIST, flyweightFactory.searchAsync(KEYWORDS, START, COUNT).get());
+        assertEquals(MOCK_BOOKLIST, flyweightFactory.searchAsync(KEYWORDS, START, COUNT).get());
+        assertEquals(MOCK_BOOKLIST, flyweightFactory.search(KEYWORDS, START, COUNT));
+        verify(openLibraryAPI, times(1)).searchBooksAsync(KEYWORDS, START, COUNT);
+        verify(openLibraryAPI, never()).searchBooks(KEYWORDS, START, COUNT);
+    }
+
+    @Test
+    void searchAsyncShouldShareRunningRequest() throws Exception {
+        CompletableFuture<BookList> request = new CompletableFuture<>();
+        when(openLibraryAPI.searchBooksAsync(KEYWORDS, START, COUNT)).thenReturn(request);
+
+        CompletableFuture<BookList> first = flyweightFactory.searchAsync(KEYWORDS, START, COUNT);
+        CompletableFuture<BookList> second = flyweightFactory.searchAsync(KEYWORDS, START, COUNT);
+        assertFalse(first.isDone());
+        request.complete(MOCK_BOOKLIST);
+
+        assertEquals(MOCK_BOOKLIST, first.get());
+        assertEquals(MOCK_BOOKLIST, second.get());
+        verify(openLibraryAPI, times(1)).searchBooksAsync(KEYWORDS, START, COUNT);
+    }
+
+    @Test
+    void searchAsyncShouldCancelRequestOnlyWhenAllCallersCancelled() throws Exception {
+        CompletableFuture<BookList> request = new CompletableFuture<>();
+        when(openLibraryAPI.searchBooksAsync(KEYWORDS, START, COUNT)).thenReturn(request);
+
+        CompletableFuture<BookList> first = flyweightFactory.searchAsync(KEYWORDS, START, COUNT);
+        CompletableFuture<BookList> second = flyweightFactory.searchAsync(KEYWORDS, START, COUNT);
+
+        first.cancel(true);
+        assertFalse(request.isCancelled());
+        second.cancel(true);
+        assertTrue(request.isCancelled());
+
+        // The cancelled search is neither cached nor running anymore
+        when(openLibraryAPI.searchBooksAsync(KEYWORDS, START, COUNT)).thenReturn(CompletableFuture.completedFuture(MOCK_BOOKLIST));
+        assertEquals(MOCK_BOOKLIST, flyweightFactory.searchAsync(KEYWORDS, START, COUNT).get());
+    }
+
     @Test
     void cleanupCacheShouldOnlyRemoveExpiredEntries() throws Exception {
         long now = System.currentTimeMillis();
@@ -118,6 +273,19 @@ class SearchResultFlyweightFactoryTest {
         assertFalse(getCache().containsKey(keyDrop));
     }
 
+    private static byte[] serialize(AtomicInteger serializations) {
+        serializations.incrementAndGet();
+        return "{}".getBytes(StandardCharsets.UTF_8);
+    }
+
+    private BookList searchKeywords() {
+        try {
+            return flyweightFactory.search(KEYWORDS, START, COUNT);
+        } catch (UnexpectedStatusException | IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     private void invokeCleanupCache() throws NoSuchMethodException, InvocationTargetException, IllegalAccessException {
         java.lang.reflect.Method method = SearchResultFlyweightFactory.class.getDeclaredMethod("cleanupCache");
         method.setAccessible(true);
@@ -0,0 +1,52 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.imports;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidImportFileException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTest {
+
+    @Test
+    void readRecordShouldSplitFieldsAndRecords() throws IOException, InvalidImportFileException {
+        CsvReader reader = new CsvReader(new StringReader("a,b,c\n1,,3\n"));
+
+        assertEquals(List.of("a", "b", "c"), reader.readRecord());
+        assertEquals(List.of("1", "", "3"), reader.readRecord());
+        assertNull(reader.readRecord());
+        assertEquals(2, reader.getRecordNumber());
+    }
+
+    @Test
+    void readRecordShouldHandleQuotedFields() throws IOException, InvalidImportFileException {
+        CsvReader reader = new CsvReader(new StringReader("\"Mass effect, Ascension\",\"line\r\nbreak\",\"=\"\"0345498526\"\"\"\r\nlast"));
+
+        assertEquals(List.of("Mass effect, Ascension", "line\r\nbreak", "=\"0345498526\""), reader.readRecord());
+        assertEquals(List.of("last"), reader.readRecord());
+        assertNull(reader.readRecord());
+    }
+
+    @Test
+    void readRecordShouldSkipByteOrderMark() throws IOException, InvalidImportFileException {
+        CsvReader reader = new CsvReader(new StringReader("\uFEFFISBN13\r\n"));
+
+        assertEquals(List.of("ISBN13"), reader.readRecord());
+    }
+
+    @Test
+    void readRecordShouldRejectTooLongRecord() {
+        CsvReader reader = new CsvReader(new StringReader("\"" + "x".repeat(CsvReader.MAX_RECORD_LENGTH)));
+
+        assertThrows(InvalidImportFileException.class, reader::readRecord);
+    }
+
+    @Test
+    void isBlankShouldDetectEmptyLines() {
+        assertTrue(CsvReader.isBlank(List.of(" ")));
+        assertFalse(CsvReader.isBlank(List.of("", "")));
+    }
+}
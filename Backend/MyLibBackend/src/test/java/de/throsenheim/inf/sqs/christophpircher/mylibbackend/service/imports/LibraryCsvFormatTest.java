@@ -0,0 +1,65 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.imports;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidImportFileException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.ImportJobRow;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.ReadingStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LibraryCsvFormatTest {
+
+    private static final UUID JOB_ID = UUID.randomUUID();
+    private static final List<String> GOODREADS_HEADER = List.of("Book Id", "Title", "Author", "ISBN", "ISBN13", "My Rating", "Exclusive Shelf");
+
+    @Test
+    void toRowShouldReadGoodreadsExport() throws InvalidImportFileException {
+        LibraryCsvFormat format = LibraryCsvFormat.fromHeader(GOODREADS_HEADER);
+
+        ImportJobRow row = format.toRow(JOB_ID, 1, List.of("3", "Mass effect", "Drew Karpyshyn", "=\"0345498526\"", "=\"\"", "4", "currently-reading"));
+
+        assertEquals(1, row.getId().getLine());
+        assertEquals("9780345498526", row.getIsbn());
+        assertNull(row.getBookID()); // Goodreads IDs are no OpenLibrary IDs
+        assertEquals(4, row.getRating());
+        assertEquals(ReadingStatus.READING, row.getReadingStatus());
+    }
+
+    @Test
+    void toRowShouldReadOpenLibraryIdAndLeaveOutInvalidValues() throws InvalidImportFileException {
+        LibraryCsvFormat format = LibraryCsvFormat.fromHeader(List.of("bookID", "isbn", "rating", "status"));
+
+        ImportJobRow row = format.toRow(JOB_ID, 2, List.of("OL23106658M", "9780345498520", "0", "favorites"));
+
+        assertEquals("OL23106658M", row.getBookID());
+        assertNull(row.getIsbn());
+        assertEquals(0, row.getRating());
+        assertNull(row.getReadingStatus());
+    }
+
+    @Test
+    void toRowShouldAcceptShortRecords() throws InvalidImportFileException {
+        LibraryCsvFormat format = LibraryCsvFormat.fromHeader(GOODREADS_HEADER);
+
+        ImportJobRow row = format.toRow(JOB_ID, 3, List.of("3"));
+
+        assertNull(row.getIsbn());
+        assertNull(row.getBookID());
+    }
+
+    @Test
+    void fromHeaderShouldRejectFileWithoutBookColumn() {
+        assertThrows(InvalidImportFileException.class, () -> LibraryCsvFormat.fromHeader(List.of("Title", "Author")));
+        assertThrows(InvalidImportFileException.class, () -> LibraryCsvFormat.fromHeader(null));
+    }
+
+    @Test
+    void toReadingStatusShouldMapGoodreadsShelves() {
+        assertEquals(ReadingStatus.READ, LibraryCsvFormat.toReadingStatus("read"));
+        assertEquals(ReadingStatus.UNREAD, LibraryCsvFormat.toReadingStatus("to-read"));
+        assertEquals(ReadingStatus.READING, LibraryCsvFormat.toReadingStatus("READING"));
+    }
+}
@@ -0,0 +1,143 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.imports;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.BulkLimitExceededException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.exceptions.InvalidImportFileException;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.*;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.ImportJobRepository;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.ImportJobRowRepository;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.BookService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LibraryImportServiceTest {
+
+    @Mock
+    private ImportJobRepository importJobRepository;
+
+    @Mock
+    private ImportJobRowRepository importJobRowRepository;
+
+    @Mock
+    private BookService bookService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @InjectMocks
+    private LibraryImportService libraryImportService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = User.builder().id(UUID.randomUUID()).username("testuser").build();
+    }
+
+    @Test
+    void createImportShouldStoreRowsAndQueueImport() throws Exception {
+        List<Object> persisted = new ArrayList<>();
+        doAnswer(invocation -> persisted.add(invocation.getArgument(0))).when(entityManager).persist(any());
+        when(entityManager.getReference(User.class, user.getId())).thenReturn(user);
+        when(entityManager.find(eq(ImportJob.class), any(UUID.class))).thenAnswer(invocation -> persisted.getFirst());
+
+        ImportJob job = libraryImportService.createImport(csv("ISBN13,My Rating,Exclusive Shelf\n9780345498526,5,read\n\n,0,to-read\n"), user);
+
+        assertEquals(ImportJobStatus.QUEUED, job.getStatus());
+        assertEquals(2, job.getTotalRows());
+        assertEquals(3, persisted.size());
+        ImportJobRow first = (ImportJobRow) persisted.get(1);
+        assertEquals(new ImportJobRowKey(job.getId(), 1), first.getId());
+        assertEquals("9780345498526", first.getIsbn());
+        assertEquals(5, first.getRating());
+        assertEquals(ReadingStatus.READ, first.getReadingStatus());
+        ImportJobRow second = (ImportJobRow) persisted.get(2);
+        assertEquals(2, second.getId().getLine());
+        assertNull(second.getIsbn());
+    }
+
+    @Test
+    void createImportShouldRejectEmptyFile() {
+        assertThrows(InvalidImportFileException.class, () -> libraryImportService.createImport(csv(""), user));
+        verify(entityManager, never()).persist(any());
+    }
+
+    @Test
+    void createImportShouldRejectFileWithoutRows() {
+        when(entityManager.getReference(User.class, user.getId())).thenReturn(user);
+
+        assertThrows(InvalidImportFileException.class, () -> libraryImportService.createImport(csv("ISBN13\n\n"), user));
+    }
+
+    @Test
+    void importRowsShouldAddBooksAndRecordResults() throws BulkLimitExceededException {
+        ImportJob job = runningJob(2);
+        ImportJobRow found = row(job, 1, "OL1M", 4, ReadingStatus.READ, null);
+        ImportJobRow notFound = row(job, 2, null, 0, null, BulkResultStatus.NOT_FOUND);
+        ImportJobRow storedFound = row(job, 1, null, 4, ReadingStatus.READ, null);
+        ImportJobRow storedNotFound = row(job, 2, null, 0, null, null);
+        when(importJobRepository.findForUpdateById(job.getId())).thenReturn(Optional.of(job));
+        when(bookService.addBooksToLibrary(List.of("OL1M"), user)).thenReturn(List.of(new BulkResult("OL1M", BulkResultStatus.DONE)));
+        when(importJobRowRepository.findRowsAfter(eq(job.getId()), eq(0), any())).thenReturn(List.of(storedFound, storedNotFound));
+
+        libraryImportService.importRows(job, List.of(found, notFound));
+
+        verify(bookService).rateBooks(Map.of("OL1M", 4), user);
+        verify(bookService).updateReadingStatuses(Map.of("OL1M", ReadingStatus.READ), user);
+        assertEquals("OL1M", storedFound.getBookID());
+        assertEquals(BulkResultStatus.DONE, storedFound.getStatus());
+        assertEquals(BulkResultStatus.NOT_FOUND, storedNotFound.getStatus());
+        assertEquals(ImportJobStatus.COMPLETED, job.getStatus());
+        assertEquals(2, job.getProcessedRows());
+        assertEquals(1, job.getImportedRows());
+        assertEquals(1, job.getNotFoundRows());
+    }
+
+    @Test
+    void importRowsShouldSkipChunkThatWasProcessedConcurrently() {
+        ImportJob started = runningJob(100);
+        ImportJob current = runningJob(100);
+        current.advanceTo(50);
+        when(importJobRepository.findForUpdateById(started.getId())).thenReturn(Optional.of(current));
+
+        libraryImportService.importRows(started, List.of(row(started, 1, "OL1M", 0, null, null)));
+
+        verifyNoInteractions(bookService, importJobRowRepository);
+        assertEquals(50, current.getProcessedRows());
+    }
+
+    private ImportJob runningJob(int totalRows) {
+        ImportJob job = new ImportJob(UUID.randomUUID(), user);
+        job.setTotalRows(totalRows);
+        job.start();
+        return job;
+    }
+
+    private static ImportJobRow row(ImportJob job, int line, String bookID, int rating, ReadingStatus readingStatus, BulkResultStatus status) {
+        return ImportJobRow.builder().id(new ImportJobRowKey(job.getId(), line)).bookID(bookID).rating(rating).readingStatus(readingStatus).status(status).build();
+    }
+
+    private static InputStream csv(String content) throws IOException {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,114 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.imports;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.*;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.BookService;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.flyweights.ExternalBookFlyweightFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.env.Environment;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LibraryImportWorkerTest {
+
+    private static final UUID JOB_ID = UUID.randomUUID();
+
+    @Mock
+    private LibraryImportService libraryImportService;
+
+    @Mock
+    private BookService bookService;
+
+    @Mock
+    private ExternalBookFlyweightFactory externalBookFlyweightFactory;
+
+    @Mock
+    private Environment environment;
+
+    private LibraryImportWorker libraryImportWorker;
+
+    @BeforeEach
+    void setUp() {
+        when(environment.getProperty("import.openLibraryRequestsPerSecond", Double.class, 3.0)).thenReturn(1000.0);
+        libraryImportWorker = new LibraryImportWorker(libraryImportService, bookService, externalBookFlyweightFactory, environment);
+    }
+
+    @Test
+    void resolveBooksShouldUseKnownBooksAndRequestMissingOnes() throws Exception {
+        ImportJobRow known = row(1, null, "9780345498526");
+        ImportJobRow fetched = row(2, null, "9780306406157");
+        ImportJobRow notFound = row(3, null, "9780000000002");
+        ImportJobRow failed = row(4, null, "9780439420891");
+        ImportJobRow byID = row(5, "OL3M", null);
+        ImportJobRow invalid = row(6, null, null);
+        when(bookService.getKnownBooksById(Set.of("OL3M"))).thenReturn(Map.of("OL3M", Book.builder().bookID("OL3M").build()));
+        when(bookService.getKnownBooksByIsbn(Set.of("9780345498526", "9780306406157", "9780000000002", "9780439420891")))
+                .thenReturn(Map.of("9780345498526", Book.builder().bookID("OL1M").build()));
+        when(externalBookFlyweightFactory.getBookByIsbn("9780306406157")).thenReturn(Optional.of(Book.builder().bookID("OL2M").build()));
+        when(externalBookFlyweightFactory.getBookByIsbn("9780000000002")).thenReturn(Optional.empty());
+        when(externalBookFlyweightFactory.getBookByIsbn("9780439420891")).thenThrow(new IOException("timeout"));
+
+        libraryImportWorker.resolveBooks(List.of(known, fetched, notFound, failed, byID, invalid));
+
+        assertEquals("OL1M", known.getBookID());
+        assertNull(known.getStatus());
+        assertEquals("OL2M", fetched.getBookID());
+        assertEquals(BulkResultStatus.NOT_FOUND, notFound.getStatus());
+        assertEquals(BulkResultStatus.FAILED, failed.getStatus());
+        assertNull(byID.getStatus());
+        assertEquals(BulkResultStatus.INVALID, invalid.getStatus());
+        verify(externalBookFlyweightFactory, never()).getBookByID(any());
+    }
+
+    @Test
+    void resolveBooksShouldRequestUnknownBookIDsOnce() throws Exception {
+        ImportJobRow first = row(1, "OL9M", null);
+        ImportJobRow second = row(2, "OL9M", null);
+        when(bookService.getKnownBooksById(Set.of("OL9M"))).thenReturn(Map.of());
+        when(externalBookFlyweightFactory.getBookByID("OL9M")).thenReturn(Optional.empty());
+
+        libraryImportWorker.resolveBooks(List.of(first, second));
+
+        assertEquals(BulkResultStatus.NOT_FOUND, first.getStatus());
+        assertEquals(BulkResultStatus.NOT_FOUND, second.getStatus());
+        verify(externalBookFlyweightFactory, times(1)).getBookByID("OL9M");
+    }
+
+    @Test
+    void importNextChunkShouldDoNothingWithoutImport() {
+        when(libraryImportService.startNextImport()).thenReturn(Optional.empty());
+
+        libraryImportWorker.importNextChunk();
+
+        verify(libraryImportService, never()).getNextRows(any());
+    }
+
+    @Test
+    void importNextChunkShouldFailImportOnUnexpectedError() {
+        ImportJob job = mock(ImportJob.class);
+        when(job.getId()).thenReturn(JOB_ID);
+        when(libraryImportService.startNextImport()).thenReturn(Optional.of(job));
+        when(libraryImportService.getNextRows(job)).thenReturn(List.of());
+        doThrow(new IllegalStateException("broken")).when(libraryImportService).importRows(job, List.of());
+
+        libraryImportWorker.importNextChunk();
+
+        verify(libraryImportService).failImport(JOB_ID, "broken");
+    }
+
+    private static ImportJobRow row(int line, String bookID, String isbn) {
+        return ImportJobRow.builder().id(new ImportJobRowKey(JOB_ID, line)).bookID(bookID).isbn(isbn).build();
+    }
+}
@@ -0,0 +1,73 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookSearchIndexTest {
+
+    private final UUID massEffect = UUID.randomUUID();
+    private final UUID revelation = UUID.randomUUID();
+    private final UUID effectOfMass = UUID.randomUUID();
+    private final UUID hobbit = UUID.randomUUID();
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+        index.add(massEffect, "Mass effect", "Ascension", List.of("Drew Karpyshyn"));
+        index.add(revelation, "Mass Effect: Revelation", null, List.of("Drew Karpyshyn"));
+        index.add(effectOfMass, "On the effect of mass in physics", "A long subtitle about gravity and inertia", List.of("Jane Doe"));
+        index.add(hobbit, "The Hobbit", null, List.of("J. R. R. Tolkien"));
+    }
+
+    @Test
+    void searchShouldRequireAllTermsAndRankShortTitlesFirst() {
+        IndexSearchResult result = index.search("mass effect", 0, 10);
+
+        assertEquals(3, result.getNumResults());
+        assertEquals(List.of(massEffect, revelation, effectOfMass), result.getIds());
+        assertEquals(List.of(revelation), index.search("effect revelation", 0, 10).getIds());
+    }
+
+    @Test
+    void searchShouldMatchAuthorsAndIgnoreCaseAndDiacritics() {
+        assertEquals(2, index.search("KARPYSHYN", 0, 10).getNumResults());
+        assertEquals(List.of(hobbit), index.search("tólkien", 0, 10).getIds());
+    }
+
+    @Test
+    void searchShouldTolerateMisspelledTerms() {
+        assertEquals(List.of(hobbit), index.search("hobit", 0, 10).getIds());
+        assertEquals(2, index.search("karpyshin", 0, 10).getNumResults());
+        assertEquals(0, index.search("xylophone", 0, 10).getNumResults());
+    }
+
+    @Test
+    void searchShouldPageAndCountAllMatches() {
+        IndexSearchResult page = index.search("mass", 1, 1);
+
+        assertEquals(3, page.getNumResults());
+        assertEquals(List.of(revelation), page.getIds());
+        assertTrue(index.search("mass", 5, 1).getIds().isEmpty());
+        assertEquals(0, index.search(" ,. ", 0, 10).getNumResults());
+    }
+
+    @Test
+    void addShouldIgnoreBooksThatAreAlreadyIndexed() {
+        assertFalse(index.add(hobbit, "The Hobbit", null, null));
+        assertTrue(index.contains(hobbit));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void tokenizeShouldSplitOnNonAlphanumericCharactersAndNormalize() {
+        assertEquals(List.of("mass", "effect", "2", "emigres"), BookSearchIndex.tokenize("Mass-Effect 2: Émigrés!"));
+        assertEquals(List.of(), BookSearchIndex.tokenize(null));
+    }
+}
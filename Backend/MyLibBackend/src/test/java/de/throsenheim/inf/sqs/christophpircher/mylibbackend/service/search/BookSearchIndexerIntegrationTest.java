@@ -0,0 +1,77 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.search;
+
+import com.jayway.jsonpath.JsonPath;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Book;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"search.internal.mode=memory", "import.enabled=false"})
+@AutoConfigureMockMvc
+@TestPropertySource(locations = "classpath:application-test.properties")
+class BookSearchIndexerIntegrationTest {
+
+    private static final String INTERNAL_SEARCH_URL = "/api/v1/search/internal/keyword";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookSearchIndexer bookSearchIndexer;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAll();
+    }
+
+    @Test
+    void searchInternalKeywordShouldUseIndexBuiltFromDatabase() throws Exception {
+        bookRepository.save(Book.builder().id(UUID.randomUUID()).bookID("OL1M").title("The Hobbit").build());
+        bookRepository.save(Book.builder().id(UUID.randomUUID()).bookID("OL2M").title("Mass effect").build());
+        bookSearchIndexer.build();
+
+        String json = mockMvc.perform(get(INTERNAL_SEARCH_URL).param("keywords", "hobit")).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+        assertEquals(1, (int) JsonPath.read(json, "$.numResults"));
+        assertEquals("OL1M", JsonPath.read(json, "$.books[0].bookID"));
+    }
+
+    @Test
+    void refreshShouldAddBooksStoredWithoutEvent() {
+        bookSearchIndexer.build();
+        UUID id = UUID.randomUUID();
+        bookRepository.save(Book.builder().id(id).bookID("OL3M").title("Dune Messiah").build());
+
+        bookSearchIndexer.refresh();
+
+        assertEquals(List.of(id), bookSearchIndexer.search("messiah", 0, 10).getIds());
+    }
+
+    @Test
+    void storedBooksShouldBeAddedToIndex() {
+        UUID id = UUID.randomUUID();
+
+        eventPublisher.publishEvent(new BookStoredEvent(id, "Mass Effect: Revelation", null, List.of("Drew Karpyshyn")));
+
+        assertEquals(List.of(id), bookSearchIndexer.search("karpyshyn revelation", 0, 10).getIds());
+    }
+}
@@ -0,0 +1,56 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.search;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Suggestion;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.SuggestionType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SuggestionIndexTest {
+
+    private final SuggestionIndex index = new SuggestionIndex.Builder()
+            .add("Mass effect", SuggestionType.TITLE, 5)
+            .add("Mass Effect: Revelation", SuggestionType.TITLE, 2)
+            .add("Massive Attack", SuggestionType.TITLE, 1)
+            .add("Drew Karpyshyn", SuggestionType.AUTHOR, 7)
+            .add("mass effect", SuggestionType.SEARCH, 4)
+            .add("Émile Zola", SuggestionType.AUTHOR, 1)
+            .build();
+
+    @Test
+    void suggestShouldReturnPrefixMatchesByPopularity() {
+        assertEquals(List.of("Mass effect", "Mass Effect: Revelation", "Massive Attack"), texts(index.suggest("mas", 10)));
+        assertEquals(List.of("Mass effect", "Mass Effect: Revelation"), texts(index.suggest("MASS EFF", 10)));
+        assertEquals(List.of("Mass effect"), texts(index.suggest("mas", 1)));
+    }
+
+    @Test
+    void suggestShouldMatchTheStartOfEveryWordOnce() {
+        assertEquals(List.of("Drew Karpyshyn"), texts(index.suggest("karp", 10)));
+        assertEquals(List.of("Mass effect", "Mass Effect: Revelation"), texts(index.suggest("effect", 10)));
+        assertEquals(List.of("Émile Zola"), texts(index.suggest("emil", 10)));
+        assertTrue(index.suggest("ffect", 10).isEmpty());
+    }
+
+    @Test
+    void builderShouldMergeSuggestionsWithTheSameNormalizedText() {
+        Suggestion merged = index.suggest("mass effect", 1).getFirst();
+
+        assertEquals("Mass effect", merged.getText());
+        assertEquals(SuggestionType.TITLE, merged.getType());
+        assertEquals(9, merged.getPopularity());
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    void suggestShouldReturnNothingForEmptyPrefixOrIndex() {
+        assertTrue(index.suggest(" - ", 10).isEmpty());
+        assertTrue(SuggestionIndex.EMPTY.suggest("mass", 10).isEmpty());
+    }
+
+    private static List<String> texts(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::getText).toList();
+    }
+}
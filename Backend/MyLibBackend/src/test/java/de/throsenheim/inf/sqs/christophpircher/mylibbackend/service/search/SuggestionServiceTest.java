@@ -0,0 +1,65 @@
+package de.throsenheim.inf.sqs.christophpircher.mylibbackend.service.search;
+
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.Suggestion;
+import de.throsenheim.inf.sqs.christophpircher.mylibbackend.model.SuggestionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class SuggestionServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private SuggestionService suggestionService;
+
+    @BeforeEach
+    void setUp() {
+        suggestionService = new SuggestionService(jdbcTemplate);
+    }
+
+    @Test
+    void searchesShouldOnlyBeSuggestedAfterSearchesOfDifferentSearchers() {
+        suggestionService.recordSearch("Mass Effect", "user:1");
+        suggestionService.rebuild();
+        assertTrue(suggestionService.suggest("mass", 10).isEmpty());
+
+        suggestionService.recordSearch("mass  effect ", "user:2");
+        suggestionService.rebuild();
+        List<Suggestion> suggestions = suggestionService.suggest("mass", 10);
+
+        assertEquals(1, suggestions.size());
+        assertEquals("Mass Effect", suggestions.getFirst().getText());
+        assertEquals(SuggestionType.SEARCH, suggestions.getFirst().getType());
+        assertEquals(2, suggestions.getFirst().getPopularity());
+    }
+
+    @Test
+    void repeatedSearchesOfOneSearcherShouldNotBeSuggested() {
+        suggestionService.recordSearch("Mass Effect", "user:1");
+        suggestionService.recordSearch("Mass Effect", "user:1");
+        suggestionService.rebuild();
+
+        assertTrue(suggestionService.suggest("mass", 10).isEmpty());
+    }
+
+    @Test
+    void recordSearchShouldIgnoreBlankAndOverlongKeywords() {
+        String overlong = "a".repeat(SuggestionService.MAX_SEARCH_LENGTH + 1);
+        for (int i = 0; i < SuggestionService.MIN_SEARCHERS; i++) {
+            suggestionService.recordSearch(" ", "user:" + i);
+            suggestionService.recordSearch(overlong, "user:" + i);
+        }
+        suggestionService.rebuild();
+
+        assertTrue(suggestionService.suggest("a", 10).isEmpty());
+    }
+}